@@ -0,0 +1,17 @@
+package com.example.android.project_booklistingapp;
+
+import java.util.List;
+
+/**
+ * Policy for turning a book's list of author names into the single string shown for it.
+ * Implementations must be safe to share between threads.
+ */
+
+public interface AuthorFormatter {
+
+    /**
+     * @param authors names in the order the API lists them; null or empty if the book has none
+     * @return display string for the author(s)
+     */
+    String format(List<String> authors);
+}
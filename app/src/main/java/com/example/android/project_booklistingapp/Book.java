@@ -3,41 +3,166 @@ package com.example.android.project_booklistingapp;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Contains data for a book.
+ * Author names are interned in a table shared by all books, so a name repeated across many books is
+ * stored once, and categories likewise. The table holds names weakly, so it only keeps the names of books still
+ * in use. The author display string is not stored; it is built by an {@link AuthorFormatter} when needed.
  */
 
 public class Book implements Parcelable {
 
+    /**
+     * Author names shared by all books
+     */
+    private static final StringTable sAuthorNames = new StringTable();
+
+    /**
+     * Category names shared by all books
+     */
+    private static final StringTable sCategoryNames = new StringTable();
+
+    /**
+     * Shared value for books with no authors or no categories
+     */
+    private static final String[] NO_NAMES = new String[0];
+
+    /**
+     * Google Books volume ID (null if unknown)
+     */
+    private final String mId;
+
     /**
      * Title of book
      */
-    private String mTitle;
+    private final String mTitle;
+
+    /**
+     * Author(s), as the instances shared through {@link #sAuthorNames}
+     */
+    private final String[] mAuthorNames;
+
+    /**
+     * URL of the cover thumbnail (null if none)
+     */
+    private final String mThumbnailUrl;
+
+    /**
+     * Publication date as Google Books gives it: "yyyy", "yyyy-mm" or "yyyy-mm-dd" (null if unknown)
+     */
+    private final String mPublishedDate;
+
+    /**
+     * ISO 639 language code, e.g. "en" (null if unknown)
+     */
+    private final String mLanguage;
+
+    /**
+     * Categories, e.g. "Fiction", as the instances shared through {@link #sCategoryNames}
+     */
+    private final String[] mCategories;
 
     /**
-     * Author(s)
+     * Constructor for a {@link Book} with at most one author.
+     * The second argument used to be the author display string; it is now a single author's name. A string
+     * listing several authors is kept as one name, so pass the names as a list instead.
+     *
+     * @param title  of the book
+     * @param author name of the book's author, or null if unknown
+     */
+    public Book(String title, String author) {
+        this(null, title, author);
+    }
+
+    /**
+     * Constructor for a {@link Book} with at most one author. Like {@link #Book(String, String)}, the last
+     * argument is one author's name, not a display string.
+     *
+     * @param id     Google Books volume ID, or null if unknown
+     * @param title  of the book
+     * @param author name of the book's author, or null if unknown
      */
-    private String mAuthors;
+    public Book(String id, String title, String author) {
+        this(id, title, author != null ? Collections.singletonList(author) : null);
+    }
 
     /**
      * Constructor for the {@link Book} class.
      *
-     * @param title   of the book
-     * @param authors of the book
+     * @param id          Google Books volume ID, or null if unknown
+     * @param title       of the book
+     * @param authorNames of the book, in order (null or empty if unknown). The list is not kept.
      */
-    public Book(String title, String authors) {
+    public Book(String id, String title, List<String> authorNames) {
+        this(id, title, authorNames, null);
+    }
+
+    /**
+     * Constructor for a {@link Book} with a cover thumbnail.
+     *
+     * @param id           Google Books volume ID, or null if unknown
+     * @param title        of the book
+     * @param authorNames  of the book, in order (null or empty if unknown). The list is not kept.
+     * @param thumbnailUrl URL of the cover thumbnail, or null if none
+     */
+    public Book(String id, String title, List<String> authorNames, String thumbnailUrl) {
+        this(id, title, authorNames, thumbnailUrl, null, null, null);
+    }
+
+    /**
+     * Constructor for a {@link Book} with all the details used for sorting and filtering.
+     *
+     * @param id            Google Books volume ID, or null if unknown
+     * @param title         of the book
+     * @param authorNames   of the book, in order (null or empty if unknown). The list is not kept.
+     * @param thumbnailUrl  URL of the cover thumbnail, or null if none
+     * @param publishedDate "yyyy", "yyyy-mm" or "yyyy-mm-dd", or null if unknown
+     * @param language      ISO 639 language code, or null if unknown
+     * @param categories    of the book (null or empty if none). The list is not kept.
+     */
+    public Book(String id, String title, List<String> authorNames, String thumbnailUrl, String publishedDate,
+                String language, List<String> categories) {
+        this.mId = id;
         this.mTitle = title;
-        this.mAuthors = authors;
+        this.mAuthorNames = internAll(sAuthorNames, authorNames);
+        this.mThumbnailUrl = thumbnailUrl;
+        this.mPublishedDate = publishedDate;
+        this.mLanguage = language;
+        this.mCategories = internAll(sCategoryNames, categories);
     }
 
     /**
-     * Reconstruct {@link Book} from a Parcelable
+     * Constructor for a copy of a {@link Book} with a different volume ID, sharing its author names.
+     */
+    private Book(String id, Book book) {
+        this.mId = id;
+        this.mTitle = book.mTitle;
+        this.mAuthorNames = book.mAuthorNames;
+        this.mThumbnailUrl = book.mThumbnailUrl;
+        this.mPublishedDate = book.mPublishedDate;
+        this.mLanguage = book.mLanguage;
+        this.mCategories = book.mCategories;
+    }
+
+    /**
+     * Reconstruct {@link Book} from a Parcelable.
+     * Names are interned again here, so they are shared with the other books in this process.
      *
      * @param in Parcelable with {@link Book}'s data
      */
     protected Book(Parcel in) {
+        mId = in.readString();
         mTitle = in.readString();
-        mAuthors = in.readString();
+        mAuthorNames = readNames(in, sAuthorNames);
+        mThumbnailUrl = in.readString();
+        mPublishedDate = in.readString();
+        mLanguage = in.readString();
+        mCategories = readNames(in, sCategoryNames);
     }
 
     /**
@@ -55,6 +180,60 @@ public class Book implements Parcelable {
         }
     };
 
+    /**
+     * Intern names into a table, skipping nulls.
+     */
+    private static String[] internAll(StringTable table, List<String> names) {
+        if (names == null || names.isEmpty()) {
+            return NO_NAMES;
+        }
+        String[] interned = new String[names.size()];
+        int count = 0;
+        for (String name : names) {
+            if (name != null) {
+                interned[count++] = table.intern(name);
+            }
+        }
+        if (count == 0) {
+            return NO_NAMES;
+        }
+        return count == interned.length ? interned : Arrays.copyOf(interned, count);
+    }
+
+    /**
+     * Read a count and that many names from a parcel, interning them into a table.
+     */
+    private static String[] readNames(Parcel in, StringTable table) {
+        int count = in.readInt();
+        if (count == 0) {
+            return NO_NAMES;
+        }
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = table.intern(in.readString());
+        }
+        return names;
+    }
+
+    /**
+     * Return a copy of this book with another volume ID.
+     *
+     * @param id Google Books volume ID
+     * @return new {@link Book}
+     */
+    Book withId(String id) {
+        return new Book(id, this);
+    }
+
+    /**
+     * Getter method to return volume ID
+     *
+     * @return Google Books volume ID, or null if unknown
+     */
+    public String getId() {
+        return mId;
+    }
+
     /**
      * Getter method to return title
      *
@@ -65,12 +244,92 @@ public class Book implements Parcelable {
     }
 
     /**
-     * Getter method to return author(s)
+     * Getter method to return cover thumbnail URL
      *
+     * @return thumbnail URL, or null if the book has none
+     */
+    public String getThumbnailUrl() {
+        return mThumbnailUrl;
+    }
+
+    /**
+     * Getter method to return publication date
+     *
+     * @return "yyyy", "yyyy-mm" or "yyyy-mm-dd", or null if unknown
+     */
+    public String getPublishedDate() {
+        return mPublishedDate;
+    }
+
+    /**
+     * Getter method to return language
+     *
+     * @return ISO 639 language code, or null if unknown
+     */
+    public String getLanguage() {
+        return mLanguage;
+    }
+
+    /**
+     * Getter method to return categories, as a read-only view like {@link #getAuthorNames()}
+     *
+     * @return category names (empty if none)
+     */
+    public List<String> getCategories() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return mCategories[index];
+            }
+
+            @Override
+            public int size() {
+                return mCategories.length;
+            }
+        };
+    }
+
+    /**
+     * Getter method to return author names.
+     * The list is a read-only view of the book's names.
+     *
+     * @return author names in order (empty if unknown)
+     */
+    public List<String> getAuthorNames() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return mAuthorNames[index];
+            }
+
+            @Override
+            public int size() {
+                return mAuthorNames.length;
+            }
+        };
+    }
+
+    /**
+     * Build the author display string. Nothing is cached, so call this when the string is about to be shown.
+     *
+     * @param authorFormatter policy for formatting author names
      * @return authors, as formatted string of one or more authors
      */
-    public String getAuthors() {
-        return mAuthors;
+    public String getAuthors(AuthorFormatter authorFormatter) {
+        return authorFormatter.format(getAuthorNames());
+    }
+
+    /**
+     * Title and author names separated by spaces, for matching search words against.
+     *
+     * @return searchable text
+     */
+    public String getSearchText() {
+        StringBuilder text = new StringBuilder(mTitle);
+        for (String authorName : mAuthorNames) {
+            text.append(' ').append(authorName);
+        }
+        return text.toString();
     }
 
     @Override
@@ -79,14 +338,27 @@ public class Book implements Parcelable {
     }
 
     /**
-     * Write {@link Book}' data to a Parcelable that can be saved as part of an Activity's state
+     * Write {@link Book}' data to a Parcelable that can be saved as part of an Activity's state.
+     * Layout: ID, title, author count, each author name, thumbnail URL, published date, language,
+     * category count, then each category name.
      *
      * @param parcel destination
      * @param i      flags
      */
     @Override
     public void writeToParcel(Parcel parcel, int i) {
+        parcel.writeString(mId);
         parcel.writeString(mTitle);
-        parcel.writeString(mAuthors);
+        parcel.writeInt(mAuthorNames.length);
+        for (String authorName : mAuthorNames) {
+            parcel.writeString(authorName);
+        }
+        parcel.writeString(mThumbnailUrl);
+        parcel.writeString(mPublishedDate);
+        parcel.writeString(mLanguage);
+        parcel.writeInt(mCategories.length);
+        for (String category : mCategories) {
+            parcel.writeString(category);
+        }
     }
 }
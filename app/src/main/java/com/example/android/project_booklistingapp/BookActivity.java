@@ -1,27 +1,42 @@
 package com.example.android.project_booklistingapp;
 
 import android.content.Context;
+import android.content.Intent;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
+import android.os.AsyncTask;
 import android.os.Bundle;
-import android.support.v4.app.LoaderManager;
-import android.support.v4.content.Loader;
+import android.os.Handler;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.Gravity;
 import android.view.View;
 import android.view.inputmethod.InputMethodManager;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
-import android.widget.ListView;
 import android.widget.ProgressBar;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
-public class BookActivity extends AppCompatActivity
-        implements LoaderManager.LoaderCallbacks<List<Book>> {
+public class BookActivity extends AppCompatActivity {
 
     /**
      * Tag for the log messages
@@ -29,42 +44,57 @@ public class BookActivity extends AppCompatActivity
     private static final String LOG_TAG = BookActivity.class.getSimpleName();
 
     /**
-     * Key for saving ListView state
+     * Key for saving the list's scroll state
      */
     private static final String LIST_VIEW_STATE = "LIST_VIEW_STATE";
 
     /**
-     * Key for saving {@link List<Book>} books list state
+     * Key for saving the ID of the on-disk snapshot of the books list
      */
-    private static final String BOOKS_LIST_STATE = "BOOKS_LIST_STATE";
+    private static final String SNAPSHOT_ID_STATE = "SNAPSHOT_ID_STATE";
 
     /**
-     * Query string "space" character. Does not get translated.
+     * Key for saving the search term(s) whose results are shown
      */
-    private static final String QUERY_CHARACTER_SPACE = " ";
+    private static final String SEARCH_TERM_STATE = "SEARCH_TERM_STATE";
 
     /**
-     * Query string "plus" character. Does not get translated.
+     * Name of the books list snapshot file, under the app's cache directory
      */
-    private static final String QUERY_CHARACTER_PLUS = "+";
+    private static final String SNAPSHOT_FILE = "book_list.snapshot";
 
     /**
-     * Query string "protocol, domain, and initial path" portion. Does not get translated.
+     * Key for saving the query's search terms, so further pages can be loaded after a configuration change
      */
-    private static final String QUERY_INITIALPATH = "https://www.googleapis.com/books/v1/volumes?q=";
+    private static final String QUERY_TERMS_STATE = "QUERY_TERMS_STATE";
 
     /**
-     * Query string "max results" portion. Does not get translated.
+     * Keys for saving the {@link BookPageWindow} state
      */
-    private static final String QUERY_MAXRESULTS = "&maxResults=";
+    private static final String PAGE_WINDOW_FIRST_STATE = "PAGE_WINDOW_FIRST_STATE";
+    private static final String PAGE_WINDOW_SIZES_STATE = "PAGE_WINDOW_SIZES_STATE";
+    private static final String PAGE_WINDOW_END_STATE = "PAGE_WINDOW_END_STATE";
 
     /**
-     * Reference to the {@link ListView}
+     * Keys for saving how results are sorted and filtered
      */
-    private ListView mListView;
+    private static final String SORT_STATE = "SORT_STATE";
+    private static final String FILTER_AUTHOR_STATE = "FILTER_AUTHOR_STATE";
+    private static final String FILTER_LANGUAGE_STATE = "FILTER_LANGUAGE_STATE";
+    private static final String FILTER_CATEGORY_STATE = "FILTER_CATEGORY_STATE";
 
     /**
-     * Reference to the {@link ListView}'s empty view.
+     * Reference to the {@link RecyclerView} showing results
+     */
+    private RecyclerView mRecyclerView;
+
+    /**
+     * Reference to the {@link RecyclerView}'s layout manager
+     */
+    private LinearLayoutManager mLayoutManager;
+
+    /**
+     * Reference to the view shown in place of the list while it is empty.
      */
     private TextView mEmptyView;
 
@@ -79,25 +109,183 @@ public class BookActivity extends AppCompatActivity
     private BookAdapter mAdapter;
 
     /**
-     * Limit search results to this number.
+     * Sorts, filters and counts facets of the loaded results in the background
+     */
+    private BookResultProcessor mResultProcessor;
+
+    /**
+     * Order the results are shown in, and the facet value they are filtered by
+     */
+    private BookResultIndex.Sort mSort = BookResultIndex.Sort.RELEVANCE;
+    private BookResultIndex.Filter mFilter = BookResultIndex.Filter.NONE;
+
+    /**
+     * Reference to the filter Spinner, its labels, and the filter each label stands for
+     */
+    private Spinner mFilterSpinner;
+    private ArrayAdapter<String> mFilterAdapter;
+    private final List<BookResultIndex.Filter> mFilterChoices = new ArrayList<BookResultIndex.Filter>();
+
+    /**
+     * Limit search results to this number per page.
      */
 
     private static final int MAX_RESULTS = 20;
 
+    /**
+     * Number of pages of results held in memory at once
+     */
+    private static final int MAX_PAGES_IN_MEMORY = 5;
+
+    /**
+     * Start loading the next (or previous) page when this many rows from the end (or start) of the list
+     */
+    private static final int PREFETCH_DISTANCE = 5;
+
+    /**
+     * Rows below the viewport whose full records are prefetched, on top of the visible ones
+     */
+    private static final int DETAIL_PREFETCH_DISTANCE = 3;
+
+    /**
+     * Delay after the last keystroke before a live search starts
+     */
+    private static final long LIVE_SEARCH_DEBOUNCE_MS = 400;
+
+    /**
+     * Minimum number of characters typed before a live search starts
+     */
+    private static final int LIVE_SEARCH_MIN_LENGTH = 3;
+
+    /**
+     * Time the search field must stay unchanged after a live search before its term is taken as the one the
+     * user settled on, and remembered in the search history
+     */
+    private static final long LIVE_SEARCH_SETTLE_MS = 3000;
+
+    /**
+     * Time the activity must sit idle (no typing, no search loading) before predicted searches are prefetched
+     */
+    private static final long PREFETCH_IDLE_MS = 3000;
+
+    /**
+     * Maximum number of predicted searches prefetched at a time
+     */
+    private static final int PREFETCH_PREDICTIONS = 3;
+
+    /**
+     * Most frequent values of each facet offered as filters
+     */
+    private static final int FILTER_CHOICES_PER_FACET = 5;
+
+    /**
+     * Tracks which pages of results are held in the list
+     */
+    private final BookPageWindow mPageWindow = new BookPageWindow(MAX_RESULTS, MAX_PAGES_IN_MEMORY);
+
+    /**
+     * startIndex of the page being loaded, or -1 if no page load is pending
+     */
+    private int mPendingStartIndex = -1;
+
     /**
      * Reference to ConnectivityManager
      */
     private ConnectivityManager mConnectivityManager;
 
     /**
-     * Reference to LoaderManager
+     * The first page of the current search, and a further page of it, while they load (null otherwise)
+     */
+    private SearchExecutor.Search<List<Book>> mSearch;
+    private SearchExecutor.Search<List<Book>> mPageSearch;
+
+    /**
+     * While mSearch looks the terms up in the local catalog rather than on the server (offline, or because
+     * the server could not be reached), the message to show if it finds nothing; 0 while it is a server search
+     */
+    private int mCatalogEmptyMessage = 0;
+
+    /**
+     * Lookup in the local catalog for a preview shown while the search loads, or null.
+     * Not handed to the next instance after a configuration change, which shows the retained list instead.
+     */
+    private SearchExecutor.Search<List<Book>> mPreviewSearch;
+
+    /**
+     * Receives the first page of a search
+     */
+    private final SearchExecutor.Callback<List<Book>> mSearchCallback = new SearchExecutor.Callback<List<Book>>() {
+        @Override
+        public void onResult(List<Book> books) {
+            mSearch = null;
+            onSearchFinished(books);
+        }
+
+        @Override
+        public void onError(IOException e) {
+            Log.e(LOG_TAG, "Problem fetching search results.", e);
+            mSearch = null;
+            onSearchFailed();
+        }
+    };
+
+    /**
+     * Receives the books found in the local catalog in place of a server search
+     */
+    private final SearchExecutor.Callback<List<Book>> mCatalogCallback = new SearchExecutor.Callback<List<Book>>() {
+        @Override
+        public void onResult(List<Book> books) {
+            mSearch = null;
+            onCatalogSearchFinished(books);
+        }
+
+        @Override
+        public void onError(IOException e) {
+            Log.e(LOG_TAG, "Problem searching the local catalog.", e);
+            mSearch = null;
+            onCatalogSearchFinished(new ArrayList<Book>());
+        }
+    };
+
+    /**
+     * Receives books from the local catalog to preview while the search loads
      */
-    private LoaderManager loaderManager;
+    private final SearchExecutor.Callback<List<Book>> mPreviewCallback = new SearchExecutor.Callback<List<Book>>() {
+        @Override
+        public void onResult(List<Book> books) {
+            mPreviewSearch = null;
+            // Only fills an empty list; the search's own results replace it
+            if (mSearchInProgress && mBooks.isEmpty() && !books.isEmpty()) {
+                mBooks.addAll(books);
+                showBooks(null);
+            }
+        }
+
+        @Override
+        public void onError(IOException e) {
+            // No preview; the search's results show when they arrive
+            mPreviewSearch = null;
+        }
+    };
 
     /**
-     * Determine whether Loader needs to be restarted for new search term(s)
+     * Receives a further page of the current search
      */
-    private static boolean mFirstSearch = true;
+    private final SearchExecutor.Callback<List<Book>> mPageCallback = new SearchExecutor.Callback<List<Book>>() {
+        @Override
+        public void onResult(List<Book> books) {
+            mPageSearch = null;
+            onPageLoaded(books);
+        }
+
+        @Override
+        public void onError(IOException e) {
+            Log.e(LOG_TAG, "Problem fetching a further page of results.", e);
+            mPageSearch = null;
+            // Not the end of the results: the window is left as it is, so the next scroll asks for the page again
+            mPendingStartIndex = -1;
+        }
+    };
 
     /**
      * Reference to EditText with search term(s) input by user
@@ -115,9 +303,9 @@ public class BookActivity extends AppCompatActivity
     private String mSearchTerm = null;
 
     /**
-     * Store formatted HTTP query string, created from user's search term(s)
+     * Store the query built from user's search term(s), or null if there is none to load pages of
      */
-    private String mQueryString = null;
+    private BookQuery mQuery = null;
 
     /**
      * Store reference to InputManager
@@ -125,10 +313,139 @@ public class BookActivity extends AppCompatActivity
     private InputMethodManager mInputManager;
 
     /**
-     * Store reference to {@link List} of {@link Book}
+     * Store reference to {@link List} of {@link Book}. Changes are shown by submitting a copy to the adapter.
      */
     private List<Book> mBooks;
 
+    /**
+     * Search term whose results are currently shown (null while a search is loading)
+     */
+    private String mLoadedSearchTerm = null;
+
+    /**
+     * Whether the first page of a search is still loading
+     */
+    private boolean mSearchInProgress = false;
+
+    /**
+     * Handler used to debounce keystrokes for live search
+     */
+    private final Handler mLiveSearchHandler = new Handler();
+
+    /**
+     * Starts a live search for whatever is in the search field, once typing has paused
+     */
+    private final Runnable mLiveSearchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            String term = mSearchField.getText().toString().trim();
+            // Typing that doesn't change the query (a second space, a change of case) doesn't search again
+            if (term.length() >= LIVE_SEARCH_MIN_LENGTH && (mSearchTerm == null
+                    || !QueryCanonicalizer.canonicalize(term).equals(QueryCanonicalizer.canonicalize(mSearchTerm)))) {
+                mSearchTerm = term;
+                mUnrecordedSearchTerm = term;
+                fetchBooks();
+            }
+            // Partial terms typed on the way to the real query are not history; wait to see if this one sticks
+            if (mUnrecordedSearchTerm != null && QueryCanonicalizer.canonicalize(term)
+                    .equals(QueryCanonicalizer.canonicalize(mUnrecordedSearchTerm))) {
+                mLiveSearchHandler.postDelayed(mRecordSearchRunnable, LIVE_SEARCH_SETTLE_MS);
+            }
+        }
+    };
+
+    /**
+     * Term of the last live search, until it is remembered in the search history or abandoned (null otherwise)
+     */
+    private String mUnrecordedSearchTerm;
+
+    /**
+     * Remembers the last live search once the user has stopped changing it
+     */
+    private final Runnable mRecordSearchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            recordSearch();
+        }
+    };
+
+    /**
+     * Prefetches the searches the user is likely to make next, once the activity has been idle for a while.
+     * Only runs on an unmetered network, so predictions never cost the user data.
+     */
+    private final Runnable mPrefetchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mSearchInProgress || mConnectivityManager == null) {
+                return;
+            }
+            NetworkInfo activeNetwork = mConnectivityManager.getActiveNetworkInfo();
+            if (activeNetwork == null || !activeNetwork.isConnected()
+                    || mConnectivityManager.isActiveNetworkMetered()) {
+                return;
+            }
+
+            // Complete what has been typed from history, or else predict a repeat of recent searches
+            final String typed = mSearchField.getText().toString().trim();
+            final Context appContext = getApplicationContext();
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    QueryHistory history = QueryUtils.getQueryHistory(appContext);
+                    List<String> predictions = typed.isEmpty()
+                            ? history.recent(PREFETCH_PREDICTIONS)
+                            : history.completions(typed, PREFETCH_PREDICTIONS);
+
+                    // Build URLs exactly as fetchBooks() does, so the prefetched results are its cache hits
+                    List<String> urls = new ArrayList<String>(predictions.size());
+                    for (String terms : predictions) {
+                        urls.add(QueryUtils.newQuery(terms).withMaxResults(MAX_RESULTS).toUrl());
+                    }
+                    if (!urls.isEmpty()) {
+                        QueryUtils.getPrefetcher(appContext).prefetch(urls);
+                    }
+                }
+            });
+        }
+    };
+
+    /**
+     * Listens for typing in the search field, to run live searches
+     */
+    private TextWatcher mSearchFieldWatcher;
+
+    /**
+     * Whether the search must be run again in onResume, because its results could not be restored
+     */
+    private boolean mRestartSearch = false;
+
+    /**
+     * Results held across configuration changes, so they need not be saved to and rebuilt from a Bundle,
+     * along with any searches still loading, which deliver to the new instance
+     */
+    private static final class RetainedState {
+        private final List<Book> mBooks;
+        private final String mSearchTerm;
+        private final String mLoadedSearchTerm;
+        private final SearchExecutor.Search<List<Book>> mSearch;
+        private final SearchExecutor.Search<List<Book>> mPageSearch;
+        private final int mPendingStartIndex;
+        private final int mCatalogEmptyMessage;
+
+        private RetainedState(List<Book> books, String searchTerm, String loadedSearchTerm,
+                              SearchExecutor.Search<List<Book>> search,
+                              SearchExecutor.Search<List<Book>> pageSearch, int pendingStartIndex,
+                              int catalogEmptyMessage) {
+            this.mBooks = books;
+            this.mSearchTerm = searchTerm;
+            this.mLoadedSearchTerm = loadedSearchTerm;
+            this.mSearch = search;
+            this.mPageSearch = pageSearch;
+            this.mPendingStartIndex = pendingStartIndex;
+            this.mCatalogEmptyMessage = catalogEmptyMessage;
+        }
+    }
+
 
     /**
      * Called when activity is created or resumed.
@@ -142,46 +459,167 @@ public class BookActivity extends AppCompatActivity
 
         setContentView(R.layout.activity_book);
 
-        // Store reference to the ListView
-        mListView = findViewById(R.id.list_view);
+        // Store reference to the RecyclerView, and lay its rows out as a vertical list
+        mRecyclerView = findViewById(R.id.list_view);
+        mLayoutManager = new LinearLayoutManager(this);
+        mRecyclerView.setLayoutManager(mLayoutManager);
 
         // Store reference to the ProgressBar
         mProgressBar = findViewById(R.id.progress_bar);
 
 
-        // Check whether saved state exists and contains previously loaded list of books from Google Books.
-        // If so, retrieve data and create new adapter using it.
-        if (savedInstanceState != null && savedInstanceState.containsKey(BOOKS_LIST_STATE)) {
-            mBooks = savedInstanceState.getParcelableArrayList(BOOKS_LIST_STATE);
-            mAdapter = new BookAdapter(this, mBooks);
-        } else { // If no saved state,
-            // Create new {@link com.example.android.project_booklistingapp.BookAdapter}.
+        // After a configuration change, take the results over from the previous instance as they are.
+        // After the process was killed, read them back from the snapshot written when state was saved.
+        RetainedState retained = (RetainedState) getLastCustomNonConfigurationInstance();
+        if (retained != null) {
+            mBooks = retained.mBooks;
+            mSearchTerm = retained.mSearchTerm;
+            mLoadedSearchTerm = retained.mLoadedSearchTerm;
+            mSearch = retained.mSearch;
+            mPageSearch = retained.mPageSearch;
+            mPendingStartIndex = mPageSearch != null ? retained.mPendingStartIndex : -1;
+            mCatalogEmptyMessage = mSearch != null ? retained.mCatalogEmptyMessage : 0;
+            mSearchInProgress = mSearch != null;
+        } else if (savedInstanceState != null && savedInstanceState.containsKey(SNAPSHOT_ID_STATE)) {
+            mSearchTerm = savedInstanceState.getString(SEARCH_TERM_STATE);
+            // The list is bounded by the page window, so the snapshot is small enough to read here
+            mBooks = BookListSnapshot.read(new File(getCacheDir(), SNAPSHOT_FILE),
+                    savedInstanceState.getLong(SNAPSHOT_ID_STATE));
+            if (mBooks != null) {
+                mLoadedSearchTerm = mSearchTerm;
+            } else if (mSearchTerm != null) {
+                // Snapshot is missing or stale; search again once the activity is running
+                mRestartSearch = true;
+            }
+        }
+        if (mBooks == null) {
             // Provide a blank List to first create the adapter; this will be updated when data has loaded.
-            mAdapter = new BookAdapter(this, new ArrayList<Book>());
+            mBooks = new ArrayList<Book>();
+        }
+        mAdapter = new BookAdapter(this, AsyncTask.THREAD_POOL_EXECUTOR);
+        mAdapter.setOnBookClickListener(new BookAdapter.OnBookClickListener() {
+            @Override
+            public void onBookClick(Book book) {
+                // Opening a result means the user settled on the search that found it
+                recordSearch();
+                Intent intent = new Intent(BookActivity.this, BookDetailActivity.class);
+                intent.putExtra(BookDetailActivity.EXTRA_BOOK, book);
+                startActivity(intent);
+            }
+        });
+
+        // Sort and filter results as they were before the activity was recreated
+        if (savedInstanceState != null && savedInstanceState.containsKey(SORT_STATE)) {
+            mSort = BookResultIndex.Sort.valueOf(savedInstanceState.getString(SORT_STATE));
+            mFilter = new BookResultIndex.Filter(savedInstanceState.getString(FILTER_AUTHOR_STATE),
+                    savedInstanceState.getString(FILTER_LANGUAGE_STATE),
+                    savedInstanceState.getString(FILTER_CATEGORY_STATE));
+        }
+        final Handler resultHandler = new Handler();
+        mResultProcessor = new BookResultProcessor(Locale.getDefault(), new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                resultHandler.post(runnable);
+            }
+        });
+        setUpRefineBar();
+        showBooks(null);
+
+        // Restore which pages are held, so scrolling can continue loading from where it left off
+        if (savedInstanceState != null && !mRestartSearch) {
+            String queryTerms = savedInstanceState.getString(QUERY_TERMS_STATE);
+            mQuery = queryTerms != null ? QueryUtils.newQuery(queryTerms).withMaxResults(MAX_RESULTS) : null;
+            mPageWindow.restore(savedInstanceState.getInt(PAGE_WINDOW_FIRST_STATE),
+                    savedInstanceState.getIntArray(PAGE_WINDOW_SIZES_STATE),
+                    savedInstanceState.getBoolean(PAGE_WINDOW_END_STATE));
         }
 
-        // If we've saved the ListView state previously (for example, upon orientation change),
+        // If we've saved the list state previously (for example, upon orientation change),
         // restore that state.
         if (savedInstanceState != null && savedInstanceState.containsKey(LIST_VIEW_STATE)) {
             // Restore previous state (scroll position, etc.)
-            mListView.onRestoreInstanceState(savedInstanceState.getParcelable(LIST_VIEW_STATE));
+            mLayoutManager.onRestoreInstanceState(savedInstanceState.getParcelable(LIST_VIEW_STATE));
         }
 
-        // Store reference to the ListView's empty view
+        // Store reference to the list's empty view, and show it whenever the list has no rows
         mEmptyView = findViewById(R.id.empty_view);
+        mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                updateEmptyView();
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                updateEmptyView();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                updateEmptyView();
+            }
+        });
+        updateEmptyView();
+
+        // Set adapter on the RecyclerView
+        mRecyclerView.setAdapter(mAdapter);
+
+        // Load further pages as the user nears either end of the list, and prefetch full records of the rows
+        // in view once it stops moving
+        mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    prefetchDetails();
+                }
+            }
+
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                // Called with no movement when a layout changes which rows are in view, e.g. a new list
+                if (dx == 0 && dy == 0) {
+                    prefetchDetails();
+                }
 
-        // Set empty view
-        mListView.setEmptyView(mEmptyView);
+                int firstVisibleItem = mLayoutManager.findFirstVisibleItemPosition();
+                int visibleItemCount = mLayoutManager.getChildCount();
+                int totalItemCount = mLayoutManager.getItemCount();
 
-        // Set adapter on the ListView
-        mListView.setAdapter(mAdapter);
+                // Nothing to page through, a new search is loading, or a page is already on its way
+                if (mQuery == null || totalItemCount == 0 || mSearchInProgress || mPendingStartIndex >= 0) {
+                    return;
+                }
 
-        // Get reference to a loader manager instance
-        loaderManager = getSupportLoaderManager();
+                if (!mPageWindow.isEndReached()
+                        && firstVisibleItem + visibleItemCount >= totalItemCount - PREFETCH_DISTANCE) {
+                    loadPage(mPageWindow.getNextStartIndex());
+                } else if (mPageWindow.hasPrevious() && firstVisibleItem <= PREFETCH_DISTANCE) {
+                    loadPage(mPageWindow.getPreviousStartIndex());
+                }
+            }
+        });
+
+        // Read the local catalog off the main thread, so it is ready for the first search
+        final Context appContext = getApplicationContext();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                QueryUtils.getSearchEngine(appContext);
+            }
+        });
 
         // Get references to search text & button, and store in global variables
         mSearchField = (EditText) findViewById(R.id.search_term);
         mSearchButton = (Button) findViewById(R.id.search_button);
+
+        // Take delivery of searches started by the previous instance. One that finished in between delivers now.
+        if (mSearchInProgress) {
+            mProgressBar.setVisibility(View.VISIBLE);
+            mSearch.attach(mCatalogEmptyMessage != 0 ? mCatalogCallback : mSearchCallback);
+        }
+        if (mPageSearch != null) {
+            mPageSearch.attach(mPageCallback);
+        }
     }
 
     /**
@@ -198,6 +636,19 @@ public class BookActivity extends AppCompatActivity
             mConnectivityManager = (ConnectivityManager) this.getSystemService(Context.CONNECTIVITY_SERVICE);
         }
 
+        // Open a connection to the server now, so the first search can reuse it
+        final Context appContext = getApplicationContext();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                QueryUtils.warmUpConnection(appContext);
+            }
+        });
+
+        // Prefetch likely searches if the user doesn't start one soon
+        mLiveSearchHandler.removeCallbacks(mPrefetchRunnable);
+        mLiveSearchHandler.postDelayed(mPrefetchRunnable, PREFETCH_IDLE_MS);
+
         // Set listener to detect when Search button is pressed
         if (!mSearchButton.hasOnClickListeners()) {
             mSearchButton.setOnClickListener(new View.OnClickListener() {
@@ -208,7 +659,23 @@ public class BookActivity extends AppCompatActivity
 
                     // Check whether entry is valid
                     if (!mSearchTerm.isEmpty()) {
+                        // Search now rather than waiting for a pending live search
+                        mLiveSearchHandler.removeCallbacks(mLiveSearchRunnable);
+
+                        // Get instance of InputManager, if one doesn't already exist
+                        if (mInputManager == null) {
+                            mInputManager = (InputMethodManager) BookActivity.this.getSystemService(Context.INPUT_METHOD_SERVICE);
+                        }
+                        // Hide the keyboard, since search button has been pressed.
+                        // (User can bring soft keyboard up again by tapping in the search term EditText for another search).
+                        mInputManager.hideSoftInputFromWindow(BookActivity.this.getCurrentFocus().getWindowToken(), InputMethodManager.HIDE_NOT_ALWAYS);
+
                         fetchBooks();
+
+                        // A submitted search is remembered at once
+                        mLiveSearchHandler.removeCallbacks(mRecordSearchRunnable);
+                        mUnrecordedSearchTerm = mSearchTerm;
+                        recordSearch();
                     } else {
                         // Display toast notifying user to enter a search term before pressing button
                         Toast toast = Toast.makeText(BookActivity.this, R.string.error_message_no_search_terms, Toast.LENGTH_SHORT);
@@ -218,22 +685,48 @@ public class BookActivity extends AppCompatActivity
                 }
             });
         }
+
+        // Results could not be restored after the process was killed; fetch them again
+        if (mRestartSearch) {
+            mRestartSearch = false;
+            fetchBooks();
+        }
+
+        // Set listener to run a live search once the user pauses typing
+        if (mSearchFieldWatcher == null) {
+            mSearchFieldWatcher = new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                }
+
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {
+                }
+
+                @Override
+                public void afterTextChanged(Editable s) {
+                    // Restart the debounce delay on every keystroke, and don't yet count the last live search as settled
+                    mLiveSearchHandler.removeCallbacks(mLiveSearchRunnable);
+                    mLiveSearchHandler.removeCallbacks(mRecordSearchRunnable);
+                    mLiveSearchHandler.postDelayed(mLiveSearchRunnable, LIVE_SEARCH_DEBOUNCE_MS);
+
+                    // Typing isn't idle; predict completions once it pauses for longer
+                    mLiveSearchHandler.removeCallbacks(mPrefetchRunnable);
+                    mLiveSearchHandler.postDelayed(mPrefetchRunnable, PREFETCH_IDLE_MS);
+                }
+            };
+            mSearchField.addTextChangedListener(mSearchFieldWatcher);
+        }
     }
 
     /**
-     * Format a server query string from the user's input search term(s).
-     * Create a new {@link BookLoader} to perform server operations on a background thread.
-     * If additional searches, restart the {@link BookLoader} to get new data.
+     * Format a server query string from the user's input search term(s), and search for it on the
+     * {@link SearchExecutor}. Any previous search still loading is cancelled, closing its in-flight request.
      */
     private void fetchBooks() {
 
-        // Get instance of InputManager, if one doesn't already exist
-        if (mInputManager == null) {
-            mInputManager = (InputMethodManager) this.getSystemService(Context.INPUT_METHOD_SERVICE);
-        }
-        // Hide the keyboard, since search button has been pressed.
-        // (User can bring soft keyboard up again by tapping in the search term EditText for another search).
-        mInputManager.hideSoftInputFromWindow(this.getCurrentFocus().getWindowToken(), InputMethodManager.HIDE_NOT_ALWAYS);
+        // Filters belong to the results of the previous search; the sort order is kept
+        mFilter = BookResultIndex.Filter.NONE;
 
         // Check whether there is network connectivity
         NetworkInfo activeNetwork = mConnectivityManager.getActiveNetworkInfo();
@@ -242,14 +735,18 @@ public class BookActivity extends AppCompatActivity
 
         // If no network connection
         if (!isConnected) {
-            // Clear out previous data
-            mAdapter.clear();
-
-            // Turn on empty view text
-            mEmptyView.setVisibility(View.VISIBLE);
-
-            // Set empty view text to show error message regarding network connectivity
-            mEmptyView.setText(R.string.error_message_no_network_connection);
+            // Clear out previous data, and stop any search still loading
+            cancelSearches();
+            mBooks.clear();
+            mLoadedSearchTerm = null;
+
+            // Answer from books fetched earlier, if any match. There are no further pages to load.
+            mQuery = null;
+            mPageWindow.reset();
+            mPendingStartIndex = -1;
+            mEmptyView.setVisibility(View.GONE);
+            searchCatalog(MAX_RESULTS * MAX_PAGES_IN_MEMORY, R.string.error_message_no_network_connection);
+            showBooks(null);
             return;
         } else {
             mEmptyView.setVisibility(View.GONE);
@@ -258,70 +755,490 @@ public class BookActivity extends AppCompatActivity
         // Display the ProgressBar while books are fetched
         mProgressBar.setVisibility(View.VISIBLE);
 
-        // Declare and initialize new StringBuilder with server protocol/domain/partial path
-        StringBuilder queryStringBuilder = new StringBuilder(QUERY_INITIALPATH);
+        // Predicted searches wait until the user is idle again
+        mLiveSearchHandler.removeCallbacks(mPrefetchRunnable);
+
+        final Context appContext = getApplicationContext();
+        long urlBuildStart = SearchMetrics.now();
 
-        // Add search term(s) to path
-        queryStringBuilder.append(mSearchTerm);
-        // Add search criteria to path
-        queryStringBuilder.append(QUERY_MAXRESULTS + Integer.toString(MAX_RESULTS));
+        // Build the query from the search term(s), which it canonicalizes and URL-encodes,
+        // asking only for the fields we show
+        mQuery = QueryUtils.newQuery(mSearchTerm).withMaxResults(MAX_RESULTS);
+        SearchMetrics.getDefault().recordSince(SearchMetrics.Stage.URL_BUILD, urlBuildStart);
 
-        // Convert results to string. If any spaces between multiple search terms, replaces with needed "+" symbol.
-        mQueryString = queryStringBuilder.toString().replace(QUERY_CHARACTER_SPACE, QUERY_CHARACTER_PLUS);
+        // Forget pages of any previous search, and cancel any page load still running for it
+        mPageWindow.reset();
+        mPendingStartIndex = -1;
+        cancelSearches();
 
-        // Create a new loader if initial search, otherwise restart the loader with fresh search term(s)
-        if (mFirstSearch) {
-            mFirstSearch = false;
-            loaderManager.initLoader(1, null, this);
-        } else if (!mFirstSearch) {
-            mAdapter.clear();
-            loaderManager.restartLoader(1, null, this);
+        // If the new term only narrows down the one whose results are shown,
+        // keep the results that still match as a preview until the new search arrives.
+        // Otherwise preview matching books from the local catalog, looked up in the background.
+        List<Book> preview = null;
+        if (PrefixRefinement.isRefinement(mLoadedSearchTerm, mSearchTerm)) {
+            preview = PrefixRefinement.filter(mBooks, mSearchTerm);
+        }
+        mLoadedSearchTerm = null;
+        mSearchInProgress = true;
+        mBooks.clear();
+        if (preview != null && !preview.isEmpty()) {
+            mBooks.addAll(preview);
+        } else {
+            final String terms = mSearchTerm;
+            mPreviewSearch = QueryUtils.getSearchExecutor().submit(SearchExecutor.Priority.USER_INITIATED,
+                    new SearchExecutor.Task<List<Book>>() {
+                        @Override
+                        public List<Book> run(CancellationToken cancellation) {
+                            return QueryUtils.searchCatalog(appContext, terms, MAX_RESULTS);
+                        }
+                    }, mPreviewCallback);
         }
+        showBooks(null);
+
+        // The user's search comes first. A prefetch of this same query is left to finish and joined rather
+        // than repeated, so cancelling only stops the rest of the batch.
+        String url = mQuery.toUrl();
+        mSearch = search(url, mSearchCallback);
+        QueryUtils.cancelPrefetch(url);
     }
 
-    // Create a new loader, including the user's search term(s)
-    @Override
-    public Loader<List<Book>> onCreateLoader(int id, Bundle args) {
-        return new BookLoader(this, mQueryString);
+    /**
+     * Remember the search the user submitted or settled on, if it has not been already, to predict the next ones.
+     */
+    private void recordSearch() {
+        final String searchTerm = mUnrecordedSearchTerm;
+        mUnrecordedSearchTerm = null;
+        if (searchTerm == null) {
+            return;
+        }
+        final Context appContext = getApplicationContext();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                QueryUtils.getQueryHistory(appContext).record(searchTerm);
+            }
+        });
     }
 
-    @Override
-    public void onLoadFinished(Loader<List<Book>> loader, List<Book> books) {
+    /**
+     * Search on the shared {@link SearchExecutor}, ahead of any prefetching.
+     *
+     * @param url      query URL
+     * @param callback receives the books, on the main thread
+     * @return handle for cancelling the search
+     */
+    private SearchExecutor.Search<List<Book>> search(final String url, SearchExecutor.Callback<List<Book>> callback) {
+        final Context appContext = getApplicationContext();
+        return QueryUtils.getSearchExecutor().submit(SearchExecutor.Priority.USER_INITIATED,
+                new SearchExecutor.Task<List<Book>>() {
+                    @Override
+                    public List<Book> run(CancellationToken cancellation) throws IOException {
+                        return QueryUtils.getSearchEngine(appContext).search(url, cancellation);
+                    }
+                }, callback);
+    }
 
+    /**
+     * Look the search term(s) up in the local catalog in place of a server search, as the current search.
+     * The lookup runs on the {@link SearchExecutor}, since the first one may read the catalog from disk.
+     *
+     * @param limit        maximum number of books to show
+     * @param emptyMessage shown if none match
+     */
+    private void searchCatalog(final int limit, int emptyMessage) {
+        mProgressBar.setVisibility(View.VISIBLE);
+        mSearchInProgress = true;
+        mCatalogEmptyMessage = emptyMessage;
+        final Context appContext = getApplicationContext();
+        final String terms = mSearchTerm;
+        mSearch = QueryUtils.getSearchExecutor().submit(SearchExecutor.Priority.USER_INITIATED,
+                new SearchExecutor.Task<List<Book>>() {
+                    @Override
+                    public List<Book> run(CancellationToken cancellation) {
+                        return QueryUtils.searchCatalog(appContext, terms, limit);
+                    }
+                }, mCatalogCallback);
+    }
+
+    /**
+     * Cancel the current search, its preview and any further page of it still loading.
+     * None of them delivers afterwards.
+     */
+    private void cancelSearches() {
+        if (mSearch != null) {
+            mSearch.cancel();
+            mSearch = null;
+        }
+        mCatalogEmptyMessage = 0;
+        cancelPreview();
+        if (mPageSearch != null) {
+            mPageSearch.cancel();
+            mPageSearch = null;
+        }
+    }
+
+    /**
+     * Drop the catalog preview if it is still being looked up, e.g. because the search's own results are in.
+     */
+    private void cancelPreview() {
+        if (mPreviewSearch != null) {
+            mPreviewSearch.cancel();
+            mPreviewSearch = null;
+        }
+    }
+
+    /**
+     * Start loading one further page of the current search.
+     *
+     * @param startIndex of the page in the full result set
+     */
+    private void loadPage(int startIndex) {
+        mPendingStartIndex = startIndex;
+        mPageSearch = search(mQuery.withStartIndex(startIndex).toUrl(), mPageCallback);
+    }
+
+    /**
+     * Add a loaded page to the list, at whichever end it belongs, and drop pages from the other end
+     * that no longer fit in the window. Keeps the rows on screen in place.
+     *
+     * @param books of the page just loaded, or null if it has none
+     */
+    private void onPageLoaded(List<Book> books) {
+        // Ignore pages no longer wanted
+        int startIndex = mPendingStartIndex;
+        if (startIndex < 0) {
+            return;
+        }
+        mPendingStartIndex = -1;
+
+        int size = books == null ? 0 : books.size();
+        List<Book> added = size > 0 ? notShown(books) : new ArrayList<Book>();
+
+        // Sorted or filtered, the first and last pages loaded are not at the ends of the list the user sees,
+        // so evicting them would remove rows from the middle of it. Keep every page until the order is restored.
+        mPageWindow.setEvictionPaused(!isArrivalOrder());
+
+        // Rows removed above the visible ones keep the list in place by themselves;
+        // only the inserted or removed rows are rebound.
+        if (startIndex == mPageWindow.getNextStartIndex()) {
+            int evicted = mPageWindow.appendPage(size, added.size());
+            mBooks.addAll(added);
+            if (evicted > 0) {
+                mBooks.subList(0, evicted).clear();
+            }
+            showBooks(null);
+        } else if (startIndex == mPageWindow.getPreviousStartIndex() && size > 0) {
+            // Remember where the list is scrolled to, so it stays in place rather than
+            // following rows inserted at the very top
+            final int firstVisible = mLayoutManager.findFirstVisibleItemPosition();
+            View firstChild = mLayoutManager.getChildAt(0);
+            final int top = firstChild == null ? 0 : firstChild.getTop();
+            final int inserted = added.size();
+
+            int evicted = mPageWindow.prependPage(added.size());
+            mBooks.addAll(0, added);
+            if (evicted > 0) {
+                mBooks.subList(mBooks.size() - evicted, mBooks.size()).clear();
+            }
+            showBooks(new Runnable() {
+                @Override
+                public void run() {
+                    mLayoutManager.scrollToPositionWithOffset(firstVisible + inserted, top);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drop the books of a page that are already in the list, or repeated within the page. The API often returns
+     * a volume again on a later page, and the adapter's stable IDs need each volume to appear once.
+     *
+     * @param page books just loaded
+     * @return books of the page to add, in order
+     */
+    private List<Book> notShown(List<Book> page) {
+        Set<String> shownIds = new HashSet<String>(mBooks.size() * 2);
+        for (Book book : mBooks) {
+            if (book.getId() != null) {
+                shownIds.add(book.getId());
+            }
+        }
+        List<Book> added = new ArrayList<Book>(page.size());
+        for (Book book : page) {
+            if (book.getId() == null || shownIds.add(book.getId())) {
+                added.add(book);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Show the first page of a search, in place of any preview.
+     *
+     * @param books of the first page, or null if the search found none
+     */
+    private void onSearchFinished(List<Book> books) {
         // Hide the ProgressBar so we can display either list of books or empty state message
         mProgressBar.setVisibility(View.GONE);
 
-        if (books != null && !books.isEmpty()) {
-            mAdapter.addAll(books);
-
-            mBooks = books;
+        // Replace any preview shown while the search was loading.
+        // Rows that are in both are kept; only the differences are rebound.
+        mSearchInProgress = false;
+        cancelPreview();
+        mBooks.clear();
+
+        // First page of the search is now held; an empty one is the end of the results
+        int size = books == null ? 0 : books.size();
+        List<Book> added = size > 0 ? notShown(books) : new ArrayList<Book>();
+        mPageWindow.appendPage(size, added.size());
+        if (size > 0) {
+            mBooks.addAll(added);
+            mLoadedSearchTerm = mSearchTerm;
         } else { // No data returned
-            // Set text to display message to user & make it visible
+            // Set text to display message to user; it shows once the list is empty
             mEmptyView.setText(R.string.empty_message_no_books_found);
-            mEmptyView.setVisibility(View.VISIBLE);
         }
+        showBooks(null);
     }
 
-    @Override
-    public void onLoaderReset(Loader<List<Book>> loader) {
-        // Clear the data
-        mAdapter.clear();
+    /**
+     * The search failed (e.g. the connection dropped): look for books fetched earlier that match instead.
+     * Any preview stays on screen until they are found. There are no further pages to load for them.
+     */
+    private void onSearchFailed() {
+        cancelPreview();
+        mQuery = null;
+        mPageWindow.reset();
+        mPendingStartIndex = -1;
+        searchCatalog(MAX_RESULTS, R.string.error_message_search_failed);
     }
 
-    @Override
-    protected void onSaveInstanceState(Bundle outState) {
+    /**
+     * Show the books found in the local catalog in place of a server search, in place of any preview.
+     *
+     * @param books matching books, possibly none
+     */
+    private void onCatalogSearchFinished(List<Book> books) {
+        mProgressBar.setVisibility(View.GONE);
+        mSearchInProgress = false;
+        int emptyMessage = mCatalogEmptyMessage;
+        mCatalogEmptyMessage = 0;
+        mBooks.clear();
+
+        if (!books.isEmpty()) {
+            mBooks.addAll(books);
+            mLoadedSearchTerm = mSearchTerm;
+        } else {
+            mLoadedSearchTerm = null;
+            // Shows once the list is empty
+            mEmptyView.setText(emptyMessage);
+        }
+        showBooks(null);
+    }
 
-        // Check whether there is any data (i.e. list of books, which would also mean list view state is present).
-        // (If list of books is null, then we don't need to worry about saving it or list view state).
-        if (mBooks != null) {
+    /**
+     * Prefetch the full records of the rows in view and just below, at background priority, so opening one
+     * usually needs no round trip. Prefetches for rows scrolled away from are dropped if not yet started.
+     */
+    private void prefetchDetails() {
+        int first = mLayoutManager.findFirstVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+        int last = Math.min(mLayoutManager.findLastVisibleItemPosition() + DETAIL_PREFETCH_DISTANCE,
+                mAdapter.getItemCount() - 1);
+        List<String> volumeIds = new ArrayList<String>();
+        for (int position = first; position <= last; position++) {
+            volumeIds.add(mAdapter.getBook(position).getId());
+        }
+        QueryUtils.getVolumeDetailFetcher().prefetch(volumeIds);
+    }
 
-            super.onSaveInstanceState(outState);
+    /**
+     * Show the current contents of mBooks. The adapter works out what changed in the background.
+     *
+     * @param onShown run once the list is shown, or null
+     */
+    private void showBooks(Runnable onShown) {
+        final boolean arrivalOrder = isArrivalOrder();
+        if (arrivalOrder) {
+            // Shown as loaded, so rows keep their places as pages come and go
+            mAdapter.submitList(new ArrayList<Book>(mBooks), onShown);
+        }
 
-            // Save the ListView state into bundle
-            outState.putParcelable(LIST_VIEW_STATE, mListView.onSaveInstanceState());
+        // Index the books in the background, to count their facets and (unless shown as loaded) sort and filter them.
+        // onShown positions rows by where pages were inserted, which only holds in arrival order.
+        mResultProcessor.submit(mBooks, mSort, mFilter, new BookResultProcessor.Callback() {
+            @Override
+            public void onResult(BookResultIndex.Result result) {
+                if (!arrivalOrder) {
+                    mAdapter.submitList(result.getBooks(), null);
+                }
+                updateFilterChoices(result);
+            }
+        });
+    }
+
+    /**
+     * @return true if books are shown in the order they were loaded, i.e. neither sorted nor filtered
+     */
+    private boolean isArrivalOrder() {
+        return mSort == BookResultIndex.Sort.RELEVANCE && mFilter.isEmpty();
+    }
+
+    /**
+     * Show the loaded results in a new order or with a new filter, from the top. Nothing is fetched again.
+     */
+    private void refineBooks() {
+        mResultProcessor.refine(mSort, mFilter, new BookResultProcessor.Callback() {
+            @Override
+            public void onResult(BookResultIndex.Result result) {
+                mAdapter.submitList(result.getBooks(), new Runnable() {
+                    @Override
+                    public void run() {
+                        mLayoutManager.scrollToPosition(0);
+                    }
+                });
+                updateFilterChoices(result);
+            }
+        });
+    }
+
+    /**
+     * Set up the sort and filter Spinners. The filter Spinner's choices are filled in from each result's facets.
+     */
+    private void setUpRefineBar() {
+        Spinner sortSpinner = findViewById(R.id.sort_spinner);
+        ArrayAdapter<String> sortAdapter = new ArrayAdapter<String>(this, android.R.layout.simple_spinner_item,
+                Arrays.asList(getResources().getStringArray(R.array.sort_orders)));
+        sortAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        sortSpinner.setAdapter(sortAdapter);
+        sortSpinner.setSelection(mSort.ordinal(), false);
+        sortSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                // Also called when the selection is set from code, which needs no refinement
+                BookResultIndex.Sort sort = BookResultIndex.Sort.values()[position];
+                if (sort != mSort) {
+                    mSort = sort;
+                    refineBooks();
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        mFilterSpinner = findViewById(R.id.filter_spinner);
+        mFilterAdapter = new ArrayAdapter<String>(this, android.R.layout.simple_spinner_item,
+                new ArrayList<String>());
+        mFilterAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        mFilterSpinner.setAdapter(mFilterAdapter);
+        mFilterSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (position >= mFilterChoices.size()) {
+                    return;
+                }
+                BookResultIndex.Filter filter = mFilterChoices.get(position);
+                if (!filter.equals(mFilter)) {
+                    mFilter = filter;
+                    refineBooks();
+                }
+            }
 
-            // Save the list of books into bundle
-            outState.putParcelableArrayList(BOOKS_LIST_STATE, (ArrayList<Book>) mBooks);
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+    }
+
+    /**
+     * Offer the most frequent values of each facet in the filter Spinner, with their counts,
+     * keeping the current filter selected.
+     */
+    private void updateFilterChoices(BookResultIndex.Result result) {
+        List<String> labels = new ArrayList<String>();
+        mFilterChoices.clear();
+        labels.add(getString(R.string.filter_all));
+        mFilterChoices.add(BookResultIndex.Filter.NONE);
+        addFilterChoices(labels, result, BookResultIndex.Facet.LANGUAGE, R.string.filter_language);
+        addFilterChoices(labels, result, BookResultIndex.Facet.CATEGORY, R.string.filter_category);
+        addFilterChoices(labels, result, BookResultIndex.Facet.AUTHOR, R.string.filter_author);
+
+        mFilterAdapter.setNotifyOnChange(false);
+        mFilterAdapter.clear();
+        mFilterAdapter.addAll(labels);
+        mFilterAdapter.notifyDataSetChanged();
+        mFilterSpinner.setSelection(Math.max(mFilterChoices.indexOf(mFilter), 0), false);
+    }
+
+    /**
+     * Add the most frequent values of a facet, and the current filter's value if it is of this facet.
+     */
+    private void addFilterChoices(List<String> labels, BookResultIndex.Result result,
+                                  BookResultIndex.Facet facet, int labelId) {
+        int added = 0;
+        for (Map.Entry<String, Integer> count : result.getCounts(facet).entrySet()) {
+            BookResultIndex.Filter filter = BookResultIndex.Filter.of(facet, count.getKey());
+            if (added < FILTER_CHOICES_PER_FACET || filter.equals(mFilter)) {
+                labels.add(getString(labelId, count.getKey(), count.getValue()));
+                mFilterChoices.add(filter);
+                added++;
+            }
+        }
+    }
+
+    /**
+     * Show the empty view in place of the list while it has no rows, unless a search is loading.
+     */
+    private void updateEmptyView() {
+        boolean empty = mAdapter.getItemCount() == 0 && !mSearchInProgress;
+        mEmptyView.setVisibility(empty ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * Hand the results to the instance created after a configuration change. Constant time, whatever their size.
+     */
+    @Override
+    public Object onRetainCustomNonConfigurationInstance() {
+        return new RetainedState(mBooks, mSearchTerm, mLoadedSearchTerm, mSearch, mPageSearch, mPendingStartIndex,
+                mCatalogEmptyMessage);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+
+        // Save the list's scroll state into bundle
+        outState.putParcelable(LIST_VIEW_STATE, mLayoutManager.onSaveInstanceState());
+
+        // Save only a reference to the results: the query, and which of its pages are held.
+        // The books themselves are retained across configuration changes (see onRetainCustomNonConfigurationInstance).
+        outState.putString(SEARCH_TERM_STATE, mSearchTerm);
+        outState.putString(QUERY_TERMS_STATE, mQuery != null ? mQuery.getTerms() : null);
+        outState.putInt(PAGE_WINDOW_FIRST_STATE, mPageWindow.getFirstStartIndex());
+        outState.putIntArray(PAGE_WINDOW_SIZES_STATE, mPageWindow.getPageSizes());
+        outState.putBoolean(PAGE_WINDOW_END_STATE, mPageWindow.isEndReached());
+        outState.putString(SORT_STATE, mSort.name());
+        outState.putString(FILTER_AUTHOR_STATE, mFilter.getAuthor());
+        outState.putString(FILTER_LANGUAGE_STATE, mFilter.getLanguage());
+        outState.putString(FILTER_CATEGORY_STATE, mFilter.getCategory());
+
+        // If the activity is going away for any other reason, the process may be killed;
+        // write the books to disk in the background so they can be restored.
+        if (!isChangingConfigurations()) {
+            final long snapshotId = System.currentTimeMillis();
+            final File snapshotFile = new File(getCacheDir(), SNAPSHOT_FILE);
+            final List<Book> books = new ArrayList<Book>(mBooks);
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    BookListSnapshot.write(snapshotFile, snapshotId, books);
+                }
+            });
+            outState.putLong(SNAPSHOT_ID_STATE, snapshotId);
         }
     }
 
@@ -336,10 +1253,50 @@ public class BookActivity extends AppCompatActivity
         // Release the search button's onclicklistener
         mSearchButton.setOnClickListener(null);
 
+        // Release the search field's live search listener, and drop any pending live search
+        mSearchField.removeTextChangedListener(mSearchFieldWatcher);
+        mSearchFieldWatcher = null;
+        mLiveSearchHandler.removeCallbacks(mLiveSearchRunnable);
+        mLiveSearchHandler.removeCallbacks(mRecordSearchRunnable);
+
+        // Don't prefetch for an activity the user has left
+        mLiveSearchHandler.removeCallbacks(mPrefetchRunnable);
+        QueryUtils.cancelPrefetch();
+
+        // Report where search time went while the activity was visible
+        QueryUtils.logMetrics();
+
         // Release reference to ConnectivityManager
         mConnectivityManager = null;
 
         // Release any reference to InputMethodManager
         mInputManager = null;
     }
+
+    /**
+     * Called when the activity is destroyed, including for a configuration change.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // Stop sorting and filtering for this instance; the next one indexes the retained books again
+        mResultProcessor.shutdown();
+
+        // Searches still loading are handed to the next instance after a configuration change;
+        // otherwise nobody is waiting for them
+        if (isChangingConfigurations()) {
+            if (mSearch != null) {
+                mSearch.attach(null);
+            }
+            cancelPreview();
+            if (mPageSearch != null) {
+                mPageSearch.attach(null);
+            }
+        } else {
+            cancelSearches();
+            // Nobody is going to open these rows now
+            QueryUtils.getVolumeDetailFetcher().prefetch(new ArrayList<String>());
+        }
+    }
 }
@@ -1,97 +1,371 @@
 package com.example.android.project_booklistingapp;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.ImageView;
 import android.widget.TextView;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
- * Adapter to populate ListView with series of {@link com.example.android.project_booklistingapp.Book} objects.
+ * Adapter to populate a RecyclerView with series of {@link com.example.android.project_booklistingapp.Book} objects.
+ * New lists are diffed against the current one on a background thread, and only the rows that changed are
+ * rebound; a row whose title, authors or thumbnail alone changed is rebound partially. Row IDs are stable, from the
+ * volume ID. Cover thumbnails are loaded in the background, and a row's load is cancelled when the row is recycled.
+ * Tapping a row is reported to an {@link OnBookClickListener}.
  */
 
-public class BookAdapter extends ArrayAdapter {
+public class BookAdapter extends RecyclerView.Adapter<BookAdapter.ViewHolder> {
 
     /**
      * Tag for the log messages
      */
     private static final String LOG_TAG = BookAdapter.class.getSimpleName();
 
-    private List<Book> mBookList;
+    /**
+     * Receives taps on rows.
+     */
+    public interface OnBookClickListener {
+        /**
+         * @param book shown by the row tapped
+         */
+        void onBookClick(Book book);
+    }
+
+    /**
+     * Change payload flags: which parts of a row need rebinding
+     */
+    private static final int PAYLOAD_TITLE = 1;
+    private static final int PAYLOAD_AUTHORS = 2;
+    private static final int PAYLOAD_THUMBNAIL = 4;
+
+    /**
+     * Books currently shown. Never modified; replaced when a diff is dispatched.
+     */
+    private List<Book> mBookList = new ArrayList<Book>();
+
+    /**
+     * Builds each row's author string as the row is bound
+     */
+    private final AuthorFormatter mAuthorFormatter;
+
+    private final LayoutInflater mInflater;
+
+    /**
+     * Loads cover thumbnails into rows
+     */
+    private final ThumbnailLoader mThumbnailLoader;
+
+    /**
+     * Size thumbnails are shown at, in pixels, so they are decoded no larger than needed
+     */
+    private final int mThumbnailWidth;
+    private final int mThumbnailHeight;
+
+    /**
+     * Runs diffs off the main thread
+     */
+    private final Executor mDiffExecutor;
+
+    /**
+     * Delivers diff results to the main thread
+     */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
 
-    private TextView mTitle;
+    /**
+     * Incremented by every {@link #submitList}, so a slower diff for an older list is dropped
+     */
+    private int mGeneration = 0;
+
+    /**
+     * Stable row IDs by volume ID (or by the book itself, for books without one)
+     */
+    private Map<Object, Long> mStableIds = new HashMap<Object, Long>();
+
+    /**
+     * Next stable row ID to hand out
+     */
+    private long mNextStableId = 0;
+
+    /**
+     * Receives row taps, or null
+     */
+    private OnBookClickListener mOnBookClickListener;
 
     /**
      * Constructor for the {@link BookAdapter}.
      *
-     * @param context to be used in inflating the view.
-     * @param bookList List of {@link com.example.android.project_booklistingapp.Book} objects.
+     * @param context      to be used in inflating the view.
+     * @param diffExecutor background executor to diff lists on
      */
-    public BookAdapter(@NonNull Context context, @NonNull List<Book> bookList) {
-        super(context, 0, bookList);
+    public BookAdapter(@NonNull Context context, @NonNull Executor diffExecutor) {
+        this.mInflater = LayoutInflater.from(context);
+        this.mAuthorFormatter = QueryUtils.getAuthorFormatter(context);
+        this.mThumbnailLoader = QueryUtils.getThumbnailLoader(context);
+        this.mThumbnailWidth = context.getResources().getDimensionPixelSize(R.dimen.list_item_thumbnail_width);
+        this.mThumbnailHeight = context.getResources().getDimensionPixelSize(R.dimen.list_item_thumbnail_height);
+        this.mDiffExecutor = diffExecutor;
+        setHasStableIds(true);
+    }
 
-        this.mBookList = bookList;
+    /**
+     * @param listener to receive row taps, or null
+     */
+    public void setOnBookClickListener(OnBookClickListener listener) {
+        mOnBookClickListener = listener;
+    }
+
+    /**
+     * @param position of a row
+     * @return {@link Book} the row shows
+     */
+    public Book getBook(int position) {
+        return mBookList.get(position);
     }
 
     /**
-     * Takes a position from the ListView, reuses/inflates a View, and updates View with corresponding {@link Book} data
+     * Show a new list of books. The list must not be modified afterwards.
+     * Changes from the current list are worked out in the background and dispatched as fine-grained updates.
      *
-     * @param position in the ListView
-     * @param convertView to be reused or inflated
-     * @param parent of the View
-     * @return View that's been prepared
+     * @param books     to show
+     * @param onCommitted run on the main thread once the list is shown, or null
      */
-    @NonNull
-    @Override
-    public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
+    public void submitList(final List<Book> books, final Runnable onCommitted) {
+        final int generation = ++mGeneration;
+        final List<Book> oldBooks = mBookList;
 
-        //Get the {@link Book} object located at this position in the list
-        Book currentBook = (Book) getItem(position);
+        // Nothing to compare; skip the background pass
+        if (oldBooks.isEmpty() || books.isEmpty()) {
+            commit(books);
+            if (oldBooks.isEmpty()) {
+                notifyItemRangeInserted(0, books.size());
+            } else {
+                notifyItemRangeRemoved(0, oldBooks.size());
+            }
+            if (onCommitted != null) {
+                onCommitted.run();
+            }
+            return;
+        }
+
+        mDiffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new BookDiffCallback(oldBooks, books));
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // A newer list has been submitted since
+                        if (generation != mGeneration) {
+                            return;
+                        }
+                        commit(books);
+                        result.dispatchUpdatesTo(BookAdapter.this);
+                        if (onCommitted != null) {
+                            onCommitted.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Make a list current, dropping stable IDs of books no longer shown.
+     */
+    private void commit(List<Book> books) {
+        Map<Object, Long> stableIds = new HashMap<Object, Long>(books.size() * 2);
+        for (Book book : books) {
+            Object key = stableKey(book);
+            Long id = mStableIds.get(key);
+            stableIds.put(key, id != null ? id : mNextStableId++);
+        }
+        mStableIds = stableIds;
+        mBookList = books;
+    }
 
-        // Cache with view lookup for a Book object which will be stored in a tag
-        ViewHolder viewHolder;
+    /**
+     * Key identifying a book across lists: its volume ID, or the book itself if it has none.
+     */
+    private static Object stableKey(Book book) {
+        return book.getId() != null ? book.getId() : book;
+    }
 
-        // Check whether we are reusing a View or need to inflate a new one
-        if (convertView == null) { // No existing View; create one
-            // Instantiate new ViewHolder object to cache Views for current KidThing
-            viewHolder = new ViewHolder();
+    @Override
+    public int getItemCount() {
+        return mBookList.size();
+    }
 
-            // Inflate current view
-            convertView = LayoutInflater.from(getContext()).inflate(R.layout.list_item, parent, false);
+    @Override
+    public long getItemId(int position) {
+        Long id = mStableIds.get(stableKey(mBookList.get(position)));
+        return id != null ? id : RecyclerView.NO_ID;
+    }
 
-            // Perform View lookups and cache those in the ViewHolder:
-            viewHolder.titleTextView = convertView.findViewById(R.id.list_item_title);
-            viewHolder.authorsTextView = convertView.findViewById(R.id.list_item_authors);
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        // Inflate the row and perform View lookups once; they are cached in the ViewHolder
+        final ViewHolder viewHolder = new ViewHolder(mInflater.inflate(R.layout.list_item, parent, false));
+        viewHolder.itemView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                // The row may be on its way out after a change to the list
+                int position = viewHolder.getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION && mOnBookClickListener != null) {
+                    mOnBookClickListener.onBookClick(mBookList.get(position));
+                }
+            }
+        });
+        return viewHolder;
+    }
 
-            convertView.setTag(viewHolder);
-        } else { // View is being recycled, retrieve the viewHolder object from tag
-            viewHolder = (ViewHolder) convertView.getTag();
-        }
+    @Override
+    public void onBindViewHolder(ViewHolder viewHolder, int position) {
+        long bindStart = SearchMetrics.now();
+        Book currentBook = mBookList.get(position);
 
         // Access View's title TextView via ViewHolder, get title from current {@link Book},
         // and set title String on the TextView.
         viewHolder.titleTextView.setText(currentBook.getTitle());
 
-        // Access View's author TextView via ViewHolder, get author(s) from current {@link Book},
-        // and set author(s) String on the TextView.
-        viewHolder.authorsTextView.setText(currentBook.getAuthors());
+        // Access View's author TextView via ViewHolder, build author(s) String from current {@link Book},
+        // and set it on the TextView. The String is only built for rows actually shown.
+        viewHolder.authorsTextView.setText(currentBook.getAuthors(mAuthorFormatter));
+
+        // Start (or reuse) the load of the book's cover thumbnail
+        bindThumbnail(viewHolder, currentBook);
+
+        SearchMetrics.getDefault().recordSince(SearchMetrics.Stage.ADAPTER_BIND, bindStart);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder viewHolder, int position, List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(viewHolder, position);
+            return;
+        }
+
+        // Only rebind the parts of the row that changed
+        long bindStart = SearchMetrics.now();
+        int changes = 0;
+        for (Object payload : payloads) {
+            changes |= (Integer) payload;
+        }
+        Book currentBook = mBookList.get(position);
+        if ((changes & PAYLOAD_TITLE) != 0) {
+            viewHolder.titleTextView.setText(currentBook.getTitle());
+        }
+        if ((changes & PAYLOAD_AUTHORS) != 0) {
+            viewHolder.authorsTextView.setText(currentBook.getAuthors(mAuthorFormatter));
+        }
+        if ((changes & PAYLOAD_THUMBNAIL) != 0) {
+            bindThumbnail(viewHolder, currentBook);
+        }
+        SearchMetrics.getDefault().recordSince(SearchMetrics.Stage.ADAPTER_BIND, bindStart);
+    }
+
+    @Override
+    public void onViewRecycled(ViewHolder viewHolder) {
+        // The row will show another book; don't finish loading this one's thumbnail
+        mThumbnailLoader.cancel(viewHolder.thumbnailImageView);
+    }
 
-        return convertView;
+    /**
+     * Load a book's cover thumbnail into its row, at the size the row shows it.
+     */
+    private void bindThumbnail(ViewHolder viewHolder, Book book) {
+        mThumbnailLoader.load(viewHolder.thumbnailImageView, book.getThumbnailUrl(),
+                mThumbnailWidth, mThumbnailHeight);
     }
 
     /**
-     * ViewHolder class, to be used as part of ViewHolder pattern with ListView
+     * Compares two lists of books for {@link DiffUtil}. Books are the same item if they have the same volume ID.
      */
-    private static class ViewHolder {
+    private static final class BookDiffCallback extends DiffUtil.Callback {
+        private final List<Book> mOldBooks;
+        private final List<Book> mNewBooks;
+
+        private BookDiffCallback(List<Book> oldBooks, List<Book> newBooks) {
+            this.mOldBooks = oldBooks;
+            this.mNewBooks = newBooks;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldBooks.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewBooks.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return stableKey(mOldBooks.get(oldPosition)).equals(stableKey(mNewBooks.get(newPosition)));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            return changesBetween(mOldBooks.get(oldPosition), mNewBooks.get(newPosition)) == 0;
+        }
+
+        @Override
+        public Object getChangePayload(int oldPosition, int newPosition) {
+            return changesBetween(mOldBooks.get(oldPosition), mNewBooks.get(newPosition));
+        }
+
+        /**
+         * @return payload flags for the parts of the row that differ
+         */
+        private static int changesBetween(Book oldBook, Book newBook) {
+            if (oldBook == newBook) {
+                return 0;
+            }
+            int changes = 0;
+            if (!oldBook.getTitle().equals(newBook.getTitle())) {
+                changes |= PAYLOAD_TITLE;
+            }
+            if (!oldBook.getAuthorNames().equals(newBook.getAuthorNames())) {
+                changes |= PAYLOAD_AUTHORS;
+            }
+            String oldThumbnailUrl = oldBook.getThumbnailUrl();
+            if (oldThumbnailUrl == null ? newBook.getThumbnailUrl() != null
+                    : !oldThumbnailUrl.equals(newBook.getThumbnailUrl())) {
+                changes |= PAYLOAD_THUMBNAIL;
+            }
+            return changes;
+        }
+    }
+
+    /**
+     * ViewHolder class, caching the row's View lookups
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
         // Store reference to the title TextView
-        private TextView titleTextView;
+        private final TextView titleTextView;
         // Store reference to the author(s) TextView
-        private TextView authorsTextView;
+        private final TextView authorsTextView;
+        // Store reference to the cover thumbnail ImageView
+        private final ImageView thumbnailImageView;
+
+        private ViewHolder(View itemView) {
+            super(itemView);
+            thumbnailImageView = itemView.findViewById(R.id.list_item_thumbnail);
+            titleTextView = itemView.findViewById(R.id.list_item_title);
+            authorsTextView = itemView.findViewById(R.id.list_item_authors);
+        }
     }
 
 }
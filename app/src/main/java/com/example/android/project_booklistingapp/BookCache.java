@@ -0,0 +1,439 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of parsed search results, keyed on the query URL.
+ * The memory tier is a small LRU of {@link Book} lists; the disk tier keeps a compact binary copy of each
+ * result with its expiry time and ETag, evicting the least recently written entries once over its size limit.
+ */
+
+public final class BookCache {
+
+    /**
+     * Version of the disk entry format. Entries written with another version are ignored.
+     */
+    private static final int DISK_FORMAT_VERSION = 5;
+
+    /**
+     * Suffix of disk cache files
+     */
+    private static final String FILE_SUFFIX = ".books";
+
+    /**
+     * Memory tier, in access order
+     */
+    private final LinkedHashMap<String, Entry> mMemory;
+
+    /**
+     * Directory holding the disk tier
+     */
+    private final File mDirectory;
+
+    /**
+     * Maximum total size of the disk tier, in bytes
+     */
+    private final long mMaxDiskBytes;
+
+    /**
+     * Time results are treated as fresh when the server sends no freshness directive, in milliseconds
+     */
+    private final long mDefaultFreshMs;
+
+    /**
+     * Hit/miss counters
+     */
+    private final AtomicLong mMemoryHits = new AtomicLong();
+    private final AtomicLong mDiskHits = new AtomicLong();
+    private final AtomicLong mRevalidations = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+
+    /**
+     * Constructor for the {@link BookCache}.
+     *
+     * @param directory        for the disk tier; created if missing
+     * @param maxMemoryEntries number of result lists kept in memory
+     * @param maxDiskBytes     size limit of the disk tier
+     * @param defaultFreshMs   time results are served without revalidation when the response has no
+     *                         Cache-Control max-age or no-cache directive
+     */
+    public BookCache(File directory, final int maxMemoryEntries, long maxDiskBytes, long defaultFreshMs) {
+        this.mDirectory = directory;
+        this.mMaxDiskBytes = maxDiskBytes;
+        this.mDefaultFreshMs = defaultFreshMs;
+        this.mMemory = new LinkedHashMap<String, BookCache.Entry>(maxMemoryEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BookCache.Entry> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        };
+
+        if (!mDirectory.exists()) {
+            mDirectory.mkdirs();
+        }
+    }
+
+    /**
+     * Cached result for one query.
+     */
+    public static final class Entry {
+
+        /**
+         * Parsed books; null if the response had no "items"
+         */
+        private final List<Book> mBooks;
+
+        /**
+         * ETag of the response, if any, for revalidation
+         */
+        private final String mETag;
+
+        /**
+         * Time after which the entry must be revalidated
+         */
+        private final long mExpiresAt;
+
+        private Entry(List<Book> books, String eTag, long expiresAt) {
+            this.mBooks = books;
+            this.mETag = eTag;
+            this.mExpiresAt = expiresAt;
+        }
+
+        /**
+         * @return a copy of the cached books (null if the response had no "items"), safe for the caller to modify
+         */
+        public List<Book> getBooks() {
+            return mBooks == null ? null : new ArrayList<Book>(mBooks);
+        }
+
+        /**
+         * @return ETag to send as If-None-Match, or null
+         */
+        public String getETag() {
+            return mETag;
+        }
+
+        /**
+         * @param now current time in milliseconds
+         * @return true if the entry can be served without revalidation
+         */
+        public boolean isFresh(long now) {
+            return now < mExpiresAt;
+        }
+    }
+
+    /**
+     * Look up a query, first in memory and then on disk.
+     * Counts a hit only when the returned entry is fresh; stale entries are returned for revalidation.
+     *
+     * @param key normalized query URL
+     * @return cached {@link Entry} (fresh or stale), or null if none
+     */
+    public Entry get(String key) {
+        long now = System.currentTimeMillis();
+
+        Entry entry;
+        synchronized (mMemory) {
+            entry = mMemory.get(key);
+        }
+        if (entry != null && entry.isFresh(now)) {
+            mMemoryHits.incrementAndGet();
+            return entry;
+        }
+
+        if (entry == null) {
+            entry = readFromDisk(key);
+            if (entry != null) {
+                synchronized (mMemory) {
+                    mMemory.put(key, entry);
+                }
+                if (entry.isFresh(now)) {
+                    mDiskHits.incrementAndGet();
+                    return entry;
+                }
+            }
+        }
+
+        mMisses.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Check for a fresh copy of a query without counting a hit or miss, e.g. before prefetching it.
+     * A copy found on disk is loaded into memory, so the search that follows is a memory hit.
+     *
+     * @param key normalized query URL
+     * @return true if a fresh copy is cached in either tier
+     */
+    public boolean containsFresh(String key) {
+        long now = System.currentTimeMillis();
+
+        Entry entry;
+        synchronized (mMemory) {
+            entry = mMemory.get(key);
+        }
+        if (entry == null) {
+            entry = readFromDisk(key);
+            if (entry != null) {
+                synchronized (mMemory) {
+                    mMemory.put(key, entry);
+                }
+            }
+        }
+        return entry != null && entry.isFresh(now);
+    }
+
+    /**
+     * Store a freshly fetched result in both tiers, unless the server forbids storing it.
+     *
+     * @param key          normalized query URL
+     * @param books        parsed result
+     * @param eTag         ETag response header, or null
+     * @param cacheControl Cache-Control response header, or null
+     */
+    public void put(String key, List<Book> books, String eTag, String cacheControl) {
+        if (cacheControl != null && cacheControl.contains("no-store")) {
+            return;
+        }
+        List<Book> copy = books == null ? null : Collections.unmodifiableList(new ArrayList<Book>(books));
+        store(key, new Entry(copy, eTag, expiresAt(cacheControl)));
+    }
+
+    /**
+     * Record that the server answered 304 Not Modified for a stale entry, extending its lifetime.
+     *
+     * @param key          normalized query URL
+     * @param stale        entry that was revalidated
+     * @param cacheControl Cache-Control response header, or null
+     * @return the refreshed {@link Entry}
+     */
+    public Entry markNotModified(String key, Entry stale, String cacheControl) {
+        mRevalidations.incrementAndGet();
+        Entry refreshed = new Entry(stale.mBooks, stale.mETag, expiresAt(cacheControl));
+        store(key, refreshed);
+        return refreshed;
+    }
+
+    /**
+     * @return number of lookups served fresh from memory
+     */
+    public long getMemoryHitCount() {
+        return mMemoryHits.get();
+    }
+
+    /**
+     * @return number of lookups served fresh from disk
+     */
+    public long getDiskHitCount() {
+        return mDiskHits.get();
+    }
+
+    /**
+     * @return number of stale entries confirmed by a 304 response
+     */
+    public long getRevalidationCount() {
+        return mRevalidations.get();
+    }
+
+    /**
+     * @return number of lookups that had to go to the network
+     */
+    public long getMissCount() {
+        return mMisses.get();
+    }
+
+    /**
+     * Work out when a response expires. The server decides through Cache-Control: no-cache and
+     * max-age=0 make the entry stale at once, max-age=N keeps it fresh for N seconds. The default
+     * fresh time is only used when the header carries neither directive.
+     */
+    private long expiresAt(String cacheControl) {
+        long now = System.currentTimeMillis();
+        if (cacheControl == null) {
+            return now + mDefaultFreshMs;
+        }
+        long maxAgeMs = -1;
+        for (String directive : cacheControl.split(",")) {
+            String name = directive.trim().toLowerCase(Locale.US);
+            if (name.equals("no-cache")) {
+                return now;
+            }
+            if (name.startsWith("max-age=")) {
+                maxAgeMs = parseSeconds(name.substring("max-age=".length()).trim());
+            }
+        }
+        return maxAgeMs < 0 ? now + mDefaultFreshMs : now + maxAgeMs;
+    }
+
+    /**
+     * Parse a delta-seconds value into milliseconds, capped to avoid overflow.
+     *
+     * @return milliseconds, or -1 if the value is not a number
+     */
+    private static long parseSeconds(String value) {
+        if (value.startsWith("\"") && value.endsWith("\"") && value.length() > 1) {
+            value = value.substring(1, value.length() - 1);
+        }
+        if (value.isEmpty()) {
+            return -1;
+        }
+        long seconds = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            seconds = Math.min(seconds * 10 + (c - '0'), Integer.MAX_VALUE);
+        }
+        return seconds * 1000L;
+    }
+
+    /**
+     * Put an entry in memory and write it to disk.
+     */
+    private void store(String key, Entry entry) {
+        synchronized (mMemory) {
+            mMemory.put(key, entry);
+        }
+        writeToDisk(key, entry);
+        trimDisk();
+    }
+
+    /**
+     * Map a key to its disk file.
+     */
+    private File fileFor(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder(digest.length * 2 + FILE_SUFFIX.length());
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16));
+                name.append(Character.forDigit(b & 0xf, 16));
+            }
+            return new File(mDirectory, name.append(FILE_SUFFIX).toString());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            // SHA-1 and UTF-8 are always available
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Read an entry from disk.
+     *
+     * @return {@link Entry}, or null if missing, unreadable or from another format version
+     */
+    private Entry readFromDisk(String key) {
+        File file = fileFor(key);
+        if (!file.exists()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != DISK_FORMAT_VERSION || !key.equals(in.readUTF())) {
+                return null;
+            }
+            long expiresAt = in.readLong();
+            String eTag = BookRecords.readOptional(in);
+            int count = in.readInt();
+            List<Book> books = null;
+            if (count >= 0) {
+                books = new ArrayList<Book>(count);
+                for (int i = 0; i < count; i++) {
+                    books.add(BookRecords.read(in));
+                }
+                books = Collections.unmodifiableList(books);
+            }
+            return new Entry(books, eTag, expiresAt);
+        } catch (IOException e) {
+            // Corrupt or truncated; drop it
+            file.delete();
+            return null;
+        } finally {
+            BookRecords.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Write an entry to disk, via a temporary file so readers never see a partial entry.
+     */
+    private void writeToDisk(String key, Entry entry) {
+        File file = fileFor(key);
+        File temp = new File(file.getPath() + ".tmp");
+
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(DISK_FORMAT_VERSION);
+            out.writeUTF(key);
+            out.writeLong(entry.mExpiresAt);
+            BookRecords.writeOptional(out, entry.mETag);
+            if (entry.mBooks == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(entry.mBooks.size());
+                for (Book book : entry.mBooks) {
+                    BookRecords.write(out, book);
+                }
+            }
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            // Disk tier is best-effort; memory still holds the entry
+            temp.delete();
+        } finally {
+            BookRecords.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Delete the oldest disk entries until the tier is within its size limit.
+     */
+    private void trimDisk() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= mMaxDiskBytes) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (int i = 0; i < files.length && total > mMaxDiskBytes; i++) {
+            total -= files[i].length();
+            files[i].delete();
+        }
+    }
+}
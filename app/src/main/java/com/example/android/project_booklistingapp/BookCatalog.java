@@ -0,0 +1,413 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Local catalog of every book the app has seen, for offline search.
+ * Books are de-duplicated by volume ID and indexed by the words of their title and authors. The catalog is kept
+ * in memory and persisted as an append-only log, which is compacted when it grows to twice the live data.
+ * Once the catalog holds its maximum number of books, the least recently added ones are evicted, so both the
+ * memory and the log stay bounded.
+ */
+
+public final class BookCatalog {
+
+    /**
+     * Version of the log format. A log written with another version is discarded.
+     */
+    private static final int LOG_FORMAT_VERSION = 5;
+
+    /**
+     * A catalogued book, with the order in which it was last added
+     */
+    private static final class Entry {
+        private final Book mBook;
+        private final long mSequence;
+
+        private Entry(Book book, long sequence) {
+            this.mBook = book;
+            this.mSequence = sequence;
+        }
+    }
+
+    /**
+     * Books by volume ID, least recently added first
+     */
+    private final Map<String, Entry> mBooks = new LinkedHashMap<String, Entry>();
+
+    /**
+     * Inverted index: word -> IDs of books whose title or authors contain it.
+     * Sorted, so every word starting with a prefix can be found with one range lookup.
+     */
+    private final TreeMap<String, Set<String>> mIndex = new TreeMap<String, Set<String>>();
+
+    /**
+     * Log file the catalog is persisted to
+     */
+    private final File mFile;
+
+    /**
+     * Number of books kept before the least recently added are evicted
+     */
+    private final int mMaxBooks;
+
+    /**
+     * Number of records in the log, including superseded ones
+     */
+    private int mLogRecords = 0;
+
+    /**
+     * Sequence number given to the next book added
+     */
+    private long mNextSequence = 0;
+
+    /**
+     * Constructor for the {@link BookCatalog}. Reads any existing log from disk.
+     *
+     * @param file     log file to persist the catalog to; created if missing
+     * @param maxBooks number of books kept; the least recently added are evicted beyond it
+     */
+    public BookCatalog(File file, int maxBooks) {
+        this.mFile = file;
+        this.mMaxBooks = maxBooks;
+        load();
+    }
+
+    /**
+     * Add books to the catalog, replacing any earlier copy with the same volume ID.
+     * Books without an ID cannot be de-duplicated and are skipped.
+     *
+     * @param books to add
+     */
+    public synchronized void addAll(List<Book> books) {
+        if (books == null || books.isEmpty()) {
+            return;
+        }
+
+        List<Book> added = new ArrayList<Book>(books.size());
+        for (Book book : books) {
+            if (book.getId() != null) {
+                put(book);
+                added.add(book);
+            }
+        }
+        append(added);
+        evict();
+
+        if (mLogRecords > 2 * mBooks.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Find books whose title or authors contain every word of the search terms.
+     * The last word may be a prefix, so results can be shown while the user is still typing it.
+     *
+     * @param terms search term(s) as entered by the user
+     * @param limit maximum number of books to return
+     * @return matching books, most recently added first
+     */
+    public synchronized List<Book> search(String terms, int limit) {
+        List<String> words = tokenize(terms);
+        if (words.isEmpty()) {
+            return new ArrayList<Book>();
+        }
+
+        // Intersect postings, starting from the first word's
+        Set<String> matches = null;
+        for (int i = 0; i < words.size(); i++) {
+            Set<String> ids = i == words.size() - 1 ? prefixPostings(words.get(i)) : mIndex.get(words.get(i));
+            if (ids == null || ids.isEmpty()) {
+                return new ArrayList<Book>();
+            }
+            if (matches == null) {
+                matches = new HashSet<String>(ids);
+            } else {
+                matches.retainAll(ids);
+            }
+        }
+
+        List<Entry> entries = new ArrayList<Entry>(matches.size());
+        for (String id : matches) {
+            entries.add(mBooks.get(id));
+        }
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return Long.compare(b.mSequence, a.mSequence);
+            }
+        });
+
+        List<Book> books = new ArrayList<Book>(Math.min(limit, entries.size()));
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            books.add(entries.get(i).mBook);
+        }
+        return books;
+    }
+
+    /**
+     * @return number of books in the catalog
+     */
+    public synchronized int size() {
+        return mBooks.size();
+    }
+
+    /**
+     * Split text into lower-case words.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<String>();
+        if (text == null) {
+            return words;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Union of postings for every indexed word starting with the prefix.
+     */
+    private Set<String> prefixPostings(String prefix) {
+        SortedMap<String, Set<String>> range = mIndex.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (range.size() == 1) {
+            return range.values().iterator().next();
+        }
+        Set<String> ids = new HashSet<String>();
+        for (Set<String> postings : range.values()) {
+            ids.addAll(postings);
+        }
+        return ids;
+    }
+
+    /**
+     * Add or replace a book in memory and in the index.
+     */
+    private void put(Book book) {
+        // Remove first, so a re-added book moves to the most recent end
+        Entry previous = mBooks.remove(book.getId());
+        mBooks.put(book.getId(), new Entry(book, mNextSequence++));
+        if (previous != null) {
+            unindex(previous.mBook);
+        }
+        for (String word : tokenize(book.getSearchText())) {
+            Set<String> ids = mIndex.get(word);
+            if (ids == null) {
+                ids = new HashSet<String>(4);
+                mIndex.put(word, ids);
+            }
+            ids.add(book.getId());
+        }
+    }
+
+    /**
+     * Evict the least recently added books until the catalog is within its limit. Their records stay in the
+     * log until the next compaction, which the growing log ratio triggers.
+     */
+    private void evict() {
+        Iterator<Entry> iterator = mBooks.values().iterator();
+        while (mBooks.size() > mMaxBooks && iterator.hasNext()) {
+            Book book = iterator.next().mBook;
+            iterator.remove();
+            unindex(book);
+        }
+    }
+
+    /**
+     * Remove a book's words from the index.
+     */
+    private void unindex(Book book) {
+        for (String word : tokenize(book.getSearchText())) {
+            Set<String> ids = mIndex.get(word);
+            if (ids != null) {
+                ids.remove(book.getId());
+                if (ids.isEmpty()) {
+                    mIndex.remove(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replay the log from disk. A damaged or truncated final record (e.g. from a crash mid-write) is cut off,
+     * so the next append starts right after the last good record.
+     */
+    private void load() {
+        if (!mFile.exists()) {
+            return;
+        }
+
+        CountingInputStream counter = null;
+        long goodLength = 0;
+        try {
+            counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            DataInputStream in = new DataInputStream(counter);
+            if (in.readInt() != LOG_FORMAT_VERSION) {
+                BookRecords.closeQuietly(counter);
+                counter = null;
+                mFile.delete();
+                return;
+            }
+            goodLength = counter.getCount();
+            while (true) {
+                put(BookRecords.read(in));
+                evict();
+                mLogRecords++;
+                goodLength = counter.getCount();
+            }
+        } catch (IOException e) {
+            // End of log, or damage after the last good record
+        } finally {
+            BookRecords.closeQuietly(counter);
+        }
+
+        if (counter != null && goodLength == 0) {
+            // Not even the header survived; start a new log
+            mFile.delete();
+        } else if (counter != null && counter.getCount() > goodLength) {
+            truncate(goodLength);
+        }
+    }
+
+    /**
+     * Cut the log off at the end of the last good record. If that fails, force the next
+     * {@link #addAll} to rewrite the whole file.
+     */
+    private void truncate(long length) {
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(mFile, "rw");
+            file.setLength(length);
+        } catch (IOException e) {
+            mLogRecords = Integer.MAX_VALUE / 2;
+        } finally {
+            BookRecords.closeQuietly(file);
+        }
+    }
+
+    /**
+     * Append records to the log, starting a new log if needed.
+     */
+    private void append(List<Book> books) {
+        if (books.isEmpty()) {
+            return;
+        }
+
+        boolean newFile = !mFile.exists();
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mFile, true)));
+            if (newFile) {
+                out.writeInt(LOG_FORMAT_VERSION);
+            }
+            for (Book book : books) {
+                BookRecords.write(out, book);
+            }
+            mLogRecords += books.size();
+        } catch (IOException e) {
+            // Catalog is best-effort; memory still holds the books
+        } finally {
+            BookRecords.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Rewrite the log with one record per live book, via a temporary file.
+     */
+    private void compact() {
+        // Already in the order the books were added, so replaying the new log restores the same order
+        List<Entry> entries = new ArrayList<Entry>(mBooks.values());
+
+        File temp = new File(mFile.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(LOG_FORMAT_VERSION);
+            for (Entry entry : entries) {
+                BookRecords.write(out, entry.mBook);
+            }
+            out.close();
+            out = null;
+            if (temp.renameTo(mFile)) {
+                mLogRecords = entries.size();
+            } else {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            temp.delete();
+        } finally {
+            BookRecords.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Stream that counts the bytes read through it, so the end of the last complete record is known.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long mCount = 0;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                mCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                mCount += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            mCount += skipped;
+            return skipped;
+        }
+
+        private long getCount() {
+            return mCount;
+        }
+    }
+}
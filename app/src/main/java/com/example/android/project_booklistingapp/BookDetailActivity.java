@@ -0,0 +1,185 @@
+package com.example.android.project_booklistingapp;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.text.Html;
+import android.util.Log;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Shows one book. The summary the list already holds is shown at once; the full record (description, publisher,
+ * page count and a larger cover) is filled in from {@link VolumeDetailFetcher} when it arrives, which is usually
+ * straight away because rows near the viewport are prefetched.
+ */
+
+public class BookDetailActivity extends AppCompatActivity {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = BookDetailActivity.class.getSimpleName();
+
+    /**
+     * Intent extra holding the {@link Book} to show
+     */
+    public static final String EXTRA_BOOK = "com.example.android.project_booklistingapp.EXTRA_BOOK";
+
+    private VolumeDetailFetcher mFetcher;
+
+    private ImageView mThumbnailImageView;
+    private TextView mTitleTextView;
+    private TextView mSubtitleTextView;
+    private TextView mAuthorsTextView;
+    private TextView mPublicationTextView;
+    private TextView mPageCountTextView;
+    private TextView mCategoriesTextView;
+    private TextView mDescriptionTextView;
+    private ProgressBar mProgressBar;
+
+    /**
+     * Size the cover is shown at, in pixels, so it is decoded no larger than needed
+     */
+    private int mThumbnailWidth;
+    private int mThumbnailHeight;
+
+    /**
+     * Receives the full record, on the main thread
+     */
+    private final SearchExecutor.Callback<VolumeDetail> mDetailCallback = new SearchExecutor.Callback<VolumeDetail>() {
+        @Override
+        public void onResult(VolumeDetail detail) {
+            showDetail(detail);
+        }
+
+        @Override
+        public void onError(IOException e) {
+            Log.e(LOG_TAG, "Problem fetching the full record of the volume.", e);
+            // The summary stays on screen
+            mProgressBar.setVisibility(View.GONE);
+            mDescriptionTextView.setText(R.string.error_message_detail_not_loaded);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_book_detail);
+
+        mThumbnailImageView = findViewById(R.id.detail_thumbnail);
+        mTitleTextView = findViewById(R.id.detail_title);
+        mSubtitleTextView = findViewById(R.id.detail_subtitle);
+        mAuthorsTextView = findViewById(R.id.detail_authors);
+        mPublicationTextView = findViewById(R.id.detail_publication);
+        mPageCountTextView = findViewById(R.id.detail_page_count);
+        mCategoriesTextView = findViewById(R.id.detail_categories);
+        mDescriptionTextView = findViewById(R.id.detail_description);
+        mProgressBar = findViewById(R.id.detail_progress_bar);
+        mThumbnailWidth = getResources().getDimensionPixelSize(R.dimen.detail_thumbnail_width);
+        mThumbnailHeight = getResources().getDimensionPixelSize(R.dimen.detail_thumbnail_height);
+
+        Book book = getIntent().getParcelableExtra(EXTRA_BOOK);
+        showSummary(book);
+
+        // Without a volume ID there is no full record to ask for
+        mFetcher = QueryUtils.getVolumeDetailFetcher();
+        if (book.getId() == null) {
+            mProgressBar.setVisibility(View.GONE);
+            mDescriptionTextView.setText(R.string.detail_no_description);
+        } else {
+            // Delivered at once if the record was prefetched or seen before
+            mFetcher.load(book.getId(), mDetailCallback);
+        }
+    }
+
+    /**
+     * Show what the list response carried, while the full record loads.
+     */
+    private void showSummary(Book book) {
+        setTitle(book.getTitle());
+        mTitleTextView.setText(book.getTitle());
+        mAuthorsTextView.setText(book.getAuthors(QueryUtils.getAuthorFormatter(this)));
+        showPublication(null, book.getPublishedDate());
+        showCategories(book.getCategories());
+        QueryUtils.getThumbnailLoader(this).load(mThumbnailImageView, book.getThumbnailUrl(),
+                mThumbnailWidth, mThumbnailHeight);
+    }
+
+    /**
+     * Fill in the full record.
+     */
+    private void showDetail(VolumeDetail detail) {
+        mProgressBar.setVisibility(View.GONE);
+
+        if (detail.getSubtitle() != null) {
+            mSubtitleTextView.setText(detail.getSubtitle());
+            mSubtitleTextView.setVisibility(View.VISIBLE);
+        }
+        showPublication(detail.getPublisher(), detail.getPublishedDate());
+        if (detail.getPageCount() > 0) {
+            mPageCountTextView.setText(getString(R.string.detail_page_count, detail.getPageCount()));
+            mPageCountTextView.setVisibility(View.VISIBLE);
+        }
+        if (!detail.getCategories().isEmpty()) {
+            showCategories(detail.getCategories());
+        }
+
+        // Descriptions carry simple markup such as <p> and <b>
+        if (detail.getDescription() != null) {
+            mDescriptionTextView.setText(fromHtml(detail.getDescription()));
+        } else {
+            mDescriptionTextView.setText(R.string.detail_no_description);
+        }
+
+        // A larger cover than the list's, if there is one
+        if (detail.getThumbnailUrl() != null) {
+            QueryUtils.getThumbnailLoader(this).load(mThumbnailImageView, detail.getThumbnailUrl(),
+                    mThumbnailWidth, mThumbnailHeight);
+        }
+    }
+
+    private void showPublication(String publisher, String publishedDate) {
+        if (publisher != null && publishedDate != null) {
+            mPublicationTextView.setText(getString(R.string.detail_publication, publisher, publishedDate));
+        } else if (publisher != null) {
+            mPublicationTextView.setText(publisher);
+        } else if (publishedDate != null) {
+            mPublicationTextView.setText(publishedDate);
+        }
+    }
+
+    private void showCategories(List<String> categories) {
+        StringBuilder builder = new StringBuilder();
+        for (String category : categories) {
+            if (builder.length() > 0) {
+                builder.append(getString(R.string.book_authors_separator_comma));
+            }
+            builder.append(category);
+        }
+        mCategoriesTextView.setText(builder);
+    }
+
+    /**
+     * Html.fromHtml(String, int) is only available from API 24, above this app's minimum
+     */
+    @SuppressWarnings("deprecation")
+    private static CharSequence fromHtml(String html) {
+        return Html.fromHtml(html);
+    }
+
+    /**
+     * Called when the activity is destroyed, including for a configuration change.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // A fetch still loading carries on into the cache, so the next instance is served from there
+        mFetcher.detach(mDetailCallback);
+    }
+}
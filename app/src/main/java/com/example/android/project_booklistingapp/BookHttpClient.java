@@ -0,0 +1,302 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Small HTTP client for Google Books requests.
+ * Connections are reused through the platform's keep-alive pool, which HttpURLConnection shares across the
+ * whole process; its size is the platform's (the http.maxConnections system property, read once at startup),
+ * not a setting of this client. Every response body is drained and closed (not disconnected) once read,
+ * so the underlying socket is handed back for the next search, unless too much of it is left unread.
+ * Requests ask for gzip and the body is decompressed transparently.
+ */
+
+public final class BookHttpClient {
+
+    /**
+     * Default time allowed to establish a connection
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 10000;
+
+    /**
+     * Default time allowed between bytes of the response
+     */
+    public static final int DEFAULT_READ_TIMEOUT_MS = 15000;
+
+    /**
+     * Most unread body bytes drained on close to keep a connection; past this it is cheaper to open a new one
+     */
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    /**
+     * User-Agent sent with every request. Google APIs only compress responses for clients whose
+     * User-Agent contains "gzip", in addition to the Accept-Encoding header.
+     */
+    private static final String USER_AGENT = "BookListingApp (gzip)";
+
+    /**
+     * Time allowed to establish a connection, in milliseconds
+     */
+    private final int mConnectTimeoutMs;
+
+    /**
+     * Time allowed between bytes of the response, in milliseconds
+     */
+    private final int mReadTimeoutMs;
+
+    /**
+     * Constructor for a {@link BookHttpClient} with default timeouts.
+     */
+    public BookHttpClient() {
+        this(DEFAULT_CONNECT_TIMEOUT_MS, DEFAULT_READ_TIMEOUT_MS);
+    }
+
+    /**
+     * Constructor for the {@link BookHttpClient}.
+     *
+     * @param connectTimeoutMs time allowed to establish a connection
+     * @param readTimeoutMs    time allowed between bytes of the response
+     */
+    public BookHttpClient(int connectTimeoutMs, int readTimeoutMs) {
+        this.mConnectTimeoutMs = connectTimeoutMs;
+        this.mReadTimeoutMs = readTimeoutMs;
+    }
+
+    /**
+     * Make a GET request and return the response, with its body ready to read.
+     * The caller must close the {@link Response} so its connection can be reused.
+     *
+     * @param url to fetch
+     * @return {@link Response} for any HTTP status
+     * @throws IOException if the connection cannot be made
+     */
+    public Response get(URL url) throws IOException {
+        return get(url, null);
+    }
+
+    /**
+     * Make a conditional GET request. If the server still has the same version it answers
+     * 304 Not Modified with no body.
+     *
+     * @param url         to fetch
+     * @param ifNoneMatch ETag of a cached copy, or null for an unconditional request
+     * @return {@link Response} for any HTTP status
+     * @throws IOException if the connection cannot be made
+     */
+    public Response get(URL url, String ifNoneMatch) throws IOException {
+        return get(url, ifNoneMatch, null);
+    }
+
+    /**
+     * Make a conditional GET request that can be cancelled while in flight.
+     * Cancelling closes the connection, so a blocked connect or read fails straight away.
+     *
+     * @param url          to fetch
+     * @param ifNoneMatch  ETag of a cached copy, or null for an unconditional request
+     * @param cancellation token to cancel the request with, or null
+     * @return {@link Response} for any HTTP status
+     * @throws IOException if the connection cannot be made or the request is cancelled
+     */
+    public Response get(URL url, String ifNoneMatch, CancellationToken cancellation) throws IOException {
+        if (cancellation != null) {
+            cancellation.throwIfCancelled();
+        }
+
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(mConnectTimeoutMs);
+        connection.setReadTimeout(mReadTimeoutMs);
+        connection.setRequestMethod("GET");
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        connection.setRequestProperty("User-Agent", USER_AGENT);
+        connection.setRequestProperty("Connection", "keep-alive");
+        if (ifNoneMatch != null) {
+            connection.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+
+        // Abort the socket if cancelled while connecting or reading
+        if (cancellation != null) {
+            cancellation.setOnCancelListener(new Runnable() {
+                @Override
+                public void run() {
+                    connection.disconnect();
+                }
+            });
+        }
+
+        SearchMetrics metrics = SearchMetrics.getDefault();
+        metrics.add(SearchMetrics.Counter.REQUESTS, 1);
+        try {
+            long start = SearchMetrics.now();
+            connection.connect();
+            metrics.recordSince(SearchMetrics.Stage.CONNECT, start);
+
+            start = SearchMetrics.now();
+            int code = connection.getResponseCode();
+            metrics.recordSince(SearchMetrics.Stage.FIRST_BYTE, start);
+
+            Response response = new Response(connection, code, cancellation);
+            if (cancellation != null) {
+                cancellation.throwIfCancelled();
+            }
+            return response;
+        } catch (IOException e) {
+            // Connection is in an unknown state; don't return it to the pool
+            if (cancellation != null) {
+                cancellation.setOnCancelListener(null);
+            }
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    /**
+     * HTTP response whose body is decompressed on the fly.
+     */
+    public static final class Response implements Closeable {
+
+        /**
+         * Underlying connection
+         */
+        private final HttpURLConnection mConnection;
+
+        /**
+         * HTTP status code
+         */
+        private final int mCode;
+
+        /**
+         * Raw (possibly compressed) body stream, opened on first use
+         */
+        private InputStream mRawBody;
+
+        /**
+         * Decompressed body stream, opened on first use
+         */
+        private InputStream mBody;
+
+        /**
+         * Token that can cancel this response's request, or null
+         */
+        private final CancellationToken mCancellation;
+
+        private Response(HttpURLConnection connection, int code, CancellationToken cancellation) {
+            this.mConnection = connection;
+            this.mCode = code;
+            this.mCancellation = cancellation;
+        }
+
+        /**
+         * @return HTTP status code
+         */
+        public int getCode() {
+            return mCode;
+        }
+
+        /**
+         * @param name of the header
+         * @return value of the response header, or null if absent
+         */
+        public String getHeader(String name) {
+            return mConnection.getHeaderField(name);
+        }
+
+        /**
+         * Length of the decompressed body, from Content-Length.
+         *
+         * @return length in bytes, or -1 if not given, malformed, or only known for the compressed body
+         */
+        public int getContentLength() {
+            if (getHeader("Content-Encoding") != null) {
+                return -1;
+            }
+            String contentLength = getHeader("Content-Length");
+            if (contentLength == null) {
+                return -1;
+            }
+            try {
+                long length = Long.parseLong(contentLength.trim());
+                return length >= 0 && length <= Integer.MAX_VALUE ? (int) length : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        /**
+         * Read the whole decompressed body into a pooled buffer, sized from Content-Length when it is given.
+         *
+         * @param pool      to take the buffer from
+         * @param maxLength most bytes accepted
+         * @return the body, which the caller must close to hand the buffer back
+         * @throws IOException if the body cannot be read or is longer than maxLength
+         */
+        public ByteBufferPool.Buffer readBody(ByteBufferPool pool, int maxLength) throws IOException {
+            return pool.readFully(getBody(), getContentLength(), maxLength);
+        }
+
+        /**
+         * Return the decompressed response body. Error statuses return the error body, if any.
+         *
+         * @return body stream (empty if there is no body)
+         * @throws IOException if the body cannot be opened
+         */
+        public InputStream getBody() throws IOException {
+            if (mBody == null) {
+                mRawBody = mCode >= 400 ? mConnection.getErrorStream() : mConnection.getInputStream();
+                if (mRawBody == null) {
+                    mRawBody = new ByteArrayInputStream(new byte[0]);
+                }
+                mBody = "gzip".equalsIgnoreCase(getHeader("Content-Encoding"))
+                        ? new GZIPInputStream(mRawBody) : mRawBody;
+            }
+            return mBody;
+        }
+
+        /**
+         * Drain any unread bytes and close the body, so the connection goes back to the pool.
+         * If that fails, or more than {@link #MAX_DRAIN_BYTES} are left, the connection is dropped instead.
+         */
+        @Override
+        public void close() {
+            // Once finished with, the connection may be reused; a late cancel must not close it
+            if (mCancellation != null) {
+                mCancellation.setOnCancelListener(null);
+                if (mCancellation.isCancelled()) {
+                    mConnection.disconnect();
+                    return;
+                }
+            }
+
+            try {
+                InputStream raw = mRawBody != null ? mRawBody
+                        : (mCode >= 400 ? mConnection.getErrorStream() : mConnection.getInputStream());
+                if (raw != null) {
+                    ByteBufferPool pool = ByteBufferPool.getDefault();
+                    byte[] scratch = pool.acquire(ByteBufferPool.MIN_BUFFER_SIZE);
+                    try {
+                        // Discard; we only need the stream to reach its end
+                        long drained = 0;
+                        int read;
+                        while ((read = raw.read(scratch)) != -1) {
+                            drained += read;
+                            if (drained > MAX_DRAIN_BYTES) {
+                                mConnection.disconnect();
+                                return;
+                            }
+                        }
+                    } finally {
+                        pool.release(scratch);
+                    }
+                    raw.close();
+                }
+            } catch (IOException e) {
+                mConnection.disconnect();
+            }
+        }
+    }
+}
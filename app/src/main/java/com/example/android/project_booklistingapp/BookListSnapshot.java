@@ -0,0 +1,162 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of the list of books on screen, for restoring it after the process is killed.
+ * Each distinct author name is written once, in a table at the start, and books refer to names by index.
+ * A snapshot is tagged with an ID that is also saved in the activity's state, so a stale snapshot is never
+ * restored into the wrong state.
+ */
+
+public final class BookListSnapshot {
+
+    /**
+     * Version of the snapshot format. Snapshots written with another version are ignored.
+     */
+    private static final int FORMAT_VERSION = 3;
+
+    private BookListSnapshot() {
+    }
+
+    /**
+     * Write a snapshot, via a temporary file so a reader never sees a partial one.
+     *
+     * @param file  to write to
+     * @param id    tag to save alongside the snapshot's reference
+     * @param books to write
+     * @return true if the snapshot was written
+     */
+    public static boolean write(File file, long id, List<Book> books) {
+        // Author name table
+        Map<String, Integer> nameIndexes = new HashMap<String, Integer>();
+        List<String> names = new ArrayList<String>();
+        for (Book book : books) {
+            for (String name : book.getAuthorNames()) {
+                if (!nameIndexes.containsKey(name)) {
+                    nameIndexes.put(name, names.size());
+                    names.add(name);
+                }
+            }
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(id);
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+            out.writeInt(books.size());
+            for (Book book : books) {
+                out.writeBoolean(book.getId() != null);
+                if (book.getId() != null) {
+                    out.writeUTF(book.getId());
+                }
+                out.writeUTF(book.getTitle());
+                List<String> authorNames = book.getAuthorNames();
+                out.writeInt(authorNames.size());
+                for (String name : authorNames) {
+                    out.writeInt(nameIndexes.get(name));
+                }
+                out.writeBoolean(book.getThumbnailUrl() != null);
+                if (book.getThumbnailUrl() != null) {
+                    out.writeUTF(book.getThumbnailUrl());
+                }
+                out.writeBoolean(book.getPublishedDate() != null);
+                if (book.getPublishedDate() != null) {
+                    out.writeUTF(book.getPublishedDate());
+                }
+                out.writeBoolean(book.getLanguage() != null);
+                if (book.getLanguage() != null) {
+                    out.writeUTF(book.getLanguage());
+                }
+                List<String> categories = book.getCategories();
+                out.writeInt(categories.size());
+                for (String category : categories) {
+                    out.writeUTF(category);
+                }
+            }
+            out.close();
+            out = null;
+            if (temp.renameTo(file)) {
+                return true;
+            }
+            temp.delete();
+            return false;
+        } catch (IOException e) {
+            temp.delete();
+            return false;
+        } finally {
+            BookRecords.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Read a snapshot.
+     *
+     * @param file to read from
+     * @param id   tag the snapshot must have been written with
+     * @return {@link List<Book>}, or null if there is no matching, readable snapshot
+     */
+    public static List<Book> read(File file, long id) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != FORMAT_VERSION || in.readLong() != id) {
+                return null;
+            }
+            String[] names = new String[in.readInt()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = in.readUTF();
+            }
+            int count = in.readInt();
+            List<Book> books = new ArrayList<Book>(count);
+            List<String> authorNames = new ArrayList<String>();
+            for (int i = 0; i < count; i++) {
+                String bookId = in.readBoolean() ? in.readUTF() : null;
+                String title = in.readUTF();
+                authorNames.clear();
+                int authorCount = in.readInt();
+                for (int j = 0; j < authorCount; j++) {
+                    authorNames.add(names[in.readInt()]);
+                }
+                String thumbnailUrl = in.readBoolean() ? in.readUTF() : null;
+                String publishedDate = in.readBoolean() ? in.readUTF() : null;
+                String language = in.readBoolean() ? in.readUTF() : null;
+                int categoryCount = in.readInt();
+                List<String> categories = new ArrayList<String>(categoryCount);
+                for (int j = 0; j < categoryCount; j++) {
+                    categories.add(in.readUTF());
+                }
+                books.add(new Book(bookId, title, authorNames, thumbnailUrl, publishedDate, language, categories));
+            }
+            return books;
+        } catch (IOException e) {
+            return null;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // Corrupt name index
+            return null;
+        } finally {
+            BookRecords.closeQuietly(in);
+        }
+    }
+}
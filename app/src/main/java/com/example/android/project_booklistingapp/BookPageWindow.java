@@ -0,0 +1,184 @@
+package com.example.android.project_booklistingapp;
+
+import java.util.ArrayDeque;
+
+/**
+ * Tracks which pages of a search's results are currently held in memory.
+ * Pages are addressed by the API's startIndex. At most a fixed number of pages are kept; adding a page at one
+ * end evicts a page from the other end, so memory stays flat however far the user scrolls.
+ * Eviction can be paused while the list is not shown in page order (e.g. sorted or filtered), since pages then
+ * do not map to the ends of what the user sees; the window grows until eviction resumes.
+ */
+
+public final class BookPageWindow {
+
+    /**
+     * Number of results requested per page
+     */
+    private final int mPageSize;
+
+    /**
+     * Maximum number of pages held at once
+     */
+    private final int mMaxPages;
+
+    /**
+     * Number of books held for each held page, in order: those received, less any already shown from other pages
+     */
+    private final ArrayDeque<Integer> mPageSizes = new ArrayDeque<Integer>();
+
+    /**
+     * startIndex of the first held page
+     */
+    private int mFirstStartIndex = 0;
+
+    /**
+     * Whether the server has returned an empty page, i.e. there are no more results
+     */
+    private boolean mEndReached = false;
+
+    /**
+     * Whether pages are kept beyond the maximum, rather than evicted
+     */
+    private boolean mEvictionPaused = false;
+
+    /**
+     * Constructor for the {@link BookPageWindow}.
+     *
+     * @param pageSize number of results requested per page
+     * @param maxPages maximum number of pages held at once
+     */
+    public BookPageWindow(int pageSize, int maxPages) {
+        this.mPageSize = pageSize;
+        this.mMaxPages = maxPages;
+    }
+
+    /**
+     * Forget all pages, ready for a new search.
+     */
+    public void reset() {
+        mPageSizes.clear();
+        mFirstStartIndex = 0;
+        mEndReached = false;
+    }
+
+    /**
+     * Restore a window previously described by {@link #getFirstStartIndex()}, {@link #getPageSizes()}
+     * and {@link #isEndReached()}.
+     */
+    public void restore(int firstStartIndex, int[] pageSizes, boolean endReached) {
+        reset();
+        mFirstStartIndex = firstStartIndex;
+        for (int size : pageSizes) {
+            mPageSizes.addLast(size);
+        }
+        mEndReached = endReached;
+    }
+
+    /**
+     * Pause or resume eviction. Once resumed, the next page added evicts as many pages as needed to get back
+     * to the maximum.
+     *
+     * @param paused true to keep every page added
+     */
+    public void setEvictionPaused(boolean paused) {
+        mEvictionPaused = paused;
+    }
+
+    /**
+     * @return startIndex of the page that would follow the held pages
+     */
+    public int getNextStartIndex() {
+        return mFirstStartIndex + mPageSizes.size() * mPageSize;
+    }
+
+    /**
+     * @return startIndex of the page before the held pages, or -1 if the first page is held
+     */
+    public int getPreviousStartIndex() {
+        return hasPrevious() ? mFirstStartIndex - mPageSize : -1;
+    }
+
+    /**
+     * @return true if pages before the held ones were evicted and can be loaded again
+     */
+    public boolean hasPrevious() {
+        return mFirstStartIndex > 0;
+    }
+
+    /**
+     * @return true if there are no more results after the held pages
+     */
+    public boolean isEndReached() {
+        return mEndReached;
+    }
+
+    /**
+     * @return startIndex of the first held page
+     */
+    public int getFirstStartIndex() {
+        return mFirstStartIndex;
+    }
+
+    /**
+     * @return number of books in each held page, in order
+     */
+    public int[] getPageSizes() {
+        int[] sizes = new int[mPageSizes.size()];
+        int i = 0;
+        for (int size : mPageSizes) {
+            sizes[i++] = size;
+        }
+        return sizes;
+    }
+
+    /**
+     * Record a page added after the held pages.
+     *
+     * @param size number of books received and added; zero marks the end of the results
+     * @return number of books to drop from the front of the list
+     */
+    public int appendPage(int size) {
+        return appendPage(size, size);
+    }
+
+    /**
+     * Record a page added after the held pages, only some of whose books were added to the list
+     * (e.g. because the others were already shown from another page).
+     *
+     * @param received number of books received; zero marks the end of the results
+     * @param added    number of them added to the list, possibly none
+     * @return number of books to drop from the front of the list
+     */
+    public int appendPage(int received, int added) {
+        if (received == 0) {
+            mEndReached = true;
+            return 0;
+        }
+        mPageSizes.addLast(added);
+        int evicted = 0;
+        while (!mEvictionPaused && mPageSizes.size() > mMaxPages) {
+            mFirstStartIndex += mPageSize;
+            evicted += mPageSizes.removeFirst();
+        }
+        return evicted;
+    }
+
+    /**
+     * Record a page added before the held pages.
+     *
+     * @param size number of books added to the list, possibly none
+     * @return number of books to drop from the end of the list
+     */
+    public int prependPage(int size) {
+        mFirstStartIndex -= mPageSize;
+        mPageSizes.addFirst(size);
+        int evicted = 0;
+        while (!mEvictionPaused && mPageSizes.size() > mMaxPages) {
+            // Dropped results can be fetched again, so the end is no longer in memory
+            mEndReached = false;
+            evicted += mPageSizes.removeLast();
+        }
+        return evicted;
+    }
+}
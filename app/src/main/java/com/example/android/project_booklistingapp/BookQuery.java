@@ -0,0 +1,164 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+/**
+ * A Google Books "volumes" query, turned into a request URL by {@link #toUrl()}.
+ * Search terms are put in canonical form by {@link QueryCanonicalizer}, so equivalent searches share one URL
+ * (and so one cache entry), then URL-encoded, and by default only the fields {@link BookStreamParser} reads are requested
+ * (a partial response) without pretty-printing, which shrinks every response before it is even compressed.
+ * Instances are immutable; the with... methods return modified copies.
+ */
+
+public final class BookQuery {
+
+    /**
+     * Google Books volumes endpoint
+     */
+    public static final String DEFAULT_ENDPOINT = "https://www.googleapis.com/books/v1/volumes";
+
+    /**
+     * Query string parameter names. Do not get translated.
+     */
+    private static final String PARAM_QUERY = "?q=";
+    private static final String PARAM_MAXRESULTS = "&maxResults=";
+    private static final String PARAM_STARTINDEX = "&startIndex=";
+    private static final String PARAM_FIELDS = "&fields=";
+    private static final String PARAM_PRETTYPRINT_OFF = "&prettyPrint=false";
+    private static final String PARAM_VOLUME_FIELDS = "?fields=";
+
+    private final String mEndpoint;
+
+    /**
+     * Search term(s), in canonical form
+     */
+    private final String mTerms;
+
+    /**
+     * Results per request, or -1 for the server's default
+     */
+    private final int mMaxResults;
+
+    /**
+     * Index of the first result, or -1 for the first page
+     */
+    private final int mStartIndex;
+
+    /**
+     * Partial response field selector, or null for full volume resources
+     */
+    private final String mFields;
+
+    /**
+     * Constructor for a {@link BookQuery} against the Google Books endpoint, projected to the parser's fields.
+     *
+     * @param terms search term(s) as typed, unencoded
+     */
+    public BookQuery(String terms) {
+        this(DEFAULT_ENDPOINT, QueryCanonicalizer.canonicalize(terms), -1, -1, BookStreamParser.FIELDS);
+    }
+
+    private BookQuery(String endpoint, String terms, int maxResults, int startIndex, String fields) {
+        this.mEndpoint = endpoint;
+        this.mTerms = terms;
+        this.mMaxResults = maxResults;
+        this.mStartIndex = startIndex;
+        this.mFields = fields;
+    }
+
+    /**
+     * @param endpoint volumes endpoint URL, e.g. a local stub server
+     * @return copy of this query sent to another endpoint
+     */
+    public BookQuery withEndpoint(String endpoint) {
+        return new BookQuery(endpoint, mTerms, mMaxResults, mStartIndex, mFields);
+    }
+
+    /**
+     * @param maxResults results per request (Google Books allows up to 40)
+     * @return copy of this query with a page size
+     */
+    public BookQuery withMaxResults(int maxResults) {
+        return new BookQuery(mEndpoint, mTerms, maxResults, mStartIndex, mFields);
+    }
+
+    /**
+     * @param startIndex index of the first result wanted
+     * @return copy of this query for a later page
+     */
+    public BookQuery withStartIndex(int startIndex) {
+        return new BookQuery(mEndpoint, mTerms, mMaxResults, startIndex, mFields);
+    }
+
+    /**
+     * @param fields partial response field selector, or null to request full volume resources
+     * @return copy of this query with another projection
+     */
+    public BookQuery withFields(String fields) {
+        return new BookQuery(mEndpoint, mTerms, mMaxResults, mStartIndex, fields);
+    }
+
+    /**
+     * @return search term(s), in canonical form
+     */
+    public String getTerms() {
+        return mTerms;
+    }
+
+    /**
+     * @return results per request, or -1 for the server's default
+     */
+    public int getMaxResults() {
+        return mMaxResults;
+    }
+
+    /**
+     * Build the request URL.
+     *
+     * @return URL in String format
+     */
+    public String toUrl() {
+        StringBuilder url = new StringBuilder(mEndpoint.length() + mTerms.length() + 128);
+        url.append(mEndpoint).append(PARAM_QUERY).append(encode(mTerms));
+        if (mMaxResults >= 0) {
+            url.append(PARAM_MAXRESULTS).append(mMaxResults);
+        }
+        if (mStartIndex >= 0) {
+            url.append(PARAM_STARTINDEX).append(mStartIndex);
+        }
+        if (mFields != null) {
+            url.append(PARAM_FIELDS).append(encode(mFields));
+        }
+        return url.append(PARAM_PRETTYPRINT_OFF).toString();
+    }
+
+    @Override
+    public String toString() {
+        return toUrl();
+    }
+
+    /**
+     * Build the URL of one volume's full record, projected to the fields {@link VolumeDetailParser} reads.
+     *
+     * @param endpoint volumes endpoint URL
+     * @param volumeId ID of the volume, as in {@link Book#getId()}
+     * @return URL in String format
+     */
+    public static String volumeUrl(String endpoint, String volumeId) {
+        return endpoint + "/" + encode(volumeId) + PARAM_VOLUME_FIELDS + encode(VolumeDetailParser.FIELDS)
+                + PARAM_PRETTYPRINT_OFF;
+    }
+
+    /**
+     * URL-encode a query parameter value. Spaces become "+", as Google Books expects.
+     */
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always available
+            throw new IllegalStateException(e);
+        }
+    }
+}
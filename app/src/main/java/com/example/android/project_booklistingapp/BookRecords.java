@@ -0,0 +1,94 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * On-disk record of a {@link Book}, shared by the {@link BookCache} disk tier and the {@link BookCatalog} log,
+ * along with the stream handling their files need. A change to the record changes both formats, so both
+ * version numbers must be bumped with it.
+ */
+
+final class BookRecords {
+
+    private BookRecords() {
+    }
+
+    /**
+     * Write one book: ID if any, title, author count, each author name, thumbnail URL if any, published date
+     * if any, language if any, category count, then each category name.
+     */
+    static void write(DataOutputStream out, Book book) throws IOException {
+        writeOptional(out, book.getId());
+        out.writeUTF(book.getTitle());
+        List<String> authorNames = book.getAuthorNames();
+        out.writeInt(authorNames.size());
+        for (String authorName : authorNames) {
+            out.writeUTF(authorName);
+        }
+        writeOptional(out, book.getThumbnailUrl());
+        writeOptional(out, book.getPublishedDate());
+        writeOptional(out, book.getLanguage());
+        List<String> categories = book.getCategories();
+        out.writeInt(categories.size());
+        for (String category : categories) {
+            out.writeUTF(category);
+        }
+    }
+
+    /**
+     * Read one book written by {@link #write}.
+     */
+    static Book read(DataInputStream in) throws IOException {
+        String id = readOptional(in);
+        String title = in.readUTF();
+        int authorCount = in.readInt();
+        List<String> authorNames = new ArrayList<String>(authorCount);
+        for (int i = 0; i < authorCount; i++) {
+            authorNames.add(in.readUTF());
+        }
+        String thumbnailUrl = readOptional(in);
+        String publishedDate = readOptional(in);
+        String language = readOptional(in);
+        int categoryCount = in.readInt();
+        List<String> categories = new ArrayList<String>(categoryCount);
+        for (int i = 0; i < categoryCount; i++) {
+            categories.add(in.readUTF());
+        }
+        return new Book(id, title, authorNames, thumbnailUrl, publishedDate, language, categories);
+    }
+
+    /**
+     * Write a string that may be null, as a presence flag followed by the string.
+     */
+    static void writeOptional(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Read a string written by {@link #writeOptional}.
+     */
+    static String readOptional(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Close a stream, ignoring errors.
+     */
+    static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing useful to do
+            }
+        }
+    }
+}
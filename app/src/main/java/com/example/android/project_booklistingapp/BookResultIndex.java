@@ -0,0 +1,488 @@
+package com.example.android.project_booklistingapp;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory sorting, filtering and facet counting over the books of a search, without another request.
+ * <p>
+ * Sort keys are computed once per book (collation keys for title and author, the first time the book is sorted
+ * by them, and a number for the date), so sorting compares precomputed keys only. Each sort order used is kept, and books added later are
+ * sorted on their own and merged in, so results arriving page by page never re-sort what is already sorted.
+ * <p>
+ * Not thread-safe: confine each index to one thread, e.g. with {@link BookResultProcessor}.
+ */
+
+public final class BookResultIndex {
+
+    /**
+     * Orders results can be shown in. Ties, and books missing the key, keep arrival order.
+     */
+    public enum Sort {
+        /** Order the server returned them in */
+        RELEVANCE,
+        /** Title, A to Z */
+        TITLE,
+        /** First author's surname, A to Z */
+        AUTHOR,
+        /** Publication date, newest first */
+        DATE
+    }
+
+    /**
+     * Book details results can be filtered by and counted over
+     */
+    public enum Facet {
+        AUTHOR,
+        LANGUAGE,
+        CATEGORY
+    }
+
+    /**
+     * Facet values a result must match; null matches anything. Immutable.
+     */
+    public static final class Filter {
+
+        /**
+         * Filter that matches every book
+         */
+        public static final Filter NONE = new Filter(null, null, null);
+
+        private final String mAuthor;
+        private final String mLanguage;
+        private final String mCategory;
+
+        /**
+         * @param author   author name the book must have, or null
+         * @param language language code the book must have, or null
+         * @param category category the book must have, or null
+         */
+        public Filter(String author, String language, String category) {
+            this.mAuthor = author;
+            this.mLanguage = language;
+            this.mCategory = category;
+        }
+
+        /**
+         * @param facet to filter by
+         * @param value the book must have
+         * @return filter on that one facet
+         */
+        public static Filter of(Facet facet, String value) {
+            switch (facet) {
+                case AUTHOR:
+                    return new Filter(value, null, null);
+                case LANGUAGE:
+                    return new Filter(null, value, null);
+                default:
+                    return new Filter(null, null, value);
+            }
+        }
+
+        public String getAuthor() {
+            return mAuthor;
+        }
+
+        public String getLanguage() {
+            return mLanguage;
+        }
+
+        public String getCategory() {
+            return mCategory;
+        }
+
+        /**
+         * @return true if this filter matches every book
+         */
+        public boolean isEmpty() {
+            return mAuthor == null && mLanguage == null && mCategory == null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Filter)) {
+                return false;
+            }
+            Filter other = (Filter) o;
+            return equal(mAuthor, other.mAuthor) && equal(mLanguage, other.mLanguage)
+                    && equal(mCategory, other.mCategory);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(new Object[]{mAuthor, mLanguage, mCategory});
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * Books matching a filter, in order, with facet counts.
+     * A facet's counts ignore that facet's own filter value, so the other values it offers stay visible.
+     * Counts are most frequent first.
+     */
+    public static final class Result {
+        private final List<Book> mBooks;
+        private final Map<String, Integer> mAuthors;
+        private final Map<String, Integer> mLanguages;
+        private final Map<String, Integer> mCategories;
+
+        private Result(List<Book> books, Map<String, Integer> authors, Map<String, Integer> languages,
+                       Map<String, Integer> categories) {
+            this.mBooks = books;
+            this.mAuthors = authors;
+            this.mLanguages = languages;
+            this.mCategories = categories;
+        }
+
+        /**
+         * @return matching books, in the requested order
+         */
+        public List<Book> getBooks() {
+            return mBooks;
+        }
+
+        /**
+         * @param facet to count
+         * @return number of books per value of the facet
+         */
+        public Map<String, Integer> getCounts(Facet facet) {
+            switch (facet) {
+                case AUTHOR:
+                    return mAuthors;
+                case LANGUAGE:
+                    return mLanguages;
+                default:
+                    return mCategories;
+            }
+        }
+    }
+
+    /**
+     * A book with its precomputed sort keys
+     */
+    private static final class Entry {
+        private final Book mBook;
+        /** Position in arrival order; breaks ties */
+        private int mIndex;
+        /** Null until first sorted by title */
+        private CollationKey mTitleKey;
+        /** Null until first sorted by author, or if the book has no authors */
+        private CollationKey mAuthorKey;
+        private boolean mAuthorKeyReady = false;
+        /** yyyymmdd, with 00 for a missing month or day; -1 if unknown */
+        private final int mDateKey;
+
+        private Entry(Book book) {
+            this.mBook = book;
+            this.mDateKey = dateKey(book.getPublishedDate());
+        }
+
+        /**
+         * Compute the key a sort order compares, if not done already.
+         */
+        private void prepareKey(Sort sort, Collator collator) {
+            if (sort == Sort.TITLE && mTitleKey == null) {
+                mTitleKey = collator.getCollationKey(mBook.getTitle());
+            } else if (sort == Sort.AUTHOR && !mAuthorKeyReady) {
+                List<String> authors = mBook.getAuthorNames();
+                mAuthorKey = authors.isEmpty() ? null : collator.getCollationKey(surnameFirst(authors.get(0)));
+                mAuthorKeyReady = true;
+            }
+        }
+    }
+
+    /**
+     * Books in arrival order
+     */
+    private final List<Entry> mEntries = new ArrayList<Entry>();
+
+    /**
+     * Entries in each sort order used so far, kept up to date as books are added
+     */
+    private final Map<Sort, List<Entry>> mSorted = new EnumMap<Sort, List<Entry>>(Sort.class);
+
+    /**
+     * Shared by all entries; collation keys from different collators cannot be compared
+     */
+    private final Collator mCollator;
+
+    /**
+     * Constructor for a {@link BookResultIndex} sorting text by the rules of a locale.
+     *
+     * @param locale whose collation rules to sort titles and authors by
+     */
+    public BookResultIndex(Locale locale) {
+        this.mCollator = Collator.getInstance(locale);
+        // Ignore case, but not accents
+        this.mCollator.setStrength(Collator.SECONDARY);
+    }
+
+    /**
+     * Add books that arrived after those already indexed, e.g. a further page.
+     * They are sorted on their own and merged into each sort order kept.
+     *
+     * @param books to add, in arrival order
+     */
+    public void addAll(List<Book> books) {
+        List<Entry> added = new ArrayList<Entry>(books.size());
+        for (Book book : books) {
+            Entry entry = new Entry(book);
+            entry.mIndex = mEntries.size();
+            mEntries.add(entry);
+            added.add(entry);
+        }
+        for (Map.Entry<Sort, List<Entry>> sorted : mSorted.entrySet()) {
+            prepareKeys(sorted.getKey(), added);
+            List<Entry> addedSorted = new ArrayList<Entry>(added);
+            Collections.sort(addedSorted, comparatorFor(sorted.getKey()));
+            sorted.setValue(merge(sorted.getValue(), addedSorted, comparatorFor(sorted.getKey())));
+        }
+    }
+
+    /**
+     * Replace the indexed books. If the new list only extends the current one, this is {@link #addAll} of the
+     * new books. Otherwise the index is rebuilt, reusing the keys of books it already held.
+     *
+     * @param books all books, in arrival order
+     */
+    public void setAll(List<Book> books) {
+        // Same books so far, plus some more: an append
+        int common = Math.min(books.size(), mEntries.size());
+        int prefix = 0;
+        while (prefix < common && books.get(prefix) == mEntries.get(prefix).mBook) {
+            prefix++;
+        }
+        if (prefix == mEntries.size()) {
+            addAll(books.subList(prefix, books.size()));
+            return;
+        }
+
+        Map<Book, Entry> previous = new IdentityHashMap<Book, Entry>(mEntries.size());
+        for (Entry entry : mEntries) {
+            previous.put(entry.mBook, entry);
+        }
+        mEntries.clear();
+        mSorted.clear();
+        for (Book book : books) {
+            Entry entry = previous.get(book);
+            if (entry == null) {
+                entry = new Entry(book);
+            }
+            entry.mIndex = mEntries.size();
+            mEntries.add(entry);
+        }
+    }
+
+    /**
+     * @return number of books indexed
+     */
+    public int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * Sort and filter the indexed books, and count their facets.
+     *
+     * @param sort   order to return them in
+     * @param filter facet values they must match
+     * @return {@link Result}
+     */
+    public Result query(Sort sort, Filter filter) {
+        List<Entry> ordered = sorted(sort);
+        List<Book> books = new ArrayList<Book>(filter.isEmpty() ? ordered.size() : 16);
+        Map<String, Integer> authors = new LinkedHashMap<String, Integer>();
+        Map<String, Integer> languages = new LinkedHashMap<String, Integer>();
+        Map<String, Integer> categories = new LinkedHashMap<String, Integer>();
+
+        for (Entry entry : ordered) {
+            Book book = entry.mBook;
+            List<String> bookAuthors = book.getAuthorNames();
+            List<String> bookCategories = book.getCategories();
+            boolean authorMatches = filter.mAuthor == null || bookAuthors.contains(filter.mAuthor);
+            boolean languageMatches = filter.mLanguage == null || filter.mLanguage.equals(book.getLanguage());
+            boolean categoryMatches = filter.mCategory == null || bookCategories.contains(filter.mCategory);
+
+            if (authorMatches && languageMatches && categoryMatches) {
+                books.add(book);
+            }
+            // Each facet counts the books matching every other facet's filter
+            if (languageMatches && categoryMatches) {
+                for (int i = 0; i < bookAuthors.size(); i++) {
+                    increment(authors, bookAuthors.get(i));
+                }
+            }
+            if (authorMatches && categoryMatches && book.getLanguage() != null) {
+                increment(languages, book.getLanguage());
+            }
+            if (authorMatches && languageMatches) {
+                for (int i = 0; i < bookCategories.size(); i++) {
+                    increment(categories, bookCategories.get(i));
+                }
+            }
+        }
+        return new Result(books, byCount(authors), byCount(languages), byCount(categories));
+    }
+
+    /**
+     * Entries in a sort order, sorting them the first time the order is asked for.
+     */
+    private List<Entry> sorted(Sort sort) {
+        if (sort == Sort.RELEVANCE) {
+            return mEntries;
+        }
+        List<Entry> sorted = mSorted.get(sort);
+        if (sorted == null) {
+            prepareKeys(sort, mEntries);
+            sorted = new ArrayList<Entry>(mEntries);
+            Collections.sort(sorted, comparatorFor(sort));
+            mSorted.put(sort, sorted);
+        }
+        return sorted;
+    }
+
+    private void prepareKeys(Sort sort, List<Entry> entries) {
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).prepareKey(sort, mCollator);
+        }
+    }
+
+    /**
+     * Merge two lists sorted by the same comparator.
+     */
+    private static List<Entry> merge(List<Entry> a, List<Entry> b, Comparator<Entry> comparator) {
+        List<Entry> merged = new ArrayList<Entry>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            merged.add(comparator.compare(a.get(i), b.get(j)) <= 0 ? a.get(i++) : b.get(j++));
+        }
+        merged.addAll(a.subList(i, a.size()));
+        merged.addAll(b.subList(j, b.size()));
+        return merged;
+    }
+
+    private static Comparator<Entry> comparatorFor(Sort sort) {
+        switch (sort) {
+            case TITLE:
+                return TITLE_ORDER;
+            case AUTHOR:
+                return AUTHOR_ORDER;
+            case DATE:
+                return DATE_ORDER;
+            default:
+                return ARRIVAL_ORDER;
+        }
+    }
+
+    private static final Comparator<Entry> ARRIVAL_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            return a.mIndex - b.mIndex;
+        }
+    };
+
+    private static final Comparator<Entry> TITLE_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            int order = a.mTitleKey.compareTo(b.mTitleKey);
+            return order != 0 ? order : a.mIndex - b.mIndex;
+        }
+    };
+
+    private static final Comparator<Entry> AUTHOR_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            // Books without authors go last
+            if (a.mAuthorKey == null || b.mAuthorKey == null) {
+                if (a.mAuthorKey != b.mAuthorKey) {
+                    return a.mAuthorKey == null ? 1 : -1;
+                }
+                return a.mIndex - b.mIndex;
+            }
+            int order = a.mAuthorKey.compareTo(b.mAuthorKey);
+            return order != 0 ? order : a.mIndex - b.mIndex;
+        }
+    };
+
+    private static final Comparator<Entry> DATE_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            // Newest first; unknown dates (-1) go last
+            if (a.mDateKey != b.mDateKey) {
+                return a.mDateKey > b.mDateKey ? -1 : 1;
+            }
+            return a.mIndex - b.mIndex;
+        }
+    };
+
+    /**
+     * Rearrange a name so it sorts by surname: "J.R.R. Tolkien" becomes "Tolkien J.R.R.".
+     */
+    static String surnameFirst(String name) {
+        String trimmed = name.trim();
+        int space = trimmed.lastIndexOf(' ');
+        if (space < 0) {
+            return trimmed;
+        }
+        return trimmed.substring(space + 1) + ' ' + trimmed.substring(0, space);
+    }
+
+    /**
+     * Turn a Google Books date ("yyyy", "yyyy-mm" or "yyyy-mm-dd") into a number that sorts like it.
+     *
+     * @return yyyymmdd, with 00 for a missing month or day, or -1 if the date is missing or unreadable
+     */
+    static int dateKey(String date) {
+        if (date == null || date.length() < 4) {
+            return -1;
+        }
+        try {
+            int key = Integer.parseInt(date.substring(0, 4)) * 10000;
+            if (date.length() >= 7) {
+                key += Integer.parseInt(date.substring(5, 7)) * 100;
+            }
+            if (date.length() >= 10) {
+                key += Integer.parseInt(date.substring(8, 10));
+            }
+            return key;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void increment(Map<String, Integer> counts, String value) {
+        Integer count = counts.get(value);
+        counts.put(value, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Copy counts into a map iterated most frequent first, then in first-seen order.
+     */
+    private static Map<String, Integer> byCount(Map<String, Integer> counts) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>(counts.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) {
+                return b.getValue() - a.getValue();
+            }
+        });
+        Map<String, Integer> sorted = new LinkedHashMap<String, Integer>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+        return sorted;
+    }
+}
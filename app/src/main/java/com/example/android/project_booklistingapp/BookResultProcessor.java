@@ -0,0 +1,123 @@
+package com.example.android.project_booklistingapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs a {@link BookResultIndex} on its own background thread, so sorting, filtering and facet counting never
+ * block the caller. Requests are applied in order; when several are queued, only the latest is queried and
+ * delivered, and a result overtaken by a newer request before delivery is dropped. Requests must all be made
+ * from one thread, e.g. the main thread.
+ */
+
+public final class BookResultProcessor {
+
+    /**
+     * Receives the result of the latest request, on the delivery executor.
+     */
+    public interface Callback {
+        void onResult(BookResultIndex.Result result);
+    }
+
+    /**
+     * Single thread the index is confined to
+     */
+    private final ExecutorService mExecutor;
+
+    /**
+     * Where results are delivered, e.g. the main thread
+     */
+    private final Executor mDeliveryExecutor;
+
+    /**
+     * Only touched on {@link #mExecutor}'s thread
+     */
+    private final BookResultIndex mIndex;
+
+    /**
+     * Incremented by every request, so stale results can be recognised
+     */
+    private volatile int mGeneration = 0;
+
+    /**
+     * Constructor for a {@link BookResultProcessor}.
+     *
+     * @param locale           whose collation rules to sort titles and authors by
+     * @param deliveryExecutor where to deliver results, e.g. the main thread
+     */
+    public BookResultProcessor(Locale locale, Executor deliveryExecutor) {
+        this.mIndex = new BookResultIndex(locale);
+        this.mDeliveryExecutor = deliveryExecutor;
+        this.mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "book-results");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Index a new list of books (see {@link BookResultIndex#setAll}), then sort and filter it.
+     *
+     * @param books    all books, in arrival order; copied, so the caller may go on changing its list
+     * @param sort     order to deliver them in
+     * @param filter   facet values they must match
+     * @param callback receives the result, unless a newer request overtakes this one
+     */
+    public void submit(List<Book> books, BookResultIndex.Sort sort, BookResultIndex.Filter filter,
+                       Callback callback) {
+        execute(new ArrayList<Book>(books), sort, filter, callback);
+    }
+
+    /**
+     * Sort and filter the books already indexed another way.
+     *
+     * @param sort     order to deliver them in
+     * @param filter   facet values they must match
+     * @param callback receives the result, unless a newer request overtakes this one
+     */
+    public void refine(BookResultIndex.Sort sort, BookResultIndex.Filter filter, Callback callback) {
+        execute(null, sort, filter, callback);
+    }
+
+    private void execute(final List<Book> books, final BookResultIndex.Sort sort,
+                         final BookResultIndex.Filter filter, final Callback callback) {
+        final int generation = ++mGeneration;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Every change to the books is applied, so the index stays complete
+                if (books != null) {
+                    mIndex.setAll(books);
+                }
+                if (generation != mGeneration) {
+                    return;
+                }
+                final BookResultIndex.Result result = mIndex.query(sort, filter);
+                mDeliveryExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            callback.onResult(result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stop the background thread. Pending requests are dropped.
+     */
+    public void shutdown() {
+        mGeneration++;
+        mExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,507 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Fetch and parse engine for Google Books searches.
+ * Plain Java with no Android dependencies, so the same code runs in the app, in JVM unit tests and
+ * benchmarks, and in batch jobs. Errors are thrown rather than logged; {@link QueryUtils} adapts it for the app.
+ * Failed requests are retried and slow ones hedged according to a {@link RetryPolicy}, and an optional
+ * {@link CircuitBreaker} stops requests to a failing upstream, in which case stale cached results are served.
+ */
+
+public final class BookSearchEngine {
+
+    /**
+     * Largest response body accepted, in bytes (after decompression)
+     */
+    private static final int MAX_BODY_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * HTTP client shared by all requests
+     */
+    private final BookHttpClient mHttpClient;
+
+    /**
+     * Result cache, or null to always go to the network
+     */
+    private final BookCache mCache;
+
+    /**
+     * Local catalog every fetched book is recorded in, or null for none
+     */
+    private final BookCatalog mCatalog;
+
+    /**
+     * Shares one fetch between concurrent identical requests
+     */
+    private final RequestCoalescer mCoalescer = new RequestCoalescer();
+
+    /**
+     * Bounded executor for concurrent page requests
+     */
+    private final ExecutorService mPageExecutor;
+
+    /**
+     * When to retry and hedge requests
+     */
+    private final RetryPolicy mRetryPolicy;
+
+    /**
+     * Tracks upstream health, or null to always make requests
+     */
+    private final CircuitBreaker mCircuitBreaker;
+
+    /**
+     * Runs hedged attempts. Unbounded, since hedging callers block on it; created on first use.
+     */
+    private ExecutorService mHedgeExecutor;
+
+    /**
+     * Constructor for the {@link BookSearchEngine}.
+     *
+     * @param httpClient   HTTP client to make requests with
+     * @param cache        result cache, or null for none
+     * @param pageExecutor bounded executor for {@link #searchPages}
+     */
+    public BookSearchEngine(BookHttpClient httpClient, BookCache cache, ExecutorService pageExecutor) {
+        this(httpClient, cache, null, pageExecutor);
+    }
+
+    /**
+     * Constructor for a {@link BookSearchEngine} that records every book it fetches in a local catalog.
+     *
+     * @param httpClient   HTTP client to make requests with
+     * @param cache        result cache, or null for none
+     * @param catalog      catalog for offline search, or null for none
+     * @param pageExecutor bounded executor for {@link #searchPages}
+     */
+    public BookSearchEngine(BookHttpClient httpClient, BookCache cache, BookCatalog catalog,
+                            ExecutorService pageExecutor) {
+        this(httpClient, cache, catalog, pageExecutor, RetryPolicy.NONE, null);
+    }
+
+    /**
+     * Constructor for a {@link BookSearchEngine} that retries failed requests and guards the upstream.
+     *
+     * @param httpClient     HTTP client to make requests with
+     * @param cache          result cache, or null for none
+     * @param catalog        catalog for offline search, or null for none
+     * @param pageExecutor   bounded executor for {@link #searchPages}
+     * @param retryPolicy    when to retry and hedge requests
+     * @param circuitBreaker breaker tracking upstream health, or null for none
+     */
+    public BookSearchEngine(BookHttpClient httpClient, BookCache cache, BookCatalog catalog,
+                            ExecutorService pageExecutor, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker) {
+        this.mHttpClient = httpClient;
+        this.mCache = cache;
+        this.mCatalog = catalog;
+        this.mPageExecutor = pageExecutor;
+        this.mRetryPolicy = retryPolicy;
+        this.mCircuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Create a fixed-size pool suitable for {@link #searchPages}.
+     * Threads are daemons so they never keep a JVM alive.
+     *
+     * @param threads number of page requests made at the same time
+     * @return new {@link ExecutorService}
+     */
+    public static ExecutorService newPageExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "book-page-fetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return the circuit breaker, or null if there is none
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return mCircuitBreaker;
+    }
+
+    /**
+     * @return the result cache, or null if there is none
+     */
+    public BookCache getCache() {
+        return mCache;
+    }
+
+    /**
+     * @return the local catalog, or null if there is none
+     */
+    public BookCatalog getCatalog() {
+        return mCatalog;
+    }
+
+    /**
+     * Search the books fetched so far, without touching the network.
+     *
+     * @param terms search term(s) as entered by the user
+     * @param limit maximum number of books to return
+     * @return matching books, most recently fetched first (empty if there is no catalog)
+     */
+    public List<Book> searchLocal(String terms, int limit) {
+        return mCatalog != null ? mCatalog.search(terms, limit) : new ArrayList<Book>();
+    }
+
+    /**
+     * @return the single-flight layer, e.g. to read how many requests it has coalesced
+     */
+    public RequestCoalescer getCoalescer() {
+        return mCoalescer;
+    }
+
+    /**
+     * Fetch and parse one query, serving it from the cache when possible.
+     * Concurrent searches for the same URL share a single fetch.
+     *
+     * @param url          query URL
+     * @param cancellation token to cancel the request with, or null
+     * @return unmodifiable {@link List<Book>}, or null if the response has no "items"
+     * @throws IOException if the request fails, returns an error status, cannot be parsed, or is cancelled
+     */
+    public List<Book> search(String url, CancellationToken cancellation) throws IOException {
+        return coalescedLoad(url, cancellation);
+    }
+
+    /**
+     * @param url query URL
+     * @return true if a fresh result for the query is cached, so searching it needs no request
+     */
+    public boolean isCached(String url) {
+        return mCache != null && mCache.containsFresh(url);
+    }
+
+    /**
+     * Make a request and discard the response, leaving a pooled connection (with DNS and TLS done) for the
+     * searches that follow. Not cached, retried or counted in the metrics.
+     *
+     * @param url cheap request to make to the search server
+     * @throws IOException if the request fails
+     */
+    public void warmUp(String url) throws IOException {
+        mHttpClient.get(toUrl(url)).close();
+    }
+
+    /**
+     * Fetch the first totalResults results of a query by requesting its pages concurrently.
+     * Pages are parsed as they arrive and merged in startIndex order, with duplicate volumes removed.
+     * Each page is retried under the engine's {@link RetryPolicy} and circuit breaker, like any other search.
+     *
+     * @param query        query; its page size and start index are replaced for each page
+     * @param totalResults number of results wanted
+     * @param pageSize     results per request (Google Books allows up to 40)
+     * @return merged {@link List<Book>}
+     * @throws IOException if any page still fails after its retries
+     */
+    public List<Book> searchPages(final BookQuery query, int totalResults, int pageSize) throws IOException {
+        ParallelPageFetcher.PageSource source = new ParallelPageFetcher.PageSource() {
+            @Override
+            public List<Book> fetchPage(int startIndex, int pageSize) throws IOException {
+                String pageUrl = query.withMaxResults(pageSize).withStartIndex(startIndex).toUrl();
+                return coalescedLoad(pageUrl, null);
+            }
+        };
+        return new ParallelPageFetcher(mPageExecutor).fetch(source, totalResults, pageSize);
+    }
+
+    /**
+     * Create a streaming parser.
+     * Parsers keep per-book scratch state, so each concurrent parse needs its own.
+     *
+     * @return new {@link BookStreamParser}
+     */
+    public BookStreamParser newParser() {
+        return new BookStreamParser();
+    }
+
+    /**
+     * {@link #loadBooks}, joining any identical request already in flight.
+     */
+    private List<Book> coalescedLoad(final String url, CancellationToken cancellation) throws IOException {
+        try {
+            final URL formattedUrl = toUrl(url);
+            return mCoalescer.execute(formattedUrl.toExternalForm(), cancellation, new RequestCoalescer.Fetch() {
+                @Override
+                public List<Book> fetch(CancellationToken sharedCancellation) throws IOException {
+                    return loadBooks(url, formattedUrl, sharedCancellation);
+                }
+            });
+        } catch (IOException e) {
+            if (cancellation == null || !cancellation.isCancelled()) {
+                SearchMetrics.getDefault().add(SearchMetrics.Counter.ERRORS, 1);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Fetch and parse one response, serving it from the cache when possible and storing it afterwards.
+     * While the upstream is failing, a stale cached copy is served rather than an error.
+     *
+     * @param url          query URL in String format, used as the cache key
+     * @param formattedUrl same URL as a URL object
+     * @param cancellation token to cancel the request with, or null
+     * @return {@link List<Book>}, or null if the response has no "items"
+     */
+    private List<Book> loadBooks(String url, URL formattedUrl, CancellationToken cancellation) throws IOException {
+        // Serve the result from the cache if we have a fresh copy
+        BookCache.Entry cached = mCache != null ? mCache.get(url) : null;
+        if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+            return cached.getBooks();
+        }
+
+        // Upstream is known to be failing; don't add to its load
+        if (mCircuitBreaker != null && !mCircuitBreaker.allowRequest(System.currentTimeMillis())) {
+            if (cached != null) {
+                SearchMetrics.getDefault().add(SearchMetrics.Counter.STALE_SERVED, 1);
+                return cached.getBooks();
+            }
+            throw new IOException("Google Books is failing; not sending requests for now");
+        }
+
+        // If a stale copy is cached, ask the server whether it has changed
+        Fetched fetched;
+        try {
+            fetched = fetchWithRetries(formattedUrl, cached != null ? cached.getETag() : null, cancellation);
+        } catch (IOException e) {
+            boolean clientError = e instanceof HttpStatusException
+                    && !mRetryPolicy.isRetryable(((HttpStatusException) e).getCode());
+            if (cached != null && !clientError && (cancellation == null || !cancellation.isCancelled())) {
+                SearchMetrics.getDefault().add(SearchMetrics.Counter.STALE_SERVED, 1);
+                return cached.getBooks();
+            }
+            throw e;
+        }
+
+        // Cached copy is still current
+        if (fetched.mNotModified && cached != null) {
+            return mCache.markNotModified(url, cached, fetched.mCacheControl).getBooks();
+        }
+
+        if (mCache != null) {
+            mCache.put(url, fetched.mBooks, fetched.mETag, fetched.mCacheControl);
+        }
+        if (mCatalog != null) {
+            mCatalog.addAll(fetched.mBooks);
+        }
+        return fetched.mBooks;
+    }
+
+    /**
+     * Make a request, retrying retryable failures with backoff and hedging slow attempts.
+     * Every attempt's outcome is reported to the circuit breaker, and retries stop if it opens.
+     */
+    private Fetched fetchWithRetries(URL formattedUrl, String eTag, CancellationToken cancellation)
+            throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            long delay;
+            try {
+                Fetched fetched = hedgedFetch(formattedUrl, eTag, cancellation);
+                if (mCircuitBreaker != null) {
+                    mCircuitBreaker.recordSuccess();
+                }
+                return fetched;
+            } catch (HttpStatusException e) {
+                if (!mRetryPolicy.isRetryable(e.getCode())) {
+                    // The upstream is healthy; the request is wrong
+                    if (mCircuitBreaker != null) {
+                        mCircuitBreaker.recordSuccess();
+                    }
+                    throw e;
+                }
+                delay = retryDelay(attempt, e.getRetryAfter(), cancellation);
+                if (delay < 0) {
+                    throw e;
+                }
+            } catch (IOException e) {
+                delay = retryDelay(attempt, null, cancellation);
+                if (delay < 0) {
+                    throw e;
+                }
+            }
+
+            SearchMetrics.getDefault().add(SearchMetrics.Counter.RETRIES, 1);
+            pause(delay, cancellation);
+        }
+    }
+
+    /**
+     * Record a failed attempt and decide whether, and after how long, to try again.
+     *
+     * @return delay before the retry, or -1 if cancelled, out of attempts, asked to wait too long,
+     * or the breaker has opened
+     */
+    private long retryDelay(int attempt, String retryAfter, CancellationToken cancellation) {
+        if (cancellation != null && cancellation.isCancelled()) {
+            return -1;
+        }
+        long now = System.currentTimeMillis();
+        if (mCircuitBreaker != null) {
+            mCircuitBreaker.recordFailure(now);
+            if (!mCircuitBreaker.allowRequest(now)) {
+                return -1;
+            }
+        }
+        return mRetryPolicy.delayBeforeRetry(attempt, retryAfter, now);
+    }
+
+    /**
+     * Make one request, racing a second identical one against it if it is slow and the policy allows hedging.
+     */
+    private Fetched hedgedFetch(final URL formattedUrl, final String eTag, CancellationToken cancellation)
+            throws IOException {
+        if (mRetryPolicy.getHedgeDelayMs() <= 0) {
+            return fetchOnce(formattedUrl, eTag, cancellation);
+        }
+        return new HedgedRequest<Fetched>(getHedgeExecutor(), mRetryPolicy.getHedgeDelayMs()).execute(
+                new HedgedRequest.Attempt<Fetched>() {
+                    @Override
+                    public Fetched run(CancellationToken attemptCancellation) throws IOException {
+                        return fetchOnce(formattedUrl, eTag, attemptCancellation);
+                    }
+                }, cancellation);
+    }
+
+    /**
+     * Make one request and parse its response.
+     *
+     * @throws HttpStatusException if the server answers with an error status
+     */
+    private Fetched fetchOnce(URL formattedUrl, String eTag, CancellationToken cancellation) throws IOException {
+        // Make HTTP request through the shared, connection-reusing client
+        BookHttpClient.Response response = mHttpClient.get(formattedUrl, eTag, cancellation);
+        String responseETag;
+        String cacheControl;
+        ByteBufferPool.Buffer body;
+        try {
+            if (response.getCode() == 304 && eTag != null) {
+                return new Fetched(null, null, response.getHeader("Cache-Control"), true);
+            }
+
+            if (response.getCode() != 200) {
+                throw new HttpStatusException(response.getCode(), response.getHeader("Retry-After"));
+            }
+
+            responseETag = response.getHeader("ETag");
+            cacheControl = response.getHeader("Cache-Control");
+
+            // Read the whole body into a reused buffer, so the connection is free again before parsing starts
+            long readStart = SearchMetrics.now();
+            body = response.readBody(ByteBufferPool.getDefault(), MAX_BODY_BYTES);
+            SearchMetrics.getDefault().recordSince(SearchMetrics.Stage.BODY_READ, readStart);
+            SearchMetrics.getDefault().add(SearchMetrics.Counter.BYTES, body.getLength());
+        } finally {
+            // Hand the connection back for reuse
+            response.close();
+        }
+
+        try {
+            List<Book> books = newParser().parse(body.getBytes(), 0, body.getLength());
+            return new Fetched(books, responseETag, cacheControl, false);
+        } finally {
+            body.close();
+        }
+    }
+
+    /**
+     * Wait before a retry, returning early if cancelled.
+     */
+    private static void pause(long delayMs, CancellationToken cancellation) throws IOException {
+        if (delayMs <= 0) {
+            return;
+        }
+        final Object lock = new Object();
+        if (cancellation != null) {
+            cancellation.setOnCancelListener(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (lock) {
+                        lock.notifyAll();
+                    }
+                }
+            });
+        }
+        try {
+            long deadline = System.currentTimeMillis() + delayMs;
+            synchronized (lock) {
+                long remaining = delayMs;
+                while (remaining > 0 && (cancellation == null || !cancellation.isCancelled())) {
+                    lock.wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to retry");
+        } finally {
+            if (cancellation != null) {
+                cancellation.setOnCancelListener(null);
+            }
+        }
+        if (cancellation != null) {
+            cancellation.throwIfCancelled();
+        }
+    }
+
+    /**
+     * @return executor for hedged attempts, created on first use
+     */
+    private synchronized Executor getHedgeExecutor() {
+        if (mHedgeExecutor == null) {
+            mHedgeExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "book-hedged-fetch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return mHedgeExecutor;
+    }
+
+    /**
+     * Outcome of one successful request
+     */
+    private static final class Fetched {
+        private final List<Book> mBooks;
+        private final String mETag;
+        private final String mCacheControl;
+        /** True if the server confirmed the cached copy is current */
+        private final boolean mNotModified;
+
+        private Fetched(List<Book> books, String eTag, String cacheControl, boolean notModified) {
+            this.mBooks = books;
+            this.mETag = eTag;
+            this.mCacheControl = cacheControl;
+            this.mNotModified = notModified;
+        }
+    }
+
+    /**
+     * Convert a String to a URL, reporting a malformed one as an IOException.
+     */
+    private static URL toUrl(String url) throws IOException {
+        if (url == null || url.isEmpty()) {
+            throw new MalformedURLException("Query URL is null or empty");
+        }
+        return new URL(url);
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser for Google Books "volumes" responses.
+ * Pulls tokens straight off the response stream and emits a {@link Book} as each
+ * items[].volumeInfo is reached. Fields that are never read are skipped without being allocated.
+ */
+
+public final class BookStreamParser {
+
+    /**
+     * Partial response field selector for exactly the fields this parser reads. Keep in step with
+     * {@link #readItem} and {@link #readVolumeInfo}: a field read but not listed here is never sent.
+     */
+    public static final String FIELDS =
+            "items(id,volumeInfo(title,authors,publishedDate,language,categories,"
+                    + "imageLinks(smallThumbnail,thumbnail)))";
+
+    /**
+     * Receives each {@link Book} as soon as it has been parsed.
+     */
+    public interface BookCallback {
+        void onBook(Book book);
+    }
+
+    /**
+     * Reusable list of author names for the book currently being parsed
+     */
+    private final List<String> mAuthorNames = new ArrayList<String>();
+
+    /**
+     * Reusable list of categories for the book currently being parsed
+     */
+    private final List<String> mCategories = new ArrayList<String>();
+
+    /**
+     * Time spent constructing books, and books emitted, during the current parse
+     */
+    private long mBookBuildNanos;
+    private int mItemCount;
+
+    /**
+     * Parse a response and collect the books into a list.
+     *
+     * @param inputStream of UTF-8 JSON data
+     * @return {@link List<Book>}, or null if the response contains no "items"
+     * @throws IOException if the stream cannot be read or is malformed
+     */
+    public List<Book> parse(InputStream inputStream) throws IOException {
+        final List<Book> books = new ArrayList<Book>();
+        boolean hasItems = parse(inputStream, new BookCallback() {
+            @Override
+            public void onBook(Book book) {
+                books.add(book);
+            }
+        });
+        return hasItems ? books : null;
+    }
+
+    /**
+     * Parse a response, handing each book to the callback as it is reached.
+     *
+     * @param inputStream of UTF-8 JSON data
+     * @param callback    to receive each {@link Book}
+     * @return true if the response contained an "items" array
+     * @throws IOException if the stream cannot be read or is malformed
+     */
+    public boolean parse(InputStream inputStream, BookCallback callback) throws IOException {
+        long start = SearchMetrics.now();
+
+        // Count bytes, and separate time blocked on the network from time spent parsing
+        MeteredInputStream meteredStream = new MeteredInputStream(inputStream);
+        boolean hasItems = parse(
+                new JsonPullReader(new InputStreamReader(meteredStream, Charset.forName("UTF-8"))), callback);
+
+        SearchMetrics metrics = SearchMetrics.getDefault();
+        long readNanos = meteredStream.getReadNanos();
+        metrics.record(SearchMetrics.Stage.BODY_READ, readNanos);
+        metrics.record(SearchMetrics.Stage.BOOK_BUILD, mBookBuildNanos);
+        metrics.record(SearchMetrics.Stage.PARSE, SearchMetrics.now() - start - readNanos - mBookBuildNanos);
+        metrics.add(SearchMetrics.Counter.BYTES, meteredStream.getByteCount());
+        metrics.add(SearchMetrics.Counter.ITEMS, mItemCount);
+
+        return hasItems;
+    }
+
+    /**
+     * Parse a response that has already been read into memory, e.g. a pooled body buffer.
+     * The bytes are decoded in place, without copying them into a stream's buffers.
+     *
+     * @param bytes  UTF-8 JSON data
+     * @param offset of the first byte
+     * @param length number of bytes
+     * @return {@link List<Book>}, or null if the response contains no "items"
+     * @throws IOException if the response is malformed
+     */
+    public List<Book> parse(byte[] bytes, int offset, int length) throws IOException {
+        long start = SearchMetrics.now();
+        final List<Book> books = new ArrayList<Book>();
+        boolean hasItems = parse(new JsonPullReader(new Utf8Reader(bytes, offset, length)), new BookCallback() {
+            @Override
+            public void onBook(Book book) {
+                books.add(book);
+            }
+        });
+
+        // Reading the body is timed and counted by whoever read it
+        SearchMetrics metrics = SearchMetrics.getDefault();
+        metrics.record(SearchMetrics.Stage.BOOK_BUILD, mBookBuildNanos);
+        metrics.record(SearchMetrics.Stage.PARSE, SearchMetrics.now() - start - mBookBuildNanos);
+        metrics.add(SearchMetrics.Counter.ITEMS, mItemCount);
+
+        return hasItems ? books : null;
+    }
+
+    /**
+     * Parse a whole response document, handing each book to the callback.
+     *
+     * @return true if the response contained an "items" array
+     */
+    private boolean parse(JsonPullReader reader, BookCallback callback) throws IOException {
+        mBookBuildNanos = 0;
+        mItemCount = 0;
+
+        boolean hasItems = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("items".equals(reader.nextName())) {
+                hasItems = true;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Book book = readItem(reader);
+                    if (book != null) {
+                        mItemCount++;
+                        callback.onBook(book);
+                    }
+                }
+                reader.endArray();
+            } else {
+                // "kind", "totalItems", etc. are not needed
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return hasItems;
+    }
+
+    /**
+     * Read one element of the "items" array.
+     *
+     * @return {@link Book}, or null if the item has no usable volumeInfo
+     */
+    private Book readItem(JsonPullReader reader) throws IOException {
+        Book book = null;
+        String id = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("id".equals(name)) {
+                id = reader.nextString();
+            } else if ("volumeInfo".equals(name)) {
+                book = readVolumeInfo(reader, id);
+            } else {
+                // Skip "saleInfo", "accessInfo", "searchInfo", etc.
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // Volume ID arrived after "volumeInfo"
+        if (book != null && book.getId() == null && id != null) {
+            book = book.withId(id);
+        }
+        return book;
+    }
+
+    /**
+     * Read a "volumeInfo" object, keeping only title, authors, cover thumbnail, and the details used for
+     * sorting and filtering.
+     *
+     * @param id of the volume, which Google Books sends before "volumeInfo" (null if not seen)
+     */
+    private Book readVolumeInfo(JsonPullReader reader, String id) throws IOException {
+        String title = null;
+        String thumbnailUrl = null;
+        String publishedDate = null;
+        String language = null;
+        mAuthorNames.clear();
+        mCategories.clear();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("title".equals(name)) {
+                title = reader.nextString();
+            } else if ("authors".equals(name) && reader.peek() == JsonPullReader.Token.BEGIN_ARRAY) {
+                readStrings(reader, mAuthorNames);
+            } else if ("publishedDate".equals(name)) {
+                publishedDate = reader.nextString();
+            } else if ("language".equals(name)) {
+                language = reader.nextString();
+            } else if ("categories".equals(name) && reader.peek() == JsonPullReader.Token.BEGIN_ARRAY) {
+                readStrings(reader, mCategories);
+            } else if ("imageLinks".equals(name) && reader.peek() == JsonPullReader.Token.BEGIN_OBJECT) {
+                thumbnailUrl = readThumbnailUrl(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // Match the DOM path, which cannot build a book without a title
+        if (title == null) {
+            return null;
+        }
+        // Author and category names are interned by the book, so the scratch lists can be reused
+        long buildStart = SearchMetrics.now();
+        Book book = new Book(id, title, mAuthorNames, thumbnailUrl, publishedDate, language, mCategories);
+        mBookBuildNanos += SearchMetrics.now() - buildStart;
+        return book;
+    }
+
+    /**
+     * Read an array of strings into a list.
+     */
+    private static void readStrings(JsonPullReader reader, List<String> into) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            into.add(reader.nextString());
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Read an "imageLinks" object, preferring the small thumbnail, which is closest to the row size.
+     *
+     * @return thumbnail URL, or null if there is none
+     */
+    private static String readThumbnailUrl(JsonPullReader reader) throws IOException {
+        String smallThumbnail = null;
+        String thumbnail = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("smallThumbnail".equals(name)) {
+                smallThumbnail = reader.nextString();
+            } else if ("thumbnail".equals(name)) {
+                thumbnail = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return smallThumbnail != null ? smallThumbnail : thumbnail;
+    }
+}
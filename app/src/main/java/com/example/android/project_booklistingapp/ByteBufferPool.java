@@ -0,0 +1,248 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pool of reusable byte arrays for reading response bodies, so that once the pool is warm a body is read without
+ * allocating. Arrays come in power-of-two size classes from {@link #MIN_BUFFER_SIZE} up; a request is served from
+ * the smallest class that fits. Released arrays are kept up to a total byte limit and the rest left to the GC.
+ * Safe for use from any thread.
+ */
+
+public final class ByteBufferPool {
+
+    /**
+     * Smallest array handed out
+     */
+    public static final int MIN_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Default limit on the bytes held by idle arrays
+     */
+    public static final int DEFAULT_MAX_POOLED_BYTES = 1024 * 1024;
+
+    /**
+     * Number of size classes; the largest is {@link #MIN_BUFFER_SIZE} &lt;&lt; (SIZE_CLASSES - 1)
+     */
+    private static final int SIZE_CLASSES = 16;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Pool shared by the app's HTTP reads
+     */
+    private static final ByteBufferPool sDefault = new ByteBufferPool(DEFAULT_MAX_POOLED_BYTES);
+
+    /**
+     * Idle arrays of each size class, most recently released last
+     */
+    private final List<ArrayDeque<byte[]>> mFree = new ArrayList<ArrayDeque<byte[]>>(SIZE_CLASSES);
+
+    /**
+     * Limit on, and current total of, the bytes held by idle arrays
+     */
+    private final int mMaxPooledBytes;
+    private int mPooledBytes = 0;
+
+    /**
+     * Number of arrays allocated because none of the right size was idle
+     */
+    private long mAllocationCount = 0;
+
+    /**
+     * Constructor for a {@link ByteBufferPool}.
+     *
+     * @param maxPooledBytes most bytes to keep in idle arrays
+     */
+    public ByteBufferPool(int maxPooledBytes) {
+        this.mMaxPooledBytes = maxPooledBytes;
+        for (int i = 0; i < SIZE_CLASSES; i++) {
+            mFree.add(new ArrayDeque<byte[]>());
+        }
+    }
+
+    /**
+     * @return pool shared by the app's HTTP reads
+     */
+    public static ByteBufferPool getDefault() {
+        return sDefault;
+    }
+
+    /**
+     * Take an array of at least the given size, reusing an idle one if possible.
+     * Hand it back with {@link #release} once finished with.
+     *
+     * @param minSize bytes needed
+     * @return array of a power-of-two size class, at least minSize long
+     */
+    public byte[] acquire(int minSize) {
+        int sizeClass = sizeClass(minSize);
+        if (sizeClass >= SIZE_CLASSES) {
+            // Too large to pool; never retained
+            synchronized (this) {
+                mAllocationCount++;
+            }
+            return new byte[minSize];
+        }
+        synchronized (this) {
+            byte[] array = mFree.get(sizeClass).pollLast();
+            if (array != null) {
+                mPooledBytes -= array.length;
+                return array;
+            }
+            mAllocationCount++;
+        }
+        return new byte[MIN_BUFFER_SIZE << sizeClass];
+    }
+
+    /**
+     * Hand back an array taken with {@link #acquire}. The caller must not use it afterwards.
+     *
+     * @param array to reuse
+     */
+    public void release(byte[] array) {
+        int sizeClass = sizeClass(array.length);
+        if (sizeClass >= SIZE_CLASSES || MIN_BUFFER_SIZE << sizeClass != array.length) {
+            return;
+        }
+        synchronized (this) {
+            if (mPooledBytes + array.length <= mMaxPooledBytes) {
+                mFree.get(sizeClass).addLast(array);
+                mPooledBytes += array.length;
+            }
+        }
+    }
+
+    /**
+     * @return number of arrays allocated because none of the right size was idle
+     */
+    public synchronized long getAllocationCount() {
+        return mAllocationCount;
+    }
+
+    /**
+     * Read a stream to its end into a pooled array.
+     *
+     * @param in             stream to read; not closed
+     * @param expectedLength length of the stream if known (e.g. from Content-Length), otherwise -1
+     * @param maxLength      most bytes accepted
+     * @return the bytes read, which the caller must close to hand the array back
+     * @throws IOException if the stream cannot be read or is longer than maxLength
+     */
+    public Buffer readFully(InputStream in, int expectedLength, int maxLength) throws IOException {
+        Buffer buffer = new Buffer(this, acquire(expectedLength > 0 ? Math.min(expectedLength, maxLength) : 0));
+        try {
+            while (true) {
+                if (buffer.mLength == buffer.mBytes.length) {
+                    // Only grow if the stream really goes on, rather than for the end of a body that fits exactly
+                    int next = in.read();
+                    if (next == -1) {
+                        break;
+                    }
+                    if (buffer.mLength >= maxLength) {
+                        throw new IOException("Body too large: over " + maxLength + " bytes");
+                    }
+                    buffer.grow();
+                    buffer.mBytes[buffer.mLength++] = (byte) next;
+                }
+                int read = in.read(buffer.mBytes, buffer.mLength, buffer.mBytes.length - buffer.mLength);
+                if (read == -1) {
+                    break;
+                }
+                buffer.mLength += read;
+                if (buffer.mLength > maxLength) {
+                    throw new IOException("Body too large: over " + maxLength + " bytes");
+                }
+            }
+            return buffer;
+        } catch (IOException e) {
+            buffer.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Index of the smallest size class holding the given number of bytes
+     */
+    private static int sizeClass(int size) {
+        int sizeClass = 0;
+        while (sizeClass < SIZE_CLASSES && MIN_BUFFER_SIZE << sizeClass < size) {
+            sizeClass++;
+        }
+        return sizeClass;
+    }
+
+    /**
+     * Bytes read into a pooled array. Closing hands the array back, after which the bytes must not be used.
+     */
+    public static final class Buffer implements Closeable {
+
+        private final ByteBufferPool mPool;
+
+        /**
+         * Pooled array, of which the first mLength bytes are valid; null once closed
+         */
+        private byte[] mBytes;
+        private int mLength = 0;
+
+        private Buffer(ByteBufferPool pool, byte[] bytes) {
+            this.mPool = pool;
+            this.mBytes = bytes;
+        }
+
+        /**
+         * @return underlying array; only the first {@link #getLength()} bytes are valid
+         */
+        public byte[] getBytes() {
+            return mBytes;
+        }
+
+        /**
+         * @return number of bytes read
+         */
+        public int getLength() {
+            return mLength;
+        }
+
+        /**
+         * Decode the bytes as UTF-8, in a single pass.
+         *
+         * @return decoded text
+         */
+        public String decodeUtf8() {
+            return new String(mBytes, 0, mLength, UTF_8);
+        }
+
+        /**
+         * @return {@link Reader} decoding the bytes as UTF-8 in place; valid until this buffer is closed
+         */
+        public Reader newUtf8Reader() {
+            return new Utf8Reader(mBytes, 0, mLength);
+        }
+
+        /**
+         * Move the bytes to an array of the next size class up, handing the current one back.
+         */
+        private void grow() {
+            byte[] larger = mPool.acquire(mBytes.length * 2);
+            System.arraycopy(mBytes, 0, larger, 0, mLength);
+            mPool.release(mBytes);
+            mBytes = larger;
+        }
+
+        @Override
+        public void close() {
+            if (mBytes != null) {
+                mPool.release(mBytes);
+                mBytes = null;
+            }
+        }
+    }
+}
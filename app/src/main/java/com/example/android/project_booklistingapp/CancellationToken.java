@@ -0,0 +1,74 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Lets a caller cancel a request that is already under way.
+ * Whoever is doing the work registers a listener (e.g. one that closes the connection), which runs as soon as
+ * {@link #cancel()} is called, from whichever thread calls it.
+ */
+
+public final class CancellationToken {
+
+    /**
+     * Whether cancel() has been called
+     */
+    private boolean mCancelled = false;
+
+    /**
+     * Action to run on cancellation, if any
+     */
+    private Runnable mOnCancel;
+
+    /**
+     * Cancel the work. Runs the registered listener, if any. Calling more than once has no further effect.
+     */
+    public void cancel() {
+        Runnable onCancel;
+        synchronized (this) {
+            if (mCancelled) {
+                return;
+            }
+            mCancelled = true;
+            onCancel = mOnCancel;
+            mOnCancel = null;
+        }
+        if (onCancel != null) {
+            onCancel.run();
+        }
+    }
+
+    /**
+     * @return true if {@link #cancel()} has been called
+     */
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Set the action to run on cancellation, replacing any previous one. Runs immediately if already cancelled.
+     *
+     * @param onCancel action to run, or null to clear it
+     */
+    public void setOnCancelListener(Runnable onCancel) {
+        synchronized (this) {
+            if (!mCancelled) {
+                mOnCancel = onCancel;
+                return;
+            }
+        }
+        if (onCancel != null) {
+            onCancel.run();
+        }
+    }
+
+    /**
+     * @throws InterruptedIOException if the work has been cancelled
+     */
+    public void throwIfCancelled() throws IOException {
+        if (isCancelled()) {
+            throw new InterruptedIOException("Request cancelled");
+        }
+    }
+}
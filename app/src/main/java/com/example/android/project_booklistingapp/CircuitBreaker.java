@@ -0,0 +1,117 @@
+package com.example.android.project_booklistingapp;
+
+/**
+ * Stops sending requests to an upstream that keeps failing, so callers fail fast (and can fall back to cached
+ * results) instead of waiting out timeouts and retries.
+ * After enough consecutive failures the breaker opens; once its open time has passed, a single probe request is
+ * let through, and its outcome either closes the breaker or opens it again.
+ * Times are passed in, so behaviour can be tested without waiting.
+ */
+
+public final class CircuitBreaker {
+
+    /**
+     * Breaker states
+     */
+    public enum State {
+        /** Requests flow normally */
+        CLOSED,
+        /** Requests are refused */
+        OPEN,
+        /** One probe request is allowed through to test the upstream */
+        HALF_OPEN
+    }
+
+    /**
+     * Consecutive failures that open the breaker
+     */
+    private final int mFailureThreshold;
+
+    /**
+     * How long the breaker stays open before probing, in milliseconds
+     */
+    private final long mOpenMs;
+
+    private State mState = State.CLOSED;
+
+    /**
+     * Failures since the last success
+     */
+    private int mConsecutiveFailures = 0;
+
+    /**
+     * When the breaker last opened
+     */
+    private long mOpenedAtMs;
+
+    /**
+     * When the current probe was let through. A probe that never reports back is replaced after mOpenMs.
+     */
+    private long mProbeStartedAtMs;
+
+    /**
+     * Constructor for the {@link CircuitBreaker}.
+     *
+     * @param failureThreshold consecutive failures that open the breaker
+     * @param openMs           time to stay open before probing
+     */
+    public CircuitBreaker(int failureThreshold, long openMs) {
+        this.mFailureThreshold = Math.max(1, failureThreshold);
+        this.mOpenMs = openMs;
+    }
+
+    /**
+     * Ask whether a request may be made now. A true answer in the half-open state makes the caller the probe.
+     *
+     * @param nowMs current time
+     * @return true if the request may go ahead
+     */
+    public synchronized boolean allowRequest(long nowMs) {
+        switch (mState) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nowMs - mOpenedAtMs < mOpenMs) {
+                    return false;
+                }
+                mState = State.HALF_OPEN;
+                mProbeStartedAtMs = nowMs;
+                return true;
+            default:
+                // Half open: one probe at a time
+                if (nowMs - mProbeStartedAtMs < mOpenMs) {
+                    return false;
+                }
+                mProbeStartedAtMs = nowMs;
+                return true;
+        }
+    }
+
+    /**
+     * Record a request the upstream handled, closing the breaker.
+     */
+    public synchronized void recordSuccess() {
+        mState = State.CLOSED;
+        mConsecutiveFailures = 0;
+    }
+
+    /**
+     * Record a request the upstream failed, opening the breaker if there have been too many.
+     *
+     * @param nowMs current time
+     */
+    public synchronized void recordFailure(long nowMs) {
+        mConsecutiveFailures++;
+        if (mState == State.HALF_OPEN || mConsecutiveFailures >= mFailureThreshold) {
+            mState = State.OPEN;
+            mOpenedAtMs = nowMs;
+        }
+    }
+
+    /**
+     * @return current state
+     */
+    public synchronized State getState() {
+        return mState;
+    }
+}
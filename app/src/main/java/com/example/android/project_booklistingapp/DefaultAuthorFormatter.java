@@ -0,0 +1,67 @@
+package com.example.android.project_booklistingapp;
+
+import java.util.List;
+
+/**
+ * Formats authors as "A", "A and B" or "A, B, and C", using separator texts supplied up front.
+ * Pure Java, so it can be used off-device; on Android the texts come from string resources, resolved once.
+ */
+
+public final class DefaultAuthorFormatter implements AuthorFormatter {
+
+    /**
+     * Text used when a book has no authors listed
+     */
+    private final String mAuthorsUnknown;
+
+    /**
+     * Separator placed between authors when there are more than two
+     */
+    private final String mAuthorsSeparator;
+
+    /**
+     * Text placed before the last author
+     */
+    private final String mAuthorsAlso;
+
+    /**
+     * Constructor for the {@link DefaultAuthorFormatter}.
+     *
+     * @param authorsUnknown   text for books with no authors
+     * @param authorsSeparator separator between authors
+     * @param authorsAlso      text placed before the last author
+     */
+    public DefaultAuthorFormatter(String authorsUnknown, String authorsSeparator, String authorsAlso) {
+        this.mAuthorsUnknown = authorsUnknown;
+        this.mAuthorsSeparator = authorsSeparator;
+        this.mAuthorsAlso = authorsAlso;
+    }
+
+    @Override
+    public String format(List<String> authors) {
+        if (authors == null || authors.isEmpty()) {
+            return mAuthorsUnknown;
+        }
+
+        int numAuthors = authors.size();
+        if (numAuthors == 1) {
+            return authors.get(0);
+        }
+
+        StringBuilder stringBuilder = new StringBuilder(numAuthors * 24);
+        for (int j = 0; j < numAuthors; j++) {
+            stringBuilder.append(authors.get(j));
+
+            // If more than 2 authors, add comma
+            if (numAuthors > 2 && j != numAuthors - 1) {
+                stringBuilder.append(mAuthorsSeparator);
+            }
+
+            // Check whether to add "and" before last item in list
+            if (j == numAuthors - 2) {
+                stringBuilder.append(mAuthorsAlso);
+            }
+        }
+        return stringBuilder.toString();
+    }
+}
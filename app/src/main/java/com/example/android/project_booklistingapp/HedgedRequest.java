@@ -0,0 +1,182 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs an idempotent request, and if it hasn't finished within a delay, races an identical second request
+ * against it. The first to succeed wins and the other is cancelled, which cuts the slow tail of latencies caused
+ * by one unlucky connection or server. If the first request fails before the delay, no second one is made.
+ *
+ * @param <T> type of the result
+ */
+
+public final class HedgedRequest<T> {
+
+    /**
+     * One attempt at the request
+     */
+    public interface Attempt<T> {
+        /**
+         * @param cancellation token cancelled if the attempt loses the race or the caller gives up
+         * @return result, which may be null
+         */
+        T run(CancellationToken cancellation) throws IOException;
+    }
+
+    private final Executor mExecutor;
+
+    /**
+     * Time to wait for the first attempt before starting the second
+     */
+    private final long mHedgeDelayMs;
+
+    private final CancellationToken[] mCancellations = {new CancellationToken(), new CancellationToken()};
+
+    /**
+     * Attempts started and attempts finished without success
+     */
+    private int mStarted = 0;
+    private int mFailed = 0;
+
+    private boolean mDone = false;
+    private T mResult;
+    private IOException mError;
+
+    /**
+     * Constructor for a {@link HedgedRequest}. Each instance runs one request.
+     *
+     * @param executor     to run attempts on; needs at least two threads free to hedge
+     * @param hedgeDelayMs time to wait for the first attempt before starting the second
+     */
+    public HedgedRequest(Executor executor, long hedgeDelayMs) {
+        this.mExecutor = executor;
+        this.mHedgeDelayMs = hedgeDelayMs;
+    }
+
+    /**
+     * Run the request, hedging it if it is slow.
+     *
+     * @param attempt      the request
+     * @param cancellation token to cancel both attempts with, or null
+     * @return the winning attempt's result
+     * @throws IOException the last attempt's error if none succeed, or if cancelled
+     */
+    public T execute(Attempt<T> attempt, CancellationToken cancellation) throws IOException {
+        if (cancellation != null) {
+            cancellation.setOnCancelListener(new Runnable() {
+                @Override
+                public void run() {
+                    cancelAll();
+                }
+            });
+        }
+
+        try {
+            start(0, attempt);
+            synchronized (this) {
+                long deadline = System.nanoTime() + mHedgeDelayMs * 1000000L;
+                long remaining = mHedgeDelayMs * 1000000L;
+                while (!mDone && mFailed == 0 && remaining > 0 && !isCancelled(cancellation)) {
+                    waitNanos(remaining);
+                    remaining = deadline - System.nanoTime();
+                }
+            }
+
+            // Still nothing back from the first attempt: race a second one
+            boolean hedge;
+            synchronized (this) {
+                hedge = !mDone && mFailed == 0 && !isCancelled(cancellation);
+            }
+            if (hedge) {
+                SearchMetrics.getDefault().add(SearchMetrics.Counter.HEDGES, 1);
+                start(1, attempt);
+            }
+
+            synchronized (this) {
+                while (!mDone && mFailed < mStarted && !isCancelled(cancellation)) {
+                    waitNanos(0);
+                }
+            }
+        } finally {
+            if (cancellation != null) {
+                cancellation.setOnCancelListener(null);
+            }
+            // The loser (if any) is no longer wanted
+            cancelAll();
+        }
+
+        if (cancellation != null) {
+            cancellation.throwIfCancelled();
+        }
+        synchronized (this) {
+            if (mDone) {
+                return mResult;
+            }
+            throw mError;
+        }
+    }
+
+    /**
+     * Start an attempt on the executor.
+     */
+    private void start(final int index, final Attempt<T> attempt) {
+        synchronized (this) {
+            mStarted++;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    T result = attempt.run(mCancellations[index]);
+                    synchronized (HedgedRequest.this) {
+                        if (!mDone) {
+                            mDone = true;
+                            mResult = result;
+                        }
+                        HedgedRequest.this.notifyAll();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    synchronized (HedgedRequest.this) {
+                        mFailed++;
+                        // Keep the error of an attempt that wasn't cancelled for losing
+                        if (mError == null || !mCancellations[index].isCancelled()) {
+                            mError = e instanceof IOException ? (IOException) e : new IOException("Attempt failed", e);
+                        }
+                        HedgedRequest.this.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    private void cancelAll() {
+        for (CancellationToken token : mCancellations) {
+            token.cancel();
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Wait on this object's monitor, for up to nanos (or until notified, if 0).
+     */
+    private void waitNanos(long nanos) throws IOException {
+        try {
+            if (nanos > 0) {
+                wait(nanos / 1000000L, (int) (nanos % 1000000L));
+            } else {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for request");
+        }
+    }
+
+    private static boolean isCancelled(CancellationToken cancellation) {
+        return cancellation != null && cancellation.isCancelled();
+    }
+}
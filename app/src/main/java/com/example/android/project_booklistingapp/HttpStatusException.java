@@ -0,0 +1,47 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the server answers with an unexpected HTTP status.
+ * Carries the status and any Retry-After header, so callers can decide whether and when to retry.
+ */
+
+public final class HttpStatusException extends IOException {
+
+    /**
+     * HTTP status code
+     */
+    private final int mCode;
+
+    /**
+     * Retry-After header of the response, or null
+     */
+    private final String mRetryAfter;
+
+    /**
+     * Constructor for the {@link HttpStatusException}.
+     *
+     * @param code       HTTP status code
+     * @param retryAfter Retry-After header of the response, or null
+     */
+    public HttpStatusException(int code, String retryAfter) {
+        super("Unexpected HTTP status " + code);
+        this.mCode = code;
+        this.mRetryAfter = retryAfter;
+    }
+
+    /**
+     * @return HTTP status code
+     */
+    public int getCode() {
+        return mCode;
+    }
+
+    /**
+     * @return Retry-After header of the response, or null
+     */
+    public String getRetryAfter() {
+        return mRetryAfter;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fetches encoded image bytes (e.g. cover thumbnails) through a size-bounded disk cache.
+ * Images are stored as-is under a hash of their URL; once the cache is over its size limit, the least recently
+ * used files are deleted. Decoding is left to the caller, so this class has no Android dependencies.
+ */
+
+public final class ImageFetcher {
+
+    /**
+     * Suffix of disk cache files
+     */
+    private static final String FILE_SUFFIX = ".img";
+
+    private final BookHttpClient mHttpClient;
+
+    /**
+     * Directory holding the cached images
+     */
+    private final File mDirectory;
+
+    /**
+     * Maximum total size of the disk cache, in bytes
+     */
+    private final long mMaxDiskBytes;
+
+    /**
+     * Largest image accepted, in bytes; larger bodies fail rather than being buffered
+     */
+    private final int mMaxImageBytes;
+
+    /**
+     * Hit/miss counters
+     */
+    private final AtomicLong mDiskHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+
+    /**
+     * Constructor for the {@link ImageFetcher}.
+     *
+     * @param httpClient    client to fetch images with
+     * @param directory     directory for the disk cache; created if missing
+     * @param maxDiskBytes  size limit for the disk cache
+     * @param maxImageBytes largest image to accept
+     */
+    public ImageFetcher(BookHttpClient httpClient, File directory, long maxDiskBytes, int maxImageBytes) {
+        this.mHttpClient = httpClient;
+        this.mDirectory = directory;
+        this.mMaxDiskBytes = maxDiskBytes;
+        this.mMaxImageBytes = maxImageBytes;
+        directory.mkdirs();
+    }
+
+    /**
+     * Return an image's bytes, from disk if cached, otherwise from the network (and then cached).
+     *
+     * @param url          of the image
+     * @param cancellation token to cancel the request with, or null
+     * @return encoded image bytes
+     * @throws IOException if the image cannot be fetched, is too large, or the request is cancelled
+     */
+    public byte[] fetch(String url, CancellationToken cancellation) throws IOException {
+        File file = fileFor(url);
+        byte[] cached = readFromDisk(file);
+        if (cached != null) {
+            mDiskHits.incrementAndGet();
+            return cached;
+        }
+        mMisses.incrementAndGet();
+
+        BookHttpClient.Response response = mHttpClient.get(new URL(url), null, cancellation);
+        try {
+            if (response.getCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Image request failed with response code " + response.getCode());
+            }
+            byte[] bytes = readBody(response);
+            writeToDisk(file, bytes);
+            trimDisk();
+            return bytes;
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * @return number of images served from disk
+     */
+    public long getDiskHits() {
+        return mDiskHits.get();
+    }
+
+    /**
+     * @return number of images fetched from the network
+     */
+    public long getMisses() {
+        return mMisses.get();
+    }
+
+    /**
+     * Read a whole body into a reused buffer, sized from Content-Length when it is given,
+     * and copy it once into an array of exactly its length, which the caller keeps.
+     */
+    private byte[] readBody(BookHttpClient.Response response) throws IOException {
+        int contentLength = response.getContentLength();
+        if (contentLength > mMaxImageBytes) {
+            throw new IOException("Image too large: " + contentLength + " bytes");
+        }
+
+        ByteBufferPool.Buffer body = response.readBody(ByteBufferPool.getDefault(), mMaxImageBytes);
+        try {
+            return Arrays.copyOf(body.getBytes(), body.getLength());
+        } finally {
+            body.close();
+        }
+    }
+
+    /**
+     * Map a URL to its disk file.
+     */
+    private File fileFor(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder(digest.length * 2 + FILE_SUFFIX.length());
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16));
+                name.append(Character.forDigit(b & 0xf, 16));
+            }
+            return new File(mDirectory, name.append(FILE_SUFFIX).toString());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            // SHA-1 and UTF-8 are always available
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Read a cached image, marking it as recently used.
+     *
+     * @return image bytes, or null if not cached or unreadable
+     */
+    private static byte[] readFromDisk(File file) {
+        long length = file.length();
+        if (length <= 0 || length > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            byte[] bytes = new byte[(int) length];
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = in.read(bytes, offset, bytes.length - offset);
+                if (read == -1) {
+                    // Truncated; drop it
+                    file.delete();
+                    return null;
+                }
+                offset += read;
+            }
+            file.setLastModified(System.currentTimeMillis());
+            return bytes;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            BookRecords.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Write an image to disk, via a temporary file so readers never see a partial image.
+     */
+    private static void writeToDisk(File file, byte[] bytes) {
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(temp);
+            out.write(bytes);
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            // Disk cache is best-effort; the caller still gets the bytes
+            temp.delete();
+        } finally {
+            BookRecords.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Delete the least recently used images until the cache is within its size limit.
+     */
+    private void trimDisk() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= mMaxDiskBytes) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (int i = 0; i < files.length && total > mMaxDiskBytes; i++) {
+            total -= files[i].length();
+            files[i].delete();
+        }
+    }
+}
@@ -0,0 +1,523 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Minimal pull-style JSON tokenizer.
+ * Reads tokens one at a time from a {@link Reader}, so callers can pick out just the values they need
+ * and skip the rest of the document without building it in memory.
+ */
+
+public final class JsonPullReader {
+
+    /**
+     * Kinds of token that can be returned by {@link #peek()}
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    /**
+     * Scopes that can be on the nesting stack
+     */
+    private static final int SCOPE_EMPTY_ARRAY = 1;
+    private static final int SCOPE_NONEMPTY_ARRAY = 2;
+    private static final int SCOPE_EMPTY_OBJECT = 3;
+    private static final int SCOPE_DANGLING_NAME = 4;
+    private static final int SCOPE_NONEMPTY_OBJECT = 5;
+    private static final int SCOPE_EMPTY_DOCUMENT = 6;
+    private static final int SCOPE_NONEMPTY_DOCUMENT = 7;
+
+    /**
+     * Size of the character buffer
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Source of characters
+     */
+    private final Reader mIn;
+
+    /**
+     * Character buffer, with read position and end of valid data
+     */
+    private final char[] mBuffer = new char[BUFFER_SIZE];
+    private int mPos = 0;
+    private int mLimit = 0;
+
+    /**
+     * Nesting stack of scopes
+     */
+    private int[] mStack = new int[32];
+    private int mStackSize = 0;
+
+    /**
+     * Token that has been peeked but not yet consumed (null if none)
+     */
+    private Token mPeeked;
+
+    /**
+     * Reusable builder for strings that span buffer refills or contain escapes
+     */
+    private final StringBuilder mBuilder = new StringBuilder();
+
+    /**
+     * Constructor for the {@link JsonPullReader}.
+     *
+     * @param in source of JSON characters
+     */
+    public JsonPullReader(Reader in) {
+        this.mIn = in;
+        push(SCOPE_EMPTY_DOCUMENT);
+    }
+
+    /**
+     * Return the type of the next token without consuming it.
+     *
+     * @return next {@link Token}
+     * @throws IOException if the document is malformed or cannot be read
+     */
+    public Token peek() throws IOException {
+        if (mPeeked != null) {
+            return mPeeked;
+        }
+
+        int scope = mStack[mStackSize - 1];
+        int c;
+        switch (scope) {
+            case SCOPE_EMPTY_ARRAY:
+                mStack[mStackSize - 1] = SCOPE_NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return mPeeked = Token.END_ARRAY;
+                } else if (c == -1) {
+                    throw syntaxError("Unexpected end of document");
+                }
+                mPos--;
+                break;
+            case SCOPE_NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return mPeeked = Token.END_ARRAY;
+                } else if (c != ',') {
+                    throw syntaxError("Expected ',' or ']'");
+                }
+                break;
+            case SCOPE_EMPTY_OBJECT:
+            case SCOPE_NONEMPTY_OBJECT:
+                if (scope == SCOPE_NONEMPTY_OBJECT) {
+                    c = nextNonWhitespace();
+                    if (c == '}') {
+                        return mPeeked = Token.END_OBJECT;
+                    } else if (c != ',') {
+                        throw syntaxError("Expected ',' or '}'");
+                    }
+                }
+                c = nextNonWhitespace();
+                if (c == '}' && scope == SCOPE_EMPTY_OBJECT) {
+                    return mPeeked = Token.END_OBJECT;
+                } else if (c != '"') {
+                    throw syntaxError("Expected name");
+                }
+                mStack[mStackSize - 1] = SCOPE_DANGLING_NAME;
+                return mPeeked = Token.NAME;
+            case SCOPE_DANGLING_NAME:
+                mStack[mStackSize - 1] = SCOPE_NONEMPTY_OBJECT;
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                break;
+            case SCOPE_EMPTY_DOCUMENT:
+                mStack[mStackSize - 1] = SCOPE_NONEMPTY_DOCUMENT;
+                break;
+            default: // SCOPE_NONEMPTY_DOCUMENT
+                if (nextNonWhitespace() == -1) {
+                    return mPeeked = Token.END_DOCUMENT;
+                }
+                throw syntaxError("Expected end of document");
+        }
+
+        // A value is expected at this point
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return mPeeked = Token.BEGIN_OBJECT;
+            case '[':
+                return mPeeked = Token.BEGIN_ARRAY;
+            case '"':
+                return mPeeked = Token.STRING;
+            case 't':
+            case 'f':
+                mPos--;
+                return mPeeked = Token.BOOLEAN;
+            case 'n':
+                mPos--;
+                return mPeeked = Token.NULL;
+            case -1:
+                throw syntaxError("Unexpected end of document");
+            default:
+                if (c != '-' && (c < '0' || c > '9')) {
+                    throw syntaxError("Unexpected character '" + (char) c + "'");
+                }
+                mPos--;
+                return mPeeked = Token.NUMBER;
+        }
+    }
+
+    /**
+     * Consume the opening brace of an object.
+     */
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(SCOPE_EMPTY_OBJECT);
+    }
+
+    /**
+     * Consume the closing brace of an object.
+     */
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        mStackSize--;
+    }
+
+    /**
+     * Consume the opening bracket of an array.
+     */
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(SCOPE_EMPTY_ARRAY);
+    }
+
+    /**
+     * Consume the closing bracket of an array.
+     */
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        mStackSize--;
+    }
+
+    /**
+     * Check whether the current object or array has more elements.
+     *
+     * @return true if another element follows
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consume the next property name.
+     *
+     * @return the name
+     */
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return readString();
+    }
+
+    /**
+     * Consume the next scalar value and return it as text.
+     * Numbers and booleans are returned as their literal text; a JSON null returns null.
+     *
+     * @return value as a String
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        mPeeked = null;
+        switch (token) {
+            case STRING:
+                return readString();
+            case NUMBER:
+            case BOOLEAN:
+                return readLiteral(token).toString();
+            case NULL:
+                readLiteral(token);
+                return null;
+            default:
+                throw syntaxError("Expected a value but was " + token);
+        }
+    }
+
+    /**
+     * Skip the next value, including any nested objects or arrays, without allocating it.
+     */
+    public void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            Token token = peek();
+            switch (token) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    depth++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    depth--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    depth--;
+                    break;
+                case NAME:
+                case STRING:
+                    mPeeked = null;
+                    skipString();
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("Unexpected end of document");
+                default:
+                    mPeeked = null;
+                    readLiteral(token);
+                    break;
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Close the underlying {@link Reader}.
+     */
+    public void close() throws IOException {
+        mIn.close();
+    }
+
+    /**
+     * Consume the peeked token, verifying it is of the expected type.
+     */
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        mPeeked = null;
+    }
+
+    /**
+     * Push a scope onto the nesting stack, growing it if needed.
+     */
+    private void push(int scope) {
+        if (mStackSize == mStack.length) {
+            mStack = Arrays.copyOf(mStack, mStackSize * 2);
+        }
+        mStack[mStackSize++] = scope;
+    }
+
+    /**
+     * Make sure at least one unread character is in the buffer.
+     *
+     * @return false if the end of the stream has been reached
+     */
+    private boolean fill() throws IOException {
+        if (mPos < mLimit) {
+            return true;
+        }
+        int read = mIn.read(mBuffer, 0, mBuffer.length);
+        mPos = 0;
+        mLimit = read > 0 ? read : 0;
+        return read > 0;
+    }
+
+    /**
+     * Return the next non-whitespace character and advance past it.
+     *
+     * @return the character, or -1 at the end of the stream
+     */
+    private int nextNonWhitespace() throws IOException {
+        while (fill()) {
+            char c = mBuffer[mPos++];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read a quoted string whose opening quote has already been consumed.
+     */
+    private String readString() throws IOException {
+        StringBuilder builder = null;
+        while (true) {
+            if (!fill()) {
+                throw syntaxError("Unterminated string");
+            }
+            int start = mPos;
+            while (mPos < mLimit) {
+                char c = mBuffer[mPos++];
+                if (c == '"') {
+                    // Common case: whole string sits inside the buffer with no escapes
+                    if (builder == null) {
+                        return new String(mBuffer, start, mPos - start - 1);
+                    }
+                    builder.append(mBuffer, start, mPos - start - 1);
+                    return builder.toString();
+                } else if (c == '\\') {
+                    if (builder == null) {
+                        builder = mBuilder;
+                        builder.setLength(0);
+                    }
+                    builder.append(mBuffer, start, mPos - start - 1);
+                    builder.append(readEscape());
+                    start = mPos;
+                }
+            }
+            // Reached end of buffer before closing quote; keep what we have and refill
+            if (builder == null) {
+                builder = mBuilder;
+                builder.setLength(0);
+            }
+            builder.append(mBuffer, start, mPos - start);
+        }
+    }
+
+    /**
+     * Decode an escape sequence whose backslash has already been consumed.
+     */
+    private char readEscape() throws IOException {
+        if (!fill()) {
+            throw syntaxError("Unterminated escape sequence");
+        }
+        char c = mBuffer[mPos++];
+        switch (c) {
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    if (!fill()) {
+                        throw syntaxError("Unterminated escape sequence");
+                    }
+                    int digit = Character.digit(mBuffer[mPos++], 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            default: // '"', '\\', '/'
+                return c;
+        }
+    }
+
+    /**
+     * Skip a quoted string whose opening quote has already been consumed.
+     */
+    private void skipString() throws IOException {
+        while (fill()) {
+            char c = mBuffer[mPos++];
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                // Skip escaped character; hex digits of a unicode escape are never quotes
+                if (!fill()) {
+                    break;
+                }
+                mPos++;
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    /**
+     * Read an unquoted literal (number, true, false or null) into the shared builder, checking it is well formed.
+     * Skipping a value reads it this way too, without turning it into a String.
+     *
+     * @param token type the literal was peeked as
+     * @return the shared builder holding the literal
+     */
+    private StringBuilder readLiteral(Token token) throws IOException {
+        StringBuilder builder = mBuilder;
+        builder.setLength(0);
+        while (fill()) {
+            char c = mBuffer[mPos];
+            if (isLiteralEnd(c)) {
+                break;
+            }
+            builder.append(c);
+            mPos++;
+        }
+
+        boolean valid;
+        if (token == Token.NUMBER) {
+            valid = isNumber(builder);
+        } else {
+            String literal = builder.toString();
+            valid = token == Token.NULL ? literal.equals("null") : literal.equals("true") || literal.equals("false");
+        }
+        if (!valid) {
+            throw syntaxError("Invalid literal '" + builder + "'");
+        }
+        return builder;
+    }
+
+    /**
+     * Check a literal against the JSON number grammar: -? (0 | [1-9][0-9]*) (.[0-9]+)? ([eE][+-]?[0-9]+)?
+     */
+    private static boolean isNumber(CharSequence literal) {
+        int length = literal.length();
+        int i = 0;
+        if (i < length && literal.charAt(i) == '-') {
+            i++;
+        }
+        int start = i;
+        i = skipDigits(literal, i);
+        if (i == start || (literal.charAt(start) == '0' && i - start > 1)) {
+            return false;
+        }
+        if (i < length && literal.charAt(i) == '.') {
+            start = ++i;
+            i = skipDigits(literal, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < length && (literal.charAt(i) == 'e' || literal.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (literal.charAt(i) == '+' || literal.charAt(i) == '-')) {
+                i++;
+            }
+            start = i;
+            i = skipDigits(literal, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+
+    private static int skipDigits(CharSequence literal, int i) {
+        while (i < literal.length() && literal.charAt(i) >= '0' && literal.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Check whether a character terminates an unquoted literal.
+     */
+    private static boolean isLiteralEnd(char c) {
+        return c == ',' || c == '}' || c == ']' || c == ':'
+                || c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * Create an exception describing a problem with the document.
+     */
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed JSON: " + message);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.android.project_booklistingapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds.
+ * Each power of two is split into four buckets, so a reported percentile is within 25% of the true value
+ * while recording is a couple of atomic increments and no allocation.
+ */
+
+public final class LatencyHistogram {
+
+    /**
+     * Buckets per power of two
+     */
+    private static final int SUB_BUCKETS = 4;
+
+    /**
+     * Enough buckets for any non-negative long
+     */
+    private static final int BUCKET_COUNT = 62 * SUB_BUCKETS;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Record one duration.
+     *
+     * @param nanos duration; negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        mBuckets.incrementAndGet(bucketOf(nanos));
+        mCount.incrementAndGet();
+        mSum.addAndGet(nanos);
+        long max = mMax.get();
+        while (nanos > max && !mMax.compareAndSet(max, nanos)) {
+            max = mMax.get();
+        }
+    }
+
+    /**
+     * @return number of durations recorded
+     */
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * @return sum of durations recorded, in nanoseconds
+     */
+    public long getSum() {
+        return mSum.get();
+    }
+
+    /**
+     * @return longest duration recorded, in nanoseconds
+     */
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /**
+     * @return mean duration in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMean() {
+        long count = mCount.get();
+        return count == 0 ? 0 : mSum.get() / count;
+    }
+
+    /**
+     * Estimate a percentile.
+     *
+     * @param percentile between 0 and 100
+     * @return upper bound of the bucket holding the percentile, in nanoseconds (0 if nothing was recorded)
+     */
+    public long getPercentile(double percentile) {
+        long count = mCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), mMax.get());
+            }
+        }
+        return mMax.get();
+    }
+
+    /**
+     * Forget everything recorded.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+    /**
+     * Bucket for a value: values below four get their own bucket, larger ones are bucketed by
+     * their highest bit and the two bits below it.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return (exponent - 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Largest value that falls in a bucket.
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 1;
+        int sub = bucket % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << (exponent - 2);
+        return lower + (1L << (exponent - 2)) - 1;
+    }
+}
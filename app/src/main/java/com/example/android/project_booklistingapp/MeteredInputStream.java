@@ -0,0 +1,77 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream that counts the bytes read through it and the time spent blocked reading them.
+ * Lets a consumer that interleaves reading with work (e.g. a streaming parser) tell the two apart.
+ */
+
+public final class MeteredInputStream extends FilterInputStream {
+
+    /**
+     * Bytes read so far
+     */
+    private long mByteCount = 0;
+
+    /**
+     * Time spent inside read calls so far
+     */
+    private long mReadNanos = 0;
+
+    /**
+     * Constructor for the {@link MeteredInputStream}.
+     *
+     * @param in stream to read from
+     */
+    public MeteredInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        int b = super.read();
+        mReadNanos += System.nanoTime() - start;
+        if (b >= 0) {
+            mByteCount++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        int count = super.read(buffer, offset, length);
+        mReadNanos += System.nanoTime() - start;
+        if (count > 0) {
+            mByteCount += count;
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long start = System.nanoTime();
+        long skipped = super.skip(n);
+        mReadNanos += System.nanoTime() - start;
+        mByteCount += skipped;
+        return skipped;
+    }
+
+    /**
+     * @return bytes read so far
+     */
+    public long getByteCount() {
+        return mByteCount;
+    }
+
+    /**
+     * @return time spent reading so far, in nanoseconds
+     */
+    public long getReadNanos() {
+        return mReadNanos;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Fetches several pages of one query at the same time and merges them back into a single list.
+ * Each page is fetched and parsed on its own worker as it arrives. Retrying a failed page is left to the
+ * {@link PageSource}, so a request is never retried by two layers; if a page still fails, the whole fetch does.
+ * The merged list is in startIndex order with duplicate volumes (same ID) removed.
+ */
+
+public final class ParallelPageFetcher {
+
+    /**
+     * Fetches and parses a single page of results.
+     */
+    public interface PageSource {
+
+        /**
+         * @param startIndex of the first result on the page
+         * @param pageSize   number of results requested
+         * @return books on the page; null or empty if past the end of the results
+         * @throws IOException if the page could not be fetched or parsed, after any retries
+         */
+        List<Book> fetchPage(int startIndex, int pageSize) throws IOException;
+    }
+
+    /**
+     * Executor running the page fetches. Its size bounds the number of concurrent requests.
+     */
+    private final Executor mExecutor;
+
+    /**
+     * Constructor for the {@link ParallelPageFetcher}.
+     *
+     * @param executor bounded executor to run page fetches on
+     */
+    public ParallelPageFetcher(Executor executor) {
+        this.mExecutor = executor;
+    }
+
+    /**
+     * Fetch the first totalResults results of a query, a page at a time, in parallel.
+     *
+     * @param source       of pages
+     * @param totalResults number of results wanted
+     * @param pageSize     results per page
+     * @return merged {@link List<Book>}; shorter than totalResults if the query runs out of results
+     * @throws IOException if any page fails
+     */
+    public List<Book> fetch(final PageSource source, int totalResults, final int pageSize) throws IOException {
+        int pageCount = (totalResults + pageSize - 1) / pageSize;
+
+        // Submit every page at once; the executor limits how many run together
+        CompletionService<List<Book>> completionService = new ExecutorCompletionService<List<Book>>(mExecutor);
+        List<Future<List<Book>>> futures = new ArrayList<Future<List<Book>>>(pageCount);
+        for (int page = 0; page < pageCount; page++) {
+            final int startIndex = page * pageSize;
+            futures.add(completionService.submit(new Callable<List<Book>>() {
+                @Override
+                public List<Book> call() throws Exception {
+                    return source.fetchPage(startIndex, pageSize);
+                }
+            }));
+        }
+
+        // Wait for all pages, failing fast if any page gives up
+        try {
+            for (int i = 0; i < pageCount; i++) {
+                completionService.take().get();
+            }
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching pages", e);
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+
+        // Merge in startIndex order, stopping at the end of the results
+        List<Book> merged = new ArrayList<Book>(totalResults);
+        Set<String> seenIds = new HashSet<String>();
+        for (Future<List<Book>> future : futures) {
+            List<Book> page = getDone(future);
+            if (page == null || page.isEmpty()) {
+                break;
+            }
+            for (Book book : page) {
+                // Google Books can repeat a volume on neighbouring pages
+                if (book.getId() == null || seenIds.add(book.getId())) {
+                    merged.add(book);
+                }
+                if (merged.size() == totalResults) {
+                    return merged;
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Cancel any pages still running.
+     */
+    private static void cancelAll(List<Future<List<Book>>> futures) {
+        for (Future<List<Book>> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Get the result of a future known to have completed successfully.
+     */
+    private static List<Book> getDone(Future<List<Book>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            // Every future has already completed without error
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Warms up the connection and prefetches likely searches into the result cache, ahead of the user asking.
+ * Work runs one request at a time, at background priority on the shared {@link SearchExecutor} so user searches
+ * are started first, and prefetching is capped by a budget of requests per time window. Queries that are already cached are skipped without spending budget.
+ * A user search for a query being prefetched joins the prefetch rather than repeating it (see
+ * {@link RequestCoalescer}), so {@link #cancel(String)} can be called as soon as the user's search is submitted.
+ */
+
+public final class Prefetcher {
+
+    private final BookSearchEngine mEngine;
+
+    /**
+     * Pool that warm-up and prefetch work runs on, one piece at a time
+     */
+    private final SearchExecutor mExecutor;
+
+    /**
+     * Work waiting for the piece running on the pool to finish, and whether one is running
+     */
+    private final ArrayDeque<Runnable> mQueue = new ArrayDeque<Runnable>();
+    private boolean mRunning = false;
+
+    /**
+     * Prefetch requests allowed per budget window
+     */
+    private final int mMaxRequests;
+
+    /**
+     * Length of the budget window, in milliseconds
+     */
+    private final long mBudgetWindowMs;
+
+    /**
+     * Start of the current budget window, and requests spent in it
+     */
+    private long mWindowStartMs = Long.MIN_VALUE;
+    private int mRequestsInWindow = 0;
+
+    /**
+     * Token for the batch of prefetches being run, replaced by each {@link #prefetch} call; once cancelled,
+     * the batch starts no further requests
+     */
+    private CancellationToken mCancellation = new CancellationToken();
+
+    /**
+     * Token and URL of the batch's request in flight, or null
+     */
+    private CancellationToken mRequestCancellation;
+    private String mRequestUrl;
+
+    /**
+     * Number of queries fetched into the cache
+     */
+    private int mPrefetchCount = 0;
+
+    /**
+     * Constructor for the {@link Prefetcher}.
+     *
+     * @param engine         engine whose cache is filled
+     * @param executor       pool to run on, shared with user searches
+     * @param maxRequests    prefetch requests allowed per budget window
+     * @param budgetWindowMs length of the budget window
+     */
+    public Prefetcher(BookSearchEngine engine, SearchExecutor executor, int maxRequests, long budgetWindowMs) {
+        this.mEngine = engine;
+        this.mExecutor = executor;
+        this.mMaxRequests = maxRequests;
+        this.mBudgetWindowMs = budgetWindowMs;
+    }
+
+    /**
+     * Open a pooled connection to the server in the background, so the next search skips DNS, TCP and TLS.
+     * Does not count against the prefetch budget.
+     *
+     * @param url cheap request to make to the search server
+     */
+    public void warmUp(final String url) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mEngine.warmUp(url);
+                } catch (IOException e) {
+                    // Nothing lost; the next search connects as usual
+                }
+            }
+        });
+    }
+
+    /**
+     * Fetch queries into the cache in the background, in order, until the budget runs out.
+     * Replaces any batch still running. A failing request ends the batch, so a bad network isn't loaded further.
+     *
+     * @param urls query URLs, most likely first
+     */
+    public void prefetch(List<String> urls) {
+        final List<String> batch = new ArrayList<String>(urls);
+        final CancellationToken cancellation = new CancellationToken();
+        cancel(null);
+        synchronized (this) {
+            mCancellation = cancellation;
+        }
+
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                for (String url : batch) {
+                    if (cancellation.isCancelled()) {
+                        return;
+                    }
+                    if (mEngine.isCached(url)) {
+                        continue;
+                    }
+                    if (!takeBudget(System.currentTimeMillis())) {
+                        return;
+                    }
+                    CancellationToken request = new CancellationToken();
+                    synchronized (Prefetcher.this) {
+                        if (cancellation.isCancelled()) {
+                            return;
+                        }
+                        mRequestCancellation = request;
+                        mRequestUrl = url;
+                    }
+                    try {
+                        mEngine.search(url, request);
+                        synchronized (Prefetcher.this) {
+                            mPrefetchCount++;
+                        }
+                    } catch (IOException e) {
+                        return;
+                    } finally {
+                        synchronized (Prefetcher.this) {
+                            mRequestCancellation = null;
+                            mRequestUrl = null;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Queue work to run after all work queued before it.
+     */
+    private synchronized void execute(Runnable runnable) {
+        mQueue.add(runnable);
+        if (!mRunning) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Hand the next piece of queued work to the pool, if there is any.
+     */
+    private synchronized void scheduleNext() {
+        final Runnable next = mQueue.poll();
+        mRunning = next != null;
+        if (next == null) {
+            return;
+        }
+        mExecutor.execute(SearchExecutor.Priority.BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    next.run();
+                } finally {
+                    scheduleNext();
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop the current batch of prefetches, e.g. because the user has left the screen.
+     */
+    public void cancel() {
+        cancel(null);
+    }
+
+    /**
+     * Stop the current batch of prefetches because the user has searched. If the request in flight is for the
+     * user's query it is left to finish, so the user's search joins it (or finds its result cached) rather than
+     * repeating it.
+     *
+     * @param keepUrl query URL of the user's search, or null to cancel the request in flight too
+     */
+    public void cancel(String keepUrl) {
+        CancellationToken request = null;
+        synchronized (this) {
+            mCancellation.cancel();
+            if (mRequestCancellation != null && (keepUrl == null || !keepUrl.equals(mRequestUrl))) {
+                request = mRequestCancellation;
+            }
+        }
+        if (request != null) {
+            request.cancel();
+        }
+    }
+
+    /**
+     * @return number of queries fetched into the cache so far
+     */
+    public synchronized int getPrefetchCount() {
+        return mPrefetchCount;
+    }
+
+    /**
+     * Spend one request of the budget, starting a new window if the current one has passed.
+     *
+     * @return false if the budget for the current window is spent
+     */
+    private synchronized boolean takeBudget(long nowMs) {
+        if (mWindowStartMs == Long.MIN_VALUE || nowMs - mWindowStartMs >= mBudgetWindowMs) {
+            mWindowStartMs = nowMs;
+            mRequestsInWindow = 0;
+        }
+        if (mRequestsInWindow >= mMaxRequests) {
+            return false;
+        }
+        mRequestsInWindow++;
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.android.project_booklistingapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Answers a refined search locally from the results of a shorter one.
+ * When the user types "tolk" and then "tolkien hob", the books already loaded for "tolk" are filtered down to the
+ * ones whose title or authors match every term, so something useful shows while the real search is in flight.
+ */
+
+public final class PrefixRefinement {
+
+    /**
+     * Private constructor; only static methods.
+     */
+    private PrefixRefinement() {
+    }
+
+    /**
+     * Check whether a new search term narrows down a previous one, i.e. extends it.
+     *
+     * @param previousTerm search term whose results are loaded
+     * @param newTerm      search term just entered
+     * @return true if the previous results can be filtered to preview the new ones
+     */
+    public static boolean isRefinement(String previousTerm, String newTerm) {
+        if (previousTerm == null || newTerm == null) {
+            return false;
+        }
+        String previous = normalize(previousTerm);
+        String current = normalize(newTerm);
+        return !previous.isEmpty() && current.length() > previous.length() && current.startsWith(previous);
+    }
+
+    /**
+     * Keep only the books whose title or authors contain every word of the search term.
+     *
+     * @param books loaded for the previous search term
+     * @param term  search term just entered
+     * @return new list of matching books, in their original order
+     */
+    public static List<Book> filter(List<Book> books, String term) {
+        String[] words = normalize(term).split(" ");
+
+        List<Book> matches = new ArrayList<Book>();
+        for (Book book : books) {
+            String text = book.getSearchText().toLowerCase(Locale.ROOT);
+            boolean matchesAll = true;
+            for (String word : words) {
+                if (!text.contains(word)) {
+                    matchesAll = false;
+                    break;
+                }
+            }
+            if (matchesAll) {
+                matches.add(book);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Trim, lower-case and collapse runs of whitespace.
+     */
+    private static String normalize(String term) {
+        return term.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.android.project_booklistingapp;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Puts search terms in one canonical form, so that queries Google Books treats alike ("Tolkien", " tolkien ",
+ * "inauthor:tolkien hobbit" and "hobbit  INAUTHOR:Tolkien") build the same URL. Every layer keyed on the query
+ * URL (the result cache, request coalescing, prefetching, history) then sees them as one query.
+ * <p>
+ * The canonical form is Unicode-composed and lower-cased, with runs of whitespace collapsed to a single space,
+ * also inside quoted phrases. Plain words and phrases keep the order typed, as it affects relevance; the
+ * field qualifiers (intitle:, inauthor:, isbn: and the like) follow, sorted and without repeats, since each
+ * only narrows the results. ISBNs lose their hyphens. Percent-encoding is left to {@link BookQuery}.
+ */
+
+public final class QueryCanonicalizer {
+
+    /**
+     * Field qualifiers Google Books understands, in canonical order
+     */
+    private static final List<String> QUALIFIERS = Arrays.asList(
+            "intitle:", "inauthor:", "inpublisher:", "subject:", "isbn:", "lccn:", "oclc:");
+
+    private static final String ISBN = "isbn:";
+
+    /**
+     * Orders qualifiers by the list above, then by value
+     */
+    private static final Comparator<String> QUALIFIER_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            int rankA = QUALIFIERS.indexOf(qualifierOf(a));
+            int rankB = QUALIFIERS.indexOf(qualifierOf(b));
+            if (rankA != rankB) {
+                return rankA < rankB ? -1 : 1;
+            }
+            return a.compareTo(b);
+        }
+    };
+
+    private QueryCanonicalizer() {
+    }
+
+    /**
+     * Put search terms in canonical form. Applying it again changes nothing.
+     *
+     * @param terms search term(s), as typed
+     * @return canonical search terms; empty if there were none
+     */
+    public static String canonicalize(String terms) {
+        String folded = Normalizer.normalize(terms, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+
+        StringBuilder canonical = new StringBuilder(folded.length());
+        TreeSet<String> qualified = new TreeSet<String>(QUALIFIER_ORDER);
+        for (String token : tokenize(folded)) {
+            String qualifier = qualifierOf(token);
+            if (qualifier == null) {
+                if (canonical.length() > 0) {
+                    canonical.append(' ');
+                }
+                canonical.append(token);
+            } else if (ISBN.equals(qualifier)) {
+                // Hyphens only group the digits
+                String digits = token.substring(ISBN.length()).replace("-", "");
+                qualified.add(digits.isEmpty() ? token : ISBN + digits);
+            } else {
+                qualified.add(token);
+            }
+        }
+        for (String token : qualified) {
+            if (canonical.length() > 0) {
+                canonical.append(' ');
+            }
+            canonical.append(token);
+        }
+        return canonical.toString();
+    }
+
+    /**
+     * Split terms at whitespace, keeping a quoted phrase (possibly after a qualifier) in one token with its
+     * inner whitespace collapsed. An unclosed quote is closed at the end.
+     */
+    private static List<String> tokenize(String terms) {
+        List<String> tokens = new ArrayList<String>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        boolean pendingSpace = false;
+        for (int i = 0; i < terms.length(); i++) {
+            char c = terms.charAt(i);
+            if (c == '"') {
+                // Whitespace just inside either quote is dropped
+                quoted = !quoted;
+                pendingSpace = false;
+                token.append(c);
+            } else if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                if (!quoted) {
+                    addToken(tokens, token);
+                } else if (token.charAt(token.length() - 1) != '"') {
+                    pendingSpace = true;
+                }
+            } else {
+                if (pendingSpace) {
+                    token.append(' ');
+                    pendingSpace = false;
+                }
+                token.append(c);
+            }
+        }
+        if (quoted) {
+            token.append('"');
+        }
+        addToken(tokens, token);
+        return tokens;
+    }
+
+    private static void addToken(List<String> tokens, StringBuilder token) {
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+            token.setLength(0);
+        }
+    }
+
+    /**
+     * @return the qualifier the token starts with, or null if it is a plain word (or a qualifier with no value)
+     */
+    private static String qualifierOf(String token) {
+        int colon = token.indexOf(':');
+        if (colon <= 0 || colon == token.length() - 1) {
+            return null;
+        }
+        String qualifier = token.substring(0, colon + 1);
+        return QUALIFIERS.contains(qualifier) ? qualifier : null;
+    }
+}
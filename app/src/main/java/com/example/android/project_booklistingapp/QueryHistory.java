@@ -0,0 +1,203 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recent searches, for predicting which queries to prefetch.
+ * Each search is kept once (case-insensitively) with how often it was made, in order of last use, up to a
+ * maximum number of entries. The history is small, so it is rewritten in full on every change.
+ */
+
+public final class QueryHistory {
+
+    /**
+     * Version of the file format. A file written with another version is discarded.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * A remembered search
+     */
+    private static final class Entry {
+        /** Terms as last typed */
+        private String mTerms;
+        private int mCount;
+        /** Order of last use; higher is more recent */
+        private long mSequence;
+    }
+
+    /**
+     * Entries by lower-cased terms, least recently used first
+     */
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<String, Entry>();
+
+    private final File mFile;
+
+    /**
+     * Maximum number of searches remembered
+     */
+    private final int mMaxEntries;
+
+    /**
+     * Sequence number given to the next search recorded
+     */
+    private long mNextSequence = 0;
+
+    /**
+     * Constructor for the {@link QueryHistory}. Reads any existing history from disk.
+     *
+     * @param file       file to persist the history to; created if missing
+     * @param maxEntries maximum number of searches remembered
+     */
+    public QueryHistory(File file, int maxEntries) {
+        this.mFile = file;
+        this.mMaxEntries = maxEntries;
+        load();
+    }
+
+    /**
+     * Remember a search.
+     *
+     * @param terms search term(s), as typed
+     */
+    public synchronized void record(String terms) {
+        String trimmed = terms.trim();
+        if (trimmed.isEmpty()) {
+            return;
+        }
+        // Searches that build the same query are one search
+        String key = QueryCanonicalizer.canonicalize(trimmed);
+
+        // Move to the most recent end
+        Entry entry = mEntries.remove(key);
+        if (entry == null) {
+            entry = new Entry();
+        }
+        entry.mTerms = trimmed;
+        entry.mCount++;
+        entry.mSequence = mNextSequence++;
+        mEntries.put(key, entry);
+
+        Iterator<Entry> oldest = mEntries.values().iterator();
+        while (mEntries.size() > mMaxEntries) {
+            oldest.next();
+            oldest.remove();
+        }
+        save();
+    }
+
+    /**
+     * @param limit maximum number of searches
+     * @return most recent searches, most recent first
+     */
+    public synchronized List<String> recent(int limit) {
+        List<Entry> entries = new ArrayList<Entry>(mEntries.values());
+        List<String> recent = new ArrayList<String>(Math.min(limit, entries.size()));
+        for (int i = entries.size() - 1; i >= 0 && recent.size() < limit; i--) {
+            recent.add(entries.get(i).mTerms);
+        }
+        return recent;
+    }
+
+    /**
+     * Find earlier searches that complete what has been typed so far.
+     *
+     * @param prefix text typed so far
+     * @param limit  maximum number of completions
+     * @return searches starting with the prefix (but not equal to it), most frequent first, then most recent
+     */
+    public synchronized List<String> completions(String prefix, int limit) {
+        String key = QueryCanonicalizer.canonicalize(prefix);
+        List<Entry> matches = new ArrayList<Entry>();
+        for (Map.Entry<String, Entry> entry : mEntries.entrySet()) {
+            if (entry.getKey().startsWith(key) && !entry.getKey().equals(key)) {
+                matches.add(entry.getValue());
+            }
+        }
+        Collections.sort(matches, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                if (a.mCount != b.mCount) {
+                    return b.mCount - a.mCount;
+                }
+                return Long.compare(b.mSequence, a.mSequence);
+            }
+        });
+
+        List<String> completions = new ArrayList<String>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && completions.size() < limit; i++) {
+            completions.add(matches.get(i).mTerms);
+        }
+        return completions;
+    }
+
+    /**
+     * Read the history from disk. A damaged file is discarded.
+     */
+    private void load() {
+        if (!mFile.exists()) {
+            return;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            if (in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry();
+                entry.mTerms = in.readUTF();
+                entry.mCount = in.readInt();
+                entry.mSequence = mNextSequence++;
+                mEntries.put(QueryCanonicalizer.canonicalize(entry.mTerms), entry);
+            }
+        } catch (IOException e) {
+            mEntries.clear();
+        } finally {
+            BookRecords.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Write the history to disk, least recently used first, via a temporary file.
+     */
+    private void save() {
+        File temp = new File(mFile.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(mEntries.size());
+            for (Entry entry : mEntries.values()) {
+                out.writeUTF(entry.mTerms);
+                out.writeInt(entry.mCount);
+            }
+            out.close();
+            out = null;
+            if (!temp.renameTo(mFile)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            // History is best-effort; memory still holds it
+            temp.delete();
+        } finally {
+            BookRecords.closeQuietly(out);
+        }
+    }
+}
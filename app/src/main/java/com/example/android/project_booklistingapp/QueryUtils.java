@@ -1,23 +1,15 @@
 package com.example.android.project_booklistingapp;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.ProtocolException;
-import java.net.URL;
-import java.nio.charset.Charset;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Helper methods related to requesting and receiving book data from the Google Books API.
@@ -31,202 +23,437 @@ public final class QueryUtils {
     private static final String LOG_TAG = QueryUtils.class.getSimpleName();
 
     /**
-     * Takes a server query in string format, creates a {@link URL}, makes HTTP server connection,
-     * reads input stream, parses returned JSON data string, and saves data as a list of {@link Book} objects.
-     * Utilizes helper methods.
-     *
-     * @param context for getting string resources
-     * @param url     to fetch data
-     * @return {@link List<Book>} with title & author information
+     * Shared HTTP client, so connections are kept alive and reused between searches
      */
-    public static List<Book> extractBooks(Context context, String url) {
+    private static final BookHttpClient sHttpClient = new BookHttpClient();
 
-        // Reference to string for JSON query response (to be parsed)
-        String queriedString;
+    /**
+     * Name of the result cache's directory, under the app's cache directory
+     */
+    private static final String CACHE_DIRECTORY = "books";
 
-        // Initialize new list of com.example.android.project_booklistingapp.Book objects
-        List<Book> books = new ArrayList<Book>();
+    /**
+     * Number of search results kept in memory
+     */
+    private static final int CACHE_MEMORY_ENTRIES = 32;
 
+    /**
+     * Size limit of the on-disk result cache
+     */
+    private static final long CACHE_DISK_BYTES = 4L * 1024 * 1024;
 
-        // Variable to store formatted URL returned by helper method
-        URL formattedUrl;
-        if (url != null && !url.isEmpty()) {
-            formattedUrl = formatUrl(url);
-        } else {
-            Log.e(LOG_TAG, "String passed into extractBooks method is either null or empty.");
-            return null;
-        }
+    /**
+     * Time a search result is served without asking the server again, when the response does not say
+     */
+    private static final long CACHE_DEFAULT_FRESH_MS = 10L * 60 * 1000;
 
+    /**
+     * Name of the local catalog's log file, under the app's files directory.
+     * Unlike the result cache, the catalog must survive the system clearing cache space.
+     */
+    private static final String CATALOG_FILE = "catalog.bin";
 
-        if (formattedUrl != null) {
-            queriedString = makeHttpRequest(formattedUrl);
-        } else {
-            Log.e(LOG_TAG, "URL object produced by extractBooks' formatUrl method is null.");
-            return null;
-        }
+    /**
+     * Number of books the local catalog keeps before evicting the least recently seen
+     */
+    private static final int CATALOG_MAX_BOOKS = 5000;
 
-        // Parse the returned JSON string to extract desired data and create a list of Book objects
-        if (queriedString != null && queriedString != "") {
-            // Try to parse the queryString response. If there's a problem with the way the JSON
-            // is formatted, a JSONException exception object will be thrown.
-            // Catch the exception so the app doesn't crash, and print the error message to the logs.
-            try {
-                // Convert query string into a JSON objects containing books + other query data
-                JSONObject jsonQuery = new JSONObject(queriedString);
-
-                // Check that query has returned an array of "items" rather than "totalItems: 0"
-                if (jsonQuery.has("items")) {
-
-                    // Get the "items" array of books
-                    JSONArray jsonBooks = jsonQuery.getJSONArray("items");
-
-                    // Loop through objects (books) in the array
-                    for (int i = 0; i < jsonBooks.length(); i++) {
-
-                        // Get the object (book) at given index
-                        JSONObject book = jsonBooks.getJSONObject(i);
-
-                        // Get the "volumeInfo" object for the book
-                        JSONObject volumeInfo = book.getJSONObject("volumeInfo");
-
-                        // Get the title
-                        String title = volumeInfo.getString("title");
-
-                        // Create new JSONArray to hold authors, if any
-                        JSONArray authorsJSON = new JSONArray();
-                        // If book has authors listed, get the author(s)
-                        if (volumeInfo.has("authors")) {
-                            authorsJSON = volumeInfo.getJSONArray("authors");
-                        } else { // If no authors listed for book, nullify the JSONArray
-                            authorsJSON = null;
-                        }
-
-                        // Create string to hold formatted author(s) info.
-                        // Default text for no author data; to be overwritten if present.
-                        String authors = context.getResources().getString(R.string.book_authors_unknown);
-
-                        if (authorsJSON != null) {
-                            // Need to prepare a String from the List of authors
-                            StringBuilder stringBuilder = new StringBuilder();
-
-                            // Store size of the authors list
-                            int numAuthors = authorsJSON.length();
-
-                            // Loop through each author in the list and add to the StringBuilder
-                            for (int j = 0; j < numAuthors; j++) {
-                                stringBuilder.append(authorsJSON.get(j));
-
-                                // If more than 2 authors, add comma
-                                if (numAuthors > 2 && j != numAuthors - 1) {
-                                    stringBuilder.append(context.getResources().getString(R.string.book_authors_separator_comma));
-                                }
-
-                                // Check whether to add "and" before last item in list
-                                if (j == numAuthors - 2) {
-                                    stringBuilder.append(context.getResources().getString(R.string.book_authors_also));
-                                }
-                            }
-
-                            authors = stringBuilder.toString();
-                        }
-
-                        // Add parsed book data to the list that will be returned
-                        books.add(new Book(title, authors));
-                    }
-                } else { // If JSON string from server does not contain "items", there is no book data to parse
-                    // Nullify books list
-                    books = null;
-                }
+    /**
+     * Number of page requests made at the same time by {@link #extractBooksParallel}
+     */
+    private static final int PAGE_THREADS = 4;
+
+    /**
+     * Retry policy for searches: three attempts with jittered backoff from half a second, never waiting more
+     * than eight seconds (including for Retry-After), and a hedged second request after two seconds
+     */
+    private static final RetryPolicy sRetryPolicy = new RetryPolicy(3, 500, 8000, 2000);
 
+    /**
+     * Consecutive failed requests after which searches stop going to the network
+     */
+    private static final int BREAKER_FAILURE_THRESHOLD = 5;
 
-            } catch (JSONException e) {
-                Log.e(LOG_TAG, "Problem parsing data from JSON string.", e);
-            }
-        }
+    /**
+     * How long searches stay off the network once the breaker opens, in milliseconds
+     */
+    private static final long BREAKER_OPEN_MS = 30L * 1000;
 
-        return books;
-    }
+    /**
+     * Name of the thumbnail disk cache directory, inside the app's cache directory
+     */
+    private static final String THUMBNAIL_DIRECTORY = "thumbnails";
 
     /**
-     * Format the provided String into a URL.
-     *
-     * @param url in String format
-     * @return URL object. (Null if it cannot be properly formatted).
+     * Maximum size of the thumbnail disk cache, in bytes
      */
-    public static URL formatUrl(String url) {
-        // Reference to a URL object.
-        URL formattedURL;
-        try {
-            // Try to create new URL object from provided String
-            formattedURL = new URL(url);
-        } catch (MalformedURLException e) {
-            Log.e(LOG_TAG, "Cannot format provided string into a URL object...", e);
-            return null;
-        }
+    private static final long THUMBNAIL_DISK_BYTES = 16L * 1024 * 1024;
 
-        return formattedURL;
-    }
+    /**
+     * Largest thumbnail accepted, in bytes
+     */
+    private static final int THUMBNAIL_MAX_BYTES = 512 * 1024;
+
+    /**
+     * Fraction of the heap given to decoded thumbnails, as a divisor
+     */
+    private static final int THUMBNAIL_MEMORY_DIVISOR = 8;
+
+    /**
+     * Number of thumbnails fetched and decoded at the same time
+     */
+    private static final int THUMBNAIL_THREADS = 2;
 
     /**
-     * Attempt to open HTTP connection and retrieve data from the server
+     * Largest response body read into memory, in bytes
+     */
+    private static final int MAX_RESPONSE_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * Number of searches (including prefetches and further pages) run at the same time
+     */
+    private static final int SEARCH_THREADS = 3;
+
+    /**
+     * Prefetch budget: at most this many predicted queries are fetched per window
+     */
+    private static final int PREFETCH_MAX_REQUESTS = 6;
+
+    /**
+     * Length of the prefetch budget window
+     */
+    private static final long PREFETCH_BUDGET_WINDOW_MS = 10L * 60 * 1000;
+
+    /**
+     * File name of the search history, in the app's files directory
+     */
+    private static final String HISTORY_FILE = "history.bin";
+
+    /**
+     * Number of recent searches remembered for prediction
+     */
+    private static final int HISTORY_MAX_ENTRIES = 50;
+
+    /**
+     * Cheapest request to the search server, for opening a connection: one result, projected to a single field
+     */
+    private static final String WARM_UP_URL = newQuery("books").withMaxResults(1).withFields("kind").toUrl();
+
+    /**
+     * Number of full volume records kept in memory for the detail screen
+     */
+    private static final int MAX_CACHED_DETAILS = 100;
+
+    /**
+     * Shared search engine, created on first use. Creating it reads the catalog from disk, so it is guarded by its
+     * own lock rather than the class lock, which the main thread takes for the other shared objects.
+     */
+    private static volatile BookSearchEngine sSearchEngine;
+    private static final Object sSearchEngineLock = new Object();
+
+    /**
+     * Shared author formatter, created on first use
+     */
+    private static AuthorFormatter sAuthorFormatter;
+
+    /**
+     * Shared thumbnail loader, created on first use
+     */
+    private static ThumbnailLoader sThumbnailLoader;
+
+    /**
+     * Shared search executor, created on first use
+     */
+    private static SearchExecutor sSearchExecutor;
+
+    /**
+     * Shared prefetcher of predicted searches, created on first use
+     */
+    private static Prefetcher sPrefetcher;
+
+    /**
+     * Shared fetcher of full volume records for the detail screen, created on first use
+     */
+    private static VolumeDetailFetcher sVolumeDetailFetcher;
+
+    /**
+     * Shared search history, read from disk on first use; guarded by its own lock like the search engine
+     */
+    private static volatile QueryHistory sQueryHistory;
+    private static final Object sQueryHistoryLock = new Object();
+
+    /**
+     * Search for books through the shared {@link BookSearchEngine}, with its cache, retries and circuit breaker.
+     * Parses the response directly off the connection's InputStream, so the body is never held
+     * as a String and no JSON object tree is built.
      *
-     * @param queryUrl URL object with protocol/server/query data
-     * @return String of returned JSON data
+     * @param context for getting string resources
+     * @param url     to fetch data
+     * @return {@link List<Book>} with title & author information
      */
-    public static String makeHttpRequest(URL queryUrl) {
-        // String to hold response. Initialized as an empty string.
-        String jsonResponse = "";
+    public static List<Book> extractBooksStreaming(Context context, String url) {
+        return extractBooksStreaming(context, url, null);
+    }
 
-        // Ensure passed URL is valid.
-        if (queryUrl == null) {
+    /**
+     * Cancellable version of {@link #extractBooksStreaming(Context, String)}.
+     * Cancelling the token closes the connection, so an abandoned search stops using the network at once.
+     *
+     * @param context      for getting string resources
+     * @param url          to fetch data
+     * @param cancellation token to cancel the request with, or null
+     * @return {@link List<Book>} with title & author information (null if cancelled)
+     */
+    public static List<Book> extractBooksStreaming(Context context, String url, CancellationToken cancellation) {
+        if (url == null || url.isEmpty()) {
+            Log.e(LOG_TAG, "String passed into extractBooksStreaming method is either null or empty.");
             return null;
         }
 
-        // Obtain a new HttpURLConnection by calling URL.openConnection() and casting the result to HttpURLConnection
-        HttpURLConnection httpConnection;
         try {
-            httpConnection = (HttpURLConnection) queryUrl.openConnection();
+            return getSearchEngine(context).search(url, cancellation);
         } catch (IOException e) {
-            Log.e(LOG_TAG, "Unable to create HttpURLConnection object.", e);
+            if (cancellation != null && cancellation.isCancelled()) {
+                // Expected; the search was abandoned
+                return null;
+            }
+            Log.e(LOG_TAG, "Problem fetching or parsing streamed JSON response.", e);
             return null;
         }
+    }
 
-        // Prepare the request. The primary property of a request is its URI. Request headers may also include
-        // metadata such as credentials, preferred content types, and session cookies.
-        // Prepare the request / Set the parameters
-        httpConnection.setConnectTimeout(10000 /* milliseconds */);
-        httpConnection.setReadTimeout(15000 /* milliseconds */);
-        try {
-            httpConnection.setRequestMethod("GET");
-        } catch (ProtocolException e) {
-            Log.e(LOG_TAG, "Problem setting up HTTP Connection.", e);
+    /**
+     * Fetch the first totalResults results of a query by requesting its pages concurrently.
+     * See {@link BookSearchEngine#searchPages(BookQuery, int, int)}.
+     *
+     * @param context      for getting string resources
+     * @param query        query to fetch pages of
+     * @param totalResults number of results wanted
+     * @param pageSize     results per request (Google Books allows up to 40)
+     * @return merged {@link List<Book>}, or null if any page could not be fetched
+     */
+    public static List<Book> extractBooksParallel(Context context, BookQuery query, int totalResults,
+                                                  int pageSize) {
+        if (query == null) {
+            Log.e(LOG_TAG, "Query passed into extractBooksParallel method is null.");
             return null;
         }
 
-        // Make HTTP connection
         try {
-            httpConnection.connect();
+            return getSearchEngine(context).searchPages(query, totalResults, pageSize);
         } catch (IOException e) {
-            Log.e(LOG_TAG, "Unable to make HTTP connection.", e);
+            Log.e(LOG_TAG, "Problem fetching pages in parallel.", e);
             return null;
         }
+    }
 
-        // Check whether HTTP connection was successful
-        try {
-            if (httpConnection.getResponseCode() == 200) {
-                // The response body may be read from the stream returned by getInputStream().
-                // If the response has no body, that method returns an empty stream.
-                // Get the InputStream
-                InputStream inputStream = httpConnection.getInputStream();
-
-                // Save full contents of InputStream to a String, via helper method
-                jsonResponse = readFromStream(inputStream);
+    /**
+     * Return the shared author formatter, creating it on first use.
+     * Author formatting strings are resolved here, once, rather than per author or per row.
+     *
+     * @param context for getting string resources
+     * @return {@link AuthorFormatter} for displaying a book's authors
+     */
+    public static synchronized AuthorFormatter getAuthorFormatter(Context context) {
+        if (sAuthorFormatter == null) {
+            Context appContext = context.getApplicationContext();
+            sAuthorFormatter = new DefaultAuthorFormatter(
+                    appContext.getResources().getString(R.string.book_authors_unknown),
+                    appContext.getResources().getString(R.string.book_authors_separator_comma),
+                    appContext.getResources().getString(R.string.book_authors_also));
+        }
+        return sAuthorFormatter;
+    }
+
+    /**
+     * Return the shared thumbnail loader, creating it on first use.
+     * Decoded thumbnails may use up to an eighth of the heap; encoded ones are kept in the app's cache directory.
+     *
+     * @param context for getting the cache directory
+     * @return {@link ThumbnailLoader} for showing cover thumbnails
+     */
+    public static synchronized ThumbnailLoader getThumbnailLoader(Context context) {
+        if (sThumbnailLoader == null) {
+            Context appContext = context.getApplicationContext();
+            ImageFetcher fetcher = new ImageFetcher(sHttpClient,
+                    new File(appContext.getCacheDir(), THUMBNAIL_DIRECTORY), THUMBNAIL_DISK_BYTES,
+                    THUMBNAIL_MAX_BYTES);
+            int maxMemoryBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / THUMBNAIL_MEMORY_DIVISOR,
+                    Integer.MAX_VALUE);
+            sThumbnailLoader = new ThumbnailLoader(fetcher, BookSearchEngine.newPageExecutor(THUMBNAIL_THREADS),
+                    maxMemoryBytes);
+        }
+        return sThumbnailLoader;
+    }
+
+    /**
+     * Return the shared search engine, creating it on first use.
+     * This is where the app's storage is handed to the plain-Java engine: the cache is placed in the
+     * app's cache directory, and the catalog is read from the app's files directory.
+     * The first call reads the catalog from disk, so it should not be made on the main thread.
+     *
+     * @param context for getting the cache and files directories
+     * @return {@link BookSearchEngine} shared by all searches
+     */
+    public static BookSearchEngine getSearchEngine(Context context) {
+        BookSearchEngine engine = sSearchEngine;
+        if (engine != null) {
+            return engine;
+        }
+        synchronized (sSearchEngineLock) {
+            if (sSearchEngine == null) {
+                Context appContext = context.getApplicationContext();
+                BookCache cache = new BookCache(new File(appContext.getCacheDir(), CACHE_DIRECTORY),
+                        CACHE_MEMORY_ENTRIES, CACHE_DISK_BYTES, CACHE_DEFAULT_FRESH_MS);
+                BookCatalog catalog = new BookCatalog(new File(appContext.getFilesDir(), CATALOG_FILE),
+                        CATALOG_MAX_BOOKS);
+                sSearchEngine = new BookSearchEngine(sHttpClient, cache, catalog,
+                        BookSearchEngine.newPageExecutor(PAGE_THREADS), sRetryPolicy,
+                        new CircuitBreaker(BREAKER_FAILURE_THRESHOLD, BREAKER_OPEN_MS));
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return sSearchEngine;
         }
+    }
 
-        return jsonResponse;
+    /**
+     * Return the shared search executor, creating it on first use. Results are delivered on the main thread.
+     *
+     * @return {@link SearchExecutor} running all searches and prefetches
+     */
+    public static synchronized SearchExecutor getSearchExecutor() {
+        if (sSearchExecutor == null) {
+            final Handler mainHandler = new Handler(Looper.getMainLooper());
+            sSearchExecutor = new SearchExecutor(SEARCH_THREADS, new Executor() {
+                @Override
+                public void execute(Runnable runnable) {
+                    mainHandler.post(runnable);
+                }
+            });
+        }
+        return sSearchExecutor;
+    }
+
+    /**
+     * Return the shared prefetcher, creating it on first use.
+     * Like {@link #getSearchEngine}, the first call may read from disk.
+     *
+     * @param context for getting the search engine
+     * @return {@link Prefetcher} filling the shared search engine's cache
+     */
+    public static Prefetcher getPrefetcher(Context context) {
+        // Outside the class lock, as it may read from disk
+        BookSearchEngine engine = getSearchEngine(context);
+        synchronized (QueryUtils.class) {
+            if (sPrefetcher == null) {
+                sPrefetcher = new Prefetcher(engine, getSearchExecutor(), PREFETCH_MAX_REQUESTS,
+                        PREFETCH_BUDGET_WINDOW_MS);
+            }
+            return sPrefetcher;
+        }
+    }
+
+    /**
+     * Create a query against the volumes endpoint this build is configured with (BuildConfig.BOOKS_ENDPOINT),
+     * which is Google Books unless the build points it at a local stub server.
+     *
+     * @param terms search term(s), as typed
+     * @return {@link BookQuery} for the terms
+     */
+    public static BookQuery newQuery(String terms) {
+        return new BookQuery(terms).withEndpoint(BuildConfig.BOOKS_ENDPOINT);
+    }
+
+    /**
+     * Return the shared fetcher of full volume records, creating it on first use.
+     *
+     * @return {@link VolumeDetailFetcher} behind the detail screen and its prefetching
+     */
+    public static synchronized VolumeDetailFetcher getVolumeDetailFetcher() {
+        if (sVolumeDetailFetcher == null) {
+            sVolumeDetailFetcher = new VolumeDetailFetcher(sHttpClient, getSearchExecutor(),
+                    BuildConfig.BOOKS_ENDPOINT, MAX_CACHED_DETAILS);
+        }
+        return sVolumeDetailFetcher;
+    }
+
+    /**
+     * Return the shared search history, reading it from disk on first use.
+     *
+     * @param context for getting the files directory
+     * @return {@link QueryHistory} of the user's searches
+     */
+    public static QueryHistory getQueryHistory(Context context) {
+        QueryHistory history = sQueryHistory;
+        if (history != null) {
+            return history;
+        }
+        synchronized (sQueryHistoryLock) {
+            if (sQueryHistory == null) {
+                sQueryHistory = new QueryHistory(
+                        new File(context.getApplicationContext().getFilesDir(), HISTORY_FILE), HISTORY_MAX_ENTRIES);
+            }
+            return sQueryHistory;
+        }
+    }
+
+    /**
+     * Open a pooled connection to the search server in the background, so the first search doesn't pay for
+     * DNS, TCP and TLS. Should not be called on the main thread before {@link #getSearchEngine} has been.
+     *
+     * @param context for getting the prefetcher
+     */
+    public static void warmUpConnection(Context context) {
+        getPrefetcher(context).warmUp(WARM_UP_URL);
+    }
+
+    /**
+     * Stop any prefetching, e.g. because the user has left the screen. Does nothing if none was started.
+     */
+    public static void cancelPrefetch() {
+        cancelPrefetch(null);
+    }
+
+    /**
+     * Stop any prefetching because the user has searched, letting a prefetch of the user's own query finish
+     * so the search joins it. Does nothing if none was started.
+     *
+     * @param keepUrl query URL of the user's search, or null to stop every prefetch
+     */
+    public static synchronized void cancelPrefetch(String keepUrl) {
+        if (sPrefetcher != null) {
+            sPrefetcher.cancel(keepUrl);
+        }
+    }
+
+    /**
+     * Return the shared result cache, e.g. to read its hit/miss counters.
+     *
+     * @param context for locating the cache directory
+     * @return {@link BookCache} shared by all searches
+     */
+    public static BookCache getBookCache(Context context) {
+        return getSearchEngine(context).getCache();
+    }
+
+    /**
+     * Search the books fetched so far, without touching the network.
+     * May read the catalog from disk, or wait while another thread does, so it should not be called on the
+     * main thread.
+     *
+     * @param context for locating the catalog
+     * @param terms   search term(s) as entered by the user
+     * @param limit   maximum number of books to return
+     * @return matching books, most recently fetched first
+     */
+    public static List<Book> searchCatalog(Context context, String terms, int limit) {
+        return getSearchEngine(context).searchLocal(terms, limit);
+    }
+
+    /**
+     * Write the search pipeline's stage timings and counters to the log.
+     */
+    public static void logMetrics() {
+        Log.i(LOG_TAG, "Search metrics:\n" + SearchMetrics.getDefault().dump());
     }
 
     /**
@@ -237,29 +464,35 @@ public final class QueryUtils {
      * @throws IOException to be caught by calling code
      */
     public static String readFromStream(InputStream inputStream) throws IOException {
+        return readFromStream(inputStream, -1);
+    }
 
-        // Create new StringBuilder object to hold server response
-        StringBuilder output = new StringBuilder();
-
-        BufferedReader reader;
+    /**
+     * Read an input stream into a reused buffer, then decode it as UTF-8 in one pass.
+     * Nothing is allocated for the read once the buffer pool is warm; only the returned String is.
+     *
+     * @param inputStream    of character data
+     * @param expectedLength length of the stream if known (e.g. from Content-Length), otherwise -1
+     * @return String of the whole stream
+     * @throws IOException to be caught by calling code
+     */
+    public static String readFromStream(InputStream inputStream, int expectedLength) throws IOException {
         // Check whether passed input stream is valid
-        if (inputStream != null) {
-            // Create new InputStreamReader and wrap it in a new BufferedReader
-            reader = new BufferedReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
-
-            // Read first line from the buffered reader
-            String line = reader.readLine();
-            // If initial line is not null, add it to the StringBuilder.
-            // Repeat for as many non-null lines as exist
-            while (line != null) {
-                output.append(line);
-                line = reader.readLine();
-            }
-
+        if (inputStream == null) {
+            return "";
         }
 
-        // Convert StringBuilder's content and return a final String
-        return output.toString();
+        // Time the whole read, and count the bytes
+        long start = SearchMetrics.now();
+        ByteBufferPool.Buffer body = ByteBufferPool.getDefault().readFully(inputStream, expectedLength,
+                MAX_RESPONSE_BYTES);
+        try {
+            SearchMetrics.getDefault().recordSince(SearchMetrics.Stage.BODY_READ, start);
+            SearchMetrics.getDefault().add(SearchMetrics.Counter.BYTES, body.getLength());
+            return body.decodeUtf8();
+        } finally {
+            body.close();
+        }
     }
 
 
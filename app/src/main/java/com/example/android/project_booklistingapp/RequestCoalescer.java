@@ -0,0 +1,184 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-flight layer for book requests.
+ * Concurrent requests with the same key share one fetch and parse: the first caller does the work and every
+ * other caller waits for it, and all of them get the same unmodifiable result (or the same error).
+ * The shared fetch is only cancelled once every caller waiting on it has cancelled.
+ */
+
+public final class RequestCoalescer {
+
+    /**
+     * Work done once per key by the first caller
+     */
+    public interface Fetch {
+        /**
+         * @param cancellation token cancelled when every caller has given up
+         * @return fetched books, or null if there are none
+         */
+        List<Book> fetch(CancellationToken cancellation) throws IOException;
+    }
+
+    /**
+     * A fetch in progress, shared by every caller with its key
+     */
+    private static final class Flight {
+        private final CancellationToken mCancellation = new CancellationToken();
+        private int mWaiters = 0;
+        private boolean mDone = false;
+        private List<Book> mResult;
+        private IOException mError;
+    }
+
+    /**
+     * Fetches in progress, by key
+     */
+    private final Map<String, Flight> mFlights = new HashMap<String, Flight>();
+
+    /**
+     * Number of calls that joined another caller's fetch instead of starting their own
+     */
+    private int mCoalescedCount = 0;
+
+    /**
+     * Run a fetch, or join the one already in progress for the same key.
+     *
+     * @param key          identifies identical requests, e.g. the query URL
+     * @param cancellation token to cancel this caller's wait with, or null
+     * @param fetch        work to do if no fetch for the key is in progress
+     * @return unmodifiable {@link List<Book>}, or null if there are none
+     * @throws IOException if the shared fetch fails, or this caller is cancelled
+     */
+    public List<Book> execute(String key, CancellationToken cancellation, Fetch fetch) throws IOException {
+        final Flight flight;
+        boolean leader = false;
+        synchronized (mFlights) {
+            Flight existing = mFlights.get(key);
+            if (existing == null) {
+                existing = new Flight();
+                mFlights.put(key, existing);
+                leader = true;
+            } else {
+                mCoalescedCount++;
+            }
+            flight = existing;
+            // Counted while the flight is still listed, so it cannot be abandoned before this caller joins
+            synchronized (flight) {
+                flight.mWaiters++;
+            }
+        }
+
+        // Stop waiting when this caller cancels, and cancel the fetch if nobody else still wants it
+        if (cancellation != null) {
+            final String flightKey = key;
+            cancellation.setOnCancelListener(new Runnable() {
+                @Override
+                public void run() {
+                    leave(flightKey, flight);
+                }
+            });
+        }
+
+        try {
+            if (leader) {
+                run(key, flight, fetch);
+            }
+            return await(flight, cancellation);
+        } finally {
+            if (cancellation != null) {
+                cancellation.setOnCancelListener(null);
+            }
+        }
+    }
+
+    /**
+     * @return number of calls that shared another caller's fetch
+     */
+    public int getCoalescedCount() {
+        synchronized (mFlights) {
+            return mCoalescedCount;
+        }
+    }
+
+    /**
+     * Do the shared fetch and publish its outcome to every waiter.
+     */
+    private void run(String key, Flight flight, Fetch fetch) {
+        List<Book> result = null;
+        IOException error = null;
+        try {
+            List<Book> books = fetch.fetch(flight.mCancellation);
+            result = books != null ? Collections.unmodifiableList(books) : null;
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException("Fetch failed", e);
+        }
+
+        // Later requests for the key start a fresh fetch; an abandoned flight may already have been replaced
+        synchronized (mFlights) {
+            if (mFlights.get(key) == flight) {
+                mFlights.remove(key);
+            }
+        }
+        synchronized (flight) {
+            flight.mResult = result;
+            flight.mError = error;
+            flight.mDone = true;
+            flight.notifyAll();
+        }
+    }
+
+    /**
+     * Wait for the shared fetch to finish, or for this caller to be cancelled.
+     */
+    private static List<Book> await(Flight flight, CancellationToken cancellation) throws IOException {
+        synchronized (flight) {
+            while (!flight.mDone && (cancellation == null || !cancellation.isCancelled())) {
+                try {
+                    flight.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for shared request");
+                }
+            }
+        }
+        if (cancellation != null) {
+            cancellation.throwIfCancelled();
+        }
+        if (flight.mError != null) {
+            throw flight.mError;
+        }
+        return flight.mResult;
+    }
+
+    /**
+     * A caller has cancelled: wake it, and cancel the fetch if it was the last one waiting.
+     * An abandoned fetch is unlisted at once, so a caller arriving while it winds down starts a fresh one
+     * instead of joining it and failing as cancelled.
+     */
+    private void leave(String key, Flight flight) {
+        boolean abandon;
+        synchronized (mFlights) {
+            synchronized (flight) {
+                flight.mWaiters--;
+                abandon = flight.mWaiters == 0 && !flight.mDone;
+                flight.notifyAll();
+            }
+            if (abandon && mFlights.get(key) == flight) {
+                mFlights.remove(key);
+            }
+        }
+        if (abandon) {
+            flight.mCancellation.cancel();
+        }
+    }
+}
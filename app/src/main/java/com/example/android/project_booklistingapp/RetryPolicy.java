@@ -0,0 +1,155 @@
+package com.example.android.project_booklistingapp;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * When and how soon to retry a failed Google Books request, and when to hedge a slow one.
+ * Retries back off exponentially with full jitter, so clients that failed together don't retry together.
+ * A server's Retry-After is honoured as a minimum; if it asks for longer than the policy's maximum delay,
+ * the request is not retried at all.
+ */
+
+public final class RetryPolicy {
+
+    /**
+     * Policy that makes one attempt and never hedges
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, 0);
+
+    /**
+     * Attempts per request, including the first
+     */
+    private final int mMaxAttempts;
+
+    /**
+     * Ceiling of the first retry's delay; doubled for each later retry
+     */
+    private final long mBaseDelayMs;
+
+    /**
+     * Longest delay before any retry, including one asked for by Retry-After
+     */
+    private final long mMaxDelayMs;
+
+    /**
+     * Time without a response after which a second, identical request is started, or 0 to never hedge
+     */
+    private final long mHedgeDelayMs;
+
+    /**
+     * Source of jitter
+     */
+    private final Random mRandom;
+
+    /**
+     * Constructor for a {@link RetryPolicy}.
+     *
+     * @param maxAttempts  attempts per request, including the first
+     * @param baseDelayMs  ceiling of the first retry's delay
+     * @param maxDelayMs   longest delay before a retry
+     * @param hedgeDelayMs time to wait for a response before hedging, or 0 to never hedge
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs, long hedgeDelayMs) {
+        this(maxAttempts, baseDelayMs, maxDelayMs, hedgeDelayMs, new Random());
+    }
+
+    /**
+     * Constructor for a {@link RetryPolicy} with a given source of jitter, e.g. a seeded one for tests.
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs, long hedgeDelayMs, Random random) {
+        this.mMaxAttempts = Math.max(1, maxAttempts);
+        this.mBaseDelayMs = baseDelayMs;
+        this.mMaxDelayMs = maxDelayMs;
+        this.mHedgeDelayMs = hedgeDelayMs;
+        this.mRandom = random;
+    }
+
+    /**
+     * @return attempts per request, including the first
+     */
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * @return time to wait for a response before hedging, or 0 if requests are never hedged
+     */
+    public long getHedgeDelayMs() {
+        return mHedgeDelayMs;
+    }
+
+    /**
+     * @param code HTTP status code
+     * @return true if the status means the server may succeed if asked again (timeouts, rate limits, 5xx)
+     */
+    public boolean isRetryable(int code) {
+        return code == 408 || code == 429 || code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * Work out how long to wait before the next attempt.
+     *
+     * @param attempt    number of the attempt that just failed, starting at 1
+     * @param retryAfter the failed response's Retry-After header, or null
+     * @param nowMs      current time, for Retry-After dates
+     * @return delay in milliseconds, or -1 if the request should not be retried
+     */
+    public long delayBeforeRetry(int attempt, String retryAfter, long nowMs) {
+        if (attempt >= mMaxAttempts) {
+            return -1;
+        }
+
+        // Full jitter: anywhere between nothing and the exponential ceiling
+        long ceiling = mBaseDelayMs << Math.min(attempt - 1, 30);
+        if (ceiling <= 0 || ceiling > mMaxDelayMs) {
+            ceiling = mMaxDelayMs;
+        }
+        long delay = ceiling > 0 ? (long) (mRandom.nextDouble() * ceiling) : 0;
+
+        // The server knows best when it will be ready
+        long serverDelay = parseRetryAfter(retryAfter, nowMs);
+        if (serverDelay > mMaxDelayMs) {
+            return -1;
+        }
+        return Math.max(delay, serverDelay);
+    }
+
+    /**
+     * Parse a Retry-After header, in either delta-seconds or HTTP-date form.
+     *
+     * @param retryAfter header value, or null
+     * @param nowMs      current time
+     * @return delay in milliseconds, or -1 if absent or unparseable
+     */
+    static long parseRetryAfter(String retryAfter, long nowMs) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        String value = retryAfter.trim();
+        if (value.isEmpty()) {
+            return -1;
+        }
+
+        if (Character.isDigit(value.charAt(0))) {
+            try {
+                return Long.parseLong(value) * 1000L;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            Date date = format.parse(value);
+            return Math.max(0, date.getTime() - nowMs);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+}
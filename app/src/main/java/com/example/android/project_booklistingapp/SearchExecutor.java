@@ -0,0 +1,294 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs searches on a dedicated, bounded pool of threads, so they never queue behind unrelated background work.
+ * Several searches can run at once. Queued work starts in order of {@link Priority}, so a search the user asked
+ * for overtakes queued prefetches, and otherwise in the order submitted.
+ * <p>
+ * Each search gets a {@link CancellationToken}, which {@link Search#cancel()} cancels: a queued search never
+ * starts, and a running one has its connection closed. Results are handed to a {@link Callback} on the delivery
+ * executor (e.g. the main thread). A search cancelled from the delivery thread never delivers.
+ */
+
+public final class SearchExecutor {
+
+    /**
+     * How soon queued work should start
+     */
+    public enum Priority {
+        /** Something the user is waiting for */
+        USER_INITIATED,
+        /** Speculative work, e.g. a prefetch; runs at low thread priority */
+        BACKGROUND
+    }
+
+    /**
+     * Work to run on the pool.
+     */
+    public interface Task<T> {
+        /**
+         * @param cancellation token to pass to the I/O, so cancelling the search stops it
+         * @return the result to deliver
+         * @throws IOException if the work fails; an unchecked exception is delivered as one too
+         */
+        T run(CancellationToken cancellation) throws IOException;
+    }
+
+    /**
+     * Receives the outcome of a search, on the delivery executor.
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        void onError(IOException e);
+    }
+
+    /**
+     * How long an idle thread is kept before it exits
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor mPool;
+
+    /**
+     * Where results are delivered, e.g. the main thread
+     */
+    private final Executor mDeliveryExecutor;
+
+    /**
+     * Order work was submitted in, to break ties between equal priorities
+     */
+    private final AtomicLong mSequence = new AtomicLong();
+
+    /**
+     * Constructor for a {@link SearchExecutor}.
+     *
+     * @param threads          most searches to run at once
+     * @param deliveryExecutor where to deliver results, e.g. the main thread
+     */
+    public SearchExecutor(int threads, Executor deliveryExecutor) {
+        this.mDeliveryExecutor = deliveryExecutor;
+        // A pool with an unbounded queue never grows past its core size, so core and maximum are the same
+        this.mPool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "book-search");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.mPool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Run a search on the pool, and deliver its outcome to a callback.
+     *
+     * @param priority how soon it should start
+     * @param task     the search
+     * @param callback receives the result or error, unless the search is cancelled first; may be attached later
+     *                 (see {@link Search#attach}) if null
+     * @return handle for cancelling the search
+     */
+    public <T> Search<T> submit(Priority priority, Task<T> task, Callback<T> callback) {
+        final Search<T> search = new Search<T>(this, task, callback);
+        search.mPriority = priority;
+        search.mJob = new Job(priority, mSequence.getAndIncrement(), new Runnable() {
+            @Override
+            public void run() {
+                search.runTask();
+            }
+        });
+        mPool.execute(search.mJob);
+        return search;
+    }
+
+    /**
+     * Run work on the pool that delivers nothing, e.g. a prefetch.
+     *
+     * @param priority how soon it should start
+     * @param runnable the work
+     */
+    public void execute(Priority priority, Runnable runnable) {
+        mPool.execute(new Job(priority, mSequence.getAndIncrement(), runnable));
+    }
+
+    /**
+     * Stop the pool. Queued work is dropped and running work is interrupted.
+     */
+    public void shutdown() {
+        mPool.shutdownNow();
+    }
+
+    /**
+     * Work waiting in the pool's queue, ordered by priority and then by submission.
+     */
+    private static final class Job implements Runnable, Comparable<Job> {
+
+        private final Priority mPriority;
+        private final long mSequence;
+        private final Runnable mRunnable;
+
+        private Job(Priority priority, long sequence, Runnable runnable) {
+            this.mPriority = priority;
+            this.mSequence = sequence;
+            this.mRunnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (mPriority != other.mPriority) {
+                return mPriority.compareTo(other.mPriority);
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+
+        @Override
+        public void run() {
+            // Speculative work yields the CPU to whatever the user is waiting for
+            Thread thread = Thread.currentThread();
+            int threadPriority = thread.getPriority();
+            if (mPriority == Priority.BACKGROUND) {
+                thread.setPriority(Thread.MIN_PRIORITY);
+            }
+            try {
+                mRunnable.run();
+            } finally {
+                thread.setPriority(threadPriority);
+            }
+        }
+    }
+
+    /**
+     * A submitted search. Its callback is only touched on the delivery thread, so it can be swapped there, e.g.
+     * when the screen waiting for the search is recreated. An outcome arriving while no callback is attached is
+     * held until one is.
+     */
+    public static final class Search<T> {
+
+        private final SearchExecutor mExecutor;
+        private final Task<T> mTask;
+        private Priority mPriority;
+        private final CancellationToken mCancellation = new CancellationToken();
+
+        /**
+         * Entry in the pool's queue, so a cancelled search can be taken out of it
+         */
+        private Job mJob;
+
+        /**
+         * Only touched on the delivery thread
+         */
+        private Callback<T> mCallback;
+        private boolean mDone = false;
+        private boolean mDelivered = false;
+        private T mResult;
+        private IOException mError;
+
+        private Search(SearchExecutor executor, Task<T> task, Callback<T> callback) {
+            this.mExecutor = executor;
+            this.mTask = task;
+            this.mCallback = callback;
+        }
+
+        private void runTask() {
+            if (mCancellation.isCancelled()) {
+                return;
+            }
+            T result = null;
+            IOException error = null;
+            try {
+                result = mTask.run(mCancellation);
+            } catch (IOException e) {
+                error = e;
+            } catch (RuntimeException e) {
+                // Still delivered, so the caller isn't left waiting for an outcome that never comes
+                error = new IOException("Search failed", e);
+            }
+
+            final T finalResult = result;
+            final IOException finalError = error;
+            mExecutor.mDeliveryExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (mCancellation.isCancelled()) {
+                        return;
+                    }
+                    mDone = true;
+                    mResult = finalResult;
+                    mError = finalError;
+                    deliver();
+                }
+            });
+        }
+
+        /**
+         * Set the callback to deliver to, delivering at once if the search has finished. Call on the delivery thread.
+         *
+         * @param callback receives the outcome, or null to hold it until a callback is attached
+         */
+        public void attach(Callback<T> callback) {
+            mCallback = callback;
+            deliver();
+        }
+
+        private void deliver() {
+            Callback<T> callback = mCallback;
+            if (!mDone || mDelivered || callback == null) {
+                return;
+            }
+            mDelivered = true;
+            mCallback = null;
+            if (mError != null) {
+                callback.onError(mError);
+            } else {
+                callback.onResult(mResult);
+            }
+        }
+
+        /**
+         * Cancel the search. If still queued it never starts; if running, its request is closed.
+         * Called on the delivery thread, nothing is delivered afterwards.
+         */
+        public void cancel() {
+            mCancellation.cancel();
+            mExecutor.mPool.remove(mJob);
+        }
+
+        /**
+         * Move a search still waiting in the queue up to a higher priority, e.g. a prefetch the user is now
+         * waiting for. Does nothing if it has started, or already has that priority or a higher one.
+         *
+         * @param priority new priority
+         */
+        public void raisePriority(Priority priority) {
+            synchronized (this) {
+                if (priority.compareTo(mPriority) >= 0) {
+                    return;
+                }
+                mPriority = priority;
+            }
+            Job job = mJob;
+            if (mExecutor.mPool.remove(job)) {
+                // Keep its place among searches submitted at the same time
+                mJob = new Job(priority, job.mSequence, job.mRunnable);
+                mExecutor.mPool.execute(mJob);
+            }
+        }
+
+        /**
+         * @return true if {@link #cancel()} has been called
+         */
+        public boolean isCancelled() {
+            return mCancellation.isCancelled();
+        }
+    }
+}
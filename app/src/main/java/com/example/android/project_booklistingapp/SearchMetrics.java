@@ -0,0 +1,200 @@
+package com.example.android.project_booklistingapp;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stage timings and counters for the search pipeline.
+ * Every stage has a {@link LatencyHistogram} and every counter is an atomic long, so recording from any thread
+ * is cheap and lock-free. {@link #dump()} renders a readable table and {@link #toJson()} an export for tools.
+ */
+
+public final class SearchMetrics {
+
+    /**
+     * Timed stages of a search, in pipeline order
+     */
+    public enum Stage {
+        /** Building the query URL from the search term(s) */
+        URL_BUILD,
+        /** Opening the connection (TCP and TLS, unless a pooled connection is reused) */
+        CONNECT,
+        /** From the request being sent to the status line arriving */
+        FIRST_BYTE,
+        /** Time spent reading (and decompressing) the response body */
+        BODY_READ,
+        /** JSON parsing, excluding body reads and {@link Book} construction */
+        PARSE,
+        /** Constructing {@link Book} objects, per response */
+        BOOK_BUILD,
+        /** Binding one row in the adapter */
+        ADAPTER_BIND
+    }
+
+    /**
+     * Counted quantities
+     */
+    public enum Counter {
+        /** HTTP requests made */
+        REQUESTS,
+        /** Response body bytes read, after decompression */
+        BYTES,
+        /** Books parsed */
+        ITEMS,
+        /** Searches that failed, other than by being cancelled */
+        ERRORS,
+        /** Requests retried after a failure */
+        RETRIES,
+        /** Second requests started because the first was slow */
+        HEDGES,
+        /** Stale cached results served because the upstream was failing */
+        STALE_SERVED
+    }
+
+    /**
+     * Metrics for the whole process
+     */
+    private static final SearchMetrics sDefault = new SearchMetrics();
+
+    private final LatencyHistogram[] mStages = new LatencyHistogram[Stage.values().length];
+    private final AtomicLongArray mCounters = new AtomicLongArray(Counter.values().length);
+
+    /**
+     * Constructor for a separate set of {@link SearchMetrics}, e.g. for one load test run.
+     */
+    public SearchMetrics() {
+        for (int i = 0; i < mStages.length; i++) {
+            mStages[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @return metrics shared by the whole process, which the pipeline records to
+     */
+    public static SearchMetrics getDefault() {
+        return sDefault;
+    }
+
+    /**
+     * @return current time for starting a timing, in nanoseconds
+     */
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record a stage that started at startNanos and has just ended.
+     *
+     * @param stage      timed stage
+     * @param startNanos value of {@link #now()} when the stage started
+     */
+    public void recordSince(Stage stage, long startNanos) {
+        mStages[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Record a stage's duration.
+     *
+     * @param stage timed stage
+     * @param nanos duration
+     */
+    public void record(Stage stage, long nanos) {
+        mStages[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Add to a counter.
+     *
+     * @param counter counted quantity
+     * @param delta   amount to add
+     */
+    public void add(Counter counter, long delta) {
+        mCounters.addAndGet(counter.ordinal(), delta);
+    }
+
+    /**
+     * @param stage timed stage
+     * @return the stage's histogram
+     */
+    public LatencyHistogram getHistogram(Stage stage) {
+        return mStages[stage.ordinal()];
+    }
+
+    /**
+     * @param counter counted quantity
+     * @return the counter's value
+     */
+    public long getCount(Counter counter) {
+        return mCounters.get(counter.ordinal());
+    }
+
+    /**
+     * Forget everything recorded.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : mStages) {
+            histogram.reset();
+        }
+        for (int i = 0; i < mCounters.length(); i++) {
+            mCounters.set(i, 0);
+        }
+    }
+
+    /**
+     * Render the metrics as a table, with durations in microseconds.
+     *
+     * @return multi-line String
+     */
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-13s %8s %10s %10s %10s %10s %10s%n",
+                "stage", "count", "mean_us", "p50_us", "p90_us", "p99_us", "max_us"));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = getHistogram(stage);
+            out.append(String.format(Locale.ROOT, "%-13s %8d %10d %10d %10d %10d %10d%n",
+                    stage.name().toLowerCase(Locale.ROOT), histogram.getCount(),
+                    histogram.getMean() / 1000, histogram.getPercentile(50) / 1000,
+                    histogram.getPercentile(90) / 1000, histogram.getPercentile(99) / 1000,
+                    histogram.getMax() / 1000));
+        }
+        for (Counter counter : Counter.values()) {
+            out.append(String.format(Locale.ROOT, "%-13s %8d%n",
+                    counter.name().toLowerCase(Locale.ROOT), getCount(counter)));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Export the metrics as a JSON object, with durations in nanoseconds.
+     *
+     * @return JSON String
+     */
+    public String toJson() {
+        StringBuilder out = new StringBuilder("{\"stages\":{");
+        Stage[] stages = Stage.values();
+        for (int i = 0; i < stages.length; i++) {
+            LatencyHistogram histogram = getHistogram(stages[i]);
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('"').append(stages[i].name().toLowerCase(Locale.ROOT)).append("\":{")
+                    .append("\"count\":").append(histogram.getCount())
+                    .append(",\"sum\":").append(histogram.getSum())
+                    .append(",\"p50\":").append(histogram.getPercentile(50))
+                    .append(",\"p90\":").append(histogram.getPercentile(90))
+                    .append(",\"p99\":").append(histogram.getPercentile(99))
+                    .append(",\"max\":").append(histogram.getMax())
+                    .append('}');
+        }
+        out.append("},\"counters\":{");
+        Counter[] counters = Counter.values();
+        for (int i = 0; i < counters.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('"').append(counters[i].name().toLowerCase(Locale.ROOT)).append("\":")
+                    .append(getCount(counters[i]));
+        }
+        return out.append("}}").toString();
+    }
+}
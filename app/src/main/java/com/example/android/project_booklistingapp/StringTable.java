@@ -0,0 +1,50 @@
+package com.example.android.project_booklistingapp;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Table of distinct strings, so equal strings can share one instance.
+ * Lets many objects refer to the same string (e.g. an author's name across thousands of books), so each
+ * distinct string is held once. Holders keep the shared instance itself, so reading it needs no lookup and no
+ * lock. The table only references its strings weakly: once no holder is left, a string drops out of the table,
+ * which therefore never grows past the strings still in use.
+ */
+
+public final class StringTable {
+
+    /**
+     * Initial capacity of the table
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * Shared instance of each string, by value. Both key and value are the shared instance, held weakly.
+     */
+    private final Map<String, WeakReference<String>> mStrings =
+            new WeakHashMap<String, WeakReference<String>>(INITIAL_CAPACITY);
+
+    /**
+     * Return the shared instance of a string, making this one the shared instance if there is none yet.
+     *
+     * @param string non-null string to intern
+     * @return a string equal to the argument, shared by all callers that interned an equal string
+     */
+    public synchronized String intern(String string) {
+        WeakReference<String> reference = mStrings.get(string);
+        String shared = reference != null ? reference.get() : null;
+        if (shared != null) {
+            return shared;
+        }
+        mStrings.put(string, new WeakReference<String>(string));
+        return string;
+    }
+
+    /**
+     * @return number of distinct strings held, including any no longer used but not yet collected
+     */
+    public synchronized int size() {
+        return mStrings.size();
+    }
+}
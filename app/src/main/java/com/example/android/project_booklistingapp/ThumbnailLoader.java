@@ -0,0 +1,225 @@
+package com.example.android.project_booklistingapp;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads cover thumbnails into {@link ImageView}s in the background.
+ * Decoded bitmaps are downsampled to the size they are shown at and kept in an LRU memory cache bounded in bytes;
+ * encoded images go through {@link ImageFetcher}'s disk cache. Rows asking for the same image share one load,
+ * and a load is cancelled once no row wants it any more (e.g. because the row was recycled).
+ * All methods must be called on the main thread.
+ */
+
+public final class ThumbnailLoader {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = ThumbnailLoader.class.getSimpleName();
+
+    /**
+     * A load in progress, shared by every view waiting for the same image at the same size
+     */
+    private static final class Job {
+        private final CancellationToken mCancellation = new CancellationToken();
+        private final List<ImageView> mViews = new ArrayList<ImageView>();
+    }
+
+    private final ImageFetcher mFetcher;
+
+    /**
+     * Runs fetches and decodes off the main thread
+     */
+    private final Executor mExecutor;
+
+    /**
+     * Delivers decoded bitmaps to the main thread
+     */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Decoded bitmaps by cache key, bounded by their size in bytes
+     */
+    private final LruCache<String, Bitmap> mMemoryCache;
+
+    /**
+     * Loads in progress, by cache key
+     */
+    private final Map<String, Job> mJobs = new HashMap<String, Job>();
+
+    /**
+     * Cache key each view is currently waiting for. Weak, so views dropped without being cancelled don't leak.
+     */
+    private final Map<ImageView, String> mPendingKeys = new WeakHashMap<ImageView, String>();
+
+    /**
+     * Constructor for the {@link ThumbnailLoader}.
+     *
+     * @param fetcher        to fetch encoded images with
+     * @param executor       background executor for fetching and decoding
+     * @param maxMemoryBytes size limit for decoded bitmaps held in memory
+     */
+    public ThumbnailLoader(ImageFetcher fetcher, Executor executor, int maxMemoryBytes) {
+        this.mFetcher = fetcher;
+        this.mExecutor = executor;
+        this.mMemoryCache = new LruCache<String, Bitmap>(maxMemoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * Show an image in a view, replacing whatever load the view was waiting for.
+     * The view is cleared until the image arrives; a null URL just clears it.
+     *
+     * @param view         to show the image in
+     * @param url          of the image, or null
+     * @param targetWidth  width the image is shown at, in pixels
+     * @param targetHeight height the image is shown at, in pixels
+     */
+    public void load(final ImageView view, String url, final int targetWidth, final int targetHeight) {
+        final String key = url != null ? url + "@" + targetWidth + "x" + targetHeight : null;
+        String pendingKey = mPendingKeys.get(view);
+        if (pendingKey != null && pendingKey.equals(key)) {
+            // Already on its way
+            return;
+        }
+        cancel(view);
+
+        if (key == null) {
+            view.setImageDrawable(null);
+            return;
+        }
+        Bitmap cached = mMemoryCache.get(key);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+
+        view.setImageDrawable(null);
+        mPendingKeys.put(view, key);
+        Job job = mJobs.get(key);
+        if (job != null) {
+            job.mViews.add(view);
+            return;
+        }
+
+        final Job newJob = new Job();
+        newJob.mViews.add(view);
+        mJobs.put(key, newJob);
+        final String imageUrl = url;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = null;
+                try {
+                    if (!newJob.mCancellation.isCancelled()) {
+                        byte[] bytes = mFetcher.fetch(imageUrl, newJob.mCancellation);
+                        bitmap = decode(bytes, targetWidth, targetHeight);
+                    }
+                } catch (IOException e) {
+                    if (!newJob.mCancellation.isCancelled()) {
+                        Log.w(LOG_TAG, "Problem loading thumbnail " + imageUrl, e);
+                    }
+                }
+                final Bitmap result = bitmap;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(key, newJob, result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stop waiting for a view's image, cancelling its load if no other view wants it.
+     *
+     * @param view to cancel the load for
+     */
+    public void cancel(ImageView view) {
+        String key = mPendingKeys.remove(view);
+        if (key == null) {
+            return;
+        }
+        Job job = mJobs.get(key);
+        if (job == null) {
+            return;
+        }
+        job.mViews.remove(view);
+        if (job.mViews.isEmpty()) {
+            mJobs.remove(key);
+            job.mCancellation.cancel();
+        }
+    }
+
+    /**
+     * Cache a finished load and show it in every view still waiting for it.
+     */
+    private void deliver(String key, Job job, Bitmap bitmap) {
+        if (bitmap != null) {
+            mMemoryCache.put(key, bitmap);
+        }
+        if (mJobs.get(key) != job) {
+            // Cancelled while finishing
+            return;
+        }
+        mJobs.remove(key);
+        for (ImageView view : job.mViews) {
+            mPendingKeys.remove(view);
+            if (bitmap != null) {
+                view.setImageBitmap(bitmap);
+            }
+        }
+    }
+
+    /**
+     * Decode an image, downsampled by a power of two to no less than the target size, at 2 bytes per pixel.
+     *
+     * @return {@link Bitmap}, or null if the bytes aren't a decodable image
+     */
+    private static Bitmap decode(byte[] bytes, int targetWidth, int targetHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = sampleSizeFor(options.outWidth, options.outHeight, targetWidth, targetHeight);
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+    }
+
+    /**
+     * @return largest power of two that keeps both dimensions at least as large as the target
+     */
+    static int sampleSizeFor(int width, int height, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
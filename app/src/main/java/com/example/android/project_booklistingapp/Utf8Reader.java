@@ -0,0 +1,75 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * {@link Reader} that decodes UTF-8 straight from a byte array into the caller's buffer.
+ * Unlike an InputStreamReader it keeps no byte or char buffers of its own, so reading a body that is already in
+ * memory is a single decoding pass with no copying. Malformed sequences are read as U+FFFD.
+ */
+
+public final class Utf8Reader extends Reader {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer mIn;
+
+    /**
+     * Platform decoder, which is far faster than decoding byte by byte in Java
+     */
+    private final CharsetDecoder mDecoder = UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /**
+     * Low surrogate of a supplementary character that did not fit in the caller's one-char buffer, or 0
+     */
+    private char mPendingLowSurrogate = 0;
+
+    /**
+     * Constructor for a {@link Utf8Reader}.
+     *
+     * @param bytes  UTF-8 data
+     * @param offset of the first byte to read
+     * @param length number of bytes to read
+     */
+    public Utf8Reader(byte[] bytes, int offset, int length) {
+        this.mIn = ByteBuffer.wrap(bytes, offset, length);
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (mPendingLowSurrogate != 0) {
+            buffer[offset] = mPendingLowSurrogate;
+            mPendingLowSurrogate = 0;
+            return 1;
+        }
+
+        CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+        mDecoder.decode(mIn, out, true);
+        int read = out.position() - offset;
+        if (read == 0 && mIn.hasRemaining()) {
+            // A supplementary character needs two chars but only one was asked for
+            char[] pair = new char[2];
+            CharBuffer pairOut = CharBuffer.wrap(pair);
+            mDecoder.decode(mIn, pairOut, true);
+            buffer[offset] = pair[0];
+            mPendingLowSurrogate = pairOut.position() > 1 ? pair[1] : 0;
+            return 1;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release; the array belongs to the caller
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.android.project_booklistingapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Full record of one volume, from volumes/{id}: what the detail screen shows on top of the {@link Book} summary
+ * that list responses carry. Immutable, so one instance can be cached and shared.
+ */
+
+public final class VolumeDetail {
+
+    private final String mId;
+    private final String mTitle;
+
+    /**
+     * Null if the volume has none
+     */
+    private final String mSubtitle;
+
+    private final List<String> mAuthorNames;
+
+    /**
+     * Null if unknown
+     */
+    private final String mPublisher;
+    private final String mPublishedDate;
+
+    /**
+     * Publisher's description, possibly containing simple HTML markup; null if there is none
+     */
+    private final String mDescription;
+
+    /**
+     * Number of pages, or -1 if unknown
+     */
+    private final int mPageCount;
+
+    private final List<String> mCategories;
+
+    /**
+     * Largest cover image offered, or null if there is none
+     */
+    private final String mThumbnailUrl;
+
+    /**
+     * Web page for the volume, or null
+     */
+    private final String mInfoLink;
+
+    private VolumeDetail(Builder builder) {
+        this.mId = builder.mId;
+        this.mTitle = builder.mTitle;
+        this.mSubtitle = builder.mSubtitle;
+        this.mAuthorNames = Collections.unmodifiableList(new ArrayList<String>(builder.mAuthorNames));
+        this.mPublisher = builder.mPublisher;
+        this.mPublishedDate = builder.mPublishedDate;
+        this.mDescription = builder.mDescription;
+        this.mPageCount = builder.mPageCount;
+        this.mCategories = Collections.unmodifiableList(new ArrayList<String>(builder.mCategories));
+        this.mThumbnailUrl = builder.mThumbnailUrl;
+        this.mInfoLink = builder.mInfoLink;
+    }
+
+    public String getId() {
+        return mId;
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public String getSubtitle() {
+        return mSubtitle;
+    }
+
+    public List<String> getAuthorNames() {
+        return mAuthorNames;
+    }
+
+    public String getPublisher() {
+        return mPublisher;
+    }
+
+    public String getPublishedDate() {
+        return mPublishedDate;
+    }
+
+    public String getDescription() {
+        return mDescription;
+    }
+
+    public int getPageCount() {
+        return mPageCount;
+    }
+
+    public List<String> getCategories() {
+        return mCategories;
+    }
+
+    public String getThumbnailUrl() {
+        return mThumbnailUrl;
+    }
+
+    public String getInfoLink() {
+        return mInfoLink;
+    }
+
+    /**
+     * Collects fields as they are parsed.
+     */
+    static final class Builder {
+        private String mId;
+        private String mTitle;
+        private String mSubtitle;
+        private final List<String> mAuthorNames = new ArrayList<String>();
+        private String mPublisher;
+        private String mPublishedDate;
+        private String mDescription;
+        private int mPageCount = -1;
+        private final List<String> mCategories = new ArrayList<String>();
+        private String mThumbnailUrl;
+        private String mInfoLink;
+
+        Builder setId(String id) {
+            mId = id;
+            return this;
+        }
+
+        Builder setTitle(String title) {
+            mTitle = title;
+            return this;
+        }
+
+        Builder setSubtitle(String subtitle) {
+            mSubtitle = subtitle;
+            return this;
+        }
+
+        Builder addAuthorName(String authorName) {
+            mAuthorNames.add(authorName);
+            return this;
+        }
+
+        Builder setPublisher(String publisher) {
+            mPublisher = publisher;
+            return this;
+        }
+
+        Builder setPublishedDate(String publishedDate) {
+            mPublishedDate = publishedDate;
+            return this;
+        }
+
+        Builder setDescription(String description) {
+            mDescription = description;
+            return this;
+        }
+
+        Builder setPageCount(int pageCount) {
+            mPageCount = pageCount;
+            return this;
+        }
+
+        Builder addCategory(String category) {
+            mCategories.add(category);
+            return this;
+        }
+
+        Builder setThumbnailUrl(String thumbnailUrl) {
+            mThumbnailUrl = thumbnailUrl;
+            return this;
+        }
+
+        Builder setInfoLink(String infoLink) {
+            mInfoLink = infoLink;
+            return this;
+        }
+
+        VolumeDetail build() {
+            return new VolumeDetail(this);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fetches the full record of a volume (volumes/{id}) on demand, so list responses only need to carry what a row
+ * shows. Records are kept in a bounded, least-recently-used memory cache, and rows near the viewport can be
+ * prefetched at background priority so opening one usually needs no round trip.
+ * <p>
+ * Requests run on the shared {@link SearchExecutor}. A load for a volume already being fetched joins that fetch,
+ * raising it to user priority if it was a prefetch. {@link #load}, {@link #detach} and {@link #prefetch} must be
+ * called on the executor's delivery thread (e.g. the main thread).
+ */
+
+public final class VolumeDetailFetcher {
+
+    /**
+     * Most bytes accepted in a volume response
+     */
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    private final BookHttpClient mHttpClient;
+    private final SearchExecutor mExecutor;
+
+    /**
+     * Volumes endpoint that record URLs are built on
+     */
+    private final String mEndpoint;
+
+    /**
+     * Records by volume ID, least recently used first
+     */
+    private final LinkedHashMap<String, VolumeDetail> mCache;
+
+    /**
+     * Fetches in flight by volume ID; only touched on the delivery thread
+     */
+    private final Map<String, Pending> mPending = new HashMap<String, Pending>();
+
+    /**
+     * Constructor for a {@link VolumeDetailFetcher}.
+     *
+     * @param httpClient       client to make requests with
+     * @param executor         pool to run requests on, shared with searches
+     * @param endpoint         volumes endpoint, e.g. {@link BookQuery#DEFAULT_ENDPOINT}
+     * @param maxCachedDetails number of records kept in memory
+     */
+    public VolumeDetailFetcher(BookHttpClient httpClient, SearchExecutor executor, String endpoint,
+                               final int maxCachedDetails) {
+        this.mHttpClient = httpClient;
+        this.mExecutor = executor;
+        this.mEndpoint = endpoint;
+        this.mCache = new LinkedHashMap<String, VolumeDetail>(maxCachedDetails, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VolumeDetail> eldest) {
+                return size() > maxCachedDetails;
+            }
+        };
+    }
+
+    /**
+     * Look a record up in the memory cache, without touching the network.
+     *
+     * @param volumeId ID of the volume
+     * @return the record, or null if it is not cached
+     */
+    public synchronized VolumeDetail getCached(String volumeId) {
+        return mCache.get(volumeId);
+    }
+
+    /**
+     * Fetch a record on the calling thread, bypassing the cache. Must not be called on the main thread.
+     *
+     * @param volumeId     ID of the volume
+     * @param cancellation token for closing the request early, or null
+     * @return the record
+     * @throws IOException if the request fails or the response cannot be parsed
+     */
+    public VolumeDetail fetch(String volumeId, CancellationToken cancellation) throws IOException {
+        BookHttpClient.Response response =
+                mHttpClient.get(new URL(BookQuery.volumeUrl(mEndpoint, volumeId)), null, cancellation);
+        ByteBufferPool.Buffer body;
+        try {
+            if (response.getCode() != 200) {
+                throw new HttpStatusException(response.getCode(), response.getHeader("Retry-After"));
+            }
+            body = response.readBody(ByteBufferPool.getDefault(), MAX_BODY_BYTES);
+            SearchMetrics.getDefault().add(SearchMetrics.Counter.BYTES, body.getLength());
+        } finally {
+            response.close();
+        }
+
+        try {
+            return new VolumeDetailParser().parse(body.getBytes(), 0, body.getLength());
+        } finally {
+            body.close();
+        }
+    }
+
+    /**
+     * Get a record for the user, from the cache if possible and otherwise at user priority.
+     *
+     * @param volumeId ID of the volume
+     * @param callback receives the record or error; called at once if the record is cached
+     */
+    public void load(String volumeId, SearchExecutor.Callback<VolumeDetail> callback) {
+        VolumeDetail cached = getCached(volumeId);
+        if (cached != null) {
+            callback.onResult(cached);
+            return;
+        }
+
+        Pending pending = mPending.get(volumeId);
+        if (pending == null) {
+            pending = start(volumeId, SearchExecutor.Priority.USER_INITIATED);
+        } else {
+            // Someone is waiting for it now, so it should not wait behind other prefetches
+            pending.mSearch.raisePriority(SearchExecutor.Priority.USER_INITIATED);
+        }
+        pending.mCallbacks.add(callback);
+    }
+
+    /**
+     * Stop delivering to a callback passed to {@link #load}, e.g. because its screen is going away.
+     * The fetch itself carries on, so its record is cached for when the screen comes back.
+     *
+     * @param callback to forget
+     */
+    public void detach(SearchExecutor.Callback<VolumeDetail> callback) {
+        for (Pending pending : mPending.values()) {
+            pending.mCallbacks.remove(callback);
+        }
+    }
+
+    /**
+     * Fetch records into the cache at background priority, e.g. for the rows around the viewport.
+     * Replaces the previous prefetch: queued prefetches for volumes no longer asked for are cancelled.
+     * Volumes already cached or being fetched are skipped.
+     *
+     * @param volumeIds IDs of the volumes, most likely to be opened first
+     */
+    public void prefetch(List<String> volumeIds) {
+        Set<String> wanted = new HashSet<String>(volumeIds);
+        for (Iterator<Pending> it = mPending.values().iterator(); it.hasNext(); ) {
+            Pending pending = it.next();
+            if (pending.mCallbacks.isEmpty() && !wanted.contains(pending.mVolumeId)) {
+                pending.mSearch.cancel();
+                it.remove();
+            }
+        }
+
+        for (String volumeId : volumeIds) {
+            if (volumeId != null && !mPending.containsKey(volumeId) && getCached(volumeId) == null) {
+                start(volumeId, SearchExecutor.Priority.BACKGROUND);
+            }
+        }
+    }
+
+    /**
+     * Submit a fetch that caches its record and hands it to whoever is waiting when it finishes.
+     */
+    private Pending start(final String volumeId, SearchExecutor.Priority priority) {
+        final Pending pending = new Pending(volumeId);
+        mPending.put(volumeId, pending);
+        pending.mSearch = mExecutor.submit(priority, new SearchExecutor.Task<VolumeDetail>() {
+            @Override
+            public VolumeDetail run(CancellationToken cancellation) throws IOException {
+                VolumeDetail detail = fetch(volumeId, cancellation);
+                synchronized (VolumeDetailFetcher.this) {
+                    mCache.put(volumeId, detail);
+                }
+                return detail;
+            }
+        }, new SearchExecutor.Callback<VolumeDetail>() {
+            @Override
+            public void onResult(VolumeDetail result) {
+                for (SearchExecutor.Callback<VolumeDetail> callback : finish(pending)) {
+                    callback.onResult(result);
+                }
+            }
+
+            @Override
+            public void onError(IOException e) {
+                // A failed prefetch is simply dropped; the record is fetched again if the row is opened
+                for (SearchExecutor.Callback<VolumeDetail> callback : finish(pending)) {
+                    callback.onError(e);
+                }
+            }
+        });
+        return pending;
+    }
+
+    /**
+     * Forget a fetch that has finished.
+     *
+     * @return the callbacks waiting for it
+     */
+    private List<SearchExecutor.Callback<VolumeDetail>> finish(Pending pending) {
+        if (mPending.get(pending.mVolumeId) == pending) {
+            mPending.remove(pending.mVolumeId);
+        }
+        return new ArrayList<SearchExecutor.Callback<VolumeDetail>>(pending.mCallbacks);
+    }
+
+    /**
+     * A fetch in flight and the callbacks waiting for it; none if it is only a prefetch.
+     */
+    private static final class Pending {
+        private final String mVolumeId;
+        private final List<SearchExecutor.Callback<VolumeDetail>> mCallbacks =
+                new ArrayList<SearchExecutor.Callback<VolumeDetail>>();
+        private SearchExecutor.Search<VolumeDetail> mSearch;
+
+        private Pending(String volumeId) {
+            this.mVolumeId = volumeId;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.IOException;
+
+/**
+ * Streaming parser for a single Google Books volume resource (the response to volumes/{id}).
+ * Fields the detail screen does not show are skipped without being allocated.
+ */
+
+public final class VolumeDetailParser {
+
+    /**
+     * Partial response field selector for exactly the fields this parser reads. Keep in step with
+     * {@link #readVolumeInfo}.
+     */
+    public static final String FIELDS = "id,volumeInfo(title,subtitle,authors,publisher,publishedDate,description,"
+            + "pageCount,categories,imageLinks(thumbnail,small,medium),infoLink)";
+
+    /**
+     * Cover image sizes, in the order preferred for the detail screen: large enough to fill it, no larger
+     */
+    private static final String[] IMAGE_SIZES = {"small", "thumbnail", "medium"};
+
+    /**
+     * Parse a volume resource already read into memory, e.g. a pooled body buffer.
+     *
+     * @param bytes  UTF-8 JSON data
+     * @param offset of the first byte
+     * @param length number of bytes
+     * @return {@link VolumeDetail}
+     * @throws IOException if the response is malformed or has no title
+     */
+    public VolumeDetail parse(byte[] bytes, int offset, int length) throws IOException {
+        JsonPullReader reader = new JsonPullReader(new Utf8Reader(bytes, offset, length));
+        VolumeDetail.Builder builder = new VolumeDetail.Builder();
+        boolean hasTitle = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("id".equals(name)) {
+                builder.setId(reader.nextString());
+            } else if ("volumeInfo".equals(name) && reader.peek() == JsonPullReader.Token.BEGIN_OBJECT) {
+                hasTitle = readVolumeInfo(reader, builder);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (!hasTitle) {
+            throw new IOException("Volume has no title");
+        }
+        return builder.build();
+    }
+
+    /**
+     * Read a "volumeInfo" object into the builder.
+     *
+     * @return true if it had a title
+     */
+    private static boolean readVolumeInfo(JsonPullReader reader, VolumeDetail.Builder builder) throws IOException {
+        boolean hasTitle = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("title".equals(name)) {
+                String title = reader.nextString();
+                builder.setTitle(title);
+                hasTitle = title != null;
+            } else if ("subtitle".equals(name)) {
+                builder.setSubtitle(reader.nextString());
+            } else if ("authors".equals(name) && reader.peek() == JsonPullReader.Token.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    builder.addAuthorName(reader.nextString());
+                }
+                reader.endArray();
+            } else if ("publisher".equals(name)) {
+                builder.setPublisher(reader.nextString());
+            } else if ("publishedDate".equals(name)) {
+                builder.setPublishedDate(reader.nextString());
+            } else if ("description".equals(name)) {
+                builder.setDescription(reader.nextString());
+            } else if ("pageCount".equals(name)) {
+                builder.setPageCount(parsePageCount(reader.nextString()));
+            } else if ("categories".equals(name) && reader.peek() == JsonPullReader.Token.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    builder.addCategory(reader.nextString());
+                }
+                reader.endArray();
+            } else if ("imageLinks".equals(name) && reader.peek() == JsonPullReader.Token.BEGIN_OBJECT) {
+                builder.setThumbnailUrl(readImageUrl(reader));
+            } else if ("infoLink".equals(name)) {
+                builder.setInfoLink(reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return hasTitle;
+    }
+
+    /**
+     * Read an "imageLinks" object, picking the preferred size offered.
+     */
+    private static String readImageUrl(JsonPullReader reader) throws IOException {
+        String[] urls = new String[IMAGE_SIZES.length];
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            int size = indexOf(IMAGE_SIZES, name);
+            if (size >= 0) {
+                urls[size] = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        for (String url : urls) {
+            if (url != null) {
+                return url;
+            }
+        }
+        return null;
+    }
+
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return page count, or -1 if missing or not a number
+     */
+    private static int parsePageCount(String pageCount) {
+        if (pageCount == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(pageCount);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BookCache}.
+ */
+public class BookCacheTest {
+
+    private static final long ONE_HOUR_MS = 60L * 60 * 1000;
+
+    private File mDirectory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        mDirectory = File.createTempFile("book-cache", "");
+        mDirectory.delete();
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    private static List<Book> books(String... titles) {
+        List<Book> books = new ArrayList<Book>();
+        for (String title : titles) {
+            books.add(new Book(title, "Ann"));
+        }
+        return books;
+    }
+
+    @Test
+    public void get_servesFreshEntryFromMemory() {
+        BookCache cache = new BookCache(mDirectory, 4, 1024 * 1024, ONE_HOUR_MS);
+        cache.put("q=a", books("One", "Two"), "\"v1\"", null);
+
+        BookCache.Entry entry = cache.get("q=a");
+        assertEquals(2, entry.getBooks().size());
+        assertEquals(1, cache.getMemoryHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void get_servesEntryFromDiskAfterRestart() {
+        new BookCache(mDirectory, 4, 1024 * 1024, ONE_HOUR_MS).put("q=a", books("One"), "\"v1\"", null);
+
+        BookCache cache = new BookCache(mDirectory, 4, 1024 * 1024, ONE_HOUR_MS);
+        BookCache.Entry entry = cache.get("q=a");
+        assertEquals("One", entry.getBooks().get(0).getTitle());
+        assertEquals("\"v1\"", entry.getETag());
+        assertEquals(1, cache.getDiskHitCount());
+    }
+
+    @Test
+    public void get_returnsStaleEntryForRevalidation() {
+        BookCache cache = new BookCache(mDirectory, 4, 1024 * 1024, 0);
+        cache.put("q=a", books("One"), "\"v1\"", "private, max-age=0");
+
+        BookCache.Entry stale = cache.get("q=a");
+        assertFalse(stale.isFresh(System.currentTimeMillis()));
+        assertEquals(1, cache.getMissCount());
+
+        BookCache.Entry refreshed = cache.markNotModified("q=a", stale, "max-age=60");
+        assertTrue(refreshed.isFresh(System.currentTimeMillis()));
+        assertEquals(1, cache.getRevalidationCount());
+    }
+
+    @Test
+    public void put_letsCacheControlOverrideDefaultFreshTime() {
+        BookCache cache = new BookCache(mDirectory, 4, 1024 * 1024, ONE_HOUR_MS);
+        cache.put("q=none", books("One"), null, null);
+        cache.put("q=public", books("One"), null, "public");
+        cache.put("q=no-cache", books("One"), null, "no-cache");
+        cache.put("q=zero", books("One"), null, "private, max-age=0");
+        cache.put("q=short", books("One"), null, "max-age=60");
+
+        long now = System.currentTimeMillis();
+        assertTrue(cache.get("q=none").isFresh(now));
+        assertTrue(cache.get("q=public").isFresh(now));
+        assertFalse(cache.get("q=no-cache").isFresh(now));
+        assertFalse(cache.get("q=zero").isFresh(now));
+        assertTrue(cache.get("q=short").isFresh(now));
+        assertFalse(cache.get("q=short").isFresh(now + 2 * 60 * 1000));
+    }
+
+    @Test
+    public void put_honorsNoStore() {
+        BookCache cache = new BookCache(mDirectory, 4, 1024 * 1024, ONE_HOUR_MS);
+        cache.put("q=a", books("One"), null, "no-store");
+        assertNull(cache.get("q=a"));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedFromMemory() {
+        BookCache cache = new BookCache(mDirectory, 2, 0, ONE_HOUR_MS);
+        cache.put("q=a", books("One"), null, null);
+        cache.put("q=b", books("Two"), null, null);
+        cache.put("q=c", books("Three"), null, null);
+
+        // Disk tier has a zero byte budget, so an evicted memory entry is gone entirely
+        assertNull(cache.get("q=a"));
+        assertNotNull(cache.get("q=c"));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BookCatalog}.
+ */
+public class BookCatalogTest {
+
+    private static final int MAX_BOOKS = 100;
+
+    private File mFile;
+
+    @Before
+    public void createFile() throws IOException {
+        mFile = File.createTempFile("book-catalog", ".bin");
+        mFile.delete();
+    }
+
+    @After
+    public void deleteFile() {
+        mFile.delete();
+        new File(mFile.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void search_matchesAllWordsAcrossTitleAndAuthors() {
+        BookCatalog catalog = new BookCatalog(mFile, MAX_BOOKS);
+        catalog.addAll(Arrays.asList(
+                new Book("v1", "The Hobbit", "J.R.R. Tolkien"),
+                new Book("v2", "The Silmarillion", "J.R.R. Tolkien"),
+                new Book("v3", "The Hobbit Companion", "David Day")));
+
+        List<Book> books = catalog.search("hobbit TOLKIEN", 10);
+        assertEquals(1, books.size());
+        assertEquals("v1", books.get(0).getId());
+    }
+
+    @Test
+    public void search_treatsLastWordAsPrefix() {
+        BookCatalog catalog = new BookCatalog(mFile, MAX_BOOKS);
+        catalog.addAll(Arrays.asList(
+                new Book("v1", "Dune", "Frank Herbert"),
+                new Book("v2", "Dune Messiah", "Frank Herbert")));
+
+        assertEquals(1, catalog.search("herbert mess", 10).size());
+        assertEquals(0, catalog.search("mess herbert", 10).size());
+    }
+
+    @Test
+    public void addAll_deduplicatesByVolumeId() {
+        BookCatalog catalog = new BookCatalog(mFile, MAX_BOOKS);
+        catalog.addAll(Arrays.asList(new Book("v1", "Old Title", "Ann")));
+        catalog.addAll(Arrays.asList(new Book("v1", "New Title", "Ann"), new Book(null, "No Id", "Ann")));
+
+        assertEquals(1, catalog.size());
+        assertEquals(0, catalog.search("old", 10).size());
+        assertEquals("New Title", catalog.search("title", 10).get(0).getTitle());
+    }
+
+    @Test
+    public void catalog_survivesRestartAndCompaction() {
+        BookCatalog catalog = new BookCatalog(mFile, MAX_BOOKS);
+        for (int i = 0; i < 5; i++) {
+            // Rewriting the same book grows the log until it is compacted
+            catalog.addAll(Arrays.asList(new Book("v1", "Edition " + i, "Ann"), new Book("v2", "Other", "Bob")));
+        }
+
+        BookCatalog reopened = new BookCatalog(mFile, MAX_BOOKS);
+        assertEquals(2, reopened.size());
+        assertEquals("Edition 4", reopened.search("edition", 10).get(0).getTitle());
+        assertEquals("v2", reopened.search("bob", 10).get(0).getId());
+    }
+
+    @Test
+    public void addAll_appendsAfterTruncatedLog() throws IOException {
+        new BookCatalog(mFile, MAX_BOOKS).addAll(Arrays.asList(new Book("v1", "Dune", "Frank Herbert"),
+                new Book("v2", "Emma", "Jane Austen")));
+
+        // Cut the last record short, as a crash mid-write would
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        file.setLength(file.length() - 3);
+        file.close();
+
+        BookCatalog catalog = new BookCatalog(mFile, MAX_BOOKS);
+        assertEquals(1, catalog.size());
+        catalog.addAll(Arrays.asList(new Book("v3", "Ulysses", "James Joyce")));
+
+        BookCatalog reopened = new BookCatalog(mFile, MAX_BOOKS);
+        assertEquals(2, reopened.size());
+        assertEquals("v3", reopened.search("ulysses", 10).get(0).getId());
+    }
+
+    @Test
+    public void addAll_evictsLeastRecentlyAddedBeyondLimit() {
+        BookCatalog catalog = new BookCatalog(mFile, 2);
+        catalog.addAll(Arrays.asList(new Book("v1", "Dune", "Frank Herbert"),
+                new Book("v2", "Emma", "Jane Austen")));
+        // Seeing v1 again makes v2 the least recently added
+        catalog.addAll(Arrays.asList(new Book("v1", "Dune", "Frank Herbert")));
+        catalog.addAll(Arrays.asList(new Book("v3", "Ulysses", "James Joyce")));
+
+        assertEquals(2, catalog.size());
+        assertTrue(catalog.search("emma", 10).isEmpty());
+
+        for (int i = 4; i < 20; i++) {
+            catalog.addAll(Arrays.asList(new Book("v" + i, "Title " + i, "Ann")));
+        }
+        BookCatalog reopened = new BookCatalog(mFile, 2);
+        assertEquals(2, reopened.size());
+        assertEquals("v19", reopened.search("title", 10).get(0).getId());
+        // Compaction keeps the log near the limit instead of growing with every book seen
+        assertTrue(mFile.length() < 200);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.android.project_booklistingapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BookHttpClient}, run against a stub HTTP server on the loopback interface.
+ */
+public class BookHttpClientTest {
+
+    private static final String BODY = "{\"kind\":\"books#volumes\",\"totalItems\":0}";
+
+    private HttpServer mServer;
+
+    /**
+     * Remote ports seen by the server; one per distinct connection
+     */
+    private final Set<Integer> mClientPorts = new HashSet<Integer>();
+
+    @Before
+    public void startServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/books", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                synchronized (mClientPorts) {
+                    mClientPorts.add(exchange.getRemoteAddress().getPort());
+                }
+                byte[] body = BODY.getBytes(Charset.forName("UTF-8"));
+                String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                    GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+                    gzip.write(body);
+                    gzip.close();
+                    body = compressed.toByteArray();
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        mServer.createContext("/large", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                synchronized (mClientPorts) {
+                    mClientPorts.add(exchange.getRemoteAddress().getPort());
+                }
+                byte[] body = new byte[1024 * 1024];
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                try {
+                    out.write(body);
+                    out.close();
+                } catch (IOException e) {
+                    // The client hung up rather than read it all
+                }
+            }
+        });
+        mServer.createContext("/slow", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+    }
+
+    @After
+    public void stopServer() {
+        mServer.stop(0);
+    }
+
+    private URL url() throws IOException {
+        return new URL("http://127.0.0.1:" + mServer.getAddress().getPort() + "/books");
+    }
+
+    @Test
+    public void get_decompressesGzipBody() throws Exception {
+        BookHttpClient.Response response = new BookHttpClient().get(url());
+        try {
+            assertEquals(200, response.getCode());
+            assertEquals("gzip", response.getHeader("Content-Encoding"));
+            assertEquals(BODY, QueryUtils.readFromStream(response.getBody()));
+        } finally {
+            response.close();
+        }
+    }
+
+    @Test
+    public void get_reusesConnectionAfterClose() throws Exception {
+        BookHttpClient client = new BookHttpClient();
+        for (int i = 0; i < 3; i++) {
+            BookHttpClient.Response response = client.get(url());
+            QueryUtils.readFromStream(response.getBody());
+            response.close();
+        }
+        assertEquals(1, mClientPorts.size());
+    }
+
+    @Test
+    public void close_drainsUnreadBodySoConnectionIsReused() throws Exception {
+        BookHttpClient client = new BookHttpClient();
+        client.get(url()).close();
+        client.get(url()).close();
+        assertEquals(1, mClientPorts.size());
+    }
+
+    @Test
+    public void close_dropsConnectionWithLargeUnreadBody() throws Exception {
+        BookHttpClient client = new BookHttpClient();
+        client.get(new URL("http://127.0.0.1:" + mServer.getAddress().getPort() + "/large")).close();
+        client.get(url()).close();
+        assertEquals(2, mClientPorts.size());
+    }
+
+    @Test
+    public void get_cancelAbortsRequestInFlight() throws Exception {
+        final CancellationToken cancellation = new CancellationToken();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                cancellation.cancel();
+            }
+        }).start();
+
+        long start = System.nanoTime();
+        try {
+            new BookHttpClient().get(new URL("http://127.0.0.1:" + mServer.getAddress().getPort() + "/slow"),
+                    null, cancellation);
+            fail("Cancelled request should not complete");
+        } catch (IOException expected) {
+            // Connection was closed under the blocked read
+        }
+        assertTrue((System.nanoTime() - start) / 1000000 < 2000);
+    }
+}
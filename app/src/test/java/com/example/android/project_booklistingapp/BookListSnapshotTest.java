@@ -0,0 +1,65 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BookListSnapshot}.
+ */
+public class BookListSnapshotTest {
+
+    private File mFile;
+
+    @Before
+    public void createFile() throws IOException {
+        mFile = File.createTempFile("book-list", ".snapshot");
+        mFile.delete();
+    }
+
+    @After
+    public void deleteFile() {
+        mFile.delete();
+    }
+
+    @Test
+    public void read_returnsBooksWrittenWithSameId() {
+        List<Book> books = new ArrayList<Book>();
+        books.add(new Book("v1", "The Hobbit", Arrays.asList("J.R.R. Tolkien"), null, "1937-09-21", "en",
+                Arrays.asList("Fiction")));
+        books.add(new Book("v2", "The Letters", Arrays.asList("J.R.R. Tolkien", "Humphrey Carpenter")));
+        books.add(new Book(null, "Untitled", (List<String>) null));
+
+        assertTrue(BookListSnapshot.write(mFile, 42L, books));
+        List<Book> restored = BookListSnapshot.read(mFile, 42L);
+
+        assertEquals(3, restored.size());
+        assertEquals("v2", restored.get(1).getId());
+        assertEquals(Arrays.asList("J.R.R. Tolkien", "Humphrey Carpenter"), restored.get(1).getAuthorNames());
+        assertNull(restored.get(2).getId());
+        assertTrue(restored.get(2).getAuthorNames().isEmpty());
+        assertEquals("1937-09-21", restored.get(0).getPublishedDate());
+        assertEquals("en", restored.get(0).getLanguage());
+        assertEquals(Arrays.asList("Fiction"), restored.get(0).getCategories());
+        assertNull(restored.get(1).getLanguage());
+    }
+
+    @Test
+    public void read_ignoresSnapshotWithOtherId() {
+        BookListSnapshot.write(mFile, 1L, Arrays.asList(new Book("v1", "Dune", "Frank Herbert")));
+        assertNull(BookListSnapshot.read(mFile, 2L));
+    }
+
+    @Test
+    public void read_returnsNullWithoutSnapshot() {
+        assertNull(BookListSnapshot.read(mFile, 1L));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BookPageWindow}.
+ */
+public class BookPageWindowTest {
+
+    @Test
+    public void appendPage_evictsFromFrontWhenFull() {
+        BookPageWindow window = new BookPageWindow(20, 2);
+        assertEquals(0, window.appendPage(20));
+        assertEquals(0, window.appendPage(20));
+        assertEquals(40, window.getNextStartIndex());
+
+        assertEquals(20, window.appendPage(18));
+        assertEquals(20, window.getFirstStartIndex());
+        assertEquals(60, window.getNextStartIndex());
+        assertEquals(0, window.getPreviousStartIndex());
+    }
+
+    @Test
+    public void prependPage_evictsFromEndAndClearsEndReached() {
+        BookPageWindow window = new BookPageWindow(20, 2);
+        window.restore(20, new int[]{20, 7}, true);
+
+        assertEquals(7, window.prependPage(20));
+        assertFalse(window.isEndReached());
+        assertFalse(window.hasPrevious());
+        assertEquals(40, window.getNextStartIndex());
+    }
+
+    @Test
+    public void appendPage_marksEndOnEmptyPage() {
+        BookPageWindow window = new BookPageWindow(20, 5);
+        window.appendPage(20);
+        assertEquals(0, window.appendPage(0));
+        assertTrue(window.isEndReached());
+        assertEquals(20, window.getNextStartIndex());
+    }
+
+    @Test
+    public void appendPage_keepsGoingWhenNoBooksOfPageAreAdded() {
+        BookPageWindow window = new BookPageWindow(20, 2);
+        window.appendPage(20);
+        // Every book of the page was already shown
+        assertEquals(0, window.appendPage(20, 0));
+        assertFalse(window.isEndReached());
+        assertEquals(40, window.getNextStartIndex());
+
+        // Evicting the first page drops only the rows it holds
+        assertEquals(20, window.appendPage(20, 15));
+        assertArrayEquals(new int[]{0, 15}, window.getPageSizes());
+    }
+
+    @Test
+    public void appendPage_keepsPagesWhileEvictionPaused() {
+        BookPageWindow window = new BookPageWindow(20, 2);
+        window.setEvictionPaused(true);
+        assertEquals(0, window.appendPage(20));
+        assertEquals(0, window.appendPage(20));
+        assertEquals(0, window.appendPage(20));
+        assertFalse(window.hasPrevious());
+
+        // Once resumed, the next page evicts back down to the maximum
+        window.setEvictionPaused(false);
+        assertEquals(40, window.appendPage(20));
+        assertEquals(40, window.getFirstStartIndex());
+        assertEquals(80, window.getNextStartIndex());
+    }
+}
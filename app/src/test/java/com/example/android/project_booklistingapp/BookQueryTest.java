@@ -0,0 +1,44 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BookQuery}.
+ */
+public class BookQueryTest {
+
+    @Test
+    public void toUrl_encodesTermsAndRequestsParserFields() {
+        String url = new BookQuery("tolkien & lewis/c++ \u00e9").withMaxResults(20).toUrl();
+
+        assertTrue(url, url.startsWith(BookQuery.DEFAULT_ENDPOINT + "?q=tolkien+%26+lewis%2Fc%2B%2B+%C3%A9"));
+        assertTrue(url, url.contains("&maxResults=20"));
+        assertTrue(url, url.contains("&fields=items%28id%2CvolumeInfo%28title%2Cauthors%2C"));
+        assertTrue(url, url.endsWith("&prettyPrint=false"));
+        assertFalse(url, url.contains("startIndex"));
+    }
+
+    @Test
+    public void withMethods_returnModifiedCopies() {
+        BookQuery query = new BookQuery("hobbit").withEndpoint("http://127.0.0.1:8080/volumes");
+        BookQuery page = query.withMaxResults(10).withStartIndex(30).withFields(null);
+
+        assertEquals("http://127.0.0.1:8080/volumes?q=hobbit&fields="
+                + "items%28id%2CvolumeInfo%28title%2Cauthors%2CpublishedDate%2Clanguage%2Ccategories%2CimageLinks%28smallThumbnail%2Cthumbnail%29%29%29"
+                + "&prettyPrint=false", query.toUrl());
+        assertEquals("http://127.0.0.1:8080/volumes?q=hobbit&maxResults=10&startIndex=30&prettyPrint=false",
+                page.toUrl());
+        assertEquals("hobbit", page.getTerms());
+    }
+
+    @Test
+    public void equivalentTermsBuildTheSameUrl() {
+        String url = new BookQuery("hobbit inauthor:tolkien").toUrl();
+
+        assertEquals(url, new BookQuery("  Hobbit   INAUTHOR:Tolkien ").toUrl());
+        assertEquals(url, new BookQuery("inauthor:tolkien hobbit").toUrl());
+        assertTrue(url, url.contains("?q=hobbit+inauthor%3Atolkien&"));
+    }
+}
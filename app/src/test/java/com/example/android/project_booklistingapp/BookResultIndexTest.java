@@ -0,0 +1,109 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BookResultIndex}.
+ */
+public class BookResultIndexTest {
+
+    private static Book book(String id, String title, String author, String date, String language,
+                             String... categories) {
+        return new Book(id, title, author != null ? Arrays.asList(author) : null, null, date, language,
+                Arrays.asList(categories));
+    }
+
+    private static final List<Book> PAGE_ONE = Arrays.asList(
+            book("v1", "the Hobbit", "J.R.R. Tolkien", "1937", "en", "Fiction"),
+            book("v2", "Dune", "Frank Herbert", "1965-08", "en", "Fiction", "Science"),
+            book("v3", "\u00c9mile", "Jean-Jacques Rousseau", "1762-05-01", "fr", "Education"));
+
+    private static final List<Book> PAGE_TWO = Arrays.asList(
+            book("v4", "Anonymous Poems", null, null, "en"),
+            book("v5", "Children of Dune", "Frank Herbert", "1976", "en", "Fiction"));
+
+    private static List<String> ids(List<Book> books) {
+        List<String> ids = new ArrayList<String>();
+        for (Book book : books) {
+            ids.add(book.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void query_sortsByPrecomputedKeys() {
+        BookResultIndex index = new BookResultIndex(Locale.ENGLISH);
+        index.addAll(PAGE_ONE);
+        index.addAll(PAGE_TWO);
+
+        BookResultIndex.Filter all = BookResultIndex.Filter.NONE;
+        assertEquals(Arrays.asList("v1", "v2", "v3", "v4", "v5"),
+                ids(index.query(BookResultIndex.Sort.RELEVANCE, all).getBooks()));
+        // Case and accents don't push titles to the end
+        assertEquals(Arrays.asList("v4", "v5", "v2", "v3", "v1"),
+                ids(index.query(BookResultIndex.Sort.TITLE, all).getBooks()));
+        // By surname, ties in arrival order, no author last
+        assertEquals(Arrays.asList("v2", "v5", "v3", "v1", "v4"),
+                ids(index.query(BookResultIndex.Sort.AUTHOR, all).getBooks()));
+        // Newest first, no date last
+        assertEquals(Arrays.asList("v5", "v2", "v1", "v3", "v4"),
+                ids(index.query(BookResultIndex.Sort.DATE, all).getBooks()));
+    }
+
+    @Test
+    public void addAll_mergesIntoSortOrdersAlreadyBuilt() {
+        BookResultIndex index = new BookResultIndex(Locale.ENGLISH);
+        index.setAll(PAGE_ONE);
+        assertEquals(Arrays.asList("v2", "v3", "v1"),
+                ids(index.query(BookResultIndex.Sort.TITLE, BookResultIndex.Filter.NONE).getBooks()));
+
+        // The list grown by a page is an append, merged into the kept title order
+        List<Book> grown = new ArrayList<Book>(PAGE_ONE);
+        grown.addAll(PAGE_TWO);
+        index.setAll(grown);
+        assertEquals(5, index.size());
+        assertEquals(Arrays.asList("v4", "v5", "v2", "v3", "v1"),
+                ids(index.query(BookResultIndex.Sort.TITLE, BookResultIndex.Filter.NONE).getBooks()));
+
+        // Dropping the first page rebuilds the index
+        index.setAll(PAGE_TWO);
+        assertEquals(Arrays.asList("v4", "v5"),
+                ids(index.query(BookResultIndex.Sort.TITLE, BookResultIndex.Filter.NONE).getBooks()));
+    }
+
+    @Test
+    public void query_filtersAndCountsFacets() {
+        BookResultIndex index = new BookResultIndex(Locale.ENGLISH);
+        index.addAll(PAGE_ONE);
+        index.addAll(PAGE_TWO);
+
+        BookResultIndex.Result result = index.query(BookResultIndex.Sort.RELEVANCE,
+                BookResultIndex.Filter.of(BookResultIndex.Facet.CATEGORY, "Fiction"));
+        assertEquals(Arrays.asList("v1", "v2", "v5"), ids(result.getBooks()));
+
+        // Other facets count only the fiction...
+        Map<String, Integer> languages = result.getCounts(BookResultIndex.Facet.LANGUAGE);
+        assertEquals(1, languages.size());
+        assertEquals(Integer.valueOf(3), languages.get("en"));
+        Map<String, Integer> authors = result.getCounts(BookResultIndex.Facet.AUTHOR);
+        assertEquals("Frank Herbert", authors.keySet().iterator().next());
+        assertEquals(Integer.valueOf(2), authors.get("Frank Herbert"));
+
+        // ...while the category facet still offers every category, most frequent first
+        Map<String, Integer> categories = result.getCounts(BookResultIndex.Facet.CATEGORY);
+        assertEquals(Arrays.asList("Fiction", "Science", "Education"), new ArrayList<String>(categories.keySet()));
+
+        BookResultIndex.Filter french = new BookResultIndex.Filter(null, "fr", null);
+        assertEquals(Arrays.asList("v3"),
+                ids(index.query(BookResultIndex.Sort.DATE, french).getBooks()));
+        assertEquals(french, BookResultIndex.Filter.of(BookResultIndex.Facet.LANGUAGE, "fr"));
+    }
+}
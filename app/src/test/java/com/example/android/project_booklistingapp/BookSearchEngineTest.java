@@ -0,0 +1,184 @@
+package com.example.android.project_booklistingapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BookSearchEngine}, run on the JVM against a stub server with no Android classes.
+ * The "/flaky" path injects faults: it fails with the status in mFaultStatus for the first mFaults requests, and
+ * delays the first request by mFirstDelayMs.
+ */
+public class BookSearchEngineTest {
+
+    private static final String BODY = "{\"items\":[{\"id\":\"a1\",\"volumeInfo\":"
+            + "{\"title\":\"The Hobbit\",\"authors\":[\"J.R.R. Tolkien\"]}}]}";
+
+    private HttpServer mServer;
+
+    private final AtomicInteger mRequests = new AtomicInteger();
+
+    private final AtomicInteger mFlakyRequests = new AtomicInteger();
+    private volatile int mFaults = 0;
+    private volatile int mFaultStatus = 503;
+    private volatile String mFaultRetryAfter;
+    private volatile long mFirstDelayMs = 0;
+
+    @Before
+    public void startServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/books", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                byte[] body = BODY.getBytes(Charset.forName("UTF-8"));
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        mServer.createContext("/flaky", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int request = mFlakyRequests.incrementAndGet();
+                if (request == 1 && mFirstDelayMs > 0) {
+                    try {
+                        Thread.sleep(mFirstDelayMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (request <= mFaults) {
+                    if (mFaultRetryAfter != null) {
+                        exchange.getResponseHeaders().set("Retry-After", mFaultRetryAfter);
+                    }
+                    exchange.sendResponseHeaders(mFaultStatus, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] body = BODY.getBytes(Charset.forName("UTF-8"));
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+    }
+
+    @After
+    public void stopServer() {
+        mServer.stop(0);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + path;
+    }
+
+    private static BookSearchEngine engine(BookCache cache) {
+        return new BookSearchEngine(new BookHttpClient(), cache, BookSearchEngine.newPageExecutor(2));
+    }
+
+    @Test
+    public void search_fetchesAndParsesWithoutContext() throws Exception {
+        List<Book> books = engine(null).search(url("/books?q=hobbit"), null);
+        assertEquals(1, books.size());
+        assertEquals("a1", books.get(0).getId());
+        assertEquals(Arrays.asList("J.R.R. Tolkien"), books.get(0).getAuthorNames());
+    }
+
+    @Test(expected = IOException.class)
+    public void search_throwsOnErrorStatus() throws Exception {
+        engine(null).search(url("/missing"), null);
+    }
+
+    private static BookSearchEngine resilientEngine(BookCache cache, RetryPolicy policy, CircuitBreaker breaker) {
+        return new BookSearchEngine(new BookHttpClient(), cache, null, BookSearchEngine.newPageExecutor(2),
+                policy, breaker);
+    }
+
+    @Test
+    public void search_retriesRetryableStatusesHonouringRetryAfter() throws Exception {
+        mFaults = 2;
+        mFaultStatus = 429;
+        mFaultRetryAfter = "0";
+        RetryPolicy policy = new RetryPolicy(3, 10, 1000, 0, new Random(1));
+
+        List<Book> books = resilientEngine(null, policy, null).search(url("/flaky?q=a"), null);
+
+        assertEquals(1, books.size());
+        assertEquals(3, mFlakyRequests.get());
+    }
+
+    @Test
+    public void search_hedgesSlowRequest() throws Exception {
+        mFirstDelayMs = 3000;
+        RetryPolicy policy = new RetryPolicy(1, 0, 0, 100);
+
+        long start = System.nanoTime();
+        List<Book> books = resilientEngine(null, policy, null).search(url("/flaky?q=b"), null);
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(1, books.size());
+        assertEquals(2, mFlakyRequests.get());
+        assertTrue("took " + elapsedMs + " ms", elapsedMs < 2000);
+    }
+
+    @Test
+    public void search_servesStaleCacheWhileCircuitIsOpen() throws Exception {
+        File directory = File.createTempFile("book-cache", "");
+        directory.delete();
+        try {
+            // Results are stale as soon as they are stored
+            BookCache cache = new BookCache(directory, 4, 1024 * 1024, 0);
+            CircuitBreaker breaker = new CircuitBreaker(1, 60000);
+            BookSearchEngine engine = resilientEngine(cache, new RetryPolicy(2, 10, 100, 0), breaker);
+            String query = url("/flaky?q=c");
+            assertEquals(1, engine.search(query, null).size());
+
+            // Upstream starts failing: the first failure opens the breaker and the stale copy is served
+            mFaults = Integer.MAX_VALUE;
+            assertEquals(1, engine.search(query, null).size());
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            int requests = mFlakyRequests.get();
+
+            // While open, no requests are made at all
+            assertEquals(1, engine.search(query, null).size());
+            assertEquals(requests, mFlakyRequests.get());
+
+            try {
+                engine.search(url("/flaky?q=uncached"), null);
+                fail("Uncached search should fail while the circuit is open");
+            } catch (IOException expected) {
+                // Nothing to fall back on
+            }
+        } finally {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+}
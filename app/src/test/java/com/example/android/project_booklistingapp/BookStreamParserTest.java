@@ -0,0 +1,105 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BookStreamParser}.
+ */
+public class BookStreamParserTest {
+
+    private static final String RESPONSE = "{\"kind\":\"books#volumes\",\"totalItems\":3,\"items\":["
+            + "{\"id\":\"a1\",\"volumeInfo\":{\"title\":\"One\",\"authors\":[\"Ann\"],"
+            + "\"industryIdentifiers\":[{\"type\":\"ISBN_10\",\"identifier\":\"123\"}],\"pageCount\":12}},"
+            + "{\"id\":\"b2\",\"saleInfo\":{\"isEbook\":false,\"listPrice\":null},"
+            + "\"volumeInfo\":{\"title\":\"Two \\\"quoted\\\" \\u00e9\",\"authors\":[\"Ann\",\"Bob\"]}},"
+            + "{\"id\":\"c3\",\"volumeInfo\":{\"authors\":[\"Ann\",\"Bob\",\"Cy\"],\"title\":\"Three\","
+            + "\"publishedDate\":\"2004-07\",\"language\":\"en\",\"categories\":[\"Fiction\",\"Fantasy\"]}},"
+            + "{\"id\":\"d4\",\"volumeInfo\":{\"title\":\"Four\",\"imageLinks\":"
+            + "{\"smallThumbnail\":\"http://img/d4-small\",\"thumbnail\":\"http://img/d4\"}}}]}";
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(Charset.forName("UTF-8")));
+    }
+
+    private static final AuthorFormatter FORMATTER = new DefaultAuthorFormatter("Unknown", ", ", " and ");
+
+    private static BookStreamParser parser() {
+        return new BookStreamParser();
+    }
+
+    @Test
+    public void parse_extractsTitlesAndFormatsAuthors() throws Exception {
+        List<Book> books = parser().parse(stream(RESPONSE));
+
+        assertEquals(4, books.size());
+        assertEquals("One", books.get(0).getTitle());
+        assertEquals("Ann", books.get(0).getAuthors(FORMATTER));
+        assertEquals("Two \"quoted\" \u00e9", books.get(1).getTitle());
+        assertEquals("Ann and Bob", books.get(1).getAuthors(FORMATTER));
+        // Same output as the DOM path: separator followed by the "and" text
+        assertEquals("Ann, Bob,  and Cy", books.get(2).getAuthors(FORMATTER));
+        assertEquals("Unknown", books.get(3).getAuthors(FORMATTER));
+        assertNull(books.get(0).getThumbnailUrl());
+        assertEquals("http://img/d4-small", books.get(3).getThumbnailUrl());
+        assertEquals("2004-07", books.get(2).getPublishedDate());
+        assertEquals("en", books.get(2).getLanguage());
+        assertEquals(Arrays.asList("Fiction", "Fantasy"), books.get(2).getCategories());
+        assertNull(books.get(0).getLanguage());
+        assertTrue(books.get(0).getCategories().isEmpty());
+        // Names repeated across books share one interned copy
+        assertSame(books.get(0).getAuthorNames().get(0), books.get(2).getAuthorNames().get(0));
+    }
+
+    @Test
+    public void parse_fromBytesMatchesStream() throws Exception {
+        // Padded on both sides, as a pooled buffer's valid bytes would be
+        byte[] json = RESPONSE.getBytes(Charset.forName("UTF-8"));
+        byte[] padded = new byte[json.length + 8];
+        System.arraycopy(json, 0, padded, 3, json.length);
+
+        List<Book> fromBytes = parser().parse(padded, 3, json.length);
+        List<Book> fromStream = parser().parse(stream(RESPONSE));
+
+        assertEquals(fromStream.size(), fromBytes.size());
+        for (int i = 0; i < fromStream.size(); i++) {
+            assertEquals(fromStream.get(i).getTitle(), fromBytes.get(i).getTitle());
+            assertEquals(fromStream.get(i).getAuthorNames(), fromBytes.get(i).getAuthorNames());
+        }
+    }
+
+    @Test
+    public void parse_returnsNullWithoutItems() throws Exception {
+        assertNull(parser().parse(stream("{\"kind\":\"books#volumes\",\"totalItems\":0}")));
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsTruncatedResponse() throws Exception {
+        parser().parse(stream(RESPONSE.substring(0, RESPONSE.length() / 2)));
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsResponseEndingInsideEmptyArray() throws Exception {
+        parser().parse(stream("{\"items\":["));
+    }
+
+    @Test
+    public void parse_rejectsMalformedLiterals() throws Exception {
+        for (String literal : Arrays.asList("tru", "xyz", "nul", "-", "01", "1.", "1e")) {
+            try {
+                parser().parse(stream("{\"totalItems\":" + literal + ",\"items\":[]}"));
+                fail("Accepted " + literal);
+            } catch (IOException expected) {
+                // Not true, false, null or a number
+            }
+        }
+    }
+}
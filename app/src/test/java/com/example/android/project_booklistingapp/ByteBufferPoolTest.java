@@ -0,0 +1,79 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ByteBufferPool} and the {@link Utf8Reader} its buffers decode through.
+ */
+public class ByteBufferPoolTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static InputStream stream(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) ('a' + i % 26);
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Test
+    public void readFully_reusesBuffersOnceWarm() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(ByteBufferPool.DEFAULT_MAX_POOLED_BYTES);
+
+        // A body that exactly fills its size class, read without knowing its length
+        ByteBufferPool.Buffer body = pool.readFully(stream(ByteBufferPool.MIN_BUFFER_SIZE), -1, 1 << 20);
+        assertEquals(ByteBufferPool.MIN_BUFFER_SIZE, body.getLength());
+        assertEquals(ByteBufferPool.MIN_BUFFER_SIZE, body.getBytes().length);
+        body.close();
+        assertEquals(1, pool.getAllocationCount());
+
+        // Steady state: the same buffer serves every read of a similar size
+        for (int i = 0; i < 10; i++) {
+            body = pool.readFully(stream(5000), 5000, 1 << 20);
+            assertEquals(5000, body.getLength());
+            body.close();
+        }
+        assertEquals(1, pool.getAllocationCount());
+
+        // A longer body than announced grows into larger classes, keeping every byte
+        body = pool.readFully(stream(3 * ByteBufferPool.MIN_BUFFER_SIZE), 100, 1 << 20);
+        assertEquals(3 * ByteBufferPool.MIN_BUFFER_SIZE, body.getLength());
+        assertEquals('a' + (3 * ByteBufferPool.MIN_BUFFER_SIZE - 1) % 26, body.getBytes()[body.getLength() - 1]);
+        body.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void readFully_rejectsBodyOverMaximum() throws Exception {
+        new ByteBufferPool(0).readFully(stream(1001), -1, 1000);
+    }
+
+    @Test
+    public void utf8Reader_decodesLikeString() throws Exception {
+        // Two-, three- and four-byte sequences, the last split across reads
+        String text = "caf\u00e9 \u20ac \ud83d\udcd6 end";
+        byte[] bytes = text.getBytes(UTF_8);
+        Reader reader = new Utf8Reader(bytes, 0, bytes.length);
+        StringBuilder decoded = new StringBuilder();
+        char[] chunk = new char[7];
+        int read;
+        while ((read = reader.read(chunk, 0, chunk.length)) != -1) {
+            decoded.append(chunk, 0, read);
+        }
+        assertEquals(text, decoded.toString());
+
+        // Malformed and truncated sequences become U+FFFD
+        byte[] malformed = {'a', (byte) 0xC3, 'b', (byte) 0xE2, (byte) 0x82};
+        reader = new Utf8Reader(malformed, 0, malformed.length);
+        int length = reader.read(chunk, 0, chunk.length);
+        assertEquals("a\ufffdb\ufffd", new String(chunk, 0, length));
+    }
+}
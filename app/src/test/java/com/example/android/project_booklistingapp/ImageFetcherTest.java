@@ -0,0 +1,135 @@
+package com.example.android.project_booklistingapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ImageFetcher}, run against a stub image server on the loopback interface.
+ */
+public class ImageFetcherTest {
+
+    private static final byte[] IMAGE = new byte[3000];
+
+    static {
+        for (int i = 0; i < IMAGE.length; i++) {
+            IMAGE[i] = (byte) i;
+        }
+    }
+
+    private HttpServer mServer;
+
+    private File mDirectory;
+
+    /**
+     * Number of image requests the server has answered
+     */
+    private final AtomicInteger mImageRequests = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/images", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mImageRequests.incrementAndGet();
+                if (exchange.getRequestURI().getPath().endsWith("missing")) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Type", "image/jpeg");
+                exchange.sendResponseHeaders(200, IMAGE.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(IMAGE);
+                out.close();
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+    }
+
+    @Before
+    public void createDirectory() throws IOException {
+        mDirectory = File.createTempFile("image-cache", "");
+        mDirectory.delete();
+    }
+
+    @After
+    public void stopServer() {
+        mServer.stop(0);
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    private String url(String name) {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/images/" + name;
+    }
+
+    @Test
+    public void fetch_servesRepeatFromDisk() throws Exception {
+        ImageFetcher fetcher = new ImageFetcher(new BookHttpClient(), mDirectory, 1024 * 1024, 64 * 1024);
+
+        assertArrayEquals(IMAGE, fetcher.fetch(url("a"), null));
+        assertArrayEquals(IMAGE, fetcher.fetch(url("a"), null));
+
+        assertEquals(1, mImageRequests.get());
+        assertEquals(1, fetcher.getDiskHits());
+        assertEquals(1, fetcher.getMisses());
+    }
+
+    @Test
+    public void fetch_trimsDiskCacheToLimit() throws Exception {
+        ImageFetcher fetcher = new ImageFetcher(new BookHttpClient(), mDirectory,
+                IMAGE.length * 2, 64 * 1024);
+        for (String name : new String[]{"a", "b", "c", "d"}) {
+            fetcher.fetch(url(name), null);
+        }
+
+        long total = 0;
+        for (File file : mDirectory.listFiles()) {
+            total += file.length();
+        }
+        assertTrue("disk cache holds " + total + " bytes", total <= IMAGE.length * 2);
+    }
+
+    @Test
+    public void fetch_rejectsErrorsAndOversizedImages() throws Exception {
+        ImageFetcher fetcher = new ImageFetcher(new BookHttpClient(), mDirectory, 1024 * 1024, 1024);
+        try {
+            fetcher.fetch(url("missing"), null);
+            fail("404 should fail");
+        } catch (IOException expected) {
+            // Error status
+        }
+        try {
+            fetcher.fetch(url("large"), null);
+            fail("Image over the size limit should fail");
+        } catch (IOException expected) {
+            // Content-Length over the limit
+        }
+        assertEquals(0, mDirectory.listFiles().length);
+    }
+}
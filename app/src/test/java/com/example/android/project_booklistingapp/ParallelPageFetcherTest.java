@@ -0,0 +1,137 @@
+package com.example.android.project_booklistingapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ParallelPageFetcher}, run against a stub server that adds latency to every page.
+ */
+public class ParallelPageFetcherTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int LATENCY_MS = 200;
+
+    private HttpServer mServer;
+    private ExecutorService mExecutor;
+
+    /**
+     * Set to make the page at startIndex 20 fail
+     */
+    private volatile boolean mFailPage = false;
+
+    /**
+     * Number of requests the stub server has received
+     */
+    private final AtomicInteger mRequests = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.createContext("/books", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                String query = exchange.getRequestURI().getQuery();
+                int startIndex = Integer.parseInt(query.substring(query.indexOf("startIndex=") + "startIndex=".length()));
+                try {
+                    Thread.sleep(LATENCY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                if (startIndex == 20 && mFailPage) {
+                    exchange.sendResponseHeaders(503, -1);
+                    exchange.close();
+                    return;
+                }
+
+                // Ten books per page; each page also repeats the last volume of the page before it
+                StringBuilder json = new StringBuilder("{\"items\":[");
+                int first = startIndex > 0 ? startIndex - 1 : 0;
+                for (int number = first; number < startIndex + PAGE_SIZE; number++) {
+                    json.append(number == first ? "" : ",").append("{\"id\":\"v").append(number)
+                            .append("\",\"volumeInfo\":{\"title\":\"Book ").append(number).append("\"}}");
+                }
+                byte[] body = json.append("]}").toString().getBytes(Charset.forName("UTF-8"));
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        mServer.start();
+        mExecutor = Executors.newFixedThreadPool(5);
+    }
+
+    @After
+    public void stopServer() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    private ParallelPageFetcher.PageSource source() {
+        final BookHttpClient client = new BookHttpClient();
+        final String base = "http://127.0.0.1:" + mServer.getAddress().getPort() + "/books?q=test";
+        return new ParallelPageFetcher.PageSource() {
+            @Override
+            public List<Book> fetchPage(int startIndex, int pageSize) throws IOException {
+                BookHttpClient.Response response = client.get(new URL(base + "&maxResults=" + pageSize
+                        + "&startIndex=" + startIndex));
+                try {
+                    if (response.getCode() != 200) {
+                        throw new IOException("HTTP " + response.getCode());
+                    }
+                    return new BookStreamParser().parse(response.getBody());
+                } finally {
+                    response.close();
+                }
+            }
+        };
+    }
+
+    @Test
+    public void fetch_mergesPagesInOrderWithoutDuplicates() throws Exception {
+        long start = System.nanoTime();
+        List<Book> books = new ParallelPageFetcher(mExecutor).fetch(source(), 50, PAGE_SIZE);
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+        // Repeated volumes are dropped, leaving exactly the 50 requested
+        assertEquals(50, books.size());
+        for (int i = 0; i < books.size(); i++) {
+            assertEquals("v" + i, books.get(i).getId());
+        }
+
+        // Five pages in parallel is far quicker than five in sequence
+        assertTrue("took " + elapsedMs + "ms", elapsedMs < 3 * LATENCY_MS);
+    }
+
+    @Test
+    public void fetch_failsWithoutRetryingWhenPageFails() throws Exception {
+        mFailPage = true;
+        try {
+            new ParallelPageFetcher(mExecutor).fetch(source(), 30, PAGE_SIZE);
+            fail("Expected the failed page to fail the fetch");
+        } catch (IOException e) {
+            // Retries are the page source's job, so each page is requested once
+            assertTrue(mRequests.get() <= 3);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.android.project_booklistingapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link Prefetcher}, against a stub server.
+ * Work runs in order, one piece at a time even on a pool of several threads, so a warm-up request to "/warm" marks the end of the batches before it.
+ */
+public class PrefetcherTest {
+
+    private static final String BODY = "{\"items\":[{\"id\":\"a1\",\"volumeInfo\":{\"title\":\"Emma\"}}]}";
+
+    private HttpServer mServer;
+
+    private File mDirectory;
+
+    private final AtomicInteger mSearches = new AtomicInteger();
+
+    private volatile CountDownLatch mWarmUps;
+
+    @Before
+    public void startServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/books", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mSearches.incrementAndGet();
+                respond(exchange);
+            }
+        });
+        mServer.createContext("/warm", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange);
+                mWarmUps.countDown();
+            }
+        });
+        mServer.start();
+
+        mDirectory = File.createTempFile("book-cache", "");
+        mDirectory.delete();
+    }
+
+    private static void respond(HttpExchange exchange) throws IOException {
+        byte[] body = BODY.getBytes(Charset.forName("UTF-8"));
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    @After
+    public void stopServer() {
+        mServer.stop(0);
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + path;
+    }
+
+    private static Prefetcher newPrefetcher(BookSearchEngine engine, int maxRequests) {
+        SearchExecutor executor = new SearchExecutor(2, new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                runnable.run();
+            }
+        });
+        return new Prefetcher(engine, executor, maxRequests, 60000);
+    }
+
+    /**
+     * Wait for all work queued on the prefetcher so far to finish.
+     */
+    private void awaitIdle(Prefetcher prefetcher) throws InterruptedException {
+        mWarmUps = new CountDownLatch(1);
+        prefetcher.warmUp(url("/warm"));
+        assertTrue(mWarmUps.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void prefetch_fillsCacheWithinBudgetAndSkipsCachedQueries() throws Exception {
+        BookCache cache = new BookCache(mDirectory, 8, 1024 * 1024, 60000);
+        BookSearchEngine engine = new BookSearchEngine(new BookHttpClient(), cache,
+                BookSearchEngine.newPageExecutor(1));
+        Prefetcher prefetcher = newPrefetcher(engine, 2);
+        String first = url("/books?q=emma");
+        String second = url("/books?q=dune");
+        String third = url("/books?q=hobbit");
+
+        prefetcher.prefetch(Arrays.asList(first, second, third));
+        awaitIdle(prefetcher);
+
+        // The budget allows two requests
+        assertEquals(2, mSearches.get());
+        assertEquals(2, prefetcher.getPrefetchCount());
+        assertTrue(engine.isCached(first));
+        assertTrue(engine.isCached(second));
+        assertFalse(engine.isCached(third));
+
+        // Cached queries are skipped, and the spent budget stops the rest
+        prefetcher.prefetch(Arrays.asList(second, first, third));
+        awaitIdle(prefetcher);
+        assertEquals(2, mSearches.get());
+
+        // The user's search is now a cache hit
+        long hits = cache.getMemoryHitCount();
+        assertEquals(1, engine.search(first, null).size());
+        assertEquals(hits + 1, cache.getMemoryHitCount());
+        assertEquals(2, mSearches.get());
+    }
+
+    @Test
+    public void prefetch_stopsWhenCancelled() throws Exception {
+        BookSearchEngine engine = new BookSearchEngine(new BookHttpClient(), null,
+                BookSearchEngine.newPageExecutor(1));
+        Prefetcher prefetcher = newPrefetcher(engine, 10);
+
+        // Hold the prefetch thread until the batch has been cancelled
+        final CountDownLatch release = new CountDownLatch(1);
+        mServer.createContext("/slow", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                respond(exchange);
+            }
+        });
+        prefetcher.warmUp(url("/slow"));
+        prefetcher.prefetch(Arrays.asList(url("/books?q=a"), url("/books?q=b")));
+        prefetcher.cancel();
+        release.countDown();
+
+        awaitIdle(prefetcher);
+        assertEquals(0, mSearches.get());
+        assertEquals(0, prefetcher.getPrefetchCount());
+    }
+
+    @Test
+    public void cancel_letsRequestForUsersQueryFinish() throws Exception {
+        BookCache cache = new BookCache(mDirectory, 8, 1024 * 1024, 60000);
+        BookSearchEngine engine = new BookSearchEngine(new BookHttpClient(), cache,
+                BookSearchEngine.newPageExecutor(1));
+        Prefetcher prefetcher = newPrefetcher(engine, 10);
+
+        // Hold the first prefetch in flight until the user has searched
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        mServer.createContext("/held", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mSearches.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                respond(exchange);
+            }
+        });
+        String users = url("/held?q=emma");
+        String other = url("/held?q=dune");
+        prefetcher.prefetch(Arrays.asList(users, other));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        prefetcher.cancel(users);
+        release.countDown();
+
+        // The user's query is fetched into the cache; the rest of the batch is not started
+        awaitIdle(prefetcher);
+        assertTrue(engine.isCached(users));
+        assertFalse(engine.isCached(other));
+        assertEquals(1, mSearches.get());
+        assertEquals(1, prefetcher.getPrefetchCount());
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link PrefixRefinement}.
+ */
+public class PrefixRefinementTest {
+
+    @Test
+    public void isRefinement_onlyForLongerTermsWithSamePrefix() {
+        assertTrue(PrefixRefinement.isRefinement("tolk", "Tolkien  hobbit"));
+        assertFalse(PrefixRefinement.isRefinement("tolkien", "tolk"));
+        assertFalse(PrefixRefinement.isRefinement("tolkien", "lewis"));
+        assertFalse(PrefixRefinement.isRefinement(null, "tolkien"));
+    }
+
+    @Test
+    public void filter_keepsBooksMatchingEveryWord() {
+        List<Book> books = Arrays.asList(
+                new Book("The Hobbit", "J.R.R. Tolkien"),
+                new Book("The Silmarillion", "J.R.R. Tolkien"),
+                new Book("Tolkien: A Biography", "Humphrey Carpenter"));
+
+        List<Book> matches = PrefixRefinement.filter(books, "tolkien HOBBIT");
+        assertEquals(1, matches.size());
+        assertEquals("The Hobbit", matches.get(0).getTitle());
+    }
+}
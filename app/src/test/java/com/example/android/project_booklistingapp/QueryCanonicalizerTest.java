@@ -0,0 +1,52 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link QueryCanonicalizer}.
+ */
+public class QueryCanonicalizerTest {
+
+    private static String canonical(String terms) {
+        return QueryCanonicalizer.canonicalize(terms);
+    }
+
+    @Test
+    public void canonicalize_foldsCaseAndWhitespace() {
+        assertEquals("tolkien", canonical("Tolkien"));
+        assertEquals("tolkien", canonical(" tolkien "));
+        assertEquals("tolkien hobbit", canonical("TOLKIEN \t hobbit\n"));
+        // Non-breaking space, and a decomposed accent
+        assertEquals("\u00e9mile zola", canonical("E\u0301mile\u00a0Zola"));
+        assertEquals("", canonical("   "));
+    }
+
+    @Test
+    public void canonicalize_ordersQualifiersAfterWordsAndDropsRepeats() {
+        String expected = "hobbit intitle:hobbit inauthor:tolkien isbn:9780261103344";
+        assertEquals(expected, canonical("isbn:978-0-261-10334-4 inauthor:Tolkien hobbit intitle:hobbit"));
+        assertEquals(expected, canonical("INTITLE:hobbit hobbit inauthor:tolkien isbn:9780261103344 intitle:hobbit"));
+
+        // Word order is kept, since it affects relevance; an unknown or empty qualifier is a plain word
+        assertEquals("lord rings foo:bar intitle:", canonical("Lord Rings foo:bar intitle:"));
+    }
+
+    @Test
+    public void canonicalize_keepsQuotedPhrasesTogether() {
+        assertEquals("\"the lord of the rings\" inauthor:\"j r r tolkien\"",
+                canonical("inauthor:\"J R R  Tolkien\" \" The Lord  of the Rings \""));
+        // An unclosed quote is closed
+        assertEquals("\"middle earth\"", canonical("\"Middle  Earth"));
+    }
+
+    @Test
+    public void canonicalize_isIdempotent() {
+        String[] queries = {"isbn:- x", "intitle:\"A  b\" c \"d", "Foo:Bar  BAZ", "isbn:0-00 isbn:000"};
+        for (String query : queries) {
+            String once = canonical(query);
+            assertEquals(query, once, canonical(once));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link QueryHistory}.
+ */
+public class QueryHistoryTest {
+
+    private File mFile;
+
+    @Before
+    public void createFile() throws IOException {
+        mFile = File.createTempFile("query-history", ".bin");
+        mFile.delete();
+    }
+
+    @After
+    public void deleteFile() {
+        mFile.delete();
+        new File(mFile.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void recent_isMostRecentFirstAndBounded() {
+        QueryHistory history = new QueryHistory(mFile, 3);
+        history.record("dune");
+        history.record("hobbit");
+        history.record("  Dune ");
+        history.record("emma");
+        history.record("persuasion");
+
+        // "dune" was searched again, so "hobbit" is the oldest and was dropped
+        assertEquals(Arrays.asList("persuasion", "emma", "Dune"), history.recent(10));
+        assertEquals(Arrays.asList("persuasion"), history.recent(1));
+    }
+
+    @Test
+    public void completions_rankByCountThenRecencyAndSurviveRestart() {
+        QueryHistory history = new QueryHistory(mFile, 10);
+        history.record("harry potter");
+        history.record("hamlet");
+        history.record("harry potter");
+        history.record("hardy");
+        history.record("ha");
+
+        assertEquals(Arrays.asList("harry potter", "hardy", "hamlet"), history.completions("HA", 5));
+        assertEquals(Arrays.asList("harry potter", "hardy"), history.completions("har", 5));
+
+        QueryHistory reloaded = new QueryHistory(mFile, 10);
+        assertEquals(Arrays.asList("harry potter", "hardy", "hamlet"), reloaded.completions("ha", 5));
+        assertEquals("ha", reloaded.recent(1).get(0));
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RequestCoalescer}.
+ */
+public class RequestCoalescerTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    public void execute_sharesOneFetchBetweenConcurrentCallers() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final AtomicInteger fetches = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final RequestCoalescer.Fetch fetch = new RequestCoalescer.Fetch() {
+            @Override
+            public List<Book> fetch(CancellationToken cancellation) throws IOException {
+                fetches.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return new ArrayList<Book>(Arrays.asList(new Book("v1", "Dune", "Frank Herbert")));
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<Future<List<Book>>> results = new ArrayList<Future<List<Book>>>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(new Callable<List<Book>>() {
+                @Override
+                public List<Book> call() throws Exception {
+                    return coalescer.execute("q=dune", null, fetch);
+                }
+            }));
+        }
+
+        // Let every caller join before the fetch completes
+        while (coalescer.getCoalescedCount() < CALLERS - 1) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        List<Book> first = results.get(0).get();
+        for (Future<List<Book>> result : results) {
+            assertSame(first, result.get());
+        }
+        assertEquals(1, fetches.get());
+        executor.shutdown();
+
+        try {
+            first.add(new Book("v2", "Other", "Ann"));
+            fail("Shared result should be unmodifiable");
+        } catch (UnsupportedOperationException expected) {
+            // Waiters cannot corrupt each other's result
+        }
+    }
+
+    @Test
+    public void execute_cancelsFetchOnlyWhenLastWaiterCancels() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch fetchCancelled = new CountDownLatch(1);
+        final RequestCoalescer.Fetch fetch = new RequestCoalescer.Fetch() {
+            @Override
+            public List<Book> fetch(CancellationToken cancellation) throws IOException {
+                cancellation.setOnCancelListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        fetchCancelled.countDown();
+                    }
+                });
+                started.countDown();
+                try {
+                    fetchCancelled.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                cancellation.throwIfCancelled();
+                return null;
+            }
+        };
+
+        final CancellationToken first = new CancellationToken();
+        final CancellationToken second = new CancellationToken();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<List<Book>> leader = executor.submit(new Callable<List<Book>>() {
+            @Override
+            public List<Book> call() throws Exception {
+                return coalescer.execute("q=dune", first, fetch);
+            }
+        });
+        started.await(5, TimeUnit.SECONDS);
+        Future<List<Book>> follower = executor.submit(new Callable<List<Book>>() {
+            @Override
+            public List<Book> call() throws Exception {
+                return coalescer.execute("q=dune", second, fetch);
+            }
+        });
+        while (coalescer.getCoalescedCount() < 1) {
+            Thread.sleep(10);
+        }
+
+        second.cancel();
+        assertFalse(fetchCancelled.await(200, TimeUnit.MILLISECONDS));
+        first.cancel();
+        assertTrue(fetchCancelled.await(2, TimeUnit.SECONDS));
+
+        assertCancelled(leader);
+        assertCancelled(follower);
+        executor.shutdown();
+    }
+
+    @Test
+    public void execute_startsFreshFetchAfterLastWaiterLeaves() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final AtomicInteger fetches = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final RequestCoalescer.Fetch fetch = new RequestCoalescer.Fetch() {
+            @Override
+            public List<Book> fetch(CancellationToken cancellation) throws IOException {
+                if (fetches.incrementAndGet() > 1) {
+                    return new ArrayList<Book>(Arrays.asList(new Book("v1", "Dune", "Frank Herbert")));
+                }
+                // The abandoned fetch is slow to wind down, so it is still running when the next caller comes
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                cancellation.throwIfCancelled();
+                return null;
+            }
+        };
+
+        final CancellationToken first = new CancellationToken();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<List<Book>> leader = executor.submit(new Callable<List<Book>>() {
+            @Override
+            public List<Book> call() throws Exception {
+                return coalescer.execute("q=dune", first, fetch);
+            }
+        });
+        started.await(5, TimeUnit.SECONDS);
+        first.cancel();
+
+        List<Book> rejoined = coalescer.execute("q=dune", null, fetch);
+        assertEquals(1, rejoined.size());
+        assertEquals(2, fetches.get());
+        assertEquals(0, coalescer.getCoalescedCount());
+
+        release.countDown();
+        assertCancelled(leader);
+        executor.shutdown();
+    }
+
+    private static void assertCancelled(Future<List<Book>> result) throws InterruptedException {
+        try {
+            result.get();
+            fail("Cancelled caller should not get a result");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RetryPolicy} and {@link CircuitBreaker}.
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void delayBeforeRetry_backsOffWithinJitteredCeiling() {
+        RetryPolicy policy = new RetryPolicy(5, 100, 1000, 0, new Random(42));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.delayBeforeRetry(1, null, 0) <= 100);
+            assertTrue(policy.delayBeforeRetry(3, null, 0) <= 400);
+            assertTrue(policy.delayBeforeRetry(4, null, 0) <= 800);
+        }
+        // Out of attempts
+        assertEquals(-1, policy.delayBeforeRetry(5, null, 0));
+    }
+
+    @Test
+    public void delayBeforeRetry_honoursRetryAfter() {
+        RetryPolicy policy = new RetryPolicy(3, 10, 5000, 0, new Random(42));
+        assertTrue(policy.delayBeforeRetry(1, "2", 0) >= 2000);
+        // HTTP-date form, three seconds from now
+        long now = 784111774000L;
+        assertEquals(3000, RetryPolicy.parseRetryAfter("Sun, 06 Nov 1994 08:49:37 GMT", now));
+        // Asks for longer than the policy will wait: give up instead
+        assertEquals(-1, policy.delayBeforeRetry(1, "60", 0));
+        assertEquals(-1, RetryPolicy.parseRetryAfter("soon", 0));
+    }
+
+    @Test
+    public void circuitBreaker_opensAfterFailuresAndProbesAfterOpenTime() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1000);
+        breaker.recordFailure(0);
+        assertTrue(breaker.allowRequest(0));
+        breaker.recordFailure(10);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(500));
+
+        // One probe once the open time has passed
+        assertTrue(breaker.allowRequest(1010));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(1020));
+
+        // A failed probe reopens; a successful one closes
+        breaker.recordFailure(1030);
+        assertFalse(breaker.allowRequest(1040));
+        assertTrue(breaker.allowRequest(2030));
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest(2040));
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SearchExecutor}. Results are delivered to a queue the test drains,
+ * standing in for the main thread.
+ */
+public class SearchExecutorTest {
+
+    private final LinkedBlockingQueue<Runnable> mDeliveries = new LinkedBlockingQueue<Runnable>();
+
+    private final SearchExecutor mExecutor = new SearchExecutor(1, new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            mDeliveries.add(runnable);
+        }
+    });
+
+    private final List<String> mDelivered = Collections.synchronizedList(new ArrayList<String>());
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdown();
+    }
+
+    /**
+     * Run the next delivery, as the main thread would.
+     */
+    private void deliverNext() throws InterruptedException {
+        Runnable delivery = mDeliveries.poll(5, TimeUnit.SECONDS);
+        assertNotNull(delivery);
+        delivery.run();
+    }
+
+    private SearchExecutor.Callback<String> record() {
+        return new SearchExecutor.Callback<String>() {
+            @Override
+            public void onResult(String result) {
+                mDelivered.add(result);
+            }
+
+            @Override
+            public void onError(IOException e) {
+                mDelivered.add("error: " + e.getMessage());
+            }
+        };
+    }
+
+    private static SearchExecutor.Task<String> returning(final String result) {
+        return new SearchExecutor.Task<String>() {
+            @Override
+            public String run(CancellationToken cancellation) {
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Occupy the only thread until the returned latch is released.
+     */
+    private CountDownLatch blockPool() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        mExecutor.execute(SearchExecutor.Priority.USER_INITIATED, new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    public void submit_runsUserSearchesAheadOfQueuedBackgroundWork() throws Exception {
+        CountDownLatch release = blockPool();
+        mExecutor.submit(SearchExecutor.Priority.BACKGROUND, returning("prefetch"), record());
+        mExecutor.submit(SearchExecutor.Priority.USER_INITIATED, returning("first"), record());
+        mExecutor.submit(SearchExecutor.Priority.USER_INITIATED, returning("second"), record());
+        release.countDown();
+
+        deliverNext();
+        deliverNext();
+        deliverNext();
+        assertEquals("[first, second, prefetch]", mDelivered.toString());
+    }
+
+    @Test
+    public void raisePriority_movesQueuedPrefetchAhead() throws Exception {
+        CountDownLatch release = blockPool();
+        mExecutor.submit(SearchExecutor.Priority.BACKGROUND, returning("first prefetch"), record());
+        SearchExecutor.Search<String> opened =
+                mExecutor.submit(SearchExecutor.Priority.BACKGROUND, returning("opened"), record());
+        opened.raisePriority(SearchExecutor.Priority.USER_INITIATED);
+        release.countDown();
+
+        deliverNext();
+        deliverNext();
+        assertEquals("[opened, first prefetch]", mDelivered.toString());
+    }
+
+    @Test
+    public void cancel_stopsQueuedAndRunningSearchesWithoutDelivering() throws Exception {
+        CountDownLatch release = blockPool();
+        SearchExecutor.Search<String> queued =
+                mExecutor.submit(SearchExecutor.Priority.USER_INITIATED, returning("queued"), record());
+        queued.cancel();
+        release.countDown();
+
+        // A running search is cancelled through its token, as a request's connection would be
+        final CountDownLatch started = new CountDownLatch(1);
+        SearchExecutor.Search<String> running = mExecutor.submit(SearchExecutor.Priority.USER_INITIATED,
+                new SearchExecutor.Task<String>() {
+                    @Override
+                    public String run(CancellationToken cancellation) throws IOException {
+                        final CountDownLatch cancelled = new CountDownLatch(1);
+                        cancellation.setOnCancelListener(new Runnable() {
+                            @Override
+                            public void run() {
+                                cancelled.countDown();
+                            }
+                        });
+                        started.countDown();
+                        try {
+                            cancelled.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        throw new InterruptedIOException("Request cancelled");
+                    }
+                }, record());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        running.cancel();
+
+        // The delivery posted by the cancelled search is dropped
+        deliverNext();
+        assertTrue(mDelivered.isEmpty());
+        assertTrue(queued.isCancelled());
+    }
+
+    @Test
+    public void attach_deliversOutcomeHeldWhileDetached() throws Exception {
+        SearchExecutor.Search<String> search =
+                mExecutor.submit(SearchExecutor.Priority.USER_INITIATED, returning("books"), null);
+        deliverNext();
+        assertTrue(mDelivered.isEmpty());
+
+        search.attach(record());
+        assertEquals("[books]", mDelivered.toString());
+
+        // Delivered once only
+        search.attach(record());
+        assertEquals(1, mDelivered.size());
+    }
+
+    @Test
+    public void submit_deliversUncheckedFailureAsError() throws Exception {
+        mExecutor.submit(SearchExecutor.Priority.USER_INITIATED, new SearchExecutor.Task<String>() {
+            @Override
+            public String run(CancellationToken cancellation) {
+                throw new IllegalStateException("parser bug");
+            }
+        }, record());
+        deliverNext();
+
+        assertEquals("[error: Search failed]", mDelivered.toString());
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SearchMetrics} and {@link LatencyHistogram}.
+ */
+public class SearchMetricsTest {
+
+    @Test
+    public void histogram_percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        long p50 = histogram.getPercentile(50);
+        assertTrue("p50 " + p50, p50 >= 500000 && p50 <= 500000 * 5 / 4);
+        long p99 = histogram.getPercentile(99);
+        assertTrue("p99 " + p99, p99 >= 990000 && p99 <= 1000000);
+    }
+
+    @Test
+    public void histogram_bucketsCoverEveryValue() {
+        long[] values = {0, 1, 3, 4, 7, 8, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBoundOf(bucket - 1));
+        }
+    }
+
+    @Test
+    public void parse_recordsStagesBytesAndItems() throws Exception {
+        SearchMetrics metrics = SearchMetrics.getDefault();
+        metrics.reset();
+        byte[] body = ("{\"items\":[{\"id\":\"a\",\"volumeInfo\":{\"title\":\"One\"}},"
+                + "{\"id\":\"b\",\"volumeInfo\":{\"title\":\"Two\"}}]}").getBytes(Charset.forName("UTF-8"));
+
+        new BookStreamParser().parse(new ByteArrayInputStream(body));
+
+        assertEquals(body.length, metrics.getCount(SearchMetrics.Counter.BYTES));
+        assertEquals(2, metrics.getCount(SearchMetrics.Counter.ITEMS));
+        assertEquals(1, metrics.getHistogram(SearchMetrics.Stage.PARSE).getCount());
+        assertEquals(1, metrics.getHistogram(SearchMetrics.Stage.BODY_READ).getCount());
+        assertTrue(metrics.toJson().contains("\"items\":2"));
+        assertTrue(metrics.dump().contains("book_build"));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link StringTable}.
+ */
+public class StringTableTest {
+
+    @Test
+    public void intern_returnsOneInstancePerValue() {
+        StringTable table = new StringTable();
+        String first = table.intern(new String("Jane Austen"));
+        String second = table.intern(new String("Jane Austen"));
+
+        assertSame(first, second);
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void books_shareAuthorNameInstances() {
+        Book emma = new Book("v1", "Emma", Arrays.asList(new String("Jane Austen")));
+        Book persuasion = new Book("v2", "Persuasion", Arrays.asList(new String("Jane Austen")));
+
+        assertSame(emma.getAuthorNames().get(0), persuasion.getAuthorNames().get(0));
+    }
+}
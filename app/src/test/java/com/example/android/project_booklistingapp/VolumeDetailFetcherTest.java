@@ -0,0 +1,141 @@
+package com.example.android.project_booklistingapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link VolumeDetailFetcher}, run against a stub volumes endpoint on the loopback
+ * interface. Results are delivered to a queue the test drains, standing in for the main thread.
+ */
+public class VolumeDetailFetcherTest {
+
+    private HttpServer mServer;
+
+    /**
+     * Requests the server has answered
+     */
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    private final LinkedBlockingQueue<Runnable> mDeliveries = new LinkedBlockingQueue<Runnable>();
+
+    private final SearchExecutor mExecutor = new SearchExecutor(1, new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            mDeliveries.add(runnable);
+        }
+    });
+
+    private final List<String> mDelivered = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void startServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/volumes/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequestCount.incrementAndGet();
+                // Answer with a record titled after the requested ID
+                String id = exchange.getRequestURI().getPath().substring("/volumes/".length());
+                byte[] body = ("{\"id\":\"" + id + "\",\"volumeInfo\":{\"title\":\"Title " + id + "\"}}")
+                        .getBytes(Charset.forName("UTF-8"));
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdown();
+        mServer.stop(0);
+    }
+
+    private VolumeDetailFetcher newFetcher(int maxCachedDetails) {
+        return new VolumeDetailFetcher(new BookHttpClient(), mExecutor,
+                "http://127.0.0.1:" + mServer.getAddress().getPort() + "/volumes", maxCachedDetails);
+    }
+
+    /**
+     * Run the next delivery, as the main thread would.
+     */
+    private void deliverNext() throws InterruptedException {
+        Runnable delivery = mDeliveries.poll(5, TimeUnit.SECONDS);
+        assertNotNull(delivery);
+        delivery.run();
+    }
+
+    private SearchExecutor.Callback<VolumeDetail> record() {
+        return new SearchExecutor.Callback<VolumeDetail>() {
+            @Override
+            public void onResult(VolumeDetail result) {
+                mDelivered.add(result.getTitle());
+            }
+
+            @Override
+            public void onError(IOException e) {
+                mDelivered.add("error: " + e.getMessage());
+            }
+        };
+    }
+
+    @Test
+    public void load_joinsPrefetchAndIsThenServedFromCache() throws Exception {
+        VolumeDetailFetcher fetcher = newFetcher(10);
+        fetcher.prefetch(Arrays.asList("a"));
+        fetcher.load("a", record());
+        deliverNext();
+        assertEquals("[Title a]", mDelivered.toString());
+        assertEquals(1, mRequestCount.get());
+
+        // Opening it again needs no round trip, and delivers at once
+        fetcher.load("a", record());
+        assertEquals("[Title a, Title a]", mDelivered.toString());
+        assertEquals(1, mRequestCount.get());
+
+        // Already cached, so not prefetched again
+        fetcher.prefetch(Arrays.asList("a"));
+        assertTrue(mDeliveries.isEmpty());
+    }
+
+    @Test
+    public void cache_isBoundedLeastRecentlyUsedFirst() throws Exception {
+        VolumeDetailFetcher fetcher = newFetcher(2);
+        fetcher.prefetch(Arrays.asList("a", "b"));
+        deliverNext();
+        deliverNext();
+        assertNotNull(fetcher.getCached("a"));
+
+        // "b" is now the least recently used, so it makes way for "c"
+        fetcher.prefetch(Arrays.asList("c"));
+        deliverNext();
+        assertNotNull(fetcher.getCached("a"));
+        assertNull(fetcher.getCached("b"));
+        assertEquals("Title c", fetcher.getCached("c").getTitle());
+        assertTrue(mDelivered.isEmpty());
+    }
+}
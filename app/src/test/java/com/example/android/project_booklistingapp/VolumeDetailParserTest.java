@@ -0,0 +1,64 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link VolumeDetailParser}.
+ */
+public class VolumeDetailParserTest {
+
+    private static final String VOLUME = "{\"kind\":\"books#volume\",\"id\":\"pD6arNyKyi8C\","
+            + "\"volumeInfo\":{\"title\":\"The Hobbit\",\"subtitle\":\"There and Back Again\","
+            + "\"authors\":[\"J.R.R. Tolkien\"],\"publisher\":\"HarperCollins\",\"publishedDate\":\"2012\","
+            + "\"description\":\"<p>A <b>great</b> modern classic\\u2026</p>\",\"pageCount\":300,"
+            + "\"industryIdentifiers\":[{\"type\":\"ISBN_13\",\"identifier\":\"9780007458424\"}],"
+            + "\"categories\":[\"Fiction / Fantasy\"],"
+            + "\"imageLinks\":{\"smallThumbnail\":\"http://img/s\",\"thumbnail\":\"http://img/t\","
+            + "\"small\":\"http://img/m\",\"medium\":\"http://img/l\"},"
+            + "\"infoLink\":\"http://books/info\"},\"saleInfo\":{\"country\":\"GB\"}}";
+
+    private static VolumeDetail parse(String json) throws IOException {
+        byte[] bytes = json.getBytes(Charset.forName("UTF-8"));
+        return new VolumeDetailParser().parse(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void parse_readsFullRecordAndSkipsTheRest() throws Exception {
+        VolumeDetail detail = parse(VOLUME);
+
+        assertEquals("pD6arNyKyi8C", detail.getId());
+        assertEquals("The Hobbit", detail.getTitle());
+        assertEquals("There and Back Again", detail.getSubtitle());
+        assertEquals("[J.R.R. Tolkien]", detail.getAuthorNames().toString());
+        assertEquals("HarperCollins", detail.getPublisher());
+        assertEquals("2012", detail.getPublishedDate());
+        assertEquals("<p>A <b>great</b> modern classic\u2026</p>", detail.getDescription());
+        assertEquals(300, detail.getPageCount());
+        assertEquals("[Fiction / Fantasy]", detail.getCategories().toString());
+        // The detail screen's size is preferred over the list's thumbnail
+        assertEquals("http://img/m", detail.getThumbnailUrl());
+        assertEquals("http://books/info", detail.getInfoLink());
+    }
+
+    @Test
+    public void parse_leavesMissingFieldsUnset() throws Exception {
+        VolumeDetail detail = parse("{\"id\":\"x\",\"volumeInfo\":{\"title\":\"Untold\","
+                + "\"imageLinks\":{\"thumbnail\":\"http://img/t\"}}}");
+
+        assertNull(detail.getSubtitle());
+        assertNull(detail.getDescription());
+        assertEquals(-1, detail.getPageCount());
+        assertTrue(detail.getAuthorNames().isEmpty());
+        assertEquals("http://img/t", detail.getThumbnailUrl());
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsVolumeWithoutTitle() throws Exception {
+        parse("{\"id\":\"x\",\"volumeInfo\":{\"authors\":[\"Nobody\"]}}");
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.android.project_booklistingapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Benchmarks for reading a response body, as the client does once the bytes arrive. Compares the line-by-line
+ * StringBuilder read QueryUtils.readFromStream used to do with reading into a pooled buffer and decoding it once,
+ * and parsing off the stream with parsing the pooled bytes. Run with the gc profiler to see bytes allocated
+ * per read.
+ */
+@State(Scope.Benchmark)
+public class BodyReadBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Number of volumes in the response
+     */
+    @Param({"10", "40"})
+    public int itemCount;
+
+    private byte[] mResponse;
+    private ByteBufferPool mPool;
+    private BookStreamParser mParser;
+
+    @Setup
+    public void setUp() {
+        mResponse = ResponseFixtures.volumesResponse(itemCount);
+        mPool = new ByteBufferPool(ByteBufferPool.DEFAULT_MAX_POOLED_BYTES);
+        mParser = new BookStreamParser();
+    }
+
+    @Benchmark
+    public String lineByLineRead() throws IOException {
+        StringBuilder output = new StringBuilder();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(mResponse), UTF_8));
+        String line = reader.readLine();
+        while (line != null) {
+            output.append(line);
+            line = reader.readLine();
+        }
+        return output.toString();
+    }
+
+    @Benchmark
+    public String pooledReadAndDecode() throws IOException {
+        ByteBufferPool.Buffer body = mPool.readFully(new ByteArrayInputStream(mResponse), mResponse.length,
+                Integer.MAX_VALUE);
+        try {
+            return body.decodeUtf8();
+        } finally {
+            body.close();
+        }
+    }
+
+    @Benchmark
+    public List<Book> parseFromStream() throws IOException {
+        return mParser.parse(new ByteArrayInputStream(mResponse));
+    }
+
+    @Benchmark
+    public List<Book> pooledReadAndParse() throws IOException {
+        ByteBufferPool.Buffer body = mPool.readFully(new ByteArrayInputStream(mResponse), mResponse.length,
+                Integer.MAX_VALUE);
+        try {
+            return mParser.parse(body.getBytes(), 0, body.getLength());
+        } finally {
+            body.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.android.project_booklistingapp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmarks for parsing Google Books responses and formatting author strings.
+ * Compares the streaming parser against the JSONObject (DOM) extraction QueryUtils.extractBooks used to do.
+ * Book parceling is not measured here: Parcel only works on a device, so it cannot run on a plain JVM.
+ */
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    private static final String AUTHORS_UNKNOWN = "Author(s) unknown.";
+    private static final String AUTHORS_SEPARATOR = ", ";
+    private static final String AUTHORS_ALSO = " and ";
+
+    /**
+     * Number of volumes in the response
+     */
+    @Param({"10", "40", "1000"})
+    public int itemCount;
+
+    private byte[] mResponse;
+    private AuthorFormatter mAuthorFormatter;
+    private BookStreamParser mParser;
+    private List<String> mAuthorNames;
+
+    @Setup
+    public void setUp() {
+        mResponse = ResponseFixtures.volumesResponse(itemCount);
+        mAuthorFormatter = new DefaultAuthorFormatter(AUTHORS_UNKNOWN, AUTHORS_SEPARATOR, AUTHORS_ALSO);
+        mParser = new BookStreamParser();
+        mAuthorNames = Arrays.asList("J.R.R. Tolkien", "Christopher Tolkien", "Humphrey Carpenter");
+    }
+
+    @Benchmark
+    public List<Book> streamingParse() throws IOException {
+        return mParser.parse(new ByteArrayInputStream(mResponse));
+    }
+
+    @Benchmark
+    public List<Book> domParse() throws JSONException {
+        // Includes decoding the body to a String, as readFromStream does
+        return parseDom(new String(mResponse, Charset.forName("UTF-8")));
+    }
+
+    @Benchmark
+    public String formatAuthors() {
+        return mAuthorFormatter.format(mAuthorNames);
+    }
+
+    /**
+     * Same extraction as the removed QueryUtils.extractBooks, kept here as the baseline.
+     */
+    private static List<Book> parseDom(String json) throws JSONException {
+        List<Book> books = new ArrayList<Book>();
+        JSONObject jsonQuery = new JSONObject(json);
+        if (!jsonQuery.has("items")) {
+            return null;
+        }
+        JSONArray jsonBooks = jsonQuery.getJSONArray("items");
+        for (int i = 0; i < jsonBooks.length(); i++) {
+            JSONObject book = jsonBooks.getJSONObject(i);
+            JSONObject volumeInfo = book.getJSONObject("volumeInfo");
+            String title = volumeInfo.getString("title");
+            List<String> authorNames = null;
+            if (volumeInfo.has("authors")) {
+                JSONArray authorsJSON = volumeInfo.getJSONArray("authors");
+                authorNames = new ArrayList<String>(authorsJSON.length());
+                for (int j = 0; j < authorsJSON.length(); j++) {
+                    authorNames.add(authorsJSON.getString(j));
+                }
+            }
+            books.add(new Book(book.optString("id", null), title, authorNames));
+        }
+        return books;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.android.project_booklistingapp;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compares full volume responses with partial responses (fields= projection, no pretty-printing), as the
+ * client receives them: gzipped, then decompressed and parsed. Bytes on the wire and after decompression are
+ * reported per operation as auxiliary counters alongside the timings.
+ */
+@State(Scope.Benchmark)
+public class PayloadBenchmark {
+
+    /**
+     * Number of volumes in the response
+     */
+    @Param({"10", "40"})
+    public int itemCount;
+
+    /**
+     * "full" for whole volume resources, "projected" for the parser's fields only
+     */
+    @Param({"full", "projected"})
+    public String payload;
+
+    private byte[] mGzipped;
+    private byte[] mResponse;
+    private BookStreamParser mParser;
+
+    /**
+     * Per-operation byte counts, reported by JMH next to the timings
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Bytes {
+        public long wireBytes;
+        public long bodyBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            wireBytes = 0;
+            bodyBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        byte[] full = ResponseFixtures.volumesResponse(itemCount);
+        mResponse = "projected".equals(payload) ? ResponseFixtures.projectedResponse(full) : full;
+        mGzipped = ResponseFixtures.gzip(mResponse);
+        mParser = new BookStreamParser();
+    }
+
+    @Benchmark
+    public List<Book> gunzipAndParse(Bytes bytes) throws IOException {
+        bytes.wireBytes += mGzipped.length;
+        bytes.bodyBytes += mResponse.length;
+        return mParser.parse(new GZIPInputStream(new ByteArrayInputStream(mGzipped)));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.android.project_booklistingapp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds Google Books "volumes" responses for benchmarks.
+ * Items follow the shape of real responses (full volumeInfo, saleInfo, accessInfo and searchInfo), so the
+ * parser has to skip as much as it does in production. Content is generated from a fixed seed, so every run
+ * parses identical bytes.
+ */
+
+final class ResponseFixtures {
+
+    /**
+     * Pool of author names; real result pages repeat authors heavily
+     */
+    private static final String[] AUTHORS = {
+            "J.R.R. Tolkien", "Christopher Tolkien", "Humphrey Carpenter", "Ursula K. Le Guin",
+            "Terry Pratchett", "Neil Gaiman", "Octavia E. Butler", "Iain M. Banks"
+    };
+
+    private ResponseFixtures() {
+    }
+
+    /**
+     * @param itemCount number of volumes in the response
+     * @return UTF-8 bytes of the response
+     */
+    static byte[] volumesResponse(int itemCount) {
+        Random random = new Random(itemCount);
+        StringBuilder json = new StringBuilder(itemCount * 2048);
+        json.append("{\n \"kind\": \"books#volumes\",\n \"totalItems\": ").append(itemCount * 25)
+                .append(",\n \"items\": [\n");
+        for (int i = 0; i < itemCount; i++) {
+            if (i > 0) {
+                json.append(",\n");
+            }
+            appendVolume(json, i, random);
+        }
+        json.append("\n ]\n}\n");
+        return json.toString().getBytes(Charset.forName("UTF-8"));
+    }
+
+    /**
+     * Cut a full response down to what the server sends for a query with {@link BookStreamParser#FIELDS} and
+     * prettyPrint=false: only the projected fields, without whitespace.
+     *
+     * @param fullResponse UTF-8 bytes of a full response
+     * @return UTF-8 bytes of the partial response
+     */
+    static byte[] projectedResponse(byte[] fullResponse) {
+        try {
+            JSONObject full = new JSONObject(new String(fullResponse, Charset.forName("UTF-8")));
+            JSONObject projected = new JSONObject();
+            JSONArray items = full.optJSONArray("items");
+            if (items != null) {
+                JSONArray projectedItems = new JSONArray();
+                for (int i = 0; i < items.length(); i++) {
+                    JSONObject item = items.getJSONObject(i);
+                    JSONObject volumeInfo = item.getJSONObject("volumeInfo");
+                    JSONObject projectedInfo = new JSONObject();
+                    projectedInfo.put("title", volumeInfo.get("title"));
+                    projectedInfo.putOpt("authors", volumeInfo.opt("authors"));
+                    projectedInfo.putOpt("publishedDate", volumeInfo.opt("publishedDate"));
+                    projectedInfo.putOpt("language", volumeInfo.opt("language"));
+                    projectedInfo.putOpt("categories", volumeInfo.opt("categories"));
+                    JSONObject imageLinks = volumeInfo.optJSONObject("imageLinks");
+                    if (imageLinks != null) {
+                        JSONObject projectedLinks = new JSONObject();
+                        projectedLinks.putOpt("smallThumbnail", imageLinks.opt("smallThumbnail"));
+                        projectedLinks.putOpt("thumbnail", imageLinks.opt("thumbnail"));
+                        projectedInfo.put("imageLinks", projectedLinks);
+                    }
+                    projectedItems.put(new JSONObject().put("id", item.get("id")).put("volumeInfo", projectedInfo));
+                }
+                projected.put("items", projectedItems);
+            }
+            return projected.toString().getBytes(Charset.forName("UTF-8"));
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param response bytes to compress
+     * @return the bytes gzipped, as sent with Content-Encoding: gzip
+     */
+    static byte[] gzip(byte[] response) {
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(response.length / 4);
+            GZIPOutputStream out = new GZIPOutputStream(compressed);
+            out.write(response);
+            out.close();
+            return compressed.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void appendVolume(StringBuilder json, int index, Random random) {
+        String id = "vol" + Integer.toString(index * 7919, 36) + "AAAAJ";
+        json.append("  {\n   \"kind\": \"books#volume\",\n   \"id\": \"").append(id)
+                .append("\",\n   \"etag\": \"").append(Long.toString(random.nextLong(), 36))
+                .append("\",\n   \"selfLink\": \"https://www.googleapis.com/books/v1/volumes/").append(id)
+                .append("\",\n   \"volumeInfo\": {\n    \"title\": \"The Book of Lost Tales, Part ").append(index)
+                .append("\",\n    \"subtitle\": \"A \\\"collected\\\" edition \\u2014 volume ").append(index)
+                .append("\",\n    \"authors\": [");
+        int authorCount = 1 + random.nextInt(4);
+        for (int a = 0; a < authorCount; a++) {
+            json.append(a == 0 ? "\"" : ", \"").append(AUTHORS[random.nextInt(AUTHORS.length)]).append('"');
+        }
+        json.append("],\n    \"publisher\": \"Houghton Mifflin Harcourt\",\n    \"publishedDate\": \"")
+                .append(1950 + random.nextInt(70)).append("-0").append(1 + random.nextInt(9))
+                .append("-1").append(random.nextInt(10))
+                .append("\",\n    \"description\": \"");
+        int sentences = 3 + random.nextInt(8);
+        for (int s = 0; s < sentences; s++) {
+            json.append("In this volume the early myths and legends are gathered, annotated and discussed. ");
+        }
+        json.append("\",\n    \"industryIdentifiers\": [\n     {\"type\": \"ISBN_10\", \"identifier\": \"")
+                .append(1000000000L + index).append("\"},\n     {\"type\": \"ISBN_13\", \"identifier\": \"")
+                .append(9780000000000L + index).append("\"}\n    ],\n")
+                .append("    \"readingModes\": {\"text\": false, \"image\": true},\n")
+                .append("    \"pageCount\": ").append(100 + random.nextInt(900)).append(",\n")
+                .append("    \"printType\": \"BOOK\",\n    \"categories\": [\"Fiction\"],\n")
+                .append("    \"averageRating\": ").append(1 + random.nextInt(4)).append(".5,\n")
+                .append("    \"ratingsCount\": ").append(random.nextInt(500)).append(",\n")
+                .append("    \"maturityRating\": \"NOT_MATURE\",\n    \"allowAnonLogging\": false,\n")
+                .append("    \"contentVersion\": \"1.2.3.0.preview.1\",\n")
+                .append("    \"imageLinks\": {\n     \"smallThumbnail\": \"http://books.google.com/books/content?id=")
+                .append(id).append("&printsec=frontcover&img=1&zoom=5&source=gbs_api\",\n")
+                .append("     \"thumbnail\": \"http://books.google.com/books/content?id=")
+                .append(id).append("&printsec=frontcover&img=1&zoom=1&source=gbs_api\"\n    },\n")
+                .append("    \"language\": \"en\",\n")
+                .append("    \"previewLink\": \"http://books.google.com/books?id=").append(id).append("&hl=&source=gbs_api\",\n")
+                .append("    \"infoLink\": \"http://books.google.com/books?id=").append(id).append("&hl=&source=gbs_api\",\n")
+                .append("    \"canonicalVolumeLink\": \"https://books.google.com/books/about/x.html?hl=&id=").append(id)
+                .append("\"\n   },\n")
+                .append("   \"saleInfo\": {\"country\": \"US\", \"saleability\": \"NOT_FOR_SALE\", \"isEbook\": false},\n")
+                .append("   \"accessInfo\": {\"country\": \"US\", \"viewability\": \"PARTIAL\", \"embeddable\": true,")
+                .append(" \"publicDomain\": false, \"textToSpeechPermission\": \"ALLOWED\",")
+                .append(" \"epub\": {\"isAvailable\": false}, \"pdf\": {\"isAvailable\": false},")
+                .append(" \"webReaderLink\": \"http://play.google.com/books/reader?id=").append(id).append("\",")
+                .append(" \"accessViewStatus\": \"SAMPLE\", \"quoteSharingAllowed\": false},\n")
+                .append("   \"searchInfo\": {\"textSnippet\": \"The early myths &amp; legends, ")
+                .append("collected and annotated.\"}\n  }");
+    }
+}
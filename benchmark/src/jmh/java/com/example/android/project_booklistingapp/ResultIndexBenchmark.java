@@ -0,0 +1,78 @@
+package com.example.android.project_booklistingapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Benchmarks for sorting and filtering loaded results with {@link BookResultIndex}, as done off the main thread
+ * when the user picks another sort order or filter: indexing the books (sort keys computed once), sorting an
+ * indexed list, re-querying an order already built, and merging in one more page.
+ */
+@State(Scope.Benchmark)
+public class ResultIndexBenchmark {
+
+    /**
+     * Number of results held
+     */
+    @Param({"100", "10000"})
+    public int bookCount;
+
+    /**
+     * Size of the page appended
+     */
+    private static final int PAGE_SIZE = 40;
+
+    private List<Book> mBooks;
+    private List<Book> mPage;
+    private BookResultIndex mIndexed;
+    private BookResultIndex mSorted;
+
+    @Setup
+    public void parse() throws IOException {
+        BookStreamParser parser = new BookStreamParser();
+        mBooks = parser.parse(new ByteArrayInputStream(ResponseFixtures.volumesResponse(bookCount)));
+        mPage = parser.parse(new ByteArrayInputStream(ResponseFixtures.volumesResponse(PAGE_SIZE)));
+    }
+
+    @Setup(Level.Invocation)
+    public void index() {
+        mIndexed = new BookResultIndex(Locale.ENGLISH);
+        mIndexed.addAll(mBooks);
+        mSorted = new BookResultIndex(Locale.ENGLISH);
+        mSorted.addAll(mBooks);
+        mSorted.query(BookResultIndex.Sort.TITLE, BookResultIndex.Filter.NONE);
+    }
+
+    @Benchmark
+    public BookResultIndex indexBooks() {
+        BookResultIndex index = new BookResultIndex(Locale.ENGLISH);
+        index.addAll(mBooks);
+        return index;
+    }
+
+    @Benchmark
+    public BookResultIndex.Result sortByTitle() {
+        return mIndexed.query(BookResultIndex.Sort.TITLE, BookResultIndex.Filter.NONE);
+    }
+
+    @Benchmark
+    public BookResultIndex.Result filterSortedByLanguage() {
+        return mSorted.query(BookResultIndex.Sort.TITLE,
+                BookResultIndex.Filter.of(BookResultIndex.Facet.LANGUAGE, "en"));
+    }
+
+    @Benchmark
+    public BookResultIndex.Result appendPageToSorted() {
+        mSorted.addAll(mPage);
+        return mSorted.query(BookResultIndex.Sort.TITLE, BookResultIndex.Filter.NONE);
+    }
+}
@@ -0,0 +1,480 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Headless bulk lookup: resolves a file of titles, ISBNs or free-text queries to books, using the same engine
+ * (fetching, parsing, retries) as the app.
+ * <p>
+ * The input has one query per line; blank lines and lines starting with "#" are skipped. A bare ISBN-10 or
+ * ISBN-13 (hyphens allowed) is searched as "isbn:". Queries run with bounded concurrency and are started no
+ * faster than a rate limit. Each result is appended to the output as soon as it arrives, as one line of
+ * tab-separated fields:
+ * <pre>
+ * line  query  OK     id  title  authors  [id  title  authors ...]
+ * line  query  NONE
+ * line  query  ERROR  message
+ * </pre>
+ * where line is the query's line number in the input and authors are separated by "; ".
+ * Rerunning with the same output resumes: queries already answered (OK or NONE) are skipped, failed ones are
+ * tried again, and a line cut off by an interruption is discarded. For failed queries retried, the last line
+ * for a line number wins.
+ */
+
+public final class BulkLookup {
+
+    /**
+     * Result statuses written to the output
+     */
+    public static final String STATUS_OK = "OK";
+    public static final String STATUS_NONE = "NONE";
+    public static final String STATUS_ERROR = "ERROR";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Defaults for the command-line options
+     */
+    private static final int DEFAULT_MAX_RESULTS = 1;
+    private static final int DEFAULT_CONCURRENCY = 4;
+    private static final double DEFAULT_RATE = 10;
+
+    /**
+     * Retries for a failing query: the engine backs off between attempts and honours Retry-After
+     */
+    private static final RetryPolicy RETRY_POLICY = new RetryPolicy(3, 500, 8000, 0);
+
+    private static final String USAGE = "Usage: BulkLookup --input <queries file> --output <results file>\n"
+            + "    [--endpoint <volumes URL>]   default " + BookQuery.DEFAULT_ENDPOINT + "\n"
+            + "    [--max-results <n>]          books per query, default " + DEFAULT_MAX_RESULTS + "\n"
+            + "    [--concurrency <n>]          queries in flight, default " + DEFAULT_CONCURRENCY + "\n"
+            + "    [--rate <n>]                 queries started per second (0 for no limit), default "
+            + DEFAULT_RATE;
+
+    private final BookSearchEngine mEngine;
+
+    /**
+     * Volumes endpoint the queries are sent to
+     */
+    private final String mEndpoint;
+
+    /**
+     * Books wanted per query
+     */
+    private final int mMaxResults;
+
+    /**
+     * Maximum number of queries in flight
+     */
+    private final int mConcurrency;
+
+    private final RateLimiter mRateLimiter;
+
+    /**
+     * Constructor for a {@link BulkLookup}.
+     *
+     * @param engine      engine to run the queries with
+     * @param endpoint    volumes endpoint, e.g. {@link BookQuery#DEFAULT_ENDPOINT} or a local stub server
+     * @param maxResults  books wanted per query
+     * @param concurrency maximum number of queries in flight
+     * @param rateLimiter paces the start of each query
+     */
+    public BulkLookup(BookSearchEngine engine, String endpoint, int maxResults, int concurrency,
+                      RateLimiter rateLimiter) {
+        this.mEngine = engine;
+        this.mEndpoint = endpoint;
+        this.mMaxResults = maxResults;
+        this.mConcurrency = concurrency;
+        this.mRateLimiter = rateLimiter;
+    }
+
+    /**
+     * Look up every query in the input not already answered in the output, appending the results.
+     *
+     * @param input  file of queries, one per line
+     * @param output results file; created if missing, otherwise resumed
+     * @return {@link Report} of this run
+     * @throws IOException if either file cannot be read or written
+     */
+    public Report run(File input, File output) throws IOException {
+        final Report report = new Report();
+        Set<Integer> answered = readAnswered(output);
+
+        BufferedReader in = null;
+        final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output, true), UTF_8));
+        final Semaphore slots = new Semaphore(mConcurrency);
+        ExecutorService workers = Executors.newFixedThreadPool(mConcurrency, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "bulk-lookup");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long start = System.nanoTime();
+        try {
+            // Stream the input, so its size doesn't matter; the slots keep at most mConcurrency queries queued
+            in = new BufferedReader(new InputStreamReader(new FileInputStream(input), UTF_8));
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                final String query = line.trim();
+                if (query.isEmpty() || query.startsWith("#")) {
+                    continue;
+                }
+                if (answered.contains(lineNumber)) {
+                    report.addSkipped();
+                    continue;
+                }
+
+                acquire(slots, 1);
+                final int number = lineNumber;
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            lookUp(number, query, out, report);
+                        } finally {
+                            slots.release();
+                        }
+                    }
+                });
+            }
+
+            // Wait for the last queries to finish
+            acquire(slots, mConcurrency);
+        } finally {
+            workers.shutdownNow();
+            closeQuietly(in);
+            closeQuietly(out);
+        }
+        report.setElapsedNanos(System.nanoTime() - start);
+
+        IOException writeError = report.getWriteError();
+        if (writeError != null) {
+            throw writeError;
+        }
+        return report;
+    }
+
+    /**
+     * Look up one query and append its result line.
+     */
+    private void lookUp(int lineNumber, String query, Writer out, Report report) {
+        StringBuilder record = new StringBuilder(128);
+        record.append(lineNumber).append('\t').append(clean(query)).append('\t');
+        try {
+            mRateLimiter.acquire();
+            String url = new BookQuery(toTerms(query)).withEndpoint(mEndpoint).withMaxResults(mMaxResults).toUrl();
+
+            long start = System.nanoTime();
+            List<Book> books = mEngine.search(url, null);
+            report.addLatency(System.nanoTime() - start);
+
+            if (books == null || books.isEmpty()) {
+                record.append(STATUS_NONE);
+                report.addNotFound();
+            } else {
+                record.append(STATUS_OK);
+                for (Book book : books) {
+                    appendBook(record, book);
+                }
+                report.addFound();
+            }
+        } catch (IOException e) {
+            record.append(STATUS_ERROR).append('\t').append(clean(String.valueOf(e.getMessage())));
+            report.addFailed();
+        }
+        record.append('\n');
+
+        // One write per line, flushed at once, so an interruption loses at most the line being written
+        synchronized (out) {
+            try {
+                out.write(record.toString());
+                out.flush();
+            } catch (IOException e) {
+                report.setWriteError(e);
+            }
+        }
+    }
+
+    /**
+     * Append a book's id, title and authors as tab-separated fields.
+     */
+    private static void appendBook(StringBuilder record, Book book) {
+        record.append('\t').append(clean(book.getId()))
+                .append('\t').append(clean(book.getTitle()))
+                .append('\t');
+        List<String> authors = book.getAuthorNames();
+        for (int i = 0; i < authors.size(); i++) {
+            if (i > 0) {
+                record.append("; ");
+            }
+            record.append(clean(authors.get(i)));
+        }
+    }
+
+    /**
+     * Turn an input line into search terms: a bare ISBN is searched as one, anything else as typed.
+     *
+     * @param query trimmed input line
+     * @return search terms
+     */
+    static String toTerms(String query) {
+        String digits = query.replace("-", "").replace(" ", "");
+        if (digits.matches("\\d{9}[\\dXx]|\\d{13}")) {
+            return "isbn:" + digits.toUpperCase(Locale.ROOT);
+        }
+        return query;
+    }
+
+    /**
+     * Make a value safe for a tab-separated line.
+     */
+    private static String clean(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Read the line numbers of the queries already answered in a results file.
+     * A last line cut off by an interruption is removed, so new results start on a line of their own.
+     *
+     * @param output results file, which may not exist yet
+     * @return line numbers of queries answered with OK or NONE
+     */
+    private static Set<Integer> readAnswered(File output) throws IOException {
+        Set<Integer> answered = new HashSet<Integer>();
+        if (!output.exists()) {
+            return answered;
+        }
+
+        RandomAccessFile file = new RandomAccessFile(output, "rw");
+        try {
+            long end = file.length();
+            while (end > 0) {
+                file.seek(end - 1);
+                if (file.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            file.setLength(end);
+        } finally {
+            file.close();
+        }
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(output), UTF_8));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split("\t", 4);
+                if (fields.length < 3 || STATUS_ERROR.equals(fields[2])) {
+                    continue;
+                }
+                try {
+                    answered.add(Integer.parseInt(fields[0]));
+                } catch (NumberFormatException e) {
+                    // Not a result line
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return answered;
+    }
+
+    private static void acquire(Semaphore semaphore, int permits) throws IOException {
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for lookups");
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing useful to do
+            }
+        }
+    }
+
+    /**
+     * Counts and latencies of one run. Latency is that of the engine's search, including its retries but not
+     * the wait for the rate limit.
+     */
+    public static final class Report {
+        private int mFound = 0;
+        private int mNotFound = 0;
+        private int mFailed = 0;
+        private int mSkipped = 0;
+        private long mElapsedNanos = 0;
+        private IOException mWriteError;
+        private final LatencyHistogram mLatency = new LatencyHistogram();
+
+        private synchronized void addFound() {
+            mFound++;
+        }
+
+        private synchronized void addNotFound() {
+            mNotFound++;
+        }
+
+        private synchronized void addFailed() {
+            mFailed++;
+        }
+
+        private synchronized void addSkipped() {
+            mSkipped++;
+        }
+
+        private void addLatency(long nanos) {
+            mLatency.record(nanos);
+        }
+
+        private synchronized void setElapsedNanos(long nanos) {
+            mElapsedNanos = nanos;
+        }
+
+        private synchronized void setWriteError(IOException e) {
+            if (mWriteError == null) {
+                mWriteError = e;
+            }
+        }
+
+        private synchronized IOException getWriteError() {
+            return mWriteError;
+        }
+
+        /**
+         * @return queries answered with at least one book
+         */
+        public synchronized int getFound() {
+            return mFound;
+        }
+
+        /**
+         * @return queries answered with no books
+         */
+        public synchronized int getNotFound() {
+            return mNotFound;
+        }
+
+        /**
+         * @return queries that failed; rerun to retry them
+         */
+        public synchronized int getFailed() {
+            return mFailed;
+        }
+
+        /**
+         * @return queries skipped because an earlier run answered them
+         */
+        public synchronized int getSkipped() {
+            return mSkipped;
+        }
+
+        /**
+         * @return queries looked up in this run
+         */
+        public synchronized int getLookups() {
+            return mFound + mNotFound + mFailed;
+        }
+
+        /**
+         * @return search latencies of this run
+         */
+        public LatencyHistogram getLatency() {
+            return mLatency;
+        }
+
+        @Override
+        public synchronized String toString() {
+            double seconds = mElapsedNanos / 1e9;
+            return String.format(Locale.US,
+                    "Looked up %d queries in %.1f s (%.1f/s): %d found, %d not found, %d failed, %d already done%n"
+                            + "Latency ms: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f, mean %.1f",
+                    getLookups(), seconds, seconds > 0 ? getLookups() / seconds : 0.0,
+                    mFound, mNotFound, mFailed, mSkipped,
+                    millis(mLatency.getPercentile(50)), millis(mLatency.getPercentile(90)),
+                    millis(mLatency.getPercentile(99)), millis(mLatency.getMax()), millis(mLatency.getMean()));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+
+    /**
+     * Run a bulk lookup from the command line. Exits with 1 if any query failed (rerun to retry them),
+     * or 2 on a usage error.
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = ToolOptions.parse(args, USAGE);
+        if (!options.containsKey("input") || !options.containsKey("output")) {
+            exitWithUsage("--input and --output are required");
+        }
+
+        int concurrency = DEFAULT_CONCURRENCY;
+        int maxResults = DEFAULT_MAX_RESULTS;
+        double rate = DEFAULT_RATE;
+        try {
+            if (options.containsKey("concurrency")) {
+                concurrency = Integer.parseInt(options.get("concurrency"));
+            }
+            if (options.containsKey("max-results")) {
+                maxResults = Integer.parseInt(options.get("max-results"));
+            }
+            if (options.containsKey("rate")) {
+                rate = Double.parseDouble(options.get("rate"));
+            }
+        } catch (NumberFormatException e) {
+            exitWithUsage("Not a number: " + e.getMessage());
+        }
+        if (concurrency < 1 || maxResults < 1) {
+            exitWithUsage("--concurrency and --max-results must be at least 1");
+        }
+        String endpoint = options.containsKey("endpoint") ? options.get("endpoint") : BookQuery.DEFAULT_ENDPOINT;
+
+        // Keep one idle connection per worker, and no cache: every query is looked up once.
+        // The keep-alive pool is the JVM's, so it is sized for the whole process, before any request is made.
+        System.setProperty("http.maxConnections", Integer.toString(concurrency));
+        BookHttpClient httpClient = new BookHttpClient();
+        BookSearchEngine engine = new BookSearchEngine(httpClient, null, null,
+                BookSearchEngine.newPageExecutor(1), RETRY_POLICY, null);
+
+        Report report = new BulkLookup(engine, endpoint, maxResults, concurrency, new RateLimiter(rate))
+                .run(new File(options.get("input")), new File(options.get("output")));
+        System.out.println(report);
+        System.exit(report.getFailed() > 0 ? 1 : 0);
+    }
+
+    private static void exitWithUsage(String message) {
+        ToolOptions.exitWithUsage(message, USAGE);
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Load generator for the search path: drives the app's engine (fetching, decompression, parsing, caching)
+ * at a target rate of searches per second, and reports throughput and latency percentiles. Meant to be run
+ * against {@link StubBooksServer}, to size pools and caches without touching the real API.
+ * <p>
+ * Searches are started on schedule whether or not earlier ones have finished (an open loop), up to a limit
+ * on searches in flight. A search's latency is measured from when it was due to start, so time spent
+ * waiting for a free slot once the limit is reached counts against it rather than being hidden.
+ */
+
+public final class LoadGenerator {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Defaults for the command-line options
+     */
+    private static final double DEFAULT_QPS = 20;
+    private static final int DEFAULT_DURATION_SECONDS = 30;
+    private static final int DEFAULT_CONCURRENCY = 16;
+    private static final int DEFAULT_DISTINCT_QUERIES = 100;
+    private static final int DEFAULT_MAX_RESULTS = 20;
+
+    /**
+     * Disk tier of the cache, when one is used; only memory hits are wanted, so it is kept small
+     */
+    private static final long CACHE_DISK_BYTES = 1024 * 1024;
+    private static final long CACHE_DEFAULT_FRESH_MS = 10L * 60 * 1000;
+
+    private static final String USAGE = "Usage: LoadGenerator --endpoint <volumes URL>\n"
+            + "    [--qps <n>]                  searches started per second, default " + DEFAULT_QPS + "\n"
+            + "    [--duration <seconds>]       default " + DEFAULT_DURATION_SECONDS + "\n"
+            + "    [--concurrency <n>]          most searches in flight, default " + DEFAULT_CONCURRENCY + "\n"
+            + "    [--queries <file>]           search terms, one per line; default synthetic\n"
+            + "    [--distinct <n>]             synthetic distinct queries, default " + DEFAULT_DISTINCT_QUERIES
+            + "\n"
+            + "    [--max-results <n>]          books per search, default " + DEFAULT_MAX_RESULTS + "\n"
+            + "    [--cache-entries <n>]        result cache size, default 0 (no cache)";
+
+    private final BookSearchEngine mEngine;
+
+    /**
+     * Query URLs to pick from, each equally likely
+     */
+    private final List<String> mUrls;
+
+    /**
+     * Maximum number of searches in flight
+     */
+    private final int mConcurrency;
+
+    private final RateLimiter mRateLimiter;
+
+    /**
+     * Picks the next query; seeded, so runs are repeatable
+     */
+    private final Random mRandom = new Random(0);
+
+    /**
+     * Constructor for a {@link LoadGenerator}.
+     *
+     * @param engine      engine to search with
+     * @param urls        query URLs to pick from at random
+     * @param concurrency maximum number of searches in flight
+     * @param rateLimiter paces the start of each search, i.e. the target rate
+     */
+    public LoadGenerator(BookSearchEngine engine, List<String> urls, int concurrency, RateLimiter rateLimiter) {
+        this.mEngine = engine;
+        this.mUrls = new ArrayList<String>(urls);
+        this.mConcurrency = concurrency;
+        this.mRateLimiter = rateLimiter;
+    }
+
+    /**
+     * Start searches at the target rate for a while, then wait for the last ones to finish.
+     *
+     * @param durationMs how long to keep starting searches
+     * @return {@link Report} of the run
+     * @throws IOException if interrupted
+     */
+    public Report run(long durationMs) throws IOException {
+        final Report report = new Report();
+        final Semaphore slots = new Semaphore(mConcurrency);
+        ExecutorService workers = Executors.newFixedThreadPool(mConcurrency, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "load-generator");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long start = System.nanoTime();
+        long end = start + durationMs * 1000000L;
+        try {
+            while (System.nanoTime() - end < 0) {
+                mRateLimiter.acquire();
+                final long due = System.nanoTime();
+                final String url = mUrls.get(mRandom.nextInt(mUrls.size()));
+                acquire(slots, 1);
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            mEngine.search(url, null);
+                            report.addSucceeded(System.nanoTime() - due);
+                        } catch (IOException e) {
+                            report.addFailed(System.nanoTime() - due);
+                        } finally {
+                            slots.release();
+                        }
+                    }
+                });
+            }
+
+            // Wait for the last searches to finish
+            acquire(slots, mConcurrency);
+        } finally {
+            workers.shutdownNow();
+        }
+        report.setElapsedNanos(System.nanoTime() - start);
+        return report;
+    }
+
+    private static void acquire(Semaphore semaphore, int permits) throws IOException {
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for searches");
+        }
+    }
+
+    /**
+     * Counts and latencies of one run. Failed searches count towards latency too, as a slow failure is
+     * still time the user waited.
+     */
+    public static final class Report {
+        private int mSucceeded = 0;
+        private int mFailed = 0;
+        private long mElapsedNanos = 0;
+        private final LatencyHistogram mLatency = new LatencyHistogram();
+
+        private void addSucceeded(long nanos) {
+            mLatency.record(nanos);
+            synchronized (this) {
+                mSucceeded++;
+            }
+        }
+
+        private void addFailed(long nanos) {
+            mLatency.record(nanos);
+            synchronized (this) {
+                mFailed++;
+            }
+        }
+
+        private synchronized void setElapsedNanos(long nanos) {
+            mElapsedNanos = nanos;
+        }
+
+        /**
+         * @return searches that returned results (possibly none)
+         */
+        public synchronized int getSucceeded() {
+            return mSucceeded;
+        }
+
+        /**
+         * @return searches that failed
+         */
+        public synchronized int getFailed() {
+            return mFailed;
+        }
+
+        /**
+         * @return searches finished per second over the run
+         */
+        public synchronized double getThroughput() {
+            return mElapsedNanos > 0 ? (mSucceeded + mFailed) / (mElapsedNanos / 1e9) : 0.0;
+        }
+
+        /**
+         * @return search latencies of the run
+         */
+        public LatencyHistogram getLatency() {
+            return mLatency;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(Locale.US,
+                    "Ran %d searches in %.1f s (%.1f/s): %d succeeded, %d failed%n"
+                            + "Latency ms: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f, mean %.1f",
+                    mSucceeded + mFailed, mElapsedNanos / 1e9, getThroughput(), mSucceeded, mFailed,
+                    millis(mLatency.getPercentile(50)), millis(mLatency.getPercentile(90)),
+                    millis(mLatency.getPercentile(99)), millis(mLatency.getMax()), millis(mLatency.getMean()));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+
+    /**
+     * Run a load test from the command line, printing the report and the engine's per-stage metrics.
+     * Exits with 2 on a usage error.
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = ToolOptions.parse(args, USAGE);
+        // No default, so a load test never goes to the real API by accident
+        if (!options.containsKey("endpoint")) {
+            ToolOptions.exitWithUsage("--endpoint is required", USAGE);
+        }
+
+        double qps = DEFAULT_QPS;
+        int durationSeconds = DEFAULT_DURATION_SECONDS;
+        int concurrency = DEFAULT_CONCURRENCY;
+        int distinct = DEFAULT_DISTINCT_QUERIES;
+        int maxResults = DEFAULT_MAX_RESULTS;
+        int cacheEntries = 0;
+        try {
+            if (options.containsKey("qps")) {
+                qps = Double.parseDouble(options.get("qps"));
+            }
+            if (options.containsKey("duration")) {
+                durationSeconds = Integer.parseInt(options.get("duration"));
+            }
+            if (options.containsKey("concurrency")) {
+                concurrency = Integer.parseInt(options.get("concurrency"));
+            }
+            if (options.containsKey("distinct")) {
+                distinct = Integer.parseInt(options.get("distinct"));
+            }
+            if (options.containsKey("max-results")) {
+                maxResults = Integer.parseInt(options.get("max-results"));
+            }
+            if (options.containsKey("cache-entries")) {
+                cacheEntries = Integer.parseInt(options.get("cache-entries"));
+            }
+        } catch (NumberFormatException e) {
+            ToolOptions.exitWithUsage("Not a number: " + e.getMessage(), USAGE);
+        }
+        if (qps <= 0 || concurrency < 1 || distinct < 1 || maxResults < 1) {
+            ToolOptions.exitWithUsage("--qps, --concurrency, --distinct and --max-results must be positive", USAGE);
+        }
+
+        List<String> terms = new ArrayList<String>();
+        if (options.containsKey("queries")) {
+            for (String line : Files.readAllLines(new File(options.get("queries")).toPath(), UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    terms.add(line);
+                }
+            }
+        } else {
+            for (int i = 0; i < distinct; i++) {
+                terms.add("load test " + i);
+            }
+        }
+        if (terms.isEmpty()) {
+            ToolOptions.exitWithUsage("No queries in " + options.get("queries"), USAGE);
+        }
+        List<String> urls = new ArrayList<String>(terms.size());
+        for (String term : terms) {
+            urls.add(new BookQuery(term).withEndpoint(options.get("endpoint")).withMaxResults(maxResults).toUrl());
+        }
+
+        // One idle connection per search in flight. The keep-alive pool is the JVM's, so it is sized for the
+        // whole process, before any request is made.
+        System.setProperty("http.maxConnections", Integer.toString(concurrency));
+        BookHttpClient httpClient = new BookHttpClient();
+        BookCache cache = null;
+        File cacheDirectory = null;
+        if (cacheEntries > 0) {
+            cacheDirectory = Files.createTempDirectory("load-generator").toFile();
+            cache = new BookCache(cacheDirectory, cacheEntries, CACHE_DISK_BYTES, CACHE_DEFAULT_FRESH_MS);
+        }
+        BookSearchEngine engine = new BookSearchEngine(httpClient, cache, BookSearchEngine.newPageExecutor(1));
+
+        Report report = new LoadGenerator(engine, urls, concurrency, new RateLimiter(qps))
+                .run(durationSeconds * 1000L);
+        System.out.println(report);
+        if (cache != null) {
+            System.out.println(String.format(Locale.US, "Cache: %d memory hits, %d disk hits, %d misses",
+                    cache.getMemoryHitCount(), cache.getDiskHitCount(), cache.getMissCount()));
+            deleteRecursively(cacheDirectory);
+        }
+        System.out.println(SearchMetrics.getDefault().dump());
+        System.exit(0);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
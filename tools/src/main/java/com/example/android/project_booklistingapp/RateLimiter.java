@@ -0,0 +1,60 @@
+package com.example.android.project_booklistingapp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Spaces out events to a fixed rate, shared by any number of threads.
+ * Each caller reserves the next free slot and sleeps until it, so bursts are smoothed rather than allowed
+ * and the rate holds however many threads are waiting.
+ */
+
+public final class RateLimiter {
+
+    /**
+     * Time between slots, in nanoseconds
+     */
+    private final long mIntervalNanos;
+
+    /**
+     * Time of the next free slot, from {@link System#nanoTime()}
+     */
+    private long mNextSlotNanos = Long.MIN_VALUE;
+
+    /**
+     * Constructor for a {@link RateLimiter}.
+     *
+     * @param permitsPerSecond events allowed per second; 0 or less for no limit
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this.mIntervalNanos = permitsPerSecond > 0 ? (long) (1000000000L / permitsPerSecond) : 0;
+    }
+
+    /**
+     * Wait for the next slot.
+     *
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public void acquire() throws IOException {
+        if (mIntervalNanos == 0) {
+            return;
+        }
+
+        long slot;
+        synchronized (this) {
+            long now = System.nanoTime();
+            slot = mNextSlotNanos == Long.MIN_VALUE || mNextSlotNanos - now < 0 ? now : mNextSlotNanos;
+            mNextSlotNanos = slot + mIntervalNanos;
+        }
+
+        long waitNanos = slot - System.nanoTime();
+        if (waitNanos > 0) {
+            try {
+                Thread.sleep(waitNanos / 1000000L, (int) (waitNanos % 1000000L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for rate limit");
+            }
+        }
+    }
+}
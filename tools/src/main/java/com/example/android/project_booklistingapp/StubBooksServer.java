@@ -0,0 +1,383 @@
+package com.example.android.project_booklistingapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the Google Books volumes endpoint, for load tests and for pointing a debug build at
+ * (see BOOKS_ENDPOINT in the app's build.gradle) without any network access.
+ * <p>
+ * Serves searches at /books/v1/volumes?q=... and single volumes at /books/v1/volumes/{id}. A response
+ * recorded from the real API is served if the recorded directory has one: a search from the file named after
+ * its canonical terms with every character other than a letter or digit replaced by "_" (e.g.
+ * tolkien_hobbit.json), and a volume from volume_{id}.json. Anything else is synthesized, deterministically
+ * from the request: a search returns maxResults items (10 by default) of a thousand, honouring startIndex.
+ * Synthetic volumes carry a description of a configurable size, to set the payload size; the fields
+ * parameter is ignored, as the app's parsers skip what they do not read.
+ * <p>
+ * Every response is delayed by a fixed latency plus random jitter, and a configurable fraction of requests
+ * fail with 503. Bodies are gzipped when the client accepts it, as the real API does.
+ */
+
+public final class StubBooksServer {
+
+    /**
+     * Path of the volumes endpoint, as on the real API
+     */
+    public static final String VOLUMES_PATH = "/books/v1/volumes";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Results per search page when maxResults is not given, and the most a page may ask for
+     */
+    private static final int DEFAULT_MAX_RESULTS = 10;
+    private static final int MAX_MAX_RESULTS = 40;
+
+    /**
+     * Number of results every synthetic search claims to have
+     */
+    private static final int SYNTHETIC_TOTAL_ITEMS = 1000;
+
+    /**
+     * Defaults for the command-line options
+     */
+    private static final int DEFAULT_PORT = 8080;
+    private static final long DEFAULT_LATENCY_MS = 100;
+    private static final long DEFAULT_JITTER_MS = 50;
+    private static final int DEFAULT_DESCRIPTION_BYTES = 500;
+
+    private static final String USAGE = "Usage: StubBooksServer\n"
+            + "    [--port <n>]                 default " + DEFAULT_PORT + "\n"
+            + "    [--latency-ms <n>]           added to every response, default " + DEFAULT_LATENCY_MS + "\n"
+            + "    [--jitter-ms <n>]            random extra latency, up to, default " + DEFAULT_JITTER_MS + "\n"
+            + "    [--error-rate <0..1>]        fraction of requests failing with 503, default 0\n"
+            + "    [--description-bytes <n>]    per synthetic volume, default " + DEFAULT_DESCRIPTION_BYTES + "\n"
+            + "    [--recorded <directory>]     recorded responses to serve";
+
+    private final HttpServer mServer;
+    private final ExecutorService mHandlerThreads = Executors.newCachedThreadPool();
+
+    private final long mLatencyMs;
+    private final long mJitterMs;
+    private final double mErrorRate;
+    private final int mDescriptionBytes;
+
+    /**
+     * Directory of recorded responses, or null to synthesize them all
+     */
+    private final File mRecordedDirectory;
+
+    private final Random mRandom = new Random();
+
+    /**
+     * Requests answered, and those answered with an error
+     */
+    private final AtomicLong mRequestCount = new AtomicLong();
+    private final AtomicLong mErrorCount = new AtomicLong();
+
+    /**
+     * Constructor for a {@link StubBooksServer}, on the loopback interface.
+     *
+     * @param port              port to listen on, or 0 for any free one
+     * @param latencyMs         delay before every response
+     * @param jitterMs          most random delay added on top
+     * @param errorRate         fraction of requests answered with 503, from 0 to 1
+     * @param descriptionBytes  length of each synthetic volume's description
+     * @param recordedDirectory recorded responses to serve, or null for none
+     * @throws IOException if the port cannot be bound
+     */
+    public StubBooksServer(int port, long latencyMs, long jitterMs, double errorRate, int descriptionBytes,
+                           File recordedDirectory) throws IOException {
+        this.mLatencyMs = latencyMs;
+        this.mJitterMs = jitterMs;
+        this.mErrorRate = errorRate;
+        this.mDescriptionBytes = descriptionBytes;
+        this.mRecordedDirectory = recordedDirectory;
+        this.mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.mServer.createContext(VOLUMES_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    answer(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        // One thread per request in flight, so latency overlaps as it would upstream
+        this.mServer.setExecutor(mHandlerThreads);
+    }
+
+    /**
+     * Start serving.
+     */
+    public void start() {
+        mServer.start();
+    }
+
+    /**
+     * Stop serving, dropping requests in flight.
+     */
+    public void stop() {
+        mServer.stop(0);
+        mHandlerThreads.shutdownNow();
+    }
+
+    /**
+     * @return volumes endpoint URL to give clients
+     */
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + VOLUMES_PATH;
+    }
+
+    /**
+     * @return requests answered so far
+     */
+    public long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * @return requests answered with an error so far
+     */
+    public long getErrorCount() {
+        return mErrorCount.get();
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        mRequestCount.incrementAndGet();
+        pause(mLatencyMs + (mJitterMs > 0 ? (long) (mRandom.nextDouble() * mJitterMs) : 0));
+
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            mErrorCount.incrementAndGet();
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+        if (mErrorRate > 0 && mRandom.nextDouble() < mErrorRate) {
+            mErrorCount.incrementAndGet();
+            exchange.sendResponseHeaders(503, -1);
+            return;
+        }
+
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        String json;
+        if (path.length() > VOLUMES_PATH.length() + 1) {
+            String volumeId = path.substring(VOLUMES_PATH.length() + 1);
+            json = recorded("volume_" + fileNameOf(volumeId));
+            if (json == null) {
+                json = syntheticVolume(volumeId, volumeId.hashCode() & Integer.MAX_VALUE, true);
+            }
+        } else if (params.containsKey("q")) {
+            String terms = QueryCanonicalizer.canonicalize(params.get("q"));
+            json = recorded(fileNameOf(terms));
+            if (json == null) {
+                json = syntheticSearch(terms, intParam(params, "startIndex", 0),
+                        Math.min(intParam(params, "maxResults", DEFAULT_MAX_RESULTS), MAX_MAX_RESULTS));
+            }
+        } else {
+            mErrorCount.incrementAndGet();
+            exchange.sendResponseHeaders(400, -1);
+            return;
+        }
+
+        byte[] body = json.getBytes(UTF_8);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+            GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+            gzip.write(body);
+            gzip.close();
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    /**
+     * @return the recorded response of the given name, or null if there is none
+     */
+    private String recorded(String name) throws IOException {
+        if (mRecordedDirectory == null) {
+            return null;
+        }
+        File file = new File(mRecordedDirectory, name + ".json");
+        return file.isFile() ? new String(Files.readAllBytes(file.toPath()), UTF_8) : null;
+    }
+
+    /**
+     * Build a page of search results; the same request always gets the same page.
+     */
+    private String syntheticSearch(String terms, int startIndex, int maxResults) {
+        StringBuilder json = new StringBuilder(256 + maxResults * (mDescriptionBytes + 256));
+        json.append("{\"kind\":\"books#volumes\",\"totalItems\":").append(SYNTHETIC_TOTAL_ITEMS);
+        int end = Math.min(startIndex + maxResults, SYNTHETIC_TOTAL_ITEMS);
+        if (startIndex < end) {
+            json.append(",\"items\":[");
+            int seed = terms.hashCode() & Integer.MAX_VALUE;
+            for (int index = startIndex; index < end; index++) {
+                if (index > startIndex) {
+                    json.append(',');
+                }
+                json.append(syntheticVolume("stub-" + seed + "-" + index, seed + index, false));
+            }
+            json.append(']');
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Build one volume resource.
+     *
+     * @param number varies the fields between volumes
+     * @param full   whether to add the fields only a single-volume response has
+     */
+    private String syntheticVolume(String volumeId, int number, boolean full) {
+        StringBuilder json = new StringBuilder(256 + mDescriptionBytes);
+        json.append("{\"kind\":\"books#volume\",\"id\":").append(quote(volumeId))
+                .append(",\"volumeInfo\":{\"title\":").append(quote("Stub volume " + volumeId))
+                .append(",\"authors\":[").append(quote("Author " + number % 97));
+        if (number % 3 == 0) {
+            json.append(',').append(quote("Author " + number % 89));
+        }
+        json.append("],\"publisher\":\"Stub Press\",\"publishedDate\":\"").append(1900 + number % 120)
+                .append("\",\"description\":\"");
+        for (int i = 0; i < mDescriptionBytes; i++) {
+            json.append((char) ('a' + (number + i) % 26));
+        }
+        json.append("\",\"pageCount\":").append(100 + number % 900)
+                .append(",\"categories\":[\"Category ").append(number % 7)
+                .append("\"],\"language\":\"").append(number % 5 == 0 ? "fr" : "en").append('"');
+        if (full) {
+            json.append(",\"subtitle\":\"A synthetic volume\",\"infoLink\":\"http://127.0.0.1/info/")
+                    .append(number).append('"');
+        }
+        return json.append("}}").toString();
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws IOException {
+        Map<String, String> params = new HashMap<String, String>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(pair.substring(0, equals), URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        try {
+            return params.containsKey(name) ? Math.max(0, Integer.parseInt(params.get(name))) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return the value with every character other than a letter or digit replaced by "_"
+     */
+    static String fileNameOf(String value) {
+        StringBuilder name = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            name.append(Character.isLetterOrDigit(c) ? c : '_');
+        }
+        return name.toString();
+    }
+
+    /**
+     * @return the value as a JSON string literal
+     */
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static void pause(long delayMs) {
+        if (delayMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run the stub server from the command line until the process is stopped. Exits with 2 on a usage error.
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = ToolOptions.parse(args, USAGE);
+
+        int port = DEFAULT_PORT;
+        long latencyMs = DEFAULT_LATENCY_MS;
+        long jitterMs = DEFAULT_JITTER_MS;
+        double errorRate = 0;
+        int descriptionBytes = DEFAULT_DESCRIPTION_BYTES;
+        try {
+            if (options.containsKey("port")) {
+                port = Integer.parseInt(options.get("port"));
+            }
+            if (options.containsKey("latency-ms")) {
+                latencyMs = Long.parseLong(options.get("latency-ms"));
+            }
+            if (options.containsKey("jitter-ms")) {
+                jitterMs = Long.parseLong(options.get("jitter-ms"));
+            }
+            if (options.containsKey("error-rate")) {
+                errorRate = Double.parseDouble(options.get("error-rate"));
+            }
+            if (options.containsKey("description-bytes")) {
+                descriptionBytes = Integer.parseInt(options.get("description-bytes"));
+            }
+        } catch (NumberFormatException e) {
+            ToolOptions.exitWithUsage("Not a number: " + e.getMessage(), USAGE);
+        }
+        if (errorRate < 0 || errorRate > 1) {
+            ToolOptions.exitWithUsage("--error-rate must be between 0 and 1", USAGE);
+        }
+        File recorded = options.containsKey("recorded") ? new File(options.get("recorded")) : null;
+
+        StubBooksServer server = new StubBooksServer(port, latencyMs, jitterMs, errorRate, descriptionBytes,
+                recorded);
+        server.start();
+        System.out.println("Serving " + server.getEndpoint());
+    }
+}
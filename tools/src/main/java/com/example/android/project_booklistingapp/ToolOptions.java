@@ -0,0 +1,44 @@
+package com.example.android.project_booklistingapp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command-line option parsing shared by the tools: every option is a "--name value" pair.
+ */
+
+final class ToolOptions {
+
+    private ToolOptions() {
+    }
+
+    /**
+     * Read "--name value" pairs, exiting with the usage on anything else.
+     *
+     * @param args  command-line arguments
+     * @param usage text printed on a usage error
+     * @return values by option name, without the leading "--"
+     */
+    static Map<String, String> parse(String[] args, String usage) {
+        Map<String, String> options = new HashMap<String, String>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                exitWithUsage("Unexpected argument: " + args[i], usage);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        if (args.length % 2 != 0) {
+            exitWithUsage("Missing value for " + args[args.length - 1], usage);
+        }
+        return options;
+    }
+
+    /**
+     * Print a usage error and exit with 2.
+     */
+    static void exitWithUsage(String message, String usage) {
+        System.err.println(message);
+        System.err.println(usage);
+        System.exit(2);
+    }
+}
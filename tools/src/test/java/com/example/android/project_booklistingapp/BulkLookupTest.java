@@ -0,0 +1,136 @@
+package com.example.android.project_booklistingapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BulkLookup}, against a stub server.
+ * The stub answers queries containing "none" with no items and queries containing "bad" with 400.
+ */
+public class BulkLookupTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private HttpServer mServer;
+
+    private File mInput;
+    private File mOutput;
+
+    private final List<String> mQueries = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/volumes", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String rawQuery = exchange.getRequestURI().getRawQuery();
+                String q = URLDecoder.decode(rawQuery.substring(2, rawQuery.indexOf('&')), "UTF-8");
+                mQueries.add(q);
+
+                if (q.contains("bad")) {
+                    exchange.sendResponseHeaders(400, -1);
+                    exchange.close();
+                    return;
+                }
+                String json = q.contains("none") ? "{}"
+                        : "{\"items\":[{\"id\":\"id-" + q.length() + "\",\"volumeInfo\":{\"title\":\"Title\\t"
+                        + q + "\",\"authors\":[\"Ann\",\"Bo\"]}}]}";
+                byte[] body = json.getBytes(UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        mServer.start();
+
+        mInput = File.createTempFile("bulk-input", ".txt");
+        mOutput = File.createTempFile("bulk-output", ".tsv");
+        mOutput.delete();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+        mInput.delete();
+        mOutput.delete();
+    }
+
+    private BulkLookup lookup() {
+        BookSearchEngine engine = new BookSearchEngine(new BookHttpClient(), null,
+                BookSearchEngine.newPageExecutor(1));
+        String endpoint = "http://127.0.0.1:" + mServer.getAddress().getPort() + "/volumes";
+        return new BulkLookup(engine, endpoint, 1, 2, new RateLimiter(0));
+    }
+
+    private static void write(File file, String text, boolean append) throws IOException {
+        OutputStream out = new FileOutputStream(file, append);
+        out.write(text.getBytes(UTF_8));
+        out.close();
+    }
+
+    private List<String> outputLines() throws IOException {
+        List<String> lines = new ArrayList<String>(Files.readAllLines(mOutput.toPath(), UTF_8));
+        Collections.sort(lines);
+        return lines;
+    }
+
+    @Test
+    public void run_writesOneLinePerQuery() throws Exception {
+        write(mInput, "# titles\nemma\n\n978-0-14-143951-8\nnone such\nbad query\n", false);
+
+        BulkLookup.Report report = lookup().run(mInput, mOutput);
+
+        assertEquals(2, report.getFound());
+        assertEquals(1, report.getNotFound());
+        assertEquals(1, report.getFailed());
+        assertEquals(4, report.getLatency().getCount() + report.getFailed());
+        assertTrue(mQueries.contains("isbn:9780141439518"));
+
+        List<String> lines = outputLines();
+        assertEquals(4, lines.size());
+        assertEquals("2\temma\tOK\tid-4\tTitle emma\tAnn; Bo", lines.get(0));
+        assertEquals("4\t978-0-14-143951-8\tOK\tid-18\tTitle isbn:9780141439518\tAnn; Bo", lines.get(1));
+        assertEquals("5\tnone such\tNONE", lines.get(2));
+        assertTrue(lines.get(3).startsWith("6\tbad query\tERROR\t"));
+    }
+
+    @Test
+    public void run_resumesSkippingAnsweredQueries() throws Exception {
+        write(mInput, "emma\nnone such\ndune\npersuasion\n", false);
+        // An earlier run answered lines 1 and 2, failed line 3, and was killed while writing line 4
+        write(mOutput, "1\temma\tOK\tid-4\tEmma\tAnn\n2\tnone such\tNONE\n3\tdune\tERROR\ttimeout\n4\tpers", false);
+
+        BulkLookup.Report report = lookup().run(mInput, mOutput);
+
+        assertEquals(2, report.getSkipped());
+        assertEquals(2, report.getFound());
+        Collections.sort(mQueries);
+        assertEquals("[dune, persuasion]", mQueries.toString());
+
+        List<String> lines = outputLines();
+        assertEquals(5, lines.size());
+        assertEquals("3\tdune\tOK\tid-4\tTitle dune\tAnn; Bo", lines.get(3));
+        assertEquals("4\tpersuasion\tOK\tid-10\tTitle persuasion\tAnn; Bo", lines.get(4));
+    }
+}
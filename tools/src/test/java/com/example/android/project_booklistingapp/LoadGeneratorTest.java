@@ -0,0 +1,63 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LoadGenerator}, against a {@link StubBooksServer}.
+ */
+public class LoadGeneratorTest {
+
+    private StubBooksServer mServer;
+
+    @Before
+    public void startServer() throws IOException {
+        mServer = new StubBooksServer(0, 20, 0, 0, 100, null);
+        mServer.start();
+    }
+
+    @After
+    public void stopServer() {
+        mServer.stop();
+    }
+
+    private static BookSearchEngine engine() {
+        return new BookSearchEngine(new BookHttpClient(), null, BookSearchEngine.newPageExecutor(1));
+    }
+
+    private List<String> urls() {
+        String endpoint = mServer.getEndpoint();
+        return Arrays.asList(new BookQuery("a").withEndpoint(endpoint).toUrl(),
+                new BookQuery("b").withEndpoint(endpoint).toUrl());
+    }
+
+    @Test
+    public void run_holdsTargetRateAndMeasuresLatency() throws Exception {
+        LoadGenerator.Report report = new LoadGenerator(engine(), urls(), 8, new RateLimiter(50)).run(400);
+
+        // 50/s for 0.4 s, give or take the first slot
+        int searches = report.getSucceeded() + report.getFailed();
+        assertTrue(report.toString(), searches >= 18 && searches <= 22);
+        assertEquals(0, report.getFailed());
+        // Searches for the same query in flight at once share one request, as in the app
+        assertTrue(mServer.getRequestCount() >= 2 && mServer.getRequestCount() <= searches);
+        // Every search waited for the stub's latency
+        assertTrue(report.toString(), report.getLatency().getPercentile(50) >= 20000000L);
+    }
+
+    @Test
+    public void run_countsWaitForASlotInLatency() throws Exception {
+        // One search at a time against a 20 ms server cannot keep up with 200/s
+        LoadGenerator.Report report = new LoadGenerator(engine(), urls(), 1, new RateLimiter(200)).run(300);
+
+        assertTrue(report.toString(), report.getThroughput() < 100);
+        assertTrue(report.toString(), report.getLatency().getMax() > 2 * 20000000L);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.android.project_booklistingapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link StubBooksServer}, read through the app's own engine.
+ */
+public class StubBooksServerTest {
+
+    private StubBooksServer mServer;
+
+    private File mRecorded;
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+        if (mRecorded != null) {
+            for (File file : mRecorded.listFiles()) {
+                file.delete();
+            }
+            mRecorded.delete();
+        }
+    }
+
+    private static BookSearchEngine engine() {
+        return new BookSearchEngine(new BookHttpClient(), null, BookSearchEngine.newPageExecutor(1));
+    }
+
+    private StubBooksServer start(double errorRate, File recorded) throws IOException {
+        mServer = new StubBooksServer(0, 0, 0, errorRate, 64, recorded);
+        mServer.start();
+        return mServer;
+    }
+
+    @Test
+    public void search_synthesizesRepeatablePagesOfTheSizeAskedFor() throws Exception {
+        BookQuery query = new BookQuery("Tolkien").withEndpoint(start(0, null).getEndpoint()).withMaxResults(5);
+
+        List<Book> first = engine().search(query.toUrl(), null);
+        List<Book> again = engine().search(query.toUrl(), null);
+        List<Book> second = engine().search(query.withStartIndex(5).toUrl(), null);
+
+        assertEquals(5, first.size());
+        assertEquals(first.get(0).getId(), again.get(0).getId());
+        assertFalse(first.get(4).getId().equals(second.get(0).getId()));
+        assertEquals(3, mServer.getRequestCount());
+
+        // A single volume, as the detail screen fetches it
+        VolumeDetail detail = new VolumeDetailFetcher(new BookHttpClient(), null, mServer.getEndpoint(), 1)
+                .fetch(first.get(0).getId(), null);
+        assertEquals(first.get(0).getTitle(), detail.getTitle());
+        assertEquals(64, detail.getDescription().length());
+    }
+
+    @Test
+    public void search_servesRecordedResponsesAndInjectsErrors() throws Exception {
+        mRecorded = Files.createTempDirectory("stub-recorded").toFile();
+        OutputStream out = new FileOutputStream(new File(mRecorded, "the_hobbit.json"));
+        out.write("{\"items\":[{\"id\":\"rec\",\"volumeInfo\":{\"title\":\"Recorded\"}}]}"
+                .getBytes(Charset.forName("UTF-8")));
+        out.close();
+        String endpoint = start(0, mRecorded).getEndpoint();
+
+        // Found under the query's canonical terms
+        List<Book> books = engine().search(new BookQuery(" The  HOBBIT").withEndpoint(endpoint).toUrl(), null);
+        assertEquals("Recorded", books.get(0).getTitle());
+        mServer.stop();
+
+        String failing = start(1, null).getEndpoint();
+        try {
+            engine().search(new BookQuery("anything").withEndpoint(failing).toUrl(), null);
+            fail("Expected the injected error");
+        } catch (HttpStatusException e) {
+            assertEquals(503, e.getCode());
+        }
+        assertEquals(1, mServer.getErrorCount());
+    }
+}